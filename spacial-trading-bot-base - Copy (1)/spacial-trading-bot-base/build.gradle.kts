@@ -4,6 +4,7 @@ plugins {
     id("com.diffplug.spotless") version "6.25.0"
     id("checkstyle")
     id("pmd")
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "tech.hellsoft"
@@ -21,6 +22,14 @@ repositories {
     }
 }
 
+// Vector API (incubadora) para MatrizRecetas; sin el módulo se usa el cálculo escalar.
+// El kernel vectorial está en src/vector/java: solo esa compilación lleva el módulo
+val moduloVector = "--add-modules=jdk.incubator.vector"
+
+val vector: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+}
+
 dependencies {
     // Hellsoft SDK - Ready when available
     implementation("tech.hellsoft.trading:websocket-client:1.1.4")
@@ -40,10 +49,14 @@ dependencies {
 
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+
+    // KernelRecetas carga el kernel vectorial por nombre
+    runtimeOnly(vector.output)
 }
 
 application {
     mainClass.set("tech.hellsoft.trading.Main")
+    applicationDefaultJvmArgs = listOf(moduloVector)
 }
 
 java {
@@ -52,8 +65,74 @@ java {
     }
 }
 
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.compilerArgs.add(moduloVector)
+    // javac avisa siempre que se usa un módulo de incubadora; el source set es solo el kernel
+    options.isWarnings = false
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
 tasks.test {
     useJUnitPlatform()
+    jvmArgs(moduloVector)
+}
+
+// Prueba de carga contra el simulador local: ./gradlew pruebaCarga -Psim="sim://local?ticks=200000" -Psegundos=30
+tasks.register<JavaExec>("pruebaCarga") {
+    group = "benchmark"
+    description = "Ejecuta ClienteBolsa contra el simulador y muestra eventos/s y latencia"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("tech.hellsoft.trading.simulador.PruebaCarga")
+    jvmArgs(moduloVector)
+    args(
+        project.findProperty("sim") as String? ?: "sim://local?ticks=100000",
+        project.findProperty("segundos") as String? ?: "10"
+    )
+}
+
+// Varias cuentas en una JVM: ./gradlew multicuenta -Pcuentas=src/main/resources/cuentas.json
+tasks.register<JavaExec>("multicuenta") {
+    group = "application"
+    description = "Ejecuta todas las cuentas de cuentas.json en una sola JVM"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("tech.hellsoft.trading.cuentas.EjecutorCuentas")
+    jvmArgs(moduloVector)
+    standardInput = System.`in`
+    args(project.findProperty("cuentas") as String? ?: "src/main/resources/cuentas.json")
+}
+
+// Benchmarks en src/jmh/java: ./gradlew jmh [-PjmhIncluir=Snapshot]
+jmh {
+    val incluir = project.findProperty("jmhIncluir") as String?
+    if (incluir != null) {
+        includes.set(listOf(incluir))
+    }
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    jvmArgsAppend.set(listOf(moduloVector))
+    // Asignaciones por operación (gc.alloc.rate.norm) junto al tiempo
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
+// Guarda el JSON de la corrida como benchmarks/jmh-<commit>.json para comparar commits
+val commitActual = providers.exec {
+    commandLine("git", "rev-parse", "--short", "HEAD")
+    isIgnoreExitValue = true
+}.standardOutput.asText.map { it.trim().ifEmpty { "local" } }
+
+tasks.register<Copy>("jmhGuardar") {
+    group = "benchmark"
+    description = "Ejecuta jmh y archiva el resultado por commit"
+    dependsOn("jmh")
+    from(layout.buildDirectory.file("reports/jmh/results.json"))
+    into(layout.projectDirectory.dir("benchmarks"))
+    rename { "jmh-${commitActual.get()}.json" }
 }
 
 spotless {
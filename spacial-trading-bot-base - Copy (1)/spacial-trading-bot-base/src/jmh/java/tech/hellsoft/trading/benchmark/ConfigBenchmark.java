@@ -0,0 +1,51 @@
+package tech.hellsoft.trading.benchmark;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.util.ConfigLoader;
+
+/**
+ * Carga del archivo de recetas (lectura + Gson) según cuántas recetas tiene.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConfigBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int recetas;
+
+    private Path archivo;
+
+    @Setup
+    public void preparar() throws IOException {
+        archivo = Files.createTempFile("jmh-recetas", ".json");
+        Map<String, Receta> datos = Datos.recetas(Datos.productos(recetas), 4);
+        Files.writeString(archivo, new Gson().toJson(datos));
+    }
+
+    @TearDown
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(archivo);
+    }
+
+    @Benchmark
+    public Map<String, Receta> cargarRecetas() throws ConfiguracionInvalidaException {
+        return ConfigLoader.cargarRecetas(archivo.toString());
+    }
+}
@@ -0,0 +1,68 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+/**
+ * Datos sintéticos comunes a los benchmarks; siempre con la misma semilla
+ * para que dos corridas (o dos commits) midan exactamente lo mismo.
+ */
+final class Datos {
+
+    static final long SEMILLA = 42L;
+
+    private Datos() {
+    }
+
+    static List<String> productos(int n) {
+        List<String> lista = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            lista.add("PROD-" + i);
+        }
+        return lista;
+    }
+
+    static EstadoCliente estado(int productos) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        List<String> nombres = productos(productos);
+        Map<String, Double> precios = new HashMap<>();
+        Map<String, Integer> inventario = new HashMap<>();
+        for (String p : nombres) {
+            precios.put(p, 5.0 + r.nextDouble(100.0));
+            inventario.put(p, r.nextInt(1_000));
+        }
+        return new EstadoCliente(new ArrayList<>(nombres), rol(), recetas(nombres, 4), precios, inventario,
+                100_000.0, 100_000.0);
+    }
+
+    static Rol rol() {
+        return new Rol(3.0, 2, 0.75, 2.5, 6);
+    }
+
+    /**
+     * Una receta por producto con {@code ingredientes} entradas tomadas de los demás.
+     */
+    static Map<String, Receta> recetas(List<String> productos, int ingredientes) {
+        SplittableRandom r = new SplittableRandom(SEMILLA);
+        Map<String, Receta> recetas = new LinkedHashMap<>();
+        for (String p : productos) {
+            recetas.put(p, receta(productos, ingredientes, r));
+        }
+        return recetas;
+    }
+
+    static Receta receta(List<String> productos, int ingredientes, SplittableRandom r) {
+        Map<String, Integer> req = new HashMap<>();
+        while (req.size() < Math.min(ingredientes, productos.size())) {
+            req.put(productos.get(r.nextInt(productos.size())), 1 + r.nextInt(5));
+        }
+        return new Receta(req);
+    }
+}
@@ -0,0 +1,77 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+
+/**
+ * P&L y los eventos que lo mantienen (ticker, fill) con distintos tamaños de inventario.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EstadoBenchmark {
+
+    // EstadoMercado admite hasta 256 productos
+    @Param({"10", "64", "250"})
+    int productos;
+
+    private EstadoCliente estado;
+    private String[] nombres;
+    private int i;
+    // Vueltas completas a los productos; el lado del fill cambia en cada una
+    private int vuelta;
+
+    @Setup
+    public void preparar() {
+        estado = Datos.estado(productos);
+        List<String> lista = Datos.productos(productos);
+        nombres = lista.toArray(new String[0]);
+    }
+
+    private String siguiente() {
+        if (++i == nombres.length) {
+            i = 0;
+            vuelta++;
+        }
+        return nombres[i];
+    }
+
+    @Benchmark
+    public double calcularPL() {
+        return estado.calcularPL();
+    }
+
+    @Benchmark
+    public double ticker() {
+        double precio = 10.0 + (i & 7);
+        estado.aplicarTicker(siguiente(), precio, precio + 0.5);
+        return estado.calcularPL();
+    }
+
+    @Benchmark
+    public double fill() {
+        // Cada producto alterna compra y venta de una vuelta a la siguiente, así
+        // su inventario no deriva sea cual sea la paridad del número de productos
+        String producto = siguiente();
+        estado.aplicarFill((vuelta & 1) == 0 ? "BUY" : "SELL", producto, 1, 10.0);
+        return estado.calcularPL();
+    }
+
+    /**
+     * Línea base: recorrer todo el inventario, como hacía el P&L antes de los deltas.
+     */
+    @Benchmark
+    public double recalibrar() {
+        estado.recalibrarValoracion();
+        return estado.calcularPL();
+    }
+}
@@ -0,0 +1,94 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.produccion.MatrizRecetas;
+import tech.hellsoft.trading.util.RecetaValidator;
+
+/**
+ * "Qué puedo producir ahora" sobre todas las recetas: recorriendo los mapas
+ * con {@link RecetaValidator}, con la matriz compilada completa (vectorial y
+ * escalar) y actualizando un solo ingrediente.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatrizRecetasBenchmark {
+
+    @Param({"16", "128"})
+    int recetas;
+
+    @Param({"4", "16"})
+    int ingredientes;
+
+    private Map<String, Receta> mapa;
+    private Map<String, Integer> stock;
+    private EstadoMercado mercado;
+    private MatrizRecetas vectorial;
+    private MatrizRecetas escalar;
+    private int[] ids;
+    private int siguiente;
+
+    @Setup
+    public void preparar() {
+        List<String> productos = Datos.productos(recetas);
+        mapa = Datos.recetas(productos, ingredientes);
+        mercado = new EstadoMercado();
+        SplittableRandom r = new SplittableRandom(Datos.SEMILLA);
+        for (String p : productos) {
+            mercado.fijarInventario(p, r.nextInt(1_000));
+        }
+        stock = mercado.inventarioComoMapa();
+        vectorial = MatrizRecetas.compilar(mapa, mercado, true);
+        escalar = MatrizRecetas.compilar(mapa, mercado, false);
+        ids = new int[productos.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = mercado.buscarId(productos.get(i));
+        }
+    }
+
+    @Benchmark
+    public int validarTodasConMapas() {
+        int n = 0;
+        for (Receta receta : mapa.values()) {
+            if (RecetaValidator.puedeProducir(receta, stock)) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Benchmark
+    public MatrizRecetas recalcularVectorial() {
+        vectorial.recalcular(mercado);
+        return vectorial;
+    }
+
+    @Benchmark
+    public MatrizRecetas recalcularEscalar() {
+        escalar.recalcular(mercado);
+        return escalar;
+    }
+
+    /**
+     * Un cambio de inventario: alterna la cantidad para que nunca sea igual a la anterior.
+     */
+    @Benchmark
+    public MatrizRecetas actualizarUnIngrediente() {
+        int i = siguiente++;
+        vectorial.actualizar(ids[i % ids.length], 500 + (i & 1));
+        return vectorial;
+    }
+}
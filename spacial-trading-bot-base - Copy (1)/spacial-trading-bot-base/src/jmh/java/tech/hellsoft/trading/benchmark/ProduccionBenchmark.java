@@ -0,0 +1,76 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.util.CalculadoraProduccion;
+
+/**
+ * Unidades por producción: rol cacheado, lote de roles y cálculo sin caché.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProduccionBenchmark {
+
+    @Param({"1", "64", "1024"})
+    int roles;
+
+    private Rol rol;
+    private Rol[] lote;
+    private int[] destino;
+    private double[] baseEnergy;
+    private int[] levelEnergy;
+    private double[] decay;
+    private double[] branches;
+    private int[] maxDepth;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom r = new SplittableRandom(Datos.SEMILLA);
+        rol = Datos.rol();
+        lote = new Rol[roles];
+        destino = new int[roles];
+        baseEnergy = new double[roles];
+        levelEnergy = new int[roles];
+        decay = new double[roles];
+        branches = new double[roles];
+        maxDepth = new int[roles];
+        for (int i = 0; i < roles; i++) {
+            baseEnergy[i] = 1.0 + r.nextDouble(5.0);
+            levelEnergy[i] = 1 + r.nextInt(4);
+            decay[i] = 0.5 + r.nextDouble(0.45);
+            branches[i] = 1.0 + r.nextDouble(3.0);
+            maxDepth[i] = 1 + r.nextInt(10);
+            lote[i] = new Rol(baseEnergy[i], levelEnergy[i], decay[i], branches[i], maxDepth[i]);
+        }
+    }
+
+    @Benchmark
+    public int unidadesCacheadas() {
+        return CalculadoraProduccion.calcularUnidades(rol);
+    }
+
+    @Benchmark
+    public int[] loteDeRoles() {
+        CalculadoraProduccion.calcularUnidades(lote, destino);
+        return destino;
+    }
+
+    /**
+     * Lote en columnas: no consulta la caché, mide el cálculo en sí.
+     */
+    @Benchmark
+    public int[] loteEnColumnas() {
+        CalculadoraProduccion.calcularUnidades(baseEnergy, levelEnergy, decay, branches, maxDepth, destino);
+        return destino;
+    }
+}
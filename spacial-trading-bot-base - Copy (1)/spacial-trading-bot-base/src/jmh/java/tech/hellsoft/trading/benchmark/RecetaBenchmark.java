@@ -0,0 +1,64 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.util.RecetaValidator;
+
+/**
+ * Validación y consumo de ingredientes según el tamaño de receta e inventario.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RecetaBenchmark {
+
+    @Param({"2", "8", "32"})
+    int ingredientes;
+
+    @Param({"32", "1024"})
+    int inventario;
+
+    private Receta receta;
+    private Map<String, Integer> stock;
+
+    @Setup
+    public void preparar() {
+        List<String> productos = Datos.productos(inventario);
+        receta = Datos.receta(productos, ingredientes, new SplittableRandom(Datos.SEMILLA));
+        stock = new HashMap<>();
+    }
+
+    /**
+     * Stock suficiente para que consumir no llegue a cero dentro de una iteración.
+     */
+    @Setup(Level.Iteration)
+    public void reponer() {
+        for (String p : Datos.productos(inventario)) {
+            stock.put(p, Integer.MAX_VALUE / 2);
+        }
+    }
+
+    @Benchmark
+    public boolean puedeProducir() {
+        return RecetaValidator.puedeProducir(receta, stock);
+    }
+
+    @Benchmark
+    public Map<String, Integer> consumirIngredientes() {
+        RecetaValidator.consumirIngredientes(receta, stock);
+        return stock;
+    }
+}
@@ -0,0 +1,85 @@
+package tech.hellsoft.trading.benchmark;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+import tech.hellsoft.trading.persistencia.CodecSnapshot;
+import tech.hellsoft.trading.util.SnapshotManager;
+
+/**
+ * Guardar y cargar snapshots: a disco (con fsync del sistema de archivos incluido)
+ * y solo codificación en memoria, para separar el coste del formato del de E/S.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+
+    @Param({"10", "64", "250"})
+    int productos;
+
+    private EstadoCliente estado;
+    private EstadoCliente destino;
+    private final CodecSnapshot codec = new CodecSnapshot();
+    private ByteBuffer codificado;
+    private Path directorio;
+    private String archivoEscritura;
+    private String archivoLectura;
+
+    @Setup
+    public void preparar() throws IOException, SnapshotCorruptoException {
+        estado = Datos.estado(productos);
+        destino = new EstadoCliente();
+        codificado = codec.codificar(estado);
+        directorio = Files.createTempDirectory("jmh-snapshots");
+        archivoEscritura = directorio.resolve("escritura.bin").toString();
+        archivoLectura = directorio.resolve("lectura.bin").toString();
+        SnapshotManager.guardar(estado, archivoLectura);
+    }
+
+    @TearDown
+    public void limpiar() throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            for (Path p : (Iterable<Path>) archivos::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+        Files.deleteIfExists(directorio);
+    }
+
+    @Benchmark
+    public String guardar() throws SnapshotCorruptoException {
+        SnapshotManager.guardar(estado, archivoEscritura);
+        return archivoEscritura;
+    }
+
+    @Benchmark
+    public EstadoCliente cargar() throws SnapshotCorruptoException {
+        return SnapshotManager.cargar(archivoLectura);
+    }
+
+    @Benchmark
+    public ByteBuffer codificar() {
+        return codec.codificar(estado);
+    }
+
+    @Benchmark
+    public EstadoCliente decodificar() throws SnapshotCorruptoException {
+        CodecSnapshot.decodificar(codificado.duplicate()).aplicar(destino);
+        return destino;
+    }
+}
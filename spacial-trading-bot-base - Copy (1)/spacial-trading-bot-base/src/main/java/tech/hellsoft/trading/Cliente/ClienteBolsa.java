@@ -1,141 +1,445 @@
 package tech.hellsoft.trading.Cliente;
 
-import tech.hellsoft.trading.ConectorBolsa;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
 import tech.hellsoft.trading.ConectorBolsa;
 import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.conexion.EstadoConexion;
+import tech.hellsoft.trading.conexion.SupervisorConexion;
 import tech.hellsoft.trading.dto.server.*;
+import tech.hellsoft.trading.estrategia.EventoMercado;
+import tech.hellsoft.trading.estrategia.IntencionOrden;
+import tech.hellsoft.trading.estrategia.MotorEstrategias;
+import tech.hellsoft.trading.eventos.TipoEvento;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
 import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
 import tech.hellsoft.trading.exception.ProduccionException.RecetaNoEncontradaException;
 import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.exception.TradingExceptions.LimiteRiesgoException;
+import tech.hellsoft.trading.exception.TradingExceptions.PrecioNoDisponibleException;
 import tech.hellsoft.trading.exception.TradingExceptions.ProductoNoAutorizadoException;
 import tech.hellsoft.trading.exception.TradingExceptions.SaldoInsuficienteException;
+import tech.hellsoft.trading.exception.TradingExceptions.TradingException;
+import tech.hellsoft.trading.historico.GrabadorTicks;
+import tech.hellsoft.trading.mercado.LibroOfertas;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.metricas.Metricas;
+import tech.hellsoft.trading.ordenes.EstadoOrden;
+import tech.hellsoft.trading.ordenes.GestorOrdenes;
+import tech.hellsoft.trading.ordenes.Lado;
+import tech.hellsoft.trading.ordenes.Orden;
+import tech.hellsoft.trading.ordenes.SalidaOrdenes;
+import tech.hellsoft.trading.persistencia.CodecSnapshot;
+import tech.hellsoft.trading.persistencia.DiarioEventos;
+import tech.hellsoft.trading.produccion.ProgramadorProduccion;
+import tech.hellsoft.trading.produccion.SalidaProduccion;
+import tech.hellsoft.trading.produccion.TrabajoProduccion;
+import tech.hellsoft.trading.riesgo.ControlRiesgo;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
+
+import java.nio.file.Path;
 
 
 public class ClienteBolsa implements EventListener {
-    private ConectorBolsa conector;
+    private final SalidaOrdenes salida;
     private EstadoCliente estado;
+    private final GestorOrdenes ordenes = new GestorOrdenes();
+    private final ControlRiesgo riesgo;
+    // Las estrategias envían sus órdenes por comprar/vender, es decir, pasando por el riesgo
+    private final MotorEstrategias estrategias = new MotorEstrategias(this::ejecutarIntencion);
+    // Diario de fills/inventario/saldo/acks; null = sin durabilidad
+    private volatile DiarioEventos diario;
+    // Grabación de tickers/ofertas para backtests; null = no se graba
+    private volatile GrabadorTicks grabador;
+    // Reconexión y reconciliación tras un corte; null = el corte solo se informa
+    private volatile SupervisorConexion supervisor;
+    // Qué hacer si el servidor rechaza la API key; con varias cuentas solo se detiene la propia
+    private volatile Runnable alCredencialInvalida = () -> System.exit(1);
+    // Latencia por callback y de ticker a orden
+    private final Metricas metricas = new Metricas();
+    // Producciones en vuelo; reservan ingredientes en el mismo ReservasInventario que las ventas
+    private final ProgramadorProduccion produccion;
+    // Ofertas de otros traders pendientes de aceptar o rechazar; vencen solas
+    private final LibroOfertas ofertas;
     public ClienteBolsa(ConectorBolsa conector) {
-        this.conector = conector;
+        this(conector, LimitesRiesgo.porDefecto());
+    }
+    public ClienteBolsa(ConectorBolsa conector, LimitesRiesgo limites) {
+        this(conector::enviarOrden, conector::enviarProduccion, limites);
+    }
+    public ClienteBolsa(SalidaOrdenes salida, SalidaProduccion salidaProduccion, LimitesRiesgo limites) {
+        this.salida = salida;
         this.estado = new EstadoCliente();
+        this.riesgo = new ControlRiesgo(estado.getMercado(), estado.getValoracion(), limites);
+        // Las reservas se liberan con cada fill o rechazo
+        ordenes.agregarOyente(riesgo);
+        this.produccion = new ProgramadorProduccion(estado, riesgo.getReservas(), salidaProduccion);
+        // La liquidez de una oferta entra al libro con ella y sale cuando la oferta sale
+        this.ofertas = new LibroOfertas(estado.getMercado(), estado.getLibro()::onOffer,
+                o -> estado.getLibro().retirarOferta(o.getProduct(), o.getPrice(), o.getQuantity()));
     }
     // ========== CALLBACKS DEL SDK ==========
+    // Los callbacks no escriben en System.out: lo hace el hilo de la bitácora
+    private static final Plantilla CONECTADO = Plantilla.info("✅ Conectado como {}");
+    private static final Plantilla PL = Plantilla.info("P&L: {}%");
+    private static final Plantilla RECHAZADA = Plantilla.aviso("❌ Orden rechazada: {} {} {} {}");
+    private static final Plantilla CONEXION_PERDIDA = Plantilla.aviso("⚠ Conexión perdida: {}");
+
     @Override
-    public void onLoginOk(LoginOk msg) {
+    public void onLoginOk(LoginOKMessage msg) {
+        SupervisorConexion s = supervisor;
+        if (s != null && s.sesionIniciada(msg)) {
+            // Reconexión: manda el saldo del servidor, pero el inicial (base del P&L) no cambia
+            onBalanceUpdate(new BalanceUpdateMessage(msg.getCurrentBalance()));
+            return;
+        }
         // Inicializar estado con datos del servidor
-        estado.setSaldo(msg.getSaldoInicial());
-        estado.setSaldoInicial(msg.getSaldoInicial());
-        estado.setRecetas(msg.getRecetas());
-        estado.setRol(msg.getRol());
-        estado.setProductosAutorizados(msg.getProductosAutorizados());
-        System.out.println("✅ Conectado como " + msg.getEquipo());
+        estado.setSaldo(msg.getCurrentBalance());
+        estado.setSaldoInicial(msg.getCurrentBalance());
+        Bitacora.global().registro(CONECTADO).texto(msg.getTeam()).publicar();
     }
     @Override
-    public void onFill(Fill fill) {
-        if (fill.getSide().equals("BUY")) {
-            // Restar dinero, sumar inventario
-        } else {
-            // Sumar dinero, restar inventario
+    public void onFill(FillMessage fill) {
+        long inicio = System.nanoTime();
+        long seq = registrar(TipoEvento.FILL, fill);
+        estado.iniciarEvento();
+        try {
+            // BUY: restar dinero, sumar inventario; SELL: al revés
+            estado.aplicarFill(fill.getSide(), fill.getProduct(), fill.getFillQty(), fill.getFillPrice());
+        } finally {
+            // Aunque el evento falle, la marca no puede quedar impar: los snapshots esperarían para siempre
+            estado.terminarEvento(seq);
         }
-        System.out.println("P&L: " + estado.calcularPL() + "%");
+        // Después del inventario: al soltar la reserva de una venta sus unidades ya salieron
+        ordenes.onFill(fill);
+        estrategias.publicarFill(fill.getProduct(), Lado.desde(fill.getSide()) == Lado.BUY,
+                fill.getFillQty(), fill.getFillPrice());
+        Bitacora.global().registro(PL).real(estado.calcularPL(), 2).publicar();
+        metricas.registrar(TipoEvento.FILL, inicio);
     }
     @Override
-    public void onTicker(Ticker ticker) {
-        estado.getPreciosActuales().put(ticker.getProducto(), ticker.getMid());
+    public void onTicker(TickerMessage ticker) {
+        long llegada = System.nanoTime();
+        String producto = ticker.getProduct();
+        estado.aplicarTicker(producto, ticker.getBestBid(), ticker.getBestAsk());
+        estado.getLibro().onTicker(ticker);
+        GrabadorTicks g = grabador;
+        if (g != null) {
+            g.onTicker(ticker);
+        }
+        estrategias.publicar(new EventoMercado(producto, ticker.getBestBid(), ticker.getBestAsk(),
+                ticker.getMid(), estado.getLibro().spreadPromedio(producto),
+                estado.getMercado().cantidad(producto) - riesgo.inventarioReservado(producto),
+                riesgo.saldoDisponible(), llegada));
+        metricas.registrar(TipoEvento.TICKER, llegada);
     }
     @Override
-    public void onOffer(Offer offer) {
+    public void onOffer(OfferMessage offer) {
+        long inicio = System.nanoTime();
+        registrarOferta(offer);
+        GrabadorTicks g = grabador;
+        if (g != null) {
+            g.onOffer(offer);
+        }
+        metricas.registrar(TipoEvento.OFFER, inicio);
         // Decidir si aceptar basado en precio y disponibilidad
     }
 
     @Override
-    public void onLoginOk(LoginOKMessage message) {
+    public void onError(ErrorMessage error) {
+        switch (error.getCode()) {
+            case "INVALID_TOKEN":
+                alCredencialInvalida.run();
+                break;
+            // ... más casos
+        }
+    }
 
+    @Override
+    public void onOrderAck(OrderAckMessage message) {
+        long inicio = System.nanoTime();
+        registrar(TipoEvento.ORDER_ACK, message);
+        Orden orden = ordenes.onAck(message);
+        if (orden != null && orden.getEstado() == EstadoOrden.RECHAZADA) {
+            Bitacora.global().registro(RECHAZADA).texto(orden.getClOrdId()).texto(orden.getLado())
+                    .entero(orden.getCantidad()).texto(orden.getProducto()).publicar();
+        }
+        metricas.registrar(TipoEvento.ORDER_ACK, inicio);
     }
 
     @Override
-    public void onFill(FillMessage message) {
+    public void onInventoryUpdate(InventoryUpdateMessage message) {
+        long inicio = System.nanoTime();
+        long seq = registrar(TipoEvento.INVENTORY_UPDATE, message);
+        int antes = estado.getMercado().cantidad(message.getProduct());
+        estado.iniciarEvento();
+        try {
+            estado.aplicarInventario(message.getProduct(), message.getQuantity());
+        } finally {
+            estado.terminarEvento(seq);
+        }
+        SupervisorConexion s = supervisor;
+        // Tras una reconexión el servidor reenvía el inventario: no son respuestas a producciones
+        if (s == null || s.estado() == EstadoConexion.CONECTADO) {
+            // Las compras y ventas ya movieron el inventario en onFill; lo que cambia aquí es producción
+            if (message.getQuantity() > antes) {
+                produccion.inventarioSubio(message.getProduct(), message.getQuantity() - antes);
+            } else if (message.getQuantity() < antes) {
+                produccion.inventarioBajo(message.getProduct(), antes - message.getQuantity());
+            }
+        }
+        metricas.registrar(TipoEvento.INVENTORY_UPDATE, inicio);
+    }
 
+    @Override
+    public void onBalanceUpdate(BalanceUpdateMessage message) {
+        long inicio = System.nanoTime();
+        long seq = registrar(TipoEvento.BALANCE_UPDATE, message);
+        estado.iniciarEvento();
+        try {
+            estado.setSaldo(message.getBalance());
+        } finally {
+            estado.terminarEvento(seq);
+        }
+        metricas.registrar(TipoEvento.BALANCE_UPDATE, inicio);
     }
 
     @Override
-    public void onTicker(TickerMessage message) {
+    public void onEventDelta(EventDeltaMessage message) {
 
     }
 
     @Override
-    public void onOffer(OfferMessage message) {
+    public void onBroadcast(BroadcastNotificationMessage message) {
 
     }
 
     @Override
-    public void onError(ErrorMessage error) {
-        switch (error.getCodigo()) {
-            case "INVALID_TOKEN":
-                System.exit(1);
-                break;
-            // ... más casos
+    public void onConnectionLost(Throwable error) {
+        Bitacora.global().registro(CONEXION_PERDIDA).texto(error == null ? null : error.getMessage()).publicar();
+        SupervisorConexion s = supervisor;
+        if (s != null) {
+            s.conexionPerdida(error);
         }
     }
 
     @Override
-    public void onOrderAck(OrderAckMessage message) {
+    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage message) {
 
     }
 
-    @Override
-    public void onInventoryUpdate(InventoryUpdateMessage message) {
-
+    // ========== DIARIO Y RECUPERACIÓN ==========
+    private long registrar(TipoEvento tipo, Object mensaje) {
+        DiarioEventos d = diario;
+        return d == null ? 0 : d.registrar(tipo, mensaje);
     }
 
-    @Override
-    public void onBalanceUpdate(BalanceUpdateMessage message) {
-
+    /**
+     * Reconstruye el estado: carga el snapshot (si hay) y reaplica los eventos
+     * del diario posteriores a él. Debe llamarse sin eventos del servidor
+     * llegando (al arrancar o tras perder la conexión).
+     *
+     * @return cuántos eventos se reaplicaron
+     */
+    public long recuperar(Path snapshot, Path directorioDiario) throws SnapshotCorruptoException {
+        if (snapshot != null) {
+            CodecSnapshot.leerEn(snapshot, estado);
+        }
+        long desde = estado.getSecuenciaDiario();
+        long hasta = DiarioEventos.reproducir(directorioDiario, desde, this::reaplicar);
+        estado.recalibrarValoracion();
+        return hasta - desde;
     }
 
-    @Override
-    public void onEventDelta(EventDeltaMessage message) {
+    /**
+     * Reconstruye el estado sin snapshot: vuelve al estado del login y reaplica
+     * el diario entero. Si el diario ya se purgó no toca nada y falla.
+     *
+     * @return cuántos eventos se reaplicaron
+     */
+    public long recuperarDesdeCero(Path directorioDiario) throws SnapshotCorruptoException {
+        long primera = DiarioEventos.primeraConservada(directorioDiario);
+        if (primera > 1) {
+            throw new SnapshotCorruptoException("El diario empieza en el evento #" + primera
+                    + " (lo anterior se purgó): hace falta un snapshot");
+        }
+        estado.reiniciarEventos();
+        return recuperar(null, directorioDiario);
+    }
 
+    private void reaplicar(long seq, TipoEvento tipo, Object mensaje) {
+        estado.iniciarEvento();
+        try {
+            switch (tipo) {
+                case FILL -> {
+                    FillMessage f = (FillMessage) mensaje;
+                    estado.aplicarFill(f.getSide(), f.getProduct(), f.getFillQty(), f.getFillPrice());
+                }
+                case INVENTORY_UPDATE -> {
+                    InventoryUpdateMessage m = (InventoryUpdateMessage) mensaje;
+                    estado.aplicarInventario(m.getProduct(), m.getQuantity());
+                }
+                case BALANCE_UPDATE -> estado.setSaldo(((BalanceUpdateMessage) mensaje).getBalance());
+                default -> {
+                    // Los acks solo importan a órdenes vivas, que no sobreviven a un reinicio
+                }
+            }
+        } finally {
+            estado.terminarEvento(seq);
+        }
     }
 
-    @Override
-    public void onBroadcast(BroadcastNotificationMessage message) {
+    public void setDiario(DiarioEventos diario) {
+        this.diario = diario;
+    }
 
+    public DiarioEventos getDiario() {
+        return diario;
     }
 
-    @Override
-    public void onConnectionLost(Throwable error) {
+    public void setGrabador(GrabadorTicks grabador) {
+        this.grabador = grabador;
+    }
 
+    public void setSupervisor(SupervisorConexion supervisor) {
+        this.supervisor = supervisor;
     }
 
-    @Override
-    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage message) {
+    public void setAlCredencialInvalida(Runnable accion) {
+        this.alCredencialInvalida = accion;
+    }
 
+    public SupervisorConexion getSupervisor() {
+        return supervisor;
     }
 
-    @Override
-    public void onConexionPerdida(Exception e) {
-        System.out.println("⚠ Conexión perdida");
+    public GrabadorTicks getGrabador() {
+        return grabador;
     }
+
     // ========== MÉTODOS PÚBLICOS ==========
-    public void comprar(String producto, int cantidad, String mensaje)
-            throws SaldoInsuficienteException {
-        // Validar saldo → lanzar excepción si falla
+    public Orden comprar(String producto, int cantidad, String mensaje)
+            throws SaldoInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
+        // Validar saldo y límites → reservar; lanza excepción si falla
+        double precio = precioReferencia(producto, Lado.BUY);
+        riesgo.reservarCompra(producto, cantidad, precio);
         // Crear orden → enviar
+        return enviar(Lado.BUY, producto, cantidad, mensaje, precio);
     }
-    public void vender(String producto, int cantidad, String mensaje)
-            throws InventarioInsuficienteException {
-        // Validar inventario → lanzar excepción si falla
+    public Orden vender(String producto, int cantidad, String mensaje)
+            throws InventarioInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
+        // Validar inventario y límites → reservar; lanza excepción si falla
+        double precio = precioReferencia(producto, Lado.SELL);
+        riesgo.reservarVenta(producto, cantidad, precio);
         // Crear orden → enviar
+        return enviar(Lado.SELL, producto, cantidad, mensaje, precio);
+    }
+    private double precioReferencia(String producto, Lado lado) throws PrecioNoDisponibleException {
+        Posicion p = estado.getMercado().posicion(producto);
+        if (p == null || !p.tienePrecio()) {
+            throw new PrecioNoDisponibleException(producto);
+        }
+        double precio = lado == Lado.BUY ? p.ask() : p.bid();
+        return precio > 0.0 ? precio : p.mid();
+    }
+    private Orden enviar(Lado lado, String producto, int cantidad, String mensaje, double precio) {
+        Orden orden;
+        try {
+            orden = ordenes.crear(lado, producto, cantidad, 0.0, mensaje, precio);
+        } catch (RuntimeException e) {
+            riesgo.liberar(lado, producto, cantidad, precio);
+            throw e;
+        }
+        long inicio = System.nanoTime();
+        try {
+            salida.enviarOrden(orden.aMensaje());
+            metricas.envioOrden().registrarDesde(inicio);
+        } catch (RuntimeException e) {
+            // descartar notifica al control de riesgo, que libera la reserva
+            ordenes.descartar(orden);
+            throw e;
+        }
+        return orden;
+    }
+    /**
+     * Ejecuta una intención de una estrategia; los rechazos del riesgo no son errores.
+     */
+    private boolean ejecutarIntencion(IntencionOrden intencion) {
+        String mensaje = "auto: " + intencion.motivo();
+        try {
+            if (intencion.lado() == Lado.BUY) {
+                comprar(intencion.producto(), intencion.cantidad(), mensaje);
+            } else {
+                vender(intencion.producto(), intencion.cantidad(), mensaje);
+            }
+            // Incluye la cola de la estrategia, su decisión, el riesgo y el envío
+            metricas.tickAOrden().registrarDesde(intencion.origenNanos());
+            return true;
+        } catch (TradingException e) {
+            return false;
+        }
     }
-    public void producir(String producto, boolean premium)
+    /**
+     * Valida, reserva los ingredientes y encola la producción; no espera la
+     * respuesta del servidor (ver {@link TrabajoProduccion#terminado()}).
+     */
+    public TrabajoProduccion producir(String producto, boolean premium)
             throws ProductoNoAutorizadoException, RecetaNoEncontradaException,
             IngredientesInsuficientesException {
-        // Validaciones → calcular → actualizar → notificar
+        return produccion.encolar(producto, premium);
     }
     public EstadoCliente getEstado() {
         return estado;
     }
+    public GestorOrdenes getOrdenes() {
+        return ordenes;
+    }
+    public ControlRiesgo getRiesgo() {
+        return riesgo;
+    }
+    public MotorEstrategias getEstrategias() {
+        return estrategias;
+    }
+    public Metricas getMetricas() {
+        return metricas;
+    }
+    public ProgramadorProduccion getProduccion() {
+        return produccion;
+    }
+
+    /**
+     * Agrega la oferta al libro de ofertas y su liquidez al libro del producto.
+     *
+     * @return false si es inválida o ya estaba registrada
+     */
+    public boolean registrarOferta(OfferMessage offer) {
+        return ofertas.registrar(offer);
+    }
+
+    /**
+     * Acepta una oferta vendiéndole el producto al comprador. La oferta se saca
+     * del libro antes de vender, para que nadie más la acepte a la vez; si la
+     * venta no sale, vuelve al libro con su prioridad y su vencimiento.
+     *
+     * @return la orden enviada, o null si la oferta ya no estaba
+     */
+    public Orden aceptarOferta(String offerId)
+            throws InventarioInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
+        LibroOfertas.Oferta oferta = ofertas.apartar(offerId);
+        if (oferta == null) {
+            return null;
+        }
+        OfferMessage offer = oferta.mensaje();
+        try {
+            return vender(offer.getProduct(), offer.getQuantity(), "Aceptando oferta " + offerId);
+        } catch (InventarioInsuficienteException | LimiteRiesgoException | PrecioNoDisponibleException
+                | RuntimeException e) {
+            ofertas.devolver(oferta);
+            throw e;
+        }
+    }
+
+    public LibroOfertas getOfertas() {
+        return ofertas;
+    }
 }
\ No newline at end of file
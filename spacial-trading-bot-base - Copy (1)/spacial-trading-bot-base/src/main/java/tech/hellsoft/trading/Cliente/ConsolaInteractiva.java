@@ -2,41 +2,121 @@ package tech.hellsoft.trading.Cliente;
 
 import tech.hellsoft.trading.Cliente.ClienteBolsa;
 import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.conexion.Reconciliacion;
+import tech.hellsoft.trading.conexion.SupervisorConexion;
 import tech.hellsoft.trading.dto.server.OfferMessage;
 import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
 import tech.hellsoft.trading.dto.server.FillMessage;
 import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.estrategia.EstrategiaUmbral;
+import tech.hellsoft.trading.estrategia.MotorEstrategias;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
 import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
 import tech.hellsoft.trading.exception.ProduccionException.RecetaNoEncontradaException;
 import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.exception.TradingExceptions.LimiteRiesgoException;
+import tech.hellsoft.trading.exception.TradingExceptions.PrecioNoDisponibleException;
 import tech.hellsoft.trading.exception.TradingExceptions.ProductoNoAutorizadoException;
 import tech.hellsoft.trading.exception.TradingExceptions.SaldoInsuficienteException;
+import tech.hellsoft.trading.historico.Backtester;
+import tech.hellsoft.trading.historico.GrabadorTicks;
+import tech.hellsoft.trading.historico.Grabacion;
+import tech.hellsoft.trading.historico.ModeloFills;
+import tech.hellsoft.trading.historico.ResultadoBacktest;
+import tech.hellsoft.trading.mercado.LibroOfertas;
+import tech.hellsoft.trading.mercado.LibroOrdenes;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.mercado.Valoracion;
+import tech.hellsoft.trading.metricas.Histograma;
+import tech.hellsoft.trading.metricas.ReporteMetricas;
+import tech.hellsoft.trading.ordenes.GestorOrdenes;
+import tech.hellsoft.trading.ordenes.Orden;
+import tech.hellsoft.trading.persistencia.DiarioEventos;
+import tech.hellsoft.trading.persistencia.EntradaSnapshot;
+import tech.hellsoft.trading.persistencia.ProgramadorSnapshots;
+import tech.hellsoft.trading.produccion.EstadoTrabajo;
+import tech.hellsoft.trading.produccion.ListaMateriales;
+import tech.hellsoft.trading.produccion.MatrizRecetas;
+import tech.hellsoft.trading.produccion.PlanProduccion;
+import tech.hellsoft.trading.produccion.PlanificadorProduccion;
+import tech.hellsoft.trading.produccion.ProgramadorProduccion;
+import tech.hellsoft.trading.produccion.TrabajoProduccion;
+import tech.hellsoft.trading.riesgo.ControlRiesgo;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
 
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 
 /**
  * ConsolaInteractiva (implementación según la guía del proyecto).
  * - Usa ClienteBolsa para ejecutar las operaciones reales.
- * - Mantiene un map de ofertas (OfferMessage) que pueden aceptarse/rechazarse.
- * - Implementa snapshot save/load serializando EstadoCliente.
+ * - Muestra las ofertas (OfferMessage) del LibroOfertas del cliente, que pueden
+ *   aceptarse/rechazarse y vencen solas.
+ * - Toma snapshots incrementales en segundo plano (ProgramadorSnapshots) y
+ *   permite forzar uno o cargar cualquiera del índice.
  */
 public class ConsolaInteractiva {
 
     private final ClienteBolsa cliente;
     private final EstadoCliente estado;
     private final Scanner scanner;
-    private final Map<String, OfferMessage> ofertasPendientes = new LinkedHashMap<>();
+    private final LibroOfertas ofertas;
     private boolean running = true;
     private final Path snapshotsDir = Path.of("snapshots");
+    private final Path diarioDir = Path.of("diario");
+    private final Path grabacionesDir = Path.of("grabaciones");
+    // null si no se pudo abrir la carpeta de snapshots
+    private ProgramadorSnapshots programador;
+    // CSV con percentiles cada 10 s; null si no se pudo crear
+    private ReporteMetricas reporteMetricas;
 
     public ConsolaInteractiva(ClienteBolsa cliente) {
         this.cliente = cliente;
         this.estado = cliente.getEstado();
+        this.ofertas = cliente.getOfertas();
         this.scanner = new Scanner(System.in);
         ensureSnapshotsDir();
+        abrirDiario();
+        iniciarSnapshots();
+        iniciarReporteMetricas();
+    }
+
+    private void iniciarReporteMetricas() {
+        Path archivo = Path.of("metricas", "metricas-" + java.time.LocalDate.now() + ".csv");
+        try {
+            reporteMetricas = new ReporteMetricas(cliente.getMetricas(), archivo, 10_000);
+            reporteMetricas.iniciar();
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo crear el reporte de métricas: " + e.getMessage());
+        }
+    }
+
+    private void iniciarSnapshots() {
+        try {
+            programador = new ProgramadorSnapshots(estado, snapshotsDir, ProgramadorSnapshots.Politica.porDefecto(),
+                    cliente.getDiario());
+            programador.iniciar();
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudieron programar snapshots: " + e.getMessage());
+        }
+    }
+
+    private void abrirDiario() {
+        if (cliente.getDiario() != null) {
+            return;
+        }
+        try {
+            cliente.setDiario(new DiarioEventos(diarioDir));
+        } catch (IOException e) {
+            System.err.println("⚠ No se pudo abrir el diario de eventos (sin recuperación ante caídas): "
+                    + e.getMessage());
+        }
     }
 
     private void ensureSnapshotsDir() {
@@ -49,12 +129,13 @@ public class ConsolaInteractiva {
         }
     }
 
+    private static final Plantilla OFERTA_RECIBIDA = Plantilla.info(
+            "📬 Nueva oferta recibida: {}\n💡 Escribe 'ofertas' para verla y 'aceptar {}' para aceptar.");
+
     // Public API para que ClienteBolsa (o el SDK) registre ofertas cuando lleguen.
     public void registrarOferta(OfferMessage offer) {
-        if (offer == null) return;
-        ofertasPendientes.put(offer.getOfferId(), offer);
-        System.out.println("\n📬 Nueva oferta recibida: " + offer);
-        System.out.println("💡 Escribe 'ofertas' para verla y 'aceptar " + offer.getOfferId() + "' para aceptar.");
+        if (!cliente.registrarOferta(offer)) return;
+        Bitacora.global().registro(OFERTA_RECIBIDA).texto(offer).texto(offer.getOfferId()).publicar();
     }
 
     // ===========================
@@ -76,14 +157,28 @@ public class ConsolaInteractiva {
                     case "status" -> cmdStatus();
                     case "inventario" -> cmdInventario();
                     case "precios" -> cmdPrecios();
+                    case "libro" -> cmdLibro(partes);
                     case "comprar" -> cmdComprar(partes);
                     case "vender" -> cmdVender(partes);
                     case "producir" -> cmdProducir(partes);
+                    case "plan" -> cmdPlan(partes);
+                    case "producibles" -> cmdProducibles();
+                    case "costos" -> cmdCostos(partes);
+                    case "cadena" -> cmdCadena(partes);
+                    case "trabajos" -> cmdTrabajos();
                     case "ofertas" -> cmdOfertas();
+                    case "ordenes" -> cmdOrdenes();
+                    case "riesgo" -> cmdRiesgo();
+                    case "metrics", "metricas" -> cmdMetricas(partes);
+                    case "estrategias" -> cmdEstrategias();
+                    case "estrategia" -> cmdEstrategia(partes);
                     case "aceptar" -> cmdAceptar(partes);
                     case "rechazar" -> cmdRechazar(partes);
                     case "snapshot" -> cmdSnapshot(partes);
+                    case "grabar" -> cmdGrabar(partes);
+                    case "backtest" -> cmdBacktest(partes);
                     case "resync" -> cmdResync();
+                    case "conexion" -> cmdConexion();
                     case "ayuda", "help" -> cmdAyuda();
                     case "exit", "quit", "salir" -> cmdExit();
                     default -> System.out.println("❌ Comando desconocido. Escribe 'ayuda' para ver comandos.");
@@ -94,6 +189,10 @@ public class ConsolaInteractiva {
             } catch (InventarioInsuficienteException e) {
                 System.out.println("❌ Inventario insuficiente");
                 System.out.println("   " + e.getMessage());
+            } catch (LimiteRiesgoException e) {
+                System.out.println("⛔ Límite de riesgo (" + e.getLimite() + "): " + e.getMessage());
+            } catch (PrecioNoDisponibleException e) {
+                System.out.println("❌ " + e.getMessage() + " (esperando ticker).");
             } catch (ProductoNoAutorizadoException e) {
                 System.out.println("❌ Producto no autorizado: " + e.getMessage());
             } catch (RecetaNoEncontradaException e) {
@@ -132,18 +231,12 @@ public class ConsolaInteractiva {
     }
 
     private void cmdStatus() {
-        double saldo = estado.getSaldo();
-        double valorInv = 0.0;
-        int totalUnidades = 0;
-
-        for (Map.Entry<String, Integer> e : estado.getInventario().entrySet()) {
-            double precio = estado.getPreciosActuales().getOrDefault(e.getKey(), 0.0);
-            valorInv += e.getValue() * precio;
-            totalUnidades += e.getValue();
-        }
-
-        double patrimonio = saldo + valorInv;
-        double pl = estado.calcularPL();
+        // Lecturas O(1): la valoración se mantiene al día en cada evento
+        Valoracion v = estado.getValoracion();
+        double saldo = v.saldo();
+        double valorInv = v.valorInventario();
+        double patrimonio = v.patrimonioNeto();
+        double pl = v.pl();
 
         System.out.println("\n📊 ESTADO ACTUAL");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━");
@@ -157,19 +250,19 @@ public class ConsolaInteractiva {
         System.out.println("\n📦 INVENTARIO");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
 
-        if (estado.getInventario().isEmpty()) {
+        List<Posicion> posiciones = estado.getMercado().posiciones().stream()
+                .filter(p -> p.cantidad() != 0).toList();
+        if (posiciones.isEmpty()) {
             System.out.println("(vacío)");
             return;
         }
 
         double totalValor = 0.0;
         int totalCant = 0;
-        for (Map.Entry<String, Integer> e : estado.getInventario().entrySet()) {
-            double precio = estado.getPreciosActuales().getOrDefault(e.getKey(), 0.0);
-            double valor = precio * e.getValue();
-            System.out.printf("%-12s %4d unidades @ $%.2f = $%.2f%n", e.getKey(), e.getValue(), precio, valor);
-            totalValor += valor;
-            totalCant += e.getValue();
+        for (Posicion p : posiciones) {
+            System.out.printf("%-12s %4d unidades @ $%.2f = $%.2f%n", p.producto(), p.cantidad(), p.mid(), p.valor());
+            totalValor += p.valor();
+            totalCant += p.cantidad();
         }
 
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
@@ -180,17 +273,45 @@ public class ConsolaInteractiva {
         System.out.println("\n💹 PRECIOS DE MERCADO");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
 
-        if (estado.getPreciosActuales().isEmpty()) {
+        List<Posicion> cotizadas = estado.getMercado().posiciones().stream()
+                .filter(Posicion::tienePrecio).toList();
+        if (cotizadas.isEmpty()) {
             System.out.println("(esperando tickers...)");
             return;
         }
 
-        for (Map.Entry<String, Double> e : estado.getPreciosActuales().entrySet()) {
-            System.out.printf("%-12s $%.2f (mid)%n", e.getKey(), e.getValue());
+        for (Posicion p : cotizadas) {
+            System.out.printf("%-12s $%.2f (mid)  bid $%.2f  ask $%.2f%n", p.producto(), p.mid(), p.bid(), p.ask());
+        }
+    }
+
+    private void cmdLibro(String[] partes) {
+        if (partes.length < 2) {
+            System.out.println("❌ Uso: libro <producto>");
+            return;
+        }
+        LibroOrdenes.Profundidad p = estado.getLibro().profundidad(partes[1]);
+        if (p == null) {
+            System.out.println("❌ Sin datos de mercado para " + partes[1]);
+            return;
+        }
+
+        System.out.println("\n📖 LIBRO " + p.producto());
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        System.out.printf("Bid $%.2f | Ask $%.2f | Spread $%.2f (promedio $%.2f, %d tickers)%n",
+                p.bid(), p.ask(), p.spread(), p.spreadPromedio(), p.historiaBid().length);
+        if (p.preciosNivel().length == 0) {
+            System.out.println("(sin ofertas de compra)");
+            return;
+        }
+        System.out.println("Ofertas de compra por nivel:");
+        for (int i = 0; i < p.preciosNivel().length; i++) {
+            System.out.printf("  $%.2f x%d%n", p.preciosNivel()[i], p.cantidadesNivel()[i]);
         }
     }
 
-    private void cmdComprar(String[] partes) throws SaldoInsuficienteException {
+    private void cmdComprar(String[] partes)
+            throws SaldoInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
         if (partes.length < 3) {
             System.out.println("❌ Uso: comprar <producto> <cantidad> [mensaje]");
             return;
@@ -201,19 +322,20 @@ public class ConsolaInteractiva {
         String mensaje = partes.length > 3 ? String.join(" ", Arrays.copyOfRange(partes, 3, partes.length)) : "Orden compra CLI";
 
         // Validaciones mínimas: ticker disponible
-        double precio = estado.getPreciosActuales().getOrDefault(producto, -1.0);
+        double precio = estado.getMercado().mid(producto);
         if (precio <= 0.0) {
             System.out.println("❌ No hay precio disponible para " + producto + " (esperando ticker).");
             return;
         }
 
-        System.out.println("\n📤 Orden enviada: COMPRAR " + cantidad + " " + producto);
         // Llamar al cliente para procesar la compra (cliente lanza excepciones según spec)
-        cliente.comprar(producto, cantidad, mensaje);
+        Orden orden = cliente.comprar(producto, cantidad, mensaje);
+        System.out.println("\n📤 Orden enviada: COMPRAR " + cantidad + " " + producto + " (" + orden.getClOrdId() + ")");
         System.out.println("📌 Orden de compra solicitada. Espera fill (1-10s).");
     }
 
-    private void cmdVender(String[] partes) throws InventarioInsuficienteException {
+    private void cmdVender(String[] partes)
+            throws InventarioInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
         if (partes.length < 3) {
             System.out.println("❌ Uso: vender <producto> <cantidad> [mensaje]");
             return;
@@ -223,62 +345,373 @@ public class ConsolaInteractiva {
         int cantidad = Integer.parseInt(partes[2]);
         String mensaje = partes.length > 3 ? String.join(" ", Arrays.copyOfRange(partes, 3, partes.length)) : "Orden venta CLI";
 
-        System.out.println("\n📤 Orden enviada: VENDER " + cantidad + " " + producto);
-        cliente.vender(producto, cantidad, mensaje);
+        Orden orden = cliente.vender(producto, cantidad, mensaje);
+        System.out.println("\n📤 Orden enviada: VENDER " + cantidad + " " + producto + " (" + orden.getClOrdId() + ")");
         System.out.println("📌 Orden de venta solicitada. Espera fill (1-10s).");
     }
 
     private void cmdProducir(String[] partes) throws ProductoNoAutorizadoException,
             RecetaNoEncontradaException, IngredientesInsuficientesException {
         if (partes.length < 3) {
-            System.out.println("❌ Uso: producir <producto> <basico|premium>");
+            System.out.println("❌ Uso: producir <producto> <basico|premium> [veces]");
             return;
         }
 
         String producto = partes[1];
         String tipo = partes[2].toLowerCase();
         boolean premium = tipo.equals("premium");
+        int veces = partes.length > 3 ? Integer.parseInt(partes[3]) : 1;
+
+        System.out.println("\n🏭 Produciendo " + producto + " (" + (premium ? "premium" : "básico") + ")"
+                + (veces > 1 ? " x" + veces : ""));
+        // Cada trabajo reserva sus ingredientes al encolarse; si faltan para uno, los anteriores siguen
+        for (int i = 0; i < veces; i++) {
+            TrabajoProduccion t = cliente.producir(producto, premium);
+            System.out.println("✅ Trabajo #" + t.getId() + " encolado (" + t.getUnidadesEsperadas() + " u).");
+        }
+        System.out.println("📌 Se envían en paralelo; 'trabajos' muestra su estado.");
+    }
+
+    private void cmdCadena(String[] partes) throws ProductoNoAutorizadoException,
+            RecetaNoEncontradaException, IngredientesInsuficientesException {
+        if (partes.length < 3) {
+            System.out.println("❌ Uso: cadena <prod>:<basico|premium> <prod>:<basico|premium> ...");
+            return;
+        }
+        List<Map.Entry<String, Boolean>> pasos = new ArrayList<>();
+        for (int i = 1; i < partes.length; i++) {
+            String[] paso = partes[i].split(":", 2);
+            pasos.add(Map.entry(paso[0], paso.length > 1 && paso[1].equalsIgnoreCase("premium")));
+        }
+        List<TrabajoProduccion> cadena = cliente.getProduccion().encadenar(pasos);
+        System.out.println("\n🔗 Cadena encolada; cada paso espera al anterior:");
+        cadena.forEach(t -> System.out.println("  " + t));
+    }
+
+    private void cmdTrabajos() {
+        ProgramadorProduccion produccion = cliente.getProduccion();
+        System.out.println("\n🏭 TRABAJOS DE PRODUCCIÓN");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        List<TrabajoProduccion> trabajos = produccion.trabajos();
+        if (trabajos.isEmpty()) {
+            System.out.println("(sin trabajos)");
+        }
+        for (TrabajoProduccion t : trabajos) {
+            long ms = t.nanosEnVuelo() / 1_000_000;
+            System.out.printf("  %-50s %s%n", t,
+                    t.getEstado() == EstadoTrabajo.COMPLETADO ? "+" + t.getUnidadesRecibidas() + " u en " + ms + " ms"
+                            : t.getEstado() == EstadoTrabajo.ENVIADO ? ms + " ms en vuelo" : "");
+        }
+        System.out.printf("En vuelo: %d/%d | completados: %d | fallidos: %d%n", produccion.enVuelo(),
+                produccion.getVentana(), produccion.completados(), produccion.fallidos());
+    }
+
+    private void cmdPlan(String[] partes) {
+        if (estado.getRecetas() == null || estado.getRecetas().isEmpty()) {
+            System.out.println("❌ No hay recetas cargadas (haz login primero).");
+            return;
+        }
+        int corridas = partes.length > 1 ? Integer.parseInt(partes[1])
+                : PlanificadorProduccion.CORRIDAS_POR_DEFECTO;
+        // Precios e inventario le llegan con cada evento; el saldo disponible lo lleva el control de riesgo
+        PlanificadorProduccion planificador = estado.getPlanificador();
+        planificador.setMaxCorridas(corridas);
+        planificador.actualizarSaldo(cliente.getRiesgo().saldoDisponible());
+        PlanProduccion plan = planificador.planificar();
+
+        System.out.println("\n🧮 PLAN DE PRODUCCIÓN (máx " + corridas + " corridas)");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        if (plan.estaVacio()) {
+            System.out.println("(ninguna producción es rentable con los precios actuales)");
+            return;
+        }
+        for (PlanProduccion.Accion a : plan.acciones()) {
+            System.out.printf("  producir %-12s %s x%d → %d u%n", a.producto(),
+                    a.premium() ? "premium" : "basico", a.corridas(), a.unidades());
+        }
+        plan.compras().forEach((p, q) -> System.out.printf("  comprar  %-12s %d%n", p, q));
+        System.out.printf("Ganancia estimada: $%.2f | Compras: $%.2f | %s (%d nodos, %.2f ms)%n",
+                plan.ganancia(), plan.costoCompras(), plan.optimo() ? "óptimo" : "cortado por tiempo",
+                plan.nodos(), plan.nanos() / 1e6);
+    }
+
+    private void cmdProducibles() {
+        MatrizRecetas matriz = estado.getMatrizRecetas();
+        if (matriz.cantidadRecetas() == 0) {
+            System.out.println("❌ No hay recetas cargadas (haz login primero).");
+            return;
+        }
+        System.out.println("\n🏭 CORRIDAS POSIBLES CON EL INVENTARIO ACTUAL");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        Map<String, Integer> producibles = matriz.producibles();
+        if (producibles.isEmpty()) {
+            System.out.println("(no alcanza para ninguna receta)");
+            return;
+        }
+        producibles.forEach((p, n) -> System.out.printf("  %-12s %s%n", p,
+                n == MatrizRecetas.ILIMITADAS ? "sin ingredientes" : n + " corridas"));
+    }
+
+    private void cmdCostos(String[] partes) {
+        ListaMateriales lista = estado.getListaMateriales();
+        if (lista.cantidadProductos() == 0) {
+            System.out.println("❌ No hay recetas cargadas (haz login primero).");
+            return;
+        }
+        if (partes.length < 2) {
+            System.out.println("\n💲 COSTO POR UNIDAD: FABRICAR O COMPRAR");
+            System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+            for (ListaMateriales.Decision d : lista.decisiones()) {
+                System.out.printf("  %-12s %s%n", d.producto(), formatoDecision(d));
+            }
+            if (!lista.enCiclo().isEmpty()) {
+                System.out.println("⚠️  Recetas en ciclo (solo compra): " + lista.enCiclo());
+            }
+            return;
+        }
+        String producto = partes[1];
+        ListaMateriales.Decision d = lista.decision(producto);
+        if (d == null) {
+            System.out.println("❌ " + producto + " no aparece en ninguna receta.");
+            return;
+        }
+        System.out.printf("%s: %s%n", producto, formatoDecision(d));
+        if (partes.length >= 3) {
+            int cantidad;
+            try {
+                cantidad = Integer.parseInt(partes[2]);
+            } catch (NumberFormatException e) {
+                System.out.println("❌ Cantidad inválida: " + partes[2]);
+                return;
+            }
+            lista.explotar(producto, cantidad).forEach((p, q) -> {
+                if (p.startsWith("producir:")) {
+                    System.out.printf("  producir %-12s %d corridas%n", p.substring("producir:".length()), q);
+                } else {
+                    System.out.printf("  comprar  %-12s %d%n", p, q);
+                }
+            });
+        }
+    }
 
-        System.out.println("\n🏭 Produciendo " + producto + " (" + (premium ? "premium" : "básico") + ")");
-        cliente.producir(producto, premium);
-        System.out.println("✅ Producción solicitada. Revisa inventario cuando llegue el ack.");
+    private static String formatoDecision(ListaMateriales.Decision d) {
+        if (!d.disponible()) {
+            return "sin precio ni receta propia";
+        }
+        String compra = d.costoCompra() == Double.POSITIVE_INFINITY ? "-" : String.format("$%.2f", d.costoCompra());
+        String produccion = d.costoProduccion() == Double.POSITIVE_INFINITY ? "-"
+                : String.format("$%.2f", d.costoProduccion());
+        return String.format("$%.2f %s (compra %s, fabricar %s)", d.costo(), d.producir() ? "fabricar" : "comprar",
+                compra, produccion);
     }
 
     private void cmdOfertas() {
         System.out.println("\n📬 OFERTAS PENDIENTES");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        if (ofertasPendientes.isEmpty()) {
+        if (ofertas.isEmpty()) {
             System.out.println("(sin ofertas pendientes)");
             return;
         }
 
+        // Agrupadas por producto, la que más paga primero
         int idx = 1;
-        for (OfferMessage o : ofertasPendientes.values()) {
+        for (OfferMessage o : ofertas.todas()) {
             System.out.println("[" + idx + "] " + "OfferId: " + o.getOfferId());
             System.out.println("    Producto: " + o.getProduct() + " x" + o.getQuantity() + "  Precio: $" + o.getPrice());
             idx++;
         }
+        System.out.printf("Pendientes: %d | Vencidas sin respuesta: %d%n", ofertas.cantidad(), ofertas.expiradas());
     }
 
-    private void cmdAceptar(String[] partes) throws InventarioInsuficienteException {
+    private void cmdOrdenes() {
+        GestorOrdenes ordenes = cliente.getOrdenes();
+        System.out.println("\n🧾 ÓRDENES ABIERTAS");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        if (ordenes.cantidadAbiertas() == 0) {
+            System.out.println("(sin órdenes abiertas)");
+        } else {
+            ordenes.abiertas().forEach(o -> System.out.println("  " + o));
+        }
+        System.out.printf("Llenas: %d | Rechazadas: %d | Fills sin orden: %d | Acks sin orden: %d | Acks sin id: %d%n",
+                ordenes.llenas(), ordenes.rechazadas(), ordenes.fillsSinOrden(), ordenes.acksSinOrden(),
+                ordenes.acksSinId());
+    }
+
+    private void cmdRiesgo() {
+        ControlRiesgo riesgo = cliente.getRiesgo();
+        LimitesRiesgo l = riesgo.getLimites();
+        System.out.println("\n🛡 CONTROL DE RIESGO" + (riesgo.isPausado() ? " (PAUSADO)" : ""));
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        System.out.printf("Saldo reservado: $%.2f | Disponible: $%.2f%n", riesgo.saldoReservado(),
+                riesgo.saldoDisponible());
+        System.out.printf("Límites: posición %d u | nocional $%.2f/orden | %d órdenes/s (ráfaga %d)%n",
+                l.posicionMaxima(), l.nocionalMaximoOrden(), l.ordenesPorSegundo(), l.rafaga());
+        System.out.println("Órdenes rechazadas por riesgo: " + riesgo.rechazos());
+        System.out.printf("Reservas de ingredientes: %d activas | %d vencidas%n",
+                riesgo.getReservas().activas(), riesgo.getReservas().vencidas());
+    }
+
+    private void cmdEstrategias() {
+        List<MotorEstrategias.EstadoEstrategia> estados = cliente.getEstrategias().estados();
+        System.out.println("\n🤖 ESTRATEGIAS");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        if (estados.isEmpty()) {
+            System.out.println("(sin estrategias registradas)");
+            return;
+        }
+        for (MotorEstrategias.EstadoEstrategia e : estados) {
+            System.out.printf("%-20s %s | eventos %d | órdenes %d (rechazadas %d) | descartados %d | errores %d"
+                    + " | latencia %.1f µs%n", e.nombre(), e.habilitada() ? "ON " : "OFF", e.eventos(),
+                    e.ordenes(), e.rechazadas(), e.descartados(), e.errores(), e.ultimaLatenciaNanos() / 1000.0);
+        }
+    }
+
+    // metrics [reset]
+    private void cmdMetricas(String[] partes) {
+        if (partes.length > 1 && partes[1].equalsIgnoreCase("reset")) {
+            // Con reporte CSV activo, por el reporte: también olvida su último intervalo
+            if (reporteMetricas != null) {
+                reporteMetricas.reiniciar();
+            } else {
+                cliente.getMetricas().reiniciar();
+            }
+            System.out.println("🔄 Métricas reiniciadas.");
+            return;
+        }
+        System.out.println("\n⏱ LATENCIAS (µs, desde el arranque o el último reset)");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        System.out.printf("%-18s %10s %9s %9s %9s %9s%n", "métrica", "n", "p50", "p99", "p99.9", "max");
+        for (Histograma h : cliente.getMetricas().todos()) {
+            Histograma.Instantanea i = h.instantanea();
+            if (i.total() == 0) {
+                continue;
+            }
+            System.out.printf("%-18s %10d %9.1f %9.1f %9.1f %9.1f%n", h.nombre(), i.total(), i.percentil(50) / 1e3,
+                    i.percentil(99) / 1e3, i.percentil(99.9) / 1e3, i.maximo() / 1e3);
+        }
+    }
+
+    private void cmdEstrategia(String[] partes) {
+        MotorEstrategias motor = cliente.getEstrategias();
+        String sub = partes.length > 1 ? partes[1].toLowerCase() : "";
+        switch (sub) {
+            case "on", "off" -> {
+                if (partes.length < 3) {
+                    System.out.println("❌ Uso: estrategia on|off <nombre>");
+                } else if (motor.habilitar(partes[2], sub.equals("on"))) {
+                    System.out.println("✅ " + partes[2] + (sub.equals("on") ? " habilitada" : " deshabilitada"));
+                } else {
+                    System.out.println("❌ No existe la estrategia " + partes[2]);
+                }
+            }
+            case "quitar" -> {
+                if (partes.length < 3 || !motor.quitar(partes[2])) {
+                    System.out.println("❌ Uso: estrategia quitar <nombre> (ver 'estrategias')");
+                } else {
+                    System.out.println("🗑 Estrategia " + partes[2] + " eliminada");
+                }
+            }
+            case "umbral" -> {
+                if (partes.length < 6) {
+                    System.out.println("❌ Uso: estrategia umbral <prod> <precioCompra> <precioVenta> <lote>");
+                    return;
+                }
+                EstrategiaUmbral e = new EstrategiaUmbral(partes[2], Double.parseDouble(partes[3]),
+                        Double.parseDouble(partes[4]), Integer.parseInt(partes[5]));
+                // Si ya existía con el mismo nombre se reemplaza en caliente
+                motor.registrar(e);
+                System.out.println("✅ Estrategia " + e.nombre() + " activa");
+            }
+            default -> System.out.println("❌ Uso: estrategia on|off|quitar <nombre> | estrategia umbral ...");
+        }
+    }
+
+    // grabar <nombre> | grabar off
+    private void cmdGrabar(String[] partes) throws IOException {
+        GrabadorTicks actual = cliente.getGrabador();
+        if (partes.length < 2) {
+            System.out.println(actual == null ? "⏺ Sin grabación activa. Uso: grabar <nombre> | grabar off"
+                    : "⏺ Grabando en " + actual.getDirectorio() + " (" + actual.filas() + " eventos)");
+            return;
+        }
+        if (actual != null) {
+            cliente.setGrabador(null);
+            actual.close();
+            System.out.println("⏹ Grabación cerrada: " + actual.getDirectorio() + " (" + actual.filas() + " eventos)");
+        }
+        if (!partes[1].equalsIgnoreCase("off")) {
+            GrabadorTicks nuevo = new GrabadorTicks(grabacionesDir.resolve(partes[1]));
+            cliente.setGrabador(nuevo);
+            System.out.println("⏺ Grabando tickers y ofertas en " + nuevo.getDirectorio());
+        }
+    }
+
+    // backtest <nombre> <prod> <lote> <compras,...> <ventas,...> [latenciaMs] [deslizamientoBps]
+    private void cmdBacktest(String[] partes) throws IOException {
+        if (partes.length < 6) {
+            System.out.println("❌ Uso: backtest <grabacion> <prod> <lote> <compra1,compra2..> <venta1,venta2..>"
+                    + " [latenciaMs] [deslizamientoBps]");
+            return;
+        }
+        String producto = partes[2];
+        int lote = Integer.parseInt(partes[3]);
+        List<Supplier<EstrategiaUmbral>> candidatas = new ArrayList<>();
+        List<String> etiquetas = new ArrayList<>();
+        for (String c : partes[4].split(",")) {
+            for (String v : partes[5].split(",")) {
+                double compra = Double.parseDouble(c);
+                double venta = Double.parseDouble(v);
+                if (compra < venta) {
+                    candidatas.add(() -> new EstrategiaUmbral(producto, compra, venta, lote));
+                    etiquetas.add(c + " / " + v);
+                }
+            }
+        }
+        if (candidatas.isEmpty()) {
+            System.out.println("❌ Ninguna combinación con compra < venta.");
+            return;
+        }
+        long latencia = partes.length > 6 ? Long.parseLong(partes[6]) * 1_000_000L : 0L;
+        double deslizamiento = partes.length > 7 ? Double.parseDouble(partes[7]) : 0.0;
+        ModeloFills modelo = new ModeloFills(latencia, deslizamiento);
+
+        try (Grabacion g = Grabacion.abrir(grabacionesDir.resolve(partes[1]))) {
+            System.out.printf("🧪 %d combinaciones sobre %,d eventos...%n", candidatas.size(), g.filas());
+            long inicio = System.nanoTime();
+            List<ResultadoBacktest> resultados = Backtester.evaluarTodas(g, candidatas, modelo,
+                    estado.getSaldoInicial() > 0 ? estado.getSaldoInicial() : 10_000.0, estado.getInventario(),
+                    ForkJoinPool.commonPool());
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            Integer[] orden = new Integer[resultados.size()];
+            for (int i = 0; i < orden.length; i++) {
+                orden[i] = i;
+            }
+            Arrays.sort(orden, Comparator.comparingDouble((Integer i) -> resultados.get(i).pl()).reversed());
+            System.out.println("compra / venta          P&L%     fills  rechazos  volumen");
+            for (int k = 0; k < Math.min(10, orden.length); k++) {
+                ResultadoBacktest r = resultados.get(orden[k]);
+                System.out.printf("%-20s %+8.3f %9d %9d %10.2f%n", etiquetas.get(orden[k]), r.pl(), r.fills(),
+                        r.rechazadas(), r.volumen());
+            }
+            System.out.printf("✅ %.2f s en total (%,.0f eventos/s por combinación)%n", segundos,
+                    resultados.get(0).eventosPorSegundo());
+        }
+    }
+
+    private void cmdAceptar(String[] partes)
+            throws InventarioInsuficienteException, LimiteRiesgoException, PrecioNoDisponibleException {
         if (partes.length < 2) {
             System.out.println("❌ Uso: aceptar <offerId>");
             return;
         }
         String offerId = partes[1];
-        OfferMessage offer = ofertasPendientes.get(offerId);
-        if (offer == null) {
+        // La guía sugiere aceptar la oferta vendiendo el producto al comprador.
+        // El cliente la saca del libro antes de vender y la devuelve si la venta falla.
+        if (cliente.aceptarOferta(offerId) == null) {
             System.out.println("❌ Oferta no encontrada: " + offerId);
             return;
         }
-
-        System.out.println("\n✅ Aceptando oferta " + offerId + "...");
-        // La guía sugiere aceptar la oferta vendiendo el producto al comprador.
-        // Llamamos a cliente.vender(product, qty, "Aceptando oferta " + offerId)
-        cliente.vender(offer.getProduct(), offer.getQuantity(), "Aceptando oferta " + offerId);
-        // Si no lanza excepciones, asumimos orden enviada.
-        ofertasPendientes.remove(offerId);
-        System.out.println("📌 Oferta aceptada. Espera fill con confirmación.");
+        System.out.println("\n✅ Oferta " + offerId + " aceptada. Espera fill con confirmación.");
     }
 
     private void cmdRechazar(String[] partes) {
@@ -288,7 +721,7 @@ public class ConsolaInteractiva {
         }
         String offerId = partes[1];
         String motivo = partes.length > 2 ? String.join(" ", Arrays.copyOfRange(partes, 2, partes.length)) : "Sin motivo";
-        OfferMessage offer = ofertasPendientes.remove(offerId);
+        OfferMessage offer = ofertas.tomar(offerId);
         if (offer == null) {
             System.out.println("❌ Oferta no encontrada: " + offerId);
             return;
@@ -314,93 +747,133 @@ public class ConsolaInteractiva {
     }
 
     private void snapshotSave() {
-        long ts = System.currentTimeMillis();
-        String fileName = "snapshot_" + ts + ".bin";
-        Path f = snapshotsDir.resolve(fileName);
-        try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(f))) {
-            oos.writeObject(estado);
-            System.out.println("💾 Guardando snapshot...");
-            System.out.println("✅ Snapshot guardado: " + f.toString());
-        } catch (IOException e) {
-            System.out.println("❌ Error guardando snapshot: " + e.getMessage());
+        if (programador == null) {
+            System.out.println("❌ Snapshots no disponibles.");
+            return;
         }
+        System.out.println("💾 Guardando snapshot en segundo plano...");
+        // El aviso llega cuando termina; la consola no espera al disco
+        programador.solicitar(true).whenComplete((entrada, error) -> {
+            if (error != null) {
+                System.out.println("❌ Error guardando snapshot: " + error.getMessage());
+            } else {
+                System.out.println("✅ Snapshot guardado: " + snapshotsDir.resolve(entrada.archivo()));
+            }
+        });
     }
 
-    @SuppressWarnings("unchecked")
     private void snapshotLoadInteractive() {
-        try {
-            List<Path> snaps = listSnapshots();
-            if (snaps.isEmpty()) {
-                System.out.println("📂 No hay snapshots disponibles.");
-                return;
-            }
-
-            System.out.println("📂 Snapshots disponibles:");
-            int i = 1;
-            for (Path p : snaps) {
-                System.out.println(i + ". " + p.getFileName());
-                i++;
-            }
+        if (programador == null) {
+            System.out.println("❌ Snapshots no disponibles.");
+            return;
+        }
+        List<EntradaSnapshot> snaps = new ArrayList<>(programador.entradas());
+        if (snaps.isEmpty()) {
+            System.out.println("📂 No hay snapshots disponibles.");
+            return;
+        }
+        Collections.reverse(snaps);
+
+        System.out.println("📂 Snapshots disponibles:");
+        int i = 1;
+        for (EntradaSnapshot e : snaps) {
+            System.out.printf("%d. %s (%s, %d bytes, diario #%d)%n", i, e.archivo(),
+                    e.completo() ? "completo" : "delta", e.bytes(), e.secuenciaDiario());
+            i++;
+        }
 
-            System.out.print("Selecciona snapshot (número): ");
-            String sel = scanner.nextLine().trim();
-            int idx = Integer.parseInt(sel) - 1;
-            if (idx < 0 || idx >= snaps.size()) {
-                System.out.println("❌ Selección inválida.");
-                return;
-            }
+        System.out.print("Selecciona snapshot (número): ");
+        String sel = scanner.nextLine().trim();
+        int idx;
+        try {
+            idx = Integer.parseInt(sel) - 1;
+        } catch (NumberFormatException e) {
+            idx = -1;
+        }
+        if (idx < 0 || idx >= snaps.size()) {
+            System.out.println("❌ Selección inválida.");
+            return;
+        }
 
-            Path chosen = snaps.get(idx);
-            try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(chosen))) {
-                EstadoCliente loaded = (EstadoCliente) ois.readObject();
-                // Reemplazamos el estado actual (solo serializamos/deserializamos el objeto)
-                // *** IMPORTANTE: sincroniza con la referencia del cliente si lo necesitas.
-                // Para simplicidad aquí copiamos datos relevantes al estado actual.
-                estado.setSaldo(loaded.getSaldo());
-                estado.setSaldoInicial(loaded.getSaldoInicial());
-                estado.setInventario(loaded.getInventario());
-                estado.setPreciosActuales(loaded.getPreciosActuales());
-                estado.setRecetas(loaded.getRecetas());
-                estado.setProductosAutorizados(loaded.getProductosAutorizados());
-                estado.setRol(loaded.getRol());
-
-                System.out.println("✅ Estado cargado correctamente desde " + chosen.getFileName());
-                System.out.printf("💰 Saldo: $%.2f%n", estado.getSaldo());
-                System.out.printf("📈 P&L: %+.2f%%%n", estado.calcularPL());
-            } catch (ClassNotFoundException e) {
-                System.out.println("❌ Error cargando snapshot (clase no encontrada): " + e.getMessage());
-            }
-        } catch (IOException e) {
-            System.out.println("❌ Error leyendo snapshots: " + e.getMessage());
+        EntradaSnapshot chosen = snaps.get(idx);
+        try {
+            // Se decodifica y valida (CRC) toda la cadena antes de tocar el estado actual
+            programador.restaurar(chosen, estado);
+
+            System.out.println("✅ Estado cargado correctamente desde " + chosen.archivo());
+            System.out.printf("💰 Saldo: $%.2f%n", estado.getSaldo());
+            System.out.printf("📈 P&L: %+.2f%%%n", estado.calcularPL());
+        } catch (SnapshotCorruptoException e) {
+            System.out.println("❌ Snapshot inválido: " + e.getMessage());
         }
     }
 
-    private List<Path> listSnapshots() throws IOException {
-        if (!Files.exists(snapshotsDir)) return Collections.emptyList();
-        try (var s = Files.list(snapshotsDir)) {
-            List<Path> list = s.filter(p -> p.getFileName().toString().startsWith("snapshot_"))
-                    .sorted(Comparator.reverseOrder()).toList();
-            return list;
+    private void cmdConexion() {
+        SupervisorConexion supervisor = cliente.getSupervisor();
+        System.out.println("\n🔌 CONEXIÓN");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        if (supervisor == null) {
+            System.out.println("ℹ Sin supervisor: los cortes no se reintentan solos.");
+            return;
+        }
+        System.out.println("Estado: " + supervisor.estado() + (supervisor.estado().operable() ? "" : " (trading en pausa)"));
+        System.out.printf("Cortes: %d | reconexiones: %d | con brecha: %d | intentos del último corte: %d%n",
+                supervisor.cortes(), supervisor.reconexiones(), supervisor.brechas(), supervisor.intentos());
+        Reconciliacion r = supervisor.ultimaReconciliacion();
+        if (r == null) {
+            return;
+        }
+        System.out.printf("Última reconciliación: %d ms sin conexión | saldo %+.2f (local $%.2f → servidor $%.2f)%n",
+                r.desconectadoMs(), r.diferenciaSaldo(), r.saldoLocal(), r.saldoServidor());
+        if (!r.diferenciasInventario().isEmpty()) {
+            System.out.println("   Inventario distinto: " + r.diferenciasInventario());
+        }
+        if (r.ordenesSinRespuesta() > 0) {
+            System.out.println("   Órdenes sin respuesta dadas por perdidas: " + r.ordenesSinRespuesta());
+        }
+        if (r.ordenesCerradas() > 0) {
+            System.out.println("   Órdenes aceptadas cerradas tras el corte: " + r.ordenesCerradas());
         }
     }
 
     private void cmdResync() {
-        System.out.println("\n🔄 RESYNC - Sincronización de eventos perdidos");
+        System.out.println("\n🔄 RESYNC - Reconstruir estado desde snapshot + diario");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
-        System.out.println("1) Asegúrate de haber cargado el snapshot correcto (snapshot load).");
-        System.out.println("2) Ejecuta 'login' para reconectar al servidor.");
-        System.out.println("3) El servidor enviará los FILLs pendientes y el SDK llamará a tus callbacks.");
-        System.out.println("🔔 Nota: la resync real depende del soporte del servidor/SDK. Si implementaste");
-        System.out.println("   un método en tu ClienteBolsa para solicitar resync, llámalo ahora.");
-        // Si ClienteBolsa tiene un método resync(), intentamos llamarlo por reflexión (si existe).
+        // Reconstruir con eventos del servidor llegando mezclaría el diario con lo nuevo:
+        // primero se corta la conexión y se espera a que el despachador entregue lo pendiente
+        SupervisorConexion supervisor = cliente.getSupervisor();
+        if (supervisor == null) {
+            System.out.println("❌ Sin supervisor no se puede cortar la conexión; reinicia el cliente para reconstruir.");
+            return;
+        }
         try {
-            var m = cliente.getClass().getMethod("resync");
-            m.invoke(cliente);
-            System.out.println("✅ Llamado a cliente.resync() (si existe) fue invocado.");
-        } catch (NoSuchMethodException ignored) {
-            System.out.println("ℹ ClienteBolsa no implementa resync() - realiza resync manualmente.");
-        } catch (Exception e) {
-            System.out.println("❌ Error llamando resync en ClienteBolsa: " + e.getMessage());
+            if (!supervisor.suspender()) {
+                System.out.println("❌ Quedaron eventos sin entregar; el estado no se tocó.");
+                supervisor.reconectar();
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            EntradaSnapshot base = programador == null ? null : programador.restaurarUltimo(estado);
+            long eventos;
+            if (base == null) {
+                System.out.println("ℹ Sin snapshots: se vuelve al estado del login y se reaplica el diario completo.");
+                eventos = cliente.recuperarDesdeCero(diarioDir);
+            } else {
+                System.out.println("📂 Snapshot base: " + base.archivo());
+                eventos = cliente.recuperar(null, diarioDir);
+            }
+            System.out.println("✅ " + eventos + " eventos del diario reaplicados (hasta #"
+                    + estado.getSecuenciaDiario() + ").");
+            System.out.printf("💰 Saldo: $%.2f | 📈 P&L: %+.2f%%%n", estado.getSaldo(), estado.calcularPL());
+        } catch (SnapshotCorruptoException e) {
+            System.out.println("❌ No se pudo recuperar: " + e.getMessage());
+        } finally {
+            supervisor.reconectar();
+            System.out.println("🔌 Reconexión solicitada; el trading sigue en pausa hasta reconciliar con el servidor.");
         }
     }
 
@@ -411,15 +884,30 @@ public class ConsolaInteractiva {
         System.out.println("status                - Mostrar saldo, inventario, P&L");
         System.out.println("inventario            - listar inventario con valores");
         System.out.println("precios               - listar precios actuales (mid)");
+        System.out.println("libro <prod>          - bid/ask, spread y liquidez de ofertas");
         System.out.println("comprar <prod> <qty> [mensaje]");
         System.out.println("vender <prod> <qty> [mensaje]");
-        System.out.println("producir <prod> <basico|premium>");
+        System.out.println("producir <prod> <basico|premium> [veces] - encola sin esperar el ack");
+        System.out.println("cadena <prod>:<tipo> <prod>:<tipo> ... - producciones que esperan a la anterior");
+        System.out.println("trabajos              - producciones en cola, en vuelo y terminadas");
+        System.out.println("plan [corridas]       - mejor combinación de producciones y compras");
+        System.out.println("producibles           - corridas que alcanzan de cada receta");
+        System.out.println("costos [prod] [qty]   - fabricar o comprar, a toda profundidad de recetas");
         System.out.println("ofertas               - listar ofertas pendientes");
+        System.out.println("ordenes               - listar órdenes abiertas");
+        System.out.println("riesgo                - reservas y límites pre-trade");
+        System.out.println("metrics [reset]       - p50/p99/p99.9 por callback y de ticker a orden");
+        System.out.println("estrategias           - estado de las estrategias automáticas");
+        System.out.println("estrategia on|off|quitar <nombre>");
+        System.out.println("estrategia umbral <prod> <compra> <venta> <lote>");
         System.out.println("aceptar <offerId>     - aceptar oferta (vende al comprador)");
         System.out.println("rechazar <offerId> [motivo]");
-        System.out.println("snapshot save          - guardar snapshot binario");
-        System.out.println("snapshot load          - listar y cargar snapshot");
-        System.out.println("resync                - solicitar resync (ver notas)");
+        System.out.println("snapshot save          - forzar snapshot completo (se toman solos cada 30 s)");
+        System.out.println("snapshot load          - listar y cargar snapshot del índice");
+        System.out.println("resync                - reconstruir estado (snapshot + diario) y reconectar");
+        System.out.println("conexion              - estado de la conexión y última reconciliación");
+        System.out.println("grabar <nombre>|off   - grabar tickers/ofertas en grabaciones/<nombre>");
+        System.out.println("backtest <grab> <prod> <lote> <compras,..> <ventas,..> [latMs] [bps]");
         System.out.println("ayuda|help            - mostrar esta ayuda");
         System.out.println("exit|quit|salir       - salir y guardar snapshot final");
     }
@@ -429,17 +917,42 @@ public class ConsolaInteractiva {
     }
 
     private void guardarSnapshotAutoAlCerrar() {
-        try {
-            long ts = System.currentTimeMillis();
-            String fileName = "snapshot_final_" + ts + ".bin";
-            Path f = snapshotsDir.resolve(fileName);
-            try (ObjectOutputStream oos = new ObjectOutputStream(Files.newOutputStream(f))) {
-                oos.writeObject(estado);
-                System.out.println("💾 Snapshot final guardado: " + f.toString());
+        // Libera los ingredientes de lo que no llegó a completarse
+        cliente.getProduccion().close();
+        ofertas.close();
+        if (programador != null) {
+            try {
+                // Escribe un completo final antes de cerrar el diario
+                programador.close();
+                System.out.println("💾 Snapshot final guardado en " + snapshotsDir);
+            } catch (Exception e) {
+                // no bloquear el cierre por fallo en snapshot
+                System.err.println("⚠ Error guardando snapshot final: " + e.getMessage());
+            }
+        }
+        if (reporteMetricas != null) {
+            try {
+                reporteMetricas.close();
+            } catch (IOException e) {
+                System.err.println("⚠ Error cerrando el reporte de métricas: " + e.getMessage());
+            }
+        }
+        GrabadorTicks grabador = cliente.getGrabador();
+        if (grabador != null) {
+            cliente.setGrabador(null);
+            try {
+                grabador.close();
+            } catch (IOException e) {
+                System.err.println("⚠ Error cerrando la grabación: " + e.getMessage());
+            }
+        }
+        DiarioEventos diario = cliente.getDiario();
+        if (diario != null) {
+            try {
+                diario.close();
+            } catch (IOException e) {
+                System.err.println("⚠ Error cerrando el diario: " + e.getMessage());
             }
-        } catch (Exception e) {
-            // no bloquear el cierre por fallo en snapshot
-            System.err.println("⚠ Error guardando snapshot final: " + e.getMessage());
         }
     }
 
@@ -447,11 +960,13 @@ public class ConsolaInteractiva {
     // Métodos utilitarios (por si quieres llamar desde ClienteBolsa)
     // ===========================
     public Map<String, OfferMessage> getOfertasPendientes() {
-        return Collections.unmodifiableMap(ofertasPendientes);
+        Map<String, OfferMessage> copia = new LinkedHashMap<>();
+        ofertas.todas().forEach(o -> copia.put(o.getOfferId(), o));
+        return Collections.unmodifiableMap(copia);
     }
 
     public void clearOfertas() {
-        ofertasPendientes.clear();
+        ofertas.limpiar();
     }
 
     // Conveniencia para tests: exponer scanner (no recomendado en producción)
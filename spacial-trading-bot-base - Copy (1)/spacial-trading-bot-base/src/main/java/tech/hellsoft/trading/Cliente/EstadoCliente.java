@@ -5,70 +5,242 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import tech.hellsoft.trading.dto.server.TickerMessage;
+import java.util.concurrent.atomic.AtomicLong;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.LibroOrdenes;
+import tech.hellsoft.trading.mercado.Valoracion;
 import tech.hellsoft.trading.modelo.Receta;
 import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.produccion.ListaMateriales;
+import tech.hellsoft.trading.produccion.MatrizRecetas;
+import tech.hellsoft.trading.produccion.PlanificadorProduccion;
 
 public class EstadoCliente implements Serializable {
-    private double saldo;
-    private double saldoInicial;
-    private Map<String, Integer> inventario = new HashMap<>();
-    private Map<String, Double> preciosActuales = new HashMap<>();
+    // Precios e inventario: lo escriben los callbacks del SDK y lo lee la consola
+    private final EstadoMercado mercado = new EstadoMercado();
+    // Saldo, valor de inventario y patrimonio mantenidos por deltas
+    private final Valoracion valoracion = new Valoracion();
+    // Historial de bid/ask, spread y liquidez de ofertas por producto
+    private final LibroOrdenes libro = new LibroOrdenes(mercado);
     private Map<String, Receta> recetas = new HashMap<>();
+    // Corridas posibles de cada receta; se recompila al cambiar las recetas y
+    // se actualiza ingrediente a ingrediente con cada cambio de inventario
+    private transient volatile MatrizRecetas matriz;
+    // Costo de fabricar o comprar cada producto a toda profundidad; depende de
+    // recetas, rol y autorizados, y los tickers invalidan solo lo afectado
+    private transient volatile ListaMateriales listaMateriales;
+    // Plan de producción del cliente; recibe cada ticker y cambio de inventario
+    // para replanificar solo cuando algo de sus recetas cambió
+    private transient volatile PlanificadorProduccion planificador;
     private Rol rol;
     private List<String> productosAutorizados = new ArrayList<>();
+    // Seqlock de eventos: impar mientras se aplica un evento, para que un
+    // snapshot sepa si capturó el estado entre dos eventos completos
+    private final AtomicLong marcaEventos = new AtomicLong();
+    // Secuencia del diario del último evento aplicado
+    private volatile long secuenciaDiario;
     public double calcularPL() {
-        double valorInventario = 0.0;
-        for (Map.Entry<String, Integer> entry : inventario.entrySet()) {
-            double precio = preciosActuales.getOrDefault(entry.getKey(), 0.0);
-            valorInventario += entry.getValue() * precio;
+        return valoracion.pl();
+    }
+
+    // ========== EVENTOS (ajustan la valoración por deltas) ==========
+
+    public void aplicarTicker(String producto, double bid, double ask) {
+        valoracion.ajustarValorInventario(mercado.actualizarPrecio(producto, bid, ask));
+        ListaMateriales l = listaMateriales;
+        if (l != null) {
+            l.precioCambio(producto);
+        }
+        PlanificadorProduccion p = planificador;
+        if (p != null) {
+            p.actualizarPrecio(producto, bid, ask);
+        }
+    }
+
+    /**
+     * BUY: resta dinero y suma inventario; SELL al revés.
+     */
+    public void aplicarFill(String side, String producto, int cantidad, double precio) {
+        boolean compra = "BUY".equalsIgnoreCase(side);
+        int deltaCantidad = compra ? cantidad : -cantidad;
+        double deltaSaldo = -deltaCantidad * precio;
+        valoracion.aplicar(deltaSaldo, mercado.ajustarInventario(producto, deltaCantidad));
+        inventarioCambio(producto);
+    }
+
+    public void aplicarInventario(String producto, int cantidad) {
+        valoracion.ajustarValorInventario(mercado.fijarInventario(producto, cantidad));
+        inventarioCambio(producto);
+    }
+
+    private void inventarioCambio(String producto) {
+        MatrizRecetas m = matriz;
+        PlanificadorProduccion p = planificador;
+        if (m == null && p == null) {
+            return;
+        }
+        int id = mercado.buscarId(producto);
+        int cantidad = mercado.cantidad(id);
+        if (m != null) {
+            m.actualizar(id, cantidad);
+        }
+        if (p != null) {
+            p.actualizarInventario(producto, cantidad);
+        }
+    }
+
+    /**
+     * Recalcula todas las recetas contra el inventario; para cuando el
+     * inventario o los precios se cambiaron directo en el mercado (snapshots,
+     * cargas masivas).
+     */
+    public void recalcularRecetas() {
+        getMatrizRecetas().recalcular(mercado);
+        ListaMateriales l = listaMateriales;
+        if (l != null) {
+            l.invalidarTodo();
+        }
+        PlanificadorProduccion p = planificador;
+        if (p != null) {
+            p.cargar(mercado);
+        }
+    }
+
+    /**
+     * Recalcula el valor de inventario recorriendo el mercado; solo para cargas
+     * masivas o para corregir deriva de redondeo, no en cada tick.
+     */
+    public void recalibrarValoracion() {
+        valoracion.recalibrar(mercado.valorInventario());
+    }
+
+    /**
+     * Llamar antes de aplicar un evento; los eventos se aplican desde un solo hilo.
+     * {@link #terminarEvento} debe ir en un finally: si el evento lanza y la
+     * marca queda impar, ningún snapshot vuelve a capturar el estado.
+     */
+    public void iniciarEvento() {
+        marcaEventos.incrementAndGet();
+    }
+
+    /**
+     * @param secuencia secuencia del diario del evento, o 0 si no se registró
+     */
+    public void terminarEvento(long secuencia) {
+        if (secuencia > 0) {
+            secuenciaDiario = secuencia;
+        }
+        marcaEventos.incrementAndGet();
+    }
+
+    /**
+     * Vuelve al estado de justo después del login para reaplicar el diario
+     * desde el primer evento: sin inventario, el saldo en el inicial y la
+     * secuencia en 0. Los precios, el rol, las recetas y los autorizados no
+     * vienen en el diario y se conservan.
+     */
+    public void reiniciarEventos() {
+        iniciarEvento();
+        try {
+            mercado.reemplazarInventario(Map.of());
+            valoracion.fijarSaldo(valoracion.saldoInicial());
+            secuenciaDiario = 0;
+            recalibrarValoracion();
+            recalcularRecetas();
+        } finally {
+            terminarEvento(0);
         }
-        double patrimonioNeto = saldo + valorInventario;
-        return ((patrimonioNeto- saldoInicial) / saldoInicial) * 100.0;
+    }
+
+    public long marcaEventos() {
+        return marcaEventos.get();
+    }
+
+    public long getSecuenciaDiario() {
+        return secuenciaDiario;
+    }
+
+    public void setSecuenciaDiario(long secuenciaDiario) {
+        this.secuenciaDiario = secuenciaDiario;
     }
     // Getters y setters para todos los campos...
 
 
+    public EstadoCliente() {
+    }
+
     public EstadoCliente(List<String> productosAutorizados, Rol rol, Map<String, Receta> recetas, Map<String, Double> preciosActuales, Map<String, Integer> inventario, double saldoInicial, double saldo) {
         this.productosAutorizados = productosAutorizados;
         this.rol = rol;
         this.recetas = recetas;
-        this.preciosActuales = preciosActuales;
-        this.inventario = inventario;
-        this.saldoInicial = saldoInicial;
-        this.saldo = saldo;
+        this.mercado.reemplazarPrecios(preciosActuales);
+        this.mercado.reemplazarInventario(inventario);
+        this.matriz = MatrizRecetas.compilar(recetas, mercado);
+        this.valoracion.setSaldoInicial(saldoInicial);
+        this.valoracion.fijarSaldo(saldo);
+        recalibrarValoracion();
+    }
+
+    public EstadoMercado getMercado() {
+        return mercado;
+    }
+
+    public Valoracion getValoracion() {
+        return valoracion;
+    }
+
+    public LibroOrdenes getLibro() {
+        return libro;
     }
 
     public double getSaldo() {
-        return saldo;
+        return valoracion.saldo();
     }
 
     public void setSaldo(double saldo) {
-        this.saldo = saldo;
+        valoracion.fijarSaldo(saldo);
     }
 
     public double getSaldoInicial() {
-        return saldoInicial;
+        return valoracion.saldoInicial();
     }
 
     public void setSaldoInicial(double saldoInicial) {
-        this.saldoInicial = saldoInicial;
+        valoracion.setSaldoInicial(saldoInicial);
     }
 
+    /**
+     * Copia de solo lectura; para modificar usar {@link #aplicarInventario} o
+     * {@link #aplicarFill} y así mantener la valoración al día.
+     */
     public Map<String, Integer> getInventario() {
-        return inventario;
+        return mercado.inventarioComoMapa();
     }
 
     public void setInventario(Map<String, Integer> inventario) {
-        this.inventario = inventario;
+        mercado.reemplazarInventario(inventario);
+        recalibrarValoracion();
+        recalcularRecetas();
     }
 
+    /**
+     * Copia de solo lectura de los mids; para modificar usar {@link #aplicarTicker}.
+     */
     public Map<String, Double> getPreciosActuales() {
-        return preciosActuales;
+        return mercado.preciosComoMapa();
     }
 
     public void setPreciosActuales(Map<String, Double> preciosActuales) {
-        this.preciosActuales = preciosActuales;
+        mercado.reemplazarPrecios(preciosActuales);
+        recalibrarValoracion();
+        ListaMateriales l = listaMateriales;
+        if (l != null) {
+            l.invalidarTodo();
+        }
+        PlanificadorProduccion p = planificador;
+        if (p != null) {
+            p.cargar(mercado);
+        }
     }
 
     public Map<String, Receta> getRecetas() {
@@ -77,6 +249,52 @@ public class EstadoCliente implements Serializable {
 
     public void setRecetas(Map<String, Receta> recetas) {
         this.recetas = recetas;
+        this.matriz = MatrizRecetas.compilar(recetas, mercado);
+        this.listaMateriales = null;
+        this.planificador = null;
+    }
+
+    /**
+     * Corridas posibles de cada receta con el inventario actual, sin recorrer mapas.
+     */
+    public MatrizRecetas getMatrizRecetas() {
+        MatrizRecetas m = matriz;
+        if (m == null) {
+            // Estado creado sin recetas o deserializado: se compila al primer uso
+            m = MatrizRecetas.compilar(recetas, mercado);
+            matriz = m;
+        }
+        return m;
+    }
+
+    /**
+     * Costos de fabricar o comprar cada producto; se arma al primer uso y se
+     * vuelve a armar si cambian las recetas, el rol o los autorizados.
+     */
+    public ListaMateriales getListaMateriales() {
+        ListaMateriales l = listaMateriales;
+        if (l == null) {
+            l = new ListaMateriales(recetas, rol, productosAutorizados, mercado);
+            listaMateriales = l;
+        }
+        return l;
+    }
+
+    /**
+     * Planificador de producción del cliente; se arma al primer uso y se vuelve
+     * a armar si cambian las recetas, el rol o los autorizados.
+     */
+    public PlanificadorProduccion getPlanificador() {
+        PlanificadorProduccion p = planificador;
+        if (p == null) {
+            p = new PlanificadorProduccion(rol, recetas, productosAutorizados,
+                    PlanificadorProduccion.CORRIDAS_POR_DEFECTO);
+            planificador = p;
+            // Se carga después de publicarlo: un evento que llegue entre medio
+            // ya actualiza este planificador o queda en el mercado que se lee
+            p.cargar(mercado);
+        }
+        return p;
     }
 
     public Rol getRol() {
@@ -85,6 +303,8 @@ public class EstadoCliente implements Serializable {
 
     public void setRol(Rol rol) {
         this.rol = rol;
+        this.listaMateriales = null;
+        this.planificador = null;
     }
 
     public List<String> getProductosAutorizados() {
@@ -93,5 +313,7 @@ public class EstadoCliente implements Serializable {
 
     public void setProductosAutorizados(List<String> productosAutorizados) {
         this.productosAutorizados = productosAutorizados;
+        this.listaMateriales = null;
+        this.planificador = null;
     }
 }
@@ -5,13 +5,24 @@ import java.util.Map;
 import java.util.Scanner;
 import tech.hellsoft.trading.Cliente.ClienteBolsa;
 import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.conexion.Conexion;
+import tech.hellsoft.trading.conexion.PoliticaReconexion;
+import tech.hellsoft.trading.conexion.SupervisorConexion;
 import tech.hellsoft.trading.config.Configuration;
 import tech.hellsoft.trading.dto.server.*;
+import tech.hellsoft.trading.eventos.DespachadorEventos;
+import tech.hellsoft.trading.eventos.EstadisticasCanal;
+import tech.hellsoft.trading.eventos.ModoTicker;
 import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
 import tech.hellsoft.trading.exception.ProduccionException.RecetaNoEncontradaException;
 import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
 import tech.hellsoft.trading.exception.TradingExceptions.ProductoNoAutorizadoException;
 import tech.hellsoft.trading.exception.TradingExceptions.SaldoInsuficienteException;
+import tech.hellsoft.trading.ordenes.SalidaOrdenes;
+import tech.hellsoft.trading.simulador.ConfigSimulador;
+import tech.hellsoft.trading.simulador.SimuladorBolsa;
 import tech.hellsoft.trading.util.ConfigLoader;
 
 /**
@@ -24,6 +35,9 @@ public final class Main {
     }
 
     private static boolean running = true;
+    private static DespachadorEventos despachador;
+    // Reintenta la conexión cuando se cae; el bot de ejemplo no tiene estado que reconciliar
+    private static SupervisorConexion supervisor;
 
     public static void main(String[] args) {
         try {
@@ -34,13 +48,32 @@ public final class Main {
             System.out.println();
 
             // 2. Create connector and event listener
-            ConectorBolsa connector = new ConectorBolsa();
+            // The bot runs on its own thread behind the dispatcher so slow
+            // callbacks never block the WebSocket reader; it only needs the
+            // latest ticker per product, so tickers are conflated
             MyTradingBot bot = new MyTradingBot();
-            connector.addListener(bot);
+            despachador = new DespachadorEventos();
+            despachador.agregar("bot", bot, ModoTicker.CONFLADO);
+            despachador.iniciar();
 
-            // 3. Connect to server
+            // 3. Connect to server (or to the local simulator when host is sim://...)
+            SalidaOrdenes connector;
+            Conexion conexion;
             System.out.println("🔌 Connecting to: " + config.host());
-            connector.conectar(config.host(), config.apiKey());
+            if (ConfigSimulador.esSimulado(config.host())) {
+                SimuladorBolsa simulador = new SimuladorBolsa(ConfigSimulador.desdeUri(config.host()));
+                simulador.addListener(despachador);
+                connector = simulador;
+                conexion = simulador;
+            } else {
+                ConectorBolsa conector = new ConectorBolsa();
+                conector.addListener(despachador);
+                connector = conector::enviarOrden;
+                conexion = Conexion.sdk(conector, config.host(), config.apiKey());
+            }
+            supervisor = new SupervisorConexion(conexion, null, PoliticaReconexion.porDefecto());
+            supervisor.setDespachador(despachador);
+            conexion.conectar();
             System.out.println("✅ Connected! Waiting for login...");
             System.out.println();
 
@@ -62,7 +95,7 @@ public final class Main {
         System.out.println();
     }
 
-    private static void runInteractiveCLI(ConectorBolsa connector, MyTradingBot bot) {
+    private static void runInteractiveCLI(SalidaOrdenes connector, MyTradingBot bot) {
         Scanner scanner = new Scanner(System.in);
 
         while (running) {
@@ -87,6 +120,12 @@ public final class Main {
         }
 
         scanner.close();
+        supervisor.close();
+        try {
+            despachador.detener();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         System.out.println("\n👋 Cerrando Trading Bot...");
         System.out.println("✅ ¡Hasta luego!");
     }
@@ -103,12 +142,13 @@ public final class Main {
         System.out.println("  producir <producto> <basico|premium>");
         System.out.println("  ofertas             - Ver ofertas pendientes");
         System.out.println("  aceptar <offerId>   - Aceptar una oferta");
+        System.out.println("  despacho            - Ver colas de eventos");
         System.out.println("  ayuda               - Mostrar ayuda completa");
         System.out.println("  exit                - Salir del programa");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
     }
 
-    private static void handleCommand(String command, String[] parts, ConectorBolsa connector, MyTradingBot bot) {
+    private static void handleCommand(String command, String[] parts, SalidaOrdenes connector, MyTradingBot bot) {
         switch (command) {
             case "status" :
                 handleStatus(bot);
@@ -142,6 +182,10 @@ public final class Main {
                 handleAceptarOferta(parts, connector, bot);
                 break;
 
+            case "despacho" :
+                handleDespacho();
+                break;
+
             case "ayuda" :
             case "help" :
                 printHelp();
@@ -196,7 +240,7 @@ public final class Main {
         System.out.println("      - Mostrar bid, ask, mid de cada producto");
     }
 
-    private static void handleComprar(String[] parts, ConectorBolsa connector, MyTradingBot bot) {
+    private static void handleComprar(String[] parts, SalidaOrdenes connector, MyTradingBot bot) {
         if (parts.length < 3) {
             System.out.println("❌ Uso: comprar <producto> <cantidad> [mensaje]");
             return;
@@ -219,7 +263,7 @@ public final class Main {
         System.out.println("      3. Llamar connector.enviarOrden()");
     }
 
-    private static void handleVender(String[] parts, ConectorBolsa connector, MyTradingBot bot) {
+    private static void handleVender(String[] parts, SalidaOrdenes connector, MyTradingBot bot) {
         if (parts.length < 3) {
             System.out.println("❌ Uso: vender <producto> <cantidad> [mensaje]");
             return;
@@ -242,7 +286,7 @@ public final class Main {
         System.out.println("      3. Llamar connector.enviarOrden()");
     }
 
-    private static void handleProducir(String[] parts, ConectorBolsa connector, MyTradingBot bot) {
+    private static void handleProducir(String[] parts, SalidaOrdenes connector, MyTradingBot bot) {
         if (parts.length < 3) {
             System.out.println("❌ Uso: producir <producto> <basico|premium>");
             return;
@@ -272,7 +316,7 @@ public final class Main {
         System.out.println("      - Mostrar: offerId, producto, cantidad, precio");
     }
 
-    private static void handleAceptarOferta(String[] parts, ConectorBolsa connector, MyTradingBot bot) {
+    private static void handleAceptarOferta(String[] parts, SalidaOrdenes connector, MyTradingBot bot) {
         if (parts.length < 2) {
             System.out.println("❌ Uso: aceptar <offerId>");
             return;
@@ -288,6 +332,20 @@ public final class Main {
         System.out.println("      3. Llamar connector.aceptarOferta()");
     }
 
+    private static void handleDespacho() {
+        System.out.println("\n📮 COLAS DE EVENTOS");
+        System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
+        for (EstadisticasCanal e : despachador.estadisticas()) {
+            System.out.printf(
+                    "%-10s en cola %d/%d | publicados %d | descartados %d | desbordes %d | conflados %d | errores %d%n",
+                    e.nombre(), e.profundidad(), e.capacidad(), e.publicados(), e.descartados(), e.desbordes(),
+                    e.conflados(), e.errores());
+        }
+        Bitacora b = Bitacora.global();
+        System.out.printf("%-10s en cola %d/%d | publicados %d | descartados %d%n", "bitacora", b.profundidad(),
+                b.capacidad(), b.publicados(), b.descartados());
+    }
+
     private static void printHelp() {
         System.out.println("\n📚 AYUDA COMPLETA - Comandos del Trading Bot");
         System.out.println("━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━━");
@@ -310,6 +368,7 @@ public final class Main {
         System.out.println("  aceptar OFFER-123   - Aceptar una oferta específica");
         System.out.println();
         System.out.println("OTROS:");
+        System.out.println("  despacho            - Profundidad y descartes de las colas de eventos");
         System.out.println("  ayuda               - Muestra esta ayuda");
         System.out.println("  exit                - Salir del programa");
         System.out.println();
@@ -326,6 +385,19 @@ public final class Main {
      */
     private static class MyTradingBot implements EventListener {
 
+        // Los callbacks registran en la bitácora; el texto se arma en otro hilo
+        private static final Plantilla LOGIN = Plantilla
+                .info("✅ LOGIN SUCCESSFUL!\n   Team: {}\n   Species: {}\n   Balance: ${}\n");
+        private static final Plantilla ERROR = Plantilla.error("❌ ERROR [{}]: {}");
+        private static final Plantilla TICKER = Plantilla.info("📊 TICKER: {} | Bid: ${} | Ask: ${} | Mid: ${}");
+        private static final Plantilla FILL = Plantilla.info("✅ FILL: {} {} {} @ ${}");
+        private static final Plantilla BALANCE = Plantilla.info("💰 BALANCE UPDATE: {}");
+        private static final Plantilla INVENTARIO = Plantilla.info("📦 INVENTORY UPDATE: {}");
+        private static final Plantilla BROADCAST = Plantilla.info("📢 BROADCAST: {}");
+        private static final Plantilla CONEXION_PERDIDA = Plantilla.error("💔 CONNECTION LOST: {}");
+
+        private final Bitacora log = Bitacora.global();
+
         @Override
         public void onLoginOk(LoginOKMessage loginOk) {
             // Guard clause
@@ -333,11 +405,9 @@ public final class Main {
                 return;
             }
 
-            System.out.println("✅ LOGIN SUCCESSFUL!");
-            System.out.println("   Team: " + loginOk.getTeam());
-            System.out.println("   Species: " + loginOk.getSpecies());
-            System.out.println("   Balance: $" + loginOk.getCurrentBalance());
-            System.out.println();
+            supervisor.sesionIniciada(loginOk);
+            log.registro(LOGIN).texto(loginOk.getTeam()).texto(loginOk.getSpecies())
+                    .real(loginOk.getCurrentBalance()).publicar();
 
             // TODO: Initialize your bot state here
             // - Store initial balance
@@ -352,7 +422,7 @@ public final class Main {
                 return;
             }
 
-            System.err.println("❌ ERROR [" + error.getCode() + "]: " + error.getReason());
+            log.registro(ERROR).texto(error.getCode()).texto(error.getReason()).publicar();
 
             // TODO: Handle errors
             // - Log the error
@@ -368,8 +438,8 @@ public final class Main {
             }
 
             // Print market data
-            System.out.println("📊 TICKER: " + ticker.getProduct() + " | Bid: $" + ticker.getBestBid() + " | Ask: $"
-                    + ticker.getBestAsk() + " | Mid: $" + ticker.getMid());
+            log.registro(TICKER).texto(ticker.getProduct()).real(ticker.getBestBid()).real(ticker.getBestAsk())
+                    .real(ticker.getMid()).publicar();
 
             // TODO: Implement your trading strategy here
             // - Update price tracking
@@ -384,8 +454,8 @@ public final class Main {
                 return;
             }
 
-            System.out.println("✅ FILL: " + fill.getSide() + " " + fill.getFillQty() + " " + fill.getProduct() + " @ $"
-                    + fill.getFillPrice());
+            log.registro(FILL).texto(fill.getSide()).entero(fill.getFillQty()).texto(fill.getProduct())
+                    .real(fill.getFillPrice()).publicar();
 
             // TODO: Update your state after a fill
             // - Update inventory
@@ -400,7 +470,7 @@ public final class Main {
                 return;
             }
 
-            System.out.println("💰 BALANCE UPDATE: " + balanceUpdate);
+            log.registro(BALANCE).texto(balanceUpdate).publicar();
 
             // TODO: Track balance changes
             // - Extract balance from message
@@ -414,7 +484,7 @@ public final class Main {
                 return;
             }
 
-            System.out.println("📦 INVENTORY UPDATE: " + inventoryUpdate);
+            log.registro(INVENTARIO).texto(inventoryUpdate).publicar();
 
             // TODO: Track inventory changes
             // - Extract product and quantity from message
@@ -443,14 +513,13 @@ public final class Main {
                 return;
             }
 
-            System.out.println("📢 BROADCAST: " + broadcast.getMessage());
+            log.registro(BROADCAST).texto(broadcast.getMessage()).publicar();
         }
 
         @Override
         public void onConnectionLost(Throwable throwable) {
-            System.err.println("💔 CONNECTION LOST: " + throwable.getMessage());
-
-            // TODO: Implement reconnection logic
+            log.registro(CONEXION_PERDIDA).texto(throwable == null ? null : throwable.getMessage()).publicar();
+            supervisor.conexionPerdida(throwable);
         }
 
         @Override
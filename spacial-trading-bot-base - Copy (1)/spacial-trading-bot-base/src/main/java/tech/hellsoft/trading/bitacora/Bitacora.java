@@ -0,0 +1,444 @@
+package tech.hellsoft.trading.bitacora;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.eventos.EstrategiaEspera;
+
+/**
+ * Log asíncrono para los callbacks: el hilo del evento junta la plantilla y
+ * los argumentos en un registro propio del hilo y, al publicar, los copia en
+ * una ranura preasignada del anillo; el hilo "bitacora" arma el texto y lo
+ * escribe por lotes, con un solo print y flush por lote.
+ *
+ * El anillo admite varios productores (los canales de despacho y la consola).
+ * La ranura se reserva recién en {@link Registro#publicar()}, con los
+ * argumentos ya evaluados: si algo lanza a mitad de la cadena, el registro se
+ * pierde pero no queda una ranura reservada sin publicar que trabe al escritor.
+ * Si el anillo está lleno el registro se descarta y se cuenta: el log nunca
+ * frena un callback.
+ *
+ * <pre>{@code
+ * private static final Plantilla FILL = Plantilla.info("✅ FILL: {} {} {} @ ${}");
+ * ...
+ * Bitacora.global().registro(FILL).texto(side).entero(qty).texto(product).real(price, 2).publicar();
+ * }</pre>
+ *
+ * Los argumentos se formatean más tarde en otro hilo, así que solo se deben
+ * pasar textos u objetos inmutables (los DTO del SDK lo son).
+ */
+public final class Bitacora implements AutoCloseable {
+
+    private static final VarHandle PRODUCTOR;
+    private static final VarHandle CONSUMIDOR;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCTOR = lookup.findVarHandle(Bitacora.class, "productor", long.class);
+            CONSUMIDOR = lookup.findVarHandle(Bitacora.class, "consumidor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Registro[] ranuras;
+    private final int mascara;
+    private final PrintStream salida;
+    private final PrintStream errores;
+    private final EstrategiaEspera espera = EstrategiaEspera.durmiendo(TimeUnit.MILLISECONDS.toNanos(1));
+    private final ZoneId zona = ZoneId.systemDefault();
+    // Registro que arma cada hilo productor antes de reservar ranura
+    private final ThreadLocal<Registro> enArmado = ThreadLocal.withInitial(() -> new Registro(this));
+
+    // Registros reservados / escritos desde el inicio; solo crecen
+    private long productor;
+    private long consumidor;
+
+    private final LongAdder publicados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+
+    // Solo los usa el hilo consumidor; el lote va entero a un mismo destino
+    private final StringBuilder lote = new StringBuilder(4096);
+    private PrintStream destinoLote;
+
+    private volatile boolean activo = true;
+    private Thread hilo;
+
+    /**
+     * @param capacidad se redondea a la siguiente potencia de dos
+     */
+    public Bitacora(int capacidad, PrintStream salida, PrintStream errores) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        int tam = Integer.highestOneBit(capacidad);
+        if (tam < capacidad) {
+            tam <<= 1;
+        }
+        this.ranuras = new Registro[tam];
+        for (int i = 0; i < tam; i++) {
+            ranuras[i] = new Registro(this);
+        }
+        this.mascara = tam - 1;
+        this.salida = salida;
+        this.errores = errores;
+    }
+
+    /**
+     * Bitácora de la aplicación sobre {@code System.out}/{@code System.err};
+     * se arranca la primera vez que se pide y se vacía al terminar la JVM.
+     */
+    public static Bitacora global() {
+        return Global.INSTANCIA;
+    }
+
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        hilo = new Thread(this::ejecutar, "bitacora");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Empieza un registro con la plantilla; no se escribe nada hasta
+     * {@link Registro#publicar()}. Un registro abandonado (por ejemplo, porque
+     * evaluar un argumento lanzó) simplemente no aparece.
+     */
+    public Registro registro(Plantilla plantilla) {
+        Registro r = enArmado.get();
+        if (r.armando) {
+            // Un argumento que a su vez escribe en la bitácora, o una cadena abandonada:
+            // el registro a medias se deja a quien lo tenga y el hilo sigue con uno nuevo
+            r = new Registro(this);
+            enArmado.set(r);
+        }
+        r.preparar(plantilla, System.currentTimeMillis());
+        return r;
+    }
+
+    /**
+     * Atajo para plantillas sin huecos.
+     */
+    public void escribir(Plantilla plantilla) {
+        registro(plantilla).publicar();
+    }
+
+    /**
+     * Reserva una ranura y copia en ella el registro armado.
+     */
+    private void publicar(Registro armado) {
+        long p;
+        do {
+            p = (long) PRODUCTOR.getVolatile(this);
+            if (p - (long) CONSUMIDOR.getAcquire(this) >= ranuras.length) {
+                descartados.increment();
+                return;
+            }
+        } while (!PRODUCTOR.compareAndSet(this, p, p + 1));
+        Registro r = ranuras[(int) (p & mascara)];
+        r.copiar(armado);
+        r.publicarSecuencia(p + 1);
+        publicados.increment();
+        espera.despertar();
+    }
+
+    private void ejecutar() {
+        int vacios = 0;
+        while (activo) {
+            if (drenar() > 0) {
+                vacios = 0;
+            } else {
+                espera.esperar(vacios++);
+            }
+        }
+        drenar();
+    }
+
+    private int drenar() {
+        long inicio = consumidor;
+        long c = inicio;
+        while (true) {
+            Registro r = ranuras[(int) (c & mascara)];
+            if (r.secuenciaPublicada() != c + 1) {
+                break;
+            }
+            PrintStream destino = r.plantilla.nivel().esError() ? errores : salida;
+            if (destino != destinoLote) {
+                // Al cambiar de salida se vuelca lo anterior para no desordenar las líneas
+                volcar();
+                destinoLote = destino;
+            }
+            formatear(r, lote);
+            r.limpiar();
+            c++;
+        }
+        if (c == inicio) {
+            return 0;
+        }
+        CONSUMIDOR.setRelease(this, c);
+        volcar();
+        return (int) (c - inicio);
+    }
+
+    private void volcar() {
+        if (lote.length() == 0) {
+            return;
+        }
+        destinoLote.print(lote);
+        destinoLote.flush();
+        lote.setLength(0);
+        // Un mensaje enorme no debe dejar el buffer grande para siempre
+        if (lote.capacity() > 1 << 20) {
+            lote.trimToSize();
+        }
+    }
+
+    private void formatear(Registro r, StringBuilder sb) {
+        LocalTime hora = LocalTime.ofInstant(Instant.ofEpochMilli(r.instanteMs), zona);
+        dosCifras(sb, hora.getHour()).append(':');
+        dosCifras(sb, hora.getMinute()).append(':');
+        dosCifras(sb, hora.getSecond()).append('.');
+        int ms = hora.getNano() / 1_000_000;
+        if (ms < 100) {
+            sb.append('0');
+        }
+        dosCifras(sb, ms).append(' ');
+
+        Plantilla p = r.plantilla;
+        int huecos = p.huecos();
+        for (int i = 0; i <= huecos; i++) {
+            sb.append(p.trozo(i));
+            if (i < huecos) {
+                if (i < r.argumentos) {
+                    r.argumento(i, sb);
+                } else {
+                    sb.append("{}");
+                }
+            }
+        }
+        // Argumentos de más: se agregan al final para no perderlos
+        for (int i = huecos; i < r.argumentos; i++) {
+            sb.append(' ');
+            r.argumento(i, sb);
+        }
+        sb.append(System.lineSeparator());
+    }
+
+    private static StringBuilder dosCifras(StringBuilder sb, int valor) {
+        if (valor < 10) {
+            sb.append('0');
+        }
+        return sb.append(valor);
+    }
+
+    public int capacidad() {
+        return ranuras.length;
+    }
+
+    /**
+     * Registros reservados y aún no escritos.
+     */
+    public long profundidad() {
+        return (long) PRODUCTOR.getAcquire(this) - (long) CONSUMIDOR.getAcquire(this);
+    }
+
+    public long publicados() {
+        return publicados.sum();
+    }
+
+    public long descartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * Escribe lo pendiente y detiene el hilo escritor.
+     */
+    @Override
+    public void close() {
+        activo = false;
+        Thread h;
+        synchronized (this) {
+            h = hilo;
+        }
+        if (h == null) {
+            drenar();
+            return;
+        }
+        try {
+            h.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Registro en armado o ranura del anillo; los métodos devuelven el mismo
+     * registro para encadenar argumentos sin crear objetos.
+     */
+    public static final class Registro {
+
+        private static final VarHandle SECUENCIA;
+
+        static {
+            try {
+                SECUENCIA = MethodHandles.lookup().findVarHandle(Registro.class, "secuencia", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        /**
+         * Argumentos por registro; los que sobran se ignoran.
+         */
+        public static final int MAX_ARGUMENTOS = 8;
+
+        private static final byte TEXTO = 0;
+        private static final byte ENTERO = 1;
+        private static final byte REAL = 2;
+
+        private final Bitacora bitacora;
+        private final byte[] tipos = new byte[MAX_ARGUMENTOS];
+        // Decimales fijos de los reales; -1 = representación completa
+        private final byte[] decimales = new byte[MAX_ARGUMENTOS];
+        private final long[] numeros = new long[MAX_ARGUMENTOS];
+        private final Object[] objetos = new Object[MAX_ARGUMENTOS];
+
+        // En las ranuras: la ranura está lista cuando secuencia == su número + 1
+        private long secuencia;
+        private Plantilla plantilla;
+        private long instanteMs;
+        private int argumentos;
+        // En los registros en armado: entre registro() y publicar()
+        private boolean armando;
+
+        private Registro(Bitacora bitacora) {
+            this.bitacora = bitacora;
+        }
+
+        void preparar(Plantilla plantilla, long instanteMs) {
+            this.plantilla = plantilla;
+            this.instanteMs = instanteMs;
+            this.argumentos = 0;
+            this.armando = true;
+        }
+
+        public Registro texto(Object valor) {
+            if (armando && argumentos < MAX_ARGUMENTOS) {
+                tipos[argumentos] = TEXTO;
+                objetos[argumentos++] = valor;
+            }
+            return this;
+        }
+
+        public Registro entero(long valor) {
+            if (armando && argumentos < MAX_ARGUMENTOS) {
+                tipos[argumentos] = ENTERO;
+                numeros[argumentos++] = valor;
+            }
+            return this;
+        }
+
+        public Registro real(double valor) {
+            return real(valor, -1);
+        }
+
+        /**
+         * @param decimales decimales fijos (0 a 9), o -1 para la representación completa
+         */
+        public Registro real(double valor, int decimales) {
+            if (armando && argumentos < MAX_ARGUMENTOS) {
+                tipos[argumentos] = REAL;
+                this.decimales[argumentos] = (byte) Math.max(-1, Math.min(9, decimales));
+                numeros[argumentos++] = Double.doubleToRawLongBits(valor);
+            }
+            return this;
+        }
+
+        public void publicar() {
+            if (!armando) {
+                return;
+            }
+            armando = false;
+            bitacora.publicar(this);
+            limpiar();
+        }
+
+        void copiar(Registro armado) {
+            plantilla = armado.plantilla;
+            instanteMs = armado.instanteMs;
+            argumentos = armado.argumentos;
+            for (int i = 0; i < argumentos; i++) {
+                tipos[i] = armado.tipos[i];
+                decimales[i] = armado.decimales[i];
+                numeros[i] = armado.numeros[i];
+                objetos[i] = armado.objetos[i];
+            }
+        }
+
+        void publicarSecuencia(long s) {
+            SECUENCIA.setRelease(this, s);
+        }
+
+        long secuenciaPublicada() {
+            return (long) SECUENCIA.getAcquire(this);
+        }
+
+        void argumento(int i, StringBuilder sb) {
+            switch (tipos[i]) {
+                case ENTERO -> sb.append(numeros[i]);
+                case REAL -> anexarReal(sb, Double.longBitsToDouble(numeros[i]), decimales[i]);
+                default -> sb.append(objetos[i]);
+            }
+        }
+
+        void limpiar() {
+            for (int i = 0; i < argumentos; i++) {
+                objetos[i] = null;
+            }
+            plantilla = null;
+        }
+
+        private static void anexarReal(StringBuilder sb, double valor, int decimales) {
+            if (decimales < 0 || Double.isNaN(valor) || Double.isInfinite(valor) || Math.abs(valor) >= 1e15) {
+                sb.append(valor);
+                return;
+            }
+            long escala = 1;
+            for (int i = 0; i < decimales; i++) {
+                escala *= 10;
+            }
+            long redondeado = Math.round(Math.abs(valor) * escala);
+            if (valor < 0 && redondeado != 0) {
+                sb.append('-');
+            }
+            sb.append(redondeado / escala);
+            if (decimales > 0) {
+                sb.append('.');
+                long fraccion = redondeado % escala;
+                for (long d = escala / 10; d > fraccion && d > 1; d /= 10) {
+                    sb.append('0');
+                }
+                sb.append(fraccion);
+            }
+        }
+    }
+
+    private static final class Global {
+        private static final Bitacora INSTANCIA = crear();
+
+        private static Bitacora crear() {
+            Bitacora b = new Bitacora(8192, System.out, System.err);
+            b.iniciar();
+            Runtime.getRuntime().addShutdownHook(new Thread(b::close, "bitacora-cierre"));
+            return b;
+        }
+    }
+}
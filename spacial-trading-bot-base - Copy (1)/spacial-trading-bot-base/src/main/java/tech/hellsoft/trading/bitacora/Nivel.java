@@ -0,0 +1,15 @@
+package tech.hellsoft.trading.bitacora;
+
+/**
+ * Severidad de una plantilla; decide si la línea va a la salida estándar o a la
+ * de errores.
+ */
+public enum Nivel {
+    INFO,
+    AVISO,
+    ERROR;
+
+    boolean esError() {
+        return this != INFO;
+    }
+}
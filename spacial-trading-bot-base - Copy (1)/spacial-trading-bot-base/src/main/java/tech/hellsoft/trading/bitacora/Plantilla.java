@@ -0,0 +1,60 @@
+package tech.hellsoft.trading.bitacora;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mensaje con huecos {@code {}} que se rellenan con los argumentos del
+ * registro. Se parte una sola vez al crearla, por eso conviene guardarla en un
+ * campo {@code static final} y no crearla en cada llamada.
+ */
+public final class Plantilla {
+
+    private final Nivel nivel;
+    private final String texto;
+    // Trozos literales entre huecos: siempre uno más que huecos
+    private final String[] trozos;
+
+    private Plantilla(Nivel nivel, String texto) {
+        this.nivel = nivel;
+        this.texto = texto;
+        List<String> partes = new ArrayList<>();
+        int desde = 0;
+        int hueco;
+        while ((hueco = texto.indexOf("{}", desde)) >= 0) {
+            partes.add(texto.substring(desde, hueco));
+            desde = hueco + 2;
+        }
+        partes.add(texto.substring(desde));
+        this.trozos = partes.toArray(new String[0]);
+    }
+
+    public static Plantilla info(String texto) {
+        return new Plantilla(Nivel.INFO, texto);
+    }
+
+    public static Plantilla aviso(String texto) {
+        return new Plantilla(Nivel.AVISO, texto);
+    }
+
+    public static Plantilla error(String texto) {
+        return new Plantilla(Nivel.ERROR, texto);
+    }
+
+    public Nivel nivel() {
+        return nivel;
+    }
+
+    public int huecos() {
+        return trozos.length - 1;
+    }
+
+    String trozo(int i) {
+        return trozos[i];
+    }
+
+    @Override
+    public String toString() {
+        return texto;
+    }
+}
@@ -0,0 +1,36 @@
+package tech.hellsoft.trading.conexion;
+
+import tech.hellsoft.trading.ConectorBolsa;
+
+/**
+ * Lo mínimo que el supervisor necesita para volver a conectarse: el conector
+ * del SDK o el simulador local.
+ */
+public interface Conexion {
+
+    /**
+     * Abre la conexión; el login llega después como un evento más.
+     *
+     * @throws Exception si no se pudo conectar, p. ej. servidor caído
+     */
+    void conectar() throws Exception;
+
+    /**
+     * Cierra lo que quede de la conexión anterior; no debe fallar si ya estaba cerrada.
+     */
+    void desconectar();
+
+    static Conexion sdk(ConectorBolsa conector, String host, String apiKey) {
+        return new Conexion() {
+            @Override
+            public void conectar() {
+                conector.conectar(host, apiKey);
+            }
+
+            @Override
+            public void desconectar() {
+                conector.desconectar();
+            }
+        };
+    }
+}
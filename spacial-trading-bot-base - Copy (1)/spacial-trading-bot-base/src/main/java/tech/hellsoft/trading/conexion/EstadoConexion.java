@@ -0,0 +1,19 @@
+package tech.hellsoft.trading.conexion;
+
+/**
+ * CONECTADO → (se pierde) RECONECTANDO → (llega el login) RECONCILIANDO →
+ * CONECTADO. DETENIDO si se agotaron los intentos o se cerró el supervisor.
+ */
+public enum EstadoConexion {
+    CONECTADO,
+    RECONECTANDO,
+    RECONCILIANDO,
+    DETENIDO;
+
+    /**
+     * Mientras no está CONECTADO el trading queda en pausa.
+     */
+    public boolean operable() {
+        return this == CONECTADO;
+    }
+}
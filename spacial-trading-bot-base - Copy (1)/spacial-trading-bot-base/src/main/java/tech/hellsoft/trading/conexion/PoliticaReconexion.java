@@ -0,0 +1,47 @@
+package tech.hellsoft.trading.conexion;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Backoff exponencial con jitter para los reintentos de conexión.
+ *
+ * @param esperaBaseMs             espera del primer reintento
+ * @param esperaMaximaMs           techo de la espera, por mucho que se duplique
+ * @param intentosMaximos          0 = reintentar siempre
+ * @param timeoutLoginMs           si tras conectar no llega el login en este
+ *                                 tiempo, el intento cuenta como fallido
+ * @param ventanaReconciliacionMs  tiempo que se esperan los INVENTORY_UPDATE
+ *                                 del servidor después del login antes de
+ *                                 comparar con el estado local
+ */
+public record PoliticaReconexion(long esperaBaseMs, long esperaMaximaMs, int intentosMaximos, long timeoutLoginMs,
+        long ventanaReconciliacionMs) {
+
+    public PoliticaReconexion {
+        if (esperaBaseMs <= 0 || esperaMaximaMs < esperaBaseMs) {
+            throw new IllegalArgumentException(
+                    "Esperas inválidas: base " + esperaBaseMs + " ms, máxima " + esperaMaximaMs + " ms");
+        }
+        if (intentosMaximos < 0 || timeoutLoginMs <= 0 || ventanaReconciliacionMs < 0) {
+            throw new IllegalArgumentException("Intentos y tiempos no pueden ser negativos");
+        }
+    }
+
+    public static PoliticaReconexion porDefecto() {
+        return new PoliticaReconexion(500, 30_000, 0, 10_000, 2_000);
+    }
+
+    /**
+     * Espera antes del intento {@code intento} (0 = primero): la mitad fija y la
+     * otra mitad al azar, para que varios clientes caídos a la vez no vuelvan
+     * todos en el mismo instante.
+     */
+    public long esperaMs(int intento, RandomGenerator azar) {
+        long tope = esperaBaseMs << Math.min(intento, 30);
+        if (tope <= 0 || tope > esperaMaximaMs) {
+            tope = esperaMaximaMs;
+        }
+        long mitad = tope / 2;
+        return mitad + azar.nextLong(tope - mitad + 1);
+    }
+}
@@ -0,0 +1,39 @@
+package tech.hellsoft.trading.conexion;
+
+import java.util.Map;
+
+/**
+ * Resultado de comparar el estado local del momento del corte con lo que
+ * informó el servidor al volver.
+ *
+ * El protocolo no numera los mensajes, así que los fills perdidos durante el
+ * corte se detectan por sus efectos: saldo e inventario distintos de los que
+ * teníamos, y órdenes enviadas que nunca recibieron respuesta.
+ *
+ * @param desconectadoMs        tiempo desde el corte hasta el login
+ * @param saldoLocal            saldo local justo antes de aplicar el del login
+ * @param saldoServidor         saldo del LoginOKMessage
+ * @param diferenciasInventario producto → unidades de más (o de menos) según el servidor
+ * @param ordenesSinRespuesta   órdenes pendientes al cortarse que se dieron por perdidas
+ * @param ordenesCerradas       órdenes aceptadas al cortarse que ya no iban a
+ *                              recibir fills y se cerraron con lo que les faltaba
+ */
+public record Reconciliacion(long desconectadoMs, double saldoLocal, double saldoServidor,
+        Map<String, Integer> diferenciasInventario, int ordenesSinRespuesta, int ordenesCerradas) {
+
+    public Reconciliacion {
+        diferenciasInventario = Map.copyOf(diferenciasInventario);
+    }
+
+    public double diferenciaSaldo() {
+        return saldoServidor - saldoLocal;
+    }
+
+    /**
+     * true si se perdió algo durante el corte (medio centavo de tolerancia en el saldo).
+     */
+    public boolean hayBrecha() {
+        return Math.abs(diferenciaSaldo()) >= 0.005 || !diferenciasInventario.isEmpty() || ordenesSinRespuesta > 0
+                || ordenesCerradas > 0;
+    }
+}
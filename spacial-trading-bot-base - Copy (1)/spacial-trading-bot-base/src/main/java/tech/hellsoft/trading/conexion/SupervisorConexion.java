@@ -0,0 +1,491 @@
+package tech.hellsoft.trading.conexion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.Cliente.ClienteBolsa;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.eventos.DespachadorEventos;
+import tech.hellsoft.trading.ordenes.EstadoOrden;
+import tech.hellsoft.trading.ordenes.GestorOrdenes;
+import tech.hellsoft.trading.ordenes.Lado;
+import tech.hellsoft.trading.ordenes.Orden;
+import tech.hellsoft.trading.riesgo.ControlRiesgo;
+
+/**
+ * Vuelve a conectar solo cuando se pierde la conexión y no reanuda el trading
+ * hasta que el estado local cuadra con el del servidor.
+ *
+ * Al cortarse se pausa el riesgo (ninguna orden nueva sale) y se guarda el
+ * saldo, el inventario y las órdenes abiertas de ese momento. Los reintentos
+ * van en el hilo "reconexion" con backoff exponencial y jitter. Con el login,
+ * el saldo del servidor reemplaza al local; tras una breve ventana para los
+ * INVENTORY_UPDATE se compara todo con lo guardado, se cierran las órdenes
+ * que seguían abiertas desde el corte y se reanuda.
+ *
+ * {@link #conexionPerdida} y {@link #sesionIniciada} se llaman desde el hilo de
+ * eventos del cliente; el resto puede llamarse desde cualquier hilo.
+ */
+public final class SupervisorConexion implements AutoCloseable {
+
+    private static final Plantilla PERDIDA = Plantilla
+            .aviso("🔌 Conexión perdida ({}); trading en pausa, primer reintento en {} ms");
+    private static final Plantilla FALLO = Plantilla.aviso("⚠ Reintento {} falló: {}; siguiente en {} ms");
+    private static final Plantilla SIN_LOGIN = Plantilla.aviso("⚠ Reintento {}: sin login tras {} ms; siguiente en {} ms");
+    private static final Plantilla AGOTADO = Plantilla
+            .error("❌ Sin conexión tras {} intentos; el trading sigue en pausa (usa 'resync' para reintentar)");
+    private static final Plantilla RECONECTADO = Plantilla
+            .info("🔌 Reconectado tras {} intento(s) y {} ms sin conexión; reconciliando estado...");
+    private static final Plantilla BRECHA = Plantilla.aviso("⚠ Brecha durante el corte: saldo {} (local {} → servidor {}),"
+            + " inventario distinto en {}, {} orden(es) sin respuesta dadas por perdidas,"
+            + " {} aceptada(s) cerradas");
+    private static final Plantilla REANUDADO = Plantilla.info("✅ Estado reconciliado; trading reanudado");
+    private static final Plantilla SUSPENDIDO = Plantilla.aviso("⏸ Conexión cerrada a pedido; trading en pausa");
+
+    // Cuánto se espera a que el despachador entregue lo que llegó antes de suspender
+    static final long ESPERA_VACIADO_MS = 5_000;
+
+    private final Conexion conexion;
+    // null = solo reconexión, sin estado que reconciliar
+    private final ClienteBolsa cliente;
+    private final PoliticaReconexion politica;
+    private final ScheduledExecutorService programador;
+    // Dónde corre cada intento (conectar bloquea); false = el programador es compartido
+    private final Executor intentos;
+    private final boolean programadorPropio;
+    private final SplittableRandom azar = new SplittableRandom();
+    private final Bitacora log = Bitacora.global();
+    // Por donde llegan los eventos al cliente; null = el conector los entrega directo
+    private volatile DespachadorEventos despachador;
+
+    // Protegido por this
+    private EstadoConexion estado = EstadoConexion.CONECTADO;
+    private int intento;
+    // Cambia con cada transición: las tareas programadas de una fase anterior se ignoran
+    private long fase;
+    private Corte corte;
+    private boolean pausadoPorSupervisor;
+    private boolean cerrado;
+    // El intento en curso ya conectó y espera el login
+    private boolean esperandoLogin;
+
+    private volatile Reconciliacion ultimaReconciliacion;
+    private final LongAdder cortes = new LongAdder();
+    private final LongAdder reconexiones = new LongAdder();
+    private final LongAdder brechas = new LongAdder();
+
+    public SupervisorConexion(Conexion conexion, ClienteBolsa cliente, PoliticaReconexion politica) {
+        this(conexion, cliente, politica, Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reconexion");
+            t.setDaemon(true);
+            return t;
+        }), Runnable::run, true);
+    }
+
+    /**
+     * Para varias cuentas en la misma JVM: los temporizadores van en un
+     * programador compartido (que {@link #close()} no apaga) y los intentos de
+     * conexión, que bloquean, en {@code intentos}.
+     */
+    public SupervisorConexion(Conexion conexion, ClienteBolsa cliente, PoliticaReconexion politica,
+            ScheduledExecutorService programador, Executor intentos) {
+        this(conexion, cliente, politica, programador, intentos, false);
+    }
+
+    private SupervisorConexion(Conexion conexion, ClienteBolsa cliente, PoliticaReconexion politica,
+            ScheduledExecutorService programador, Executor intentos, boolean programadorPropio) {
+        this.conexion = conexion;
+        this.cliente = cliente;
+        this.politica = politica;
+        this.programador = programador;
+        this.intentos = intentos;
+        this.programadorPropio = programadorPropio;
+    }
+
+    // ========== EVENTOS DE CONEXIÓN ==========
+
+    /**
+     * Se cortó la conexión: pausa y empieza a reintentar. Durante un
+     * reintento solo cuenta si ya había conectado; los avisos que deja el
+     * cierre de la conexión anterior se ignoran.
+     */
+    public synchronized void conexionPerdida(Throwable causa) {
+        String motivo = causa == null || causa.getMessage() == null ? "sin detalle" : causa.getMessage();
+        switch (estado) {
+            case DETENIDO -> {
+                return;
+            }
+            case RECONECTANDO -> {
+                if (esperandoLogin) {
+                    fallo(motivo);
+                }
+                return;
+            }
+            case CONECTADO -> {
+                corte = capturar();
+                cortes.increment();
+                pausar();
+            }
+            // RECONCILIANDO: se conserva el corte original, lo recibido desde el login se descarta
+            default -> {
+            }
+        }
+        estado = EstadoConexion.RECONECTANDO;
+        intento = 0;
+        long espera = programar();
+        log.registro(PERDIDA).texto(motivo).entero(espera).publicar();
+    }
+
+    /**
+     * Llamar al recibir un login y antes de aplicarlo.
+     *
+     * @return true si es el login de una reconexión: el saldo del servidor
+     *         reemplaza al local pero el saldo inicial (base del P&L) se conserva
+     */
+    public boolean sesionIniciada(LoginOKMessage login) {
+        synchronized (this) {
+            if (estado != EstadoConexion.RECONECTANDO) {
+                return false;
+            }
+            estado = EstadoConexion.RECONCILIANDO;
+            long g = ++fase;
+            double saldoLocal = cliente == null ? login.getCurrentBalance() : cliente.getEstado().getSaldo();
+            reconexiones.increment();
+            log.registro(RECONECTADO).entero(intento).entero(milisDesde(corte.nanos)).publicar();
+            double saldoServidor = login.getCurrentBalance();
+            programador.schedule(() -> reconciliar(g, saldoLocal, saldoServidor),
+                    politica.ventanaReconciliacionMs(), TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Fuerza una reconexión completa con su reconciliación, p. ej. tras
+     * {@link #suspender()} o cuando se agotaron los intentos.
+     */
+    public synchronized void reconectar() {
+        if (cerrado) {
+            return;
+        }
+        if (estado == EstadoConexion.DETENIDO && corte != null) {
+            // Se agotaron los intentos o se suspendió: se sigue con el mismo corte
+            estado = EstadoConexion.RECONECTANDO;
+            intento = 0;
+            programar();
+            return;
+        }
+        if (estado != EstadoConexion.DETENIDO) {
+            conexionPerdida(new IllegalStateException("reconexión manual"));
+        }
+    }
+
+    /**
+     * Cierra la conexión a propósito y espera a que el despachador entregue
+     * lo que ya había llegado, para poder reconstruir el estado sin eventos
+     * del servidor en medio. El trading queda en pausa y no se reintenta nada
+     * hasta {@link #reconectar()}, que reconcilia contra el estado de este
+     * momento. No llamar desde el hilo de eventos.
+     *
+     * @return false si el despachador no se vació a tiempo: todavía pueden
+     *         llegar eventos y no se debe tocar el estado
+     */
+    public boolean suspender() throws InterruptedException {
+        synchronized (this) {
+            if (cerrado) {
+                return false;
+            }
+            if (estado == EstadoConexion.CONECTADO) {
+                corte = capturar();
+                cortes.increment();
+                pausar();
+            }
+            // Los intentos y reconciliaciones en curso se descartan
+            estado = EstadoConexion.DETENIDO;
+            intento = 0;
+            esperandoLogin = false;
+            fase++;
+        }
+        log.escribir(SUSPENDIDO);
+        try {
+            conexion.desconectar();
+        } catch (RuntimeException e) {
+            // Ya estaba cerrada
+        }
+        DespachadorEventos d = despachador;
+        return d == null || d.esperarVacio(ESPERA_VACIADO_MS);
+    }
+
+    /**
+     * Para que {@link #suspender()} sepa cuándo se entregaron los eventos pendientes.
+     */
+    public void setDespachador(DespachadorEventos despachador) {
+        this.despachador = despachador;
+    }
+
+    // ========== REINTENTOS ==========
+
+    private long programar() {
+        long espera = politica.esperaMs(intento, azar);
+        long g = ++fase;
+        esperandoLogin = false;
+        programador.schedule(() -> intentos.execute(() -> intentar(g)), espera, TimeUnit.MILLISECONDS);
+        return espera;
+    }
+
+    private void intentar(long g) {
+        synchronized (this) {
+            if (g != fase || estado != EstadoConexion.RECONECTANDO) {
+                return;
+            }
+            intento++;
+        }
+        try {
+            conexion.desconectar();
+        } catch (RuntimeException e) {
+            // Lo que quedaba de la conexión anterior ya estaba roto
+        }
+        try {
+            conexion.conectar();
+        } catch (Exception e) {
+            synchronized (this) {
+                if (g == fase && estado == EstadoConexion.RECONECTANDO) {
+                    fallo(e.getMessage());
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (g == fase && estado == EstadoConexion.RECONECTANDO) {
+                esperandoLogin = true;
+                programador.schedule(() -> sinLogin(g), politica.timeoutLoginMs(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private synchronized void sinLogin(long g) {
+        if (g != fase || estado != EstadoConexion.RECONECTANDO) {
+            return;
+        }
+        if (agotado()) {
+            return;
+        }
+        long espera = programar();
+        log.registro(SIN_LOGIN).entero(intento).entero(politica.timeoutLoginMs()).entero(espera).publicar();
+    }
+
+    // Con el lock tomado
+    private void fallo(String motivo) {
+        if (agotado()) {
+            return;
+        }
+        long espera = programar();
+        log.registro(FALLO).entero(intento).texto(motivo).entero(espera).publicar();
+    }
+
+    private boolean agotado() {
+        if (politica.intentosMaximos() > 0 && intento >= politica.intentosMaximos()) {
+            estado = EstadoConexion.DETENIDO;
+            fase++;
+            log.registro(AGOTADO).entero(intento).publicar();
+            return true;
+        }
+        return false;
+    }
+
+    // ========== RECONCILIACIÓN ==========
+
+    private Corte capturar() {
+        if (cliente == null) {
+            return new Corte(System.nanoTime(), Map.of(), Set.of());
+        }
+        EstadoCliente e = cliente.getEstado();
+        Set<String> abiertas = new HashSet<>();
+        for (Orden o : cliente.getOrdenes().abiertas()) {
+            abiertas.add(o.getClOrdId());
+        }
+        return new Corte(System.nanoTime(), e.getInventario(), abiertas);
+    }
+
+    private void reconciliar(long g, double saldoLocal, double saldoServidor) {
+        Corte c;
+        synchronized (this) {
+            if (g != fase || estado != EstadoConexion.RECONCILIANDO) {
+                return;
+            }
+            c = corte;
+        }
+        Map<String, Integer> diferencias = new HashMap<>();
+        int sinRespuesta = 0;
+        int cerradas = 0;
+        if (cliente != null) {
+            Map<String, Integer> actual = cliente.getEstado().getInventario();
+            Set<String> productos = new HashSet<>(actual.keySet());
+            productos.addAll(c.inventario.keySet());
+            for (String p : productos) {
+                int d = actual.getOrDefault(p, 0) - c.inventario.getOrDefault(p, 0);
+                if (d != 0) {
+                    diferencias.put(p, d);
+                }
+            }
+            List<Orden> abiertas = abiertasDesde(c.ordenes);
+            atribuirFills(abiertas, diferencias);
+            GestorOrdenes gestor = cliente.getOrdenes();
+            for (Orden o : abiertas) {
+                EstadoOrden e = o.getEstado();
+                if (e.esFinal()) {
+                    continue;
+                }
+                if (e == EstadoOrden.PENDIENTE) {
+                    sinRespuesta++;
+                } else {
+                    cerradas++;
+                }
+                gestor.abandonar(o);
+            }
+        }
+        Reconciliacion r = new Reconciliacion(milisDesde(c.nanos), saldoLocal, saldoServidor, diferencias,
+                sinRespuesta, cerradas);
+        synchronized (this) {
+            if (g != fase || estado != EstadoConexion.RECONCILIANDO) {
+                return;
+            }
+            ultimaReconciliacion = r;
+            if (r.hayBrecha()) {
+                brechas.increment();
+                log.registro(BRECHA).real(r.diferenciaSaldo(), 2).real(saldoLocal, 2).real(saldoServidor, 2)
+                        .texto(diferencias).entero(sinRespuesta).entero(cerradas).publicar();
+            }
+            estado = EstadoConexion.CONECTADO;
+            corte = null;
+            fase++;
+            reanudar();
+            log.escribir(REANUDADO);
+        }
+    }
+
+    /**
+     * Órdenes del corte que siguen vivas, de la más antigua a la más nueva.
+     * Todas son a mercado: lo que se iba a llenar se llenó durante el corte y
+     * su efecto ya llegó en el saldo e inventario del login, así que ninguna
+     * recibirá más fills y hay que cerrarlas para soltar sus reservas.
+     */
+    private List<Orden> abiertasDesde(Set<String> ids) {
+        GestorOrdenes gestor = cliente.getOrdenes();
+        List<Orden> abiertas = new ArrayList<>();
+        for (String id : ids) {
+            Orden o = gestor.buscar(id);
+            if (o != null && !o.getEstado().esFinal()) {
+                abiertas.add(o);
+            }
+        }
+        abiertas.sort(Comparator.comparingLong(Orden::getCreadaNanos));
+        return abiertas;
+    }
+
+    /**
+     * Reparte la diferencia de inventario de cada producto como fills perdidos
+     * entre sus órdenes del lado que corresponde (subió: compras; bajó:
+     * ventas), de la más antigua a la más nueva, para que queden llenas o
+     * parciales en vez de canceladas. Es una estimación: el inventario también
+     * lo mueven las producciones.
+     */
+    private void atribuirFills(List<Orden> abiertas, Map<String, Integer> diferencias) {
+        GestorOrdenes gestor = cliente.getOrdenes();
+        Map<String, Integer> resto = new HashMap<>(diferencias);
+        for (Orden o : abiertas) {
+            int d = resto.getOrDefault(o.getProducto(), 0);
+            int signo = o.getLado() == Lado.BUY ? 1 : -1;
+            int cantidad = Math.min(o.getPendiente(), d * signo);
+            if (cantidad > 0) {
+                resto.put(o.getProducto(), d - signo * gestor.llenarSinFill(o, cantidad));
+            }
+        }
+    }
+
+    private void pausar() {
+        if (cliente == null) {
+            return;
+        }
+        ControlRiesgo riesgo = cliente.getRiesgo();
+        // Si el usuario ya lo había pausado, sigue pausado al volver
+        if (!riesgo.isPausado()) {
+            riesgo.setPausado(true);
+            pausadoPorSupervisor = true;
+        }
+    }
+
+    private void reanudar() {
+        if (pausadoPorSupervisor) {
+            cliente.getRiesgo().setPausado(false);
+            pausadoPorSupervisor = false;
+        }
+    }
+
+    private static long milisDesde(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+    }
+
+    // ========== CONSULTA ==========
+
+    public synchronized EstadoConexion estado() {
+        return estado;
+    }
+
+    /**
+     * Intentos hechos desde el último corte.
+     */
+    public synchronized int intentos() {
+        return intento;
+    }
+
+    /**
+     * null si todavía no hubo ninguna reconexión.
+     */
+    public Reconciliacion ultimaReconciliacion() {
+        return ultimaReconciliacion;
+    }
+
+    public long cortes() {
+        return cortes.sum();
+    }
+
+    public long reconexiones() {
+        return reconexiones.sum();
+    }
+
+    public long brechas() {
+        return brechas.sum();
+    }
+
+    public PoliticaReconexion politica() {
+        return politica;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            cerrado = true;
+            estado = EstadoConexion.DETENIDO;
+            fase++;
+        }
+        if (programadorPropio) {
+            programador.shutdownNow();
+        }
+    }
+
+    private record Corte(long nanos, Map<String, Integer> inventario, Set<String> ordenes) {
+    }
+}
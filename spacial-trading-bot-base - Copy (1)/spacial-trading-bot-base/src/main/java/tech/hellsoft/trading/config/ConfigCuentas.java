@@ -0,0 +1,25 @@
+package tech.hellsoft.trading.config;
+
+import java.util.List;
+
+/**
+ * Varias cuentas en una misma JVM ({@code cuentas.json}).
+ *
+ * <pre>
+ * {
+ *   "recetas": "src/main/resources/recetas.json",
+ *   "cuentas": [
+ *     { "apiKey": "TK-...", "team": "Sapos", "host": "wss://trading.hellsoft.tech/ws" },
+ *     { "apiKey": "local", "team": "Ranas", "host": "sim://local?semilla=7" }
+ *   ]
+ * }
+ * </pre>
+ *
+ * @param recetas archivo de recetas que comparten todas las cuentas; null = sin recetas
+ */
+public record ConfigCuentas(String recetas, List<Configuration> cuentas) {
+
+    public ConfigCuentas {
+        cuentas = cuentas == null ? List.of() : List.copyOf(cuentas);
+    }
+}
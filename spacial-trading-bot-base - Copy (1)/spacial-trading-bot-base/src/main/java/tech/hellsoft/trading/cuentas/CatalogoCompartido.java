@@ -0,0 +1,70 @@
+package tech.hellsoft.trading.cuentas;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.util.ConfigLoader;
+
+/**
+ * Datos inmutables que todas las cuentas de la JVM comparten en vez de
+ * tenerlos repetidos: cada archivo de recetas se lee una sola vez y las recetas
+ * con los mismos ingredientes son el mismo objeto; los roles iguales por valor
+ * también. Las unidades por rol ya se memorizan para toda la JVM en
+ * {@code CalculadoraProduccion}.
+ *
+ * Lo que devuelve es de solo lectura: ninguna cuenta debe modificar una receta
+ * compartida.
+ */
+public final class CatalogoCompartido {
+
+    private final Map<String, Map<String, Receta>> porArchivo = new ConcurrentHashMap<>();
+    private final Map<Map<String, Integer>, Receta> recetas = new ConcurrentHashMap<>();
+    private final Map<Rol, Rol> roles = new ConcurrentHashMap<>();
+
+    /**
+     * Recetas del archivo, leídas la primera vez que se piden.
+     */
+    public Map<String, Receta> recetas(String archivo) throws ConfiguracionInvalidaException {
+        Map<String, Receta> libro = porArchivo.get(archivo);
+        if (libro == null) {
+            libro = compartir(ConfigLoader.cargarRecetas(archivo));
+            Map<String, Receta> previo = porArchivo.putIfAbsent(archivo, libro);
+            if (previo != null) {
+                libro = previo;
+            }
+        }
+        return libro;
+    }
+
+    /**
+     * Copia de solo lectura con cada receta reemplazada por su instancia canónica.
+     */
+    public Map<String, Receta> compartir(Map<String, Receta> original) {
+        Map<String, Receta> copia = new HashMap<>(original.size() * 2);
+        for (Map.Entry<String, Receta> e : original.entrySet()) {
+            Receta r = e.getValue();
+            Map<String, Integer> ingredientes = r == null ? Map.of() : Map.copyOf(r.ingredientes());
+            copia.put(e.getKey(), recetas.computeIfAbsent(ingredientes, Receta::new));
+        }
+        return Collections.unmodifiableMap(copia);
+    }
+
+    public Rol compartir(Rol rol) {
+        if (rol == null) {
+            return null;
+        }
+        Rol previo = roles.putIfAbsent(rol, rol);
+        return previo == null ? rol : previo;
+    }
+
+    /**
+     * Recetas distintas que hay en memoria, sumando todas las cuentas.
+     */
+    public int recetasUnicas() {
+        return recetas.size();
+    }
+}
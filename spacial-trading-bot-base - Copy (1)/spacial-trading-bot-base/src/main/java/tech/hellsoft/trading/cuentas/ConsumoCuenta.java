@@ -0,0 +1,14 @@
+package tech.hellsoft.trading.cuentas;
+
+/**
+ * CPU y memoria asignada por los hilos de una cuenta (sus canales de
+ * despacho, donde corren los callbacks). Los hilos virtuales de conexión no
+ * entran: la JVM no mide CPU por hilo virtual.
+ *
+ * @param cpuNanos       tiempo de CPU acumulado
+ * @param bytesAsignados bytes asignados en el heap desde que arrancaron los hilos
+ *                       (asignación, no memoria retenida)
+ * @param hilos          hilos medidos
+ */
+public record ConsumoCuenta(String equipo, long cpuNanos, long bytesAsignados, int hilos) {
+}
@@ -0,0 +1,151 @@
+package tech.hellsoft.trading.cuentas;
+
+import com.sun.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import tech.hellsoft.trading.ConectorBolsa;
+import tech.hellsoft.trading.Cliente.ClienteBolsa;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.conexion.Conexion;
+import tech.hellsoft.trading.conexion.PoliticaReconexion;
+import tech.hellsoft.trading.conexion.SupervisorConexion;
+import tech.hellsoft.trading.config.Configuration;
+import tech.hellsoft.trading.eventos.DespachadorEventos;
+import tech.hellsoft.trading.eventos.ModoTicker;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.ordenes.SalidaOrdenes;
+import tech.hellsoft.trading.produccion.SalidaProduccion;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
+import tech.hellsoft.trading.simulador.ConfigSimulador;
+import tech.hellsoft.trading.simulador.SimuladorBolsa;
+
+/**
+ * Una cuenta dentro de {@link EjecutorCuentas}: su conector, su despachador y
+ * su {@link ClienteBolsa} con estado propio. Nada de esto se comparte con las
+ * demás cuentas salvo las recetas, que son de solo lectura.
+ */
+public final class Cuenta implements AutoCloseable {
+
+    private static final Plantilla CREDENCIAL_INVALIDA = Plantilla
+            .error("❌ [{}] API key rechazada; la cuenta se detiene");
+
+    private final Configuration config;
+    private final DespachadorEventos despachador = new DespachadorEventos();
+    private final Conexion conexion;
+    private final ClienteBolsa cliente;
+    private final SupervisorConexion supervisor;
+    private volatile boolean detenida;
+
+    Cuenta(Configuration config, Map<String, Receta> recetas, ScheduledExecutorService programador, Executor red)
+            throws ConfiguracionInvalidaException {
+        this.config = config;
+        SalidaOrdenes salida;
+        SalidaProduccion salidaProduccion;
+        if (ConfigSimulador.esSimulado(config.host())) {
+            SimuladorBolsa simulador = new SimuladorBolsa(ConfigSimulador.desdeUri(config.host()));
+            simulador.addListener(despachador);
+            simulador.setRecetas(recetas);
+            salida = simulador;
+            salidaProduccion = simulador;
+            conexion = simulador;
+        } else {
+            ConectorBolsa conector = new ConectorBolsa();
+            conector.addListener(despachador);
+            salida = conector::enviarOrden;
+            salidaProduccion = conector::enviarProduccion;
+            conexion = Conexion.sdk(conector, config.host(), config.apiKey());
+        }
+        cliente = new ClienteBolsa(salida, salidaProduccion, LimitesRiesgo.porDefecto());
+        cliente.getEstado().setRecetas(recetas);
+        cliente.setAlCredencialInvalida(this::credencialInvalida);
+        supervisor = new SupervisorConexion(conexion, cliente, PoliticaReconexion.porDefecto(), programador, red);
+        supervisor.setDespachador(despachador);
+        cliente.setSupervisor(supervisor);
+        despachador.agregar(config.team(), cliente, ModoTicker.TODOS);
+    }
+
+    /**
+     * Arranca el despachador y conecta; bloquea hasta que el conector
+     * responde, por eso se llama desde un hilo virtual. Si falla, el
+     * supervisor sigue reintentando con backoff.
+     */
+    void iniciar() {
+        despachador.iniciar();
+        try {
+            conexion.conectar();
+        } catch (Exception e) {
+            supervisor.conexionPerdida(e);
+        }
+    }
+
+    private void credencialInvalida() {
+        Bitacora.global().registro(CREDENCIAL_INVALIDA).texto(config.team()).publicar();
+        detenida = true;
+        cliente.getRiesgo().setPausado(true);
+        supervisor.close();
+        conexion.desconectar();
+    }
+
+    ConsumoCuenta consumo(ThreadMXBean mx) {
+        long cpu = 0;
+        long bytes = 0;
+        int n = 0;
+        for (Thread hilo : despachador.hilos()) {
+            long id = Hilos.id(hilo);
+            long c = mx.getThreadCpuTime(id);
+            long b = mx.getThreadAllocatedBytes(id);
+            // -1 si el hilo murió entre la lista y la consulta
+            if (c >= 0) {
+                cpu += c;
+            }
+            if (b >= 0) {
+                bytes += b;
+            }
+            n++;
+        }
+        return new ConsumoCuenta(config.team(), cpu, bytes, n);
+    }
+
+    public String equipo() {
+        return config.team();
+    }
+
+    public Configuration getConfig() {
+        return config;
+    }
+
+    public ClienteBolsa getCliente() {
+        return cliente;
+    }
+
+    public SupervisorConexion getSupervisor() {
+        return supervisor;
+    }
+
+    public DespachadorEventos getDespachador() {
+        return despachador;
+    }
+
+    /**
+     * true si el servidor rechazó la API key.
+     */
+    public boolean isDetenida() {
+        return detenida;
+    }
+
+    @Override
+    public void close() {
+        supervisor.close();
+        cliente.getProduccion().close();
+        cliente.getOfertas().close();
+        conexion.desconectar();
+        try {
+            despachador.detener();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
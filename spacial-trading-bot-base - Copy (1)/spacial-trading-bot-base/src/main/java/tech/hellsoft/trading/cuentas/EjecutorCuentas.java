@@ -0,0 +1,163 @@
+package tech.hellsoft.trading.cuentas;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.config.ConfigCuentas;
+import tech.hellsoft.trading.config.Configuration;
+import tech.hellsoft.trading.conexion.SupervisorConexion;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.util.ConfigLoader;
+
+/**
+ * Varias cuentas en una sola JVM, cada una aislada en su {@link Cuenta}.
+ *
+ * Lo que se comparte: las recetas (ver {@link CatalogoCompartido}), un único
+ * hilo de temporizadores para todos los supervisores de conexión y un
+ * ejecutor de hilos virtuales para conectar y reconectar, que es lo que
+ * bloquea. Cada cuenta conserva su propio hilo de despacho, así que una cuenta
+ * con callbacks lentos no atrasa a las demás y su CPU se puede medir aparte.
+ */
+public final class EjecutorCuentas implements AutoCloseable {
+
+    private final CatalogoCompartido catalogo = new CatalogoCompartido();
+    private final ScheduledExecutorService programador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cuentas-temporizador");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService red = Hilos.virtualesPorTarea("cuentas-red");
+    private final Map<String, Cuenta> cuentas = new LinkedHashMap<>();
+    private final ThreadMXBean mx;
+
+    public EjecutorCuentas(ConfigCuentas config) throws ConfiguracionInvalidaException {
+        Map<String, Receta> recetas = config.recetas() == null ? Map.of() : catalogo.recetas(config.recetas());
+        for (Configuration c : config.cuentas()) {
+            cuentas.put(c.team(), new Cuenta(c, recetas, programador, red));
+        }
+        this.mx = medidor();
+    }
+
+    private static ThreadMXBean medidor() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean mx)) {
+            return null;
+        }
+        if (mx.isThreadCpuTimeSupported() && !mx.isThreadCpuTimeEnabled()) {
+            mx.setThreadCpuTimeEnabled(true);
+        }
+        if (mx.isThreadAllocatedMemorySupported() && !mx.isThreadAllocatedMemoryEnabled()) {
+            mx.setThreadAllocatedMemoryEnabled(true);
+        }
+        return mx;
+    }
+
+    /**
+     * Conecta todas las cuentas a la vez, cada una en un hilo virtual; una que
+     * no conecta no frena a las demás (su supervisor reintenta).
+     */
+    public void iniciar() {
+        for (Cuenta cuenta : cuentas.values()) {
+            red.execute(cuenta::iniciar);
+        }
+    }
+
+    public Collection<Cuenta> cuentas() {
+        return Collections.unmodifiableCollection(cuentas.values());
+    }
+
+    /**
+     * null si no hay una cuenta con ese equipo.
+     */
+    public Cuenta cuenta(String equipo) {
+        return cuentas.get(equipo);
+    }
+
+    public CatalogoCompartido getCatalogo() {
+        return catalogo;
+    }
+
+    /**
+     * Consumo de cada cuenta; vacío si la JVM no permite medir por hilo.
+     */
+    public List<ConsumoCuenta> consumo() {
+        if (mx == null) {
+            return List.of();
+        }
+        List<ConsumoCuenta> lista = new ArrayList<>(cuentas.size());
+        for (Cuenta cuenta : cuentas.values()) {
+            lista.add(cuenta.consumo(mx));
+        }
+        return lista;
+    }
+
+    @Override
+    public void close() {
+        for (Cuenta cuenta : cuentas.values()) {
+            cuenta.close();
+        }
+        programador.shutdownNow();
+        red.shutdownNow();
+    }
+
+    // ========== LÍNEA DE COMANDOS ==========
+
+    /**
+     * {@code EjecutorCuentas [cuentas.json]}; comandos: {@code cuentas}, {@code exit}.
+     */
+    public static void main(String[] args) throws ConfiguracionInvalidaException {
+        String archivo = args.length > 0 ? args[0] : "src/main/resources/cuentas.json";
+        ConfigCuentas config = ConfigLoader.cargarCuentas(archivo);
+        try (EjecutorCuentas ejecutor = new EjecutorCuentas(config)) {
+            System.out.println("🚀 " + config.cuentas().size() + " cuentas, "
+                    + ejecutor.getCatalogo().recetasUnicas() + " recetas compartidas");
+            ejecutor.iniciar();
+            Scanner scanner = new Scanner(System.in);
+            while (true) {
+                System.out.print("\n> ");
+                if (!scanner.hasNextLine()) {
+                    break;
+                }
+                String comando = scanner.nextLine().trim().toLowerCase();
+                if (comando.equals("exit") || comando.equals("salir")) {
+                    break;
+                }
+                if (comando.equals("cuentas") || comando.isEmpty()) {
+                    ejecutor.imprimir();
+                } else {
+                    System.out.println("❌ Comandos: cuentas, exit");
+                }
+            }
+        }
+        System.out.println("👋 Cuentas cerradas.");
+    }
+
+    private void imprimir() {
+        Map<String, ConsumoCuenta> porEquipo = new LinkedHashMap<>();
+        for (ConsumoCuenta c : consumo()) {
+            porEquipo.put(c.equipo(), c);
+        }
+        System.out.printf("%-16s %-13s %12s %9s %8s %10s %11s%n", "equipo", "conexión", "saldo", "P&L %",
+                "órdenes", "CPU ms", "asignado MB");
+        for (Cuenta cuenta : cuentas.values()) {
+            EstadoCliente e = cuenta.getCliente().getEstado();
+            SupervisorConexion s = cuenta.getSupervisor();
+            ConsumoCuenta c = porEquipo.get(cuenta.equipo());
+            System.out.printf("%-16s %-13s %12.2f %+9.2f %8d %10s %11s%n", cuenta.equipo(),
+                    cuenta.isDetenida() ? "API KEY" : s.estado(), e.getSaldo(), e.calcularPL(),
+                    cuenta.getCliente().getOrdenes().cantidadAbiertas(),
+                    c == null ? "-" : String.valueOf(c.cpuNanos() / 1_000_000),
+                    c == null ? "-" : String.format("%.1f", c.bytesAsignados() / (1024.0 * 1024.0)));
+        }
+    }
+}
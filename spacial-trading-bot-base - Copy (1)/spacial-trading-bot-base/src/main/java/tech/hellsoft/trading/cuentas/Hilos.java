@@ -0,0 +1,27 @@
+package tech.hellsoft.trading.cuentas;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Hilos virtuales para lo que bloquea esperando la red (conectar, reintentar):
+ * cientos de cuentas no cuestan cientos de hilos del sistema.
+ */
+final class Hilos {
+
+    private Hilos() {
+    }
+
+    /**
+     * Un hilo virtual nuevo por tarea, llamados {@code prefijo-0}, {@code prefijo-1}, ...
+     */
+    static ExecutorService virtualesPorTarea(String prefijo) {
+        ThreadFactory fabrica = Thread.ofVirtual().name(prefijo + "-", 0).factory();
+        return Executors.newThreadPerTaskExecutor(fabrica);
+    }
+
+    static long id(Thread hilo) {
+        return hilo.threadId();
+    }
+}
@@ -0,0 +1,59 @@
+package tech.hellsoft.trading.dto.client;
+
+/**
+ * Order sent to the trading server.
+ */
+public class OrderMessage {
+
+  private final String clOrdID;
+  private final String side;
+  private final String mode;
+  private final String product;
+  private final int qty;
+  private final Double limitPrice;
+  private final String message;
+
+  public OrderMessage(String clOrdID, String side, String mode, String product, int qty, Double limitPrice,
+      String message) {
+    this.clOrdID = clOrdID;
+    this.side = side;
+    this.mode = mode;
+    this.product = product;
+    this.qty = qty;
+    this.limitPrice = limitPrice;
+    this.message = message;
+  }
+
+  public String getClOrdID() {
+    return clOrdID;
+  }
+
+  public String getSide() {
+    return side;
+  }
+
+  public String getMode() {
+    return mode;
+  }
+
+  public String getProduct() {
+    return product;
+  }
+
+  public int getQty() {
+    return qty;
+  }
+
+  public Double getLimitPrice() {
+    return limitPrice;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return clOrdID + " " + side + " " + qty + " " + product + (limitPrice == null ? "" : " @ " + limitPrice);
+  }
+}
@@ -0,0 +1,29 @@
+package tech.hellsoft.trading.dto.client;
+
+/**
+ * Production report sent to the trading server: {@code quantity} units of
+ * {@code product} were produced.
+ */
+public class ProductionUpdateMessage {
+
+  private final String product;
+  private final int quantity;
+
+  public ProductionUpdateMessage(String product, int quantity) {
+    this.product = product;
+    this.quantity = quantity;
+  }
+
+  public String getProduct() {
+    return product;
+  }
+
+  public int getQuantity() {
+    return quantity;
+  }
+
+  @Override
+  public String toString() {
+    return "PRODUCTION " + product + " x" + quantity;
+  }
+}
@@ -0,0 +1,29 @@
+package tech.hellsoft.trading.estrategia;
+
+/**
+ * SPI de estrategias automáticas.
+ *
+ * El motor llama siempre desde el mismo hilo para una estrategia dada, así
+ * que la implementación puede guardar estado sin sincronizar. No debe
+ * bloquear: cada evento retrasa al siguiente.
+ */
+public interface Estrategia {
+
+    String nombre();
+
+    /**
+     * Nuevo precio de un producto. Las órdenes se piden con {@code emisor}.
+     */
+    void onMercado(EventoMercado evento, Emisor emisor);
+
+    /**
+     * Se llenó una orden emitida por cualquier estrategia o por la consola.
+     */
+    default void onFill(String producto, boolean compra, int cantidad, double precio) {
+    }
+
+    @FunctionalInterface
+    interface Emisor {
+        void emitir(IntencionOrden intencion);
+    }
+}
@@ -0,0 +1,68 @@
+package tech.hellsoft.trading.estrategia;
+
+import tech.hellsoft.trading.ordenes.Lado;
+
+/**
+ * Estrategia de referencia: compra cuando el ask baja de un precio y vende
+ * cuando el bid supera otro, con un tope de inventario.
+ */
+public final class EstrategiaUmbral implements Estrategia {
+
+    private static final long ESPERA_NANOS = 2_000_000_000L;
+
+    private final String producto;
+    private final double precioCompra;
+    private final double precioVenta;
+    private final int lote;
+    private final int inventarioMaximo;
+    // Evita repetir la orden en cada tick mientras la anterior no se llena
+    private boolean esperando;
+    private long esperarHastaNanos;
+
+    public EstrategiaUmbral(String producto, double precioCompra, double precioVenta, int lote) {
+        this(producto, precioCompra, precioVenta, lote, lote * 10);
+    }
+
+    public EstrategiaUmbral(String producto, double precioCompra, double precioVenta, int lote, int inventarioMaximo) {
+        if (precioCompra >= precioVenta) {
+            throw new IllegalArgumentException("El precio de compra debe ser menor que el de venta");
+        }
+        this.producto = producto;
+        this.precioCompra = precioCompra;
+        this.precioVenta = precioVenta;
+        this.lote = lote;
+        this.inventarioMaximo = inventarioMaximo;
+    }
+
+    @Override
+    public String nombre() {
+        return "umbral-" + producto;
+    }
+
+    @Override
+    public void onMercado(EventoMercado e, Emisor emisor) {
+        if (!producto.equals(e.producto()) || (esperando && e.llegadaNanos() - esperarHastaNanos < 0)) {
+            return;
+        }
+        if (e.ask() > 0 && e.ask() <= precioCompra && e.inventario() + lote <= inventarioMaximo
+                && e.saldoDisponible() >= lote * e.ask()) {
+            esperar(e.llegadaNanos());
+            emisor.emitir(new IntencionOrden(Lado.BUY, producto, lote, "ask bajo umbral", e.llegadaNanos()));
+        } else if (e.bid() >= precioVenta && e.inventario() >= lote) {
+            esperar(e.llegadaNanos());
+            emisor.emitir(new IntencionOrden(Lado.SELL, producto, lote, "bid sobre umbral", e.llegadaNanos()));
+        }
+    }
+
+    @Override
+    public void onFill(String productoFill, boolean compra, int cantidad, double precio) {
+        if (producto.equals(productoFill)) {
+            esperando = false;
+        }
+    }
+
+    private void esperar(long desdeNanos) {
+        esperando = true;
+        esperarHastaNanos = desdeNanos + ESPERA_NANOS;
+    }
+}
@@ -0,0 +1,16 @@
+package tech.hellsoft.trading.estrategia;
+
+/**
+ * Ticker normalizado que reciben las estrategias: precio más el contexto
+ * local (inventario, spread medio) ya resuelto, para que la estrategia no
+ * tenga que consultar el estado.
+ *
+ * @param llegadaNanos System.nanoTime() cuando el ticker llegó al cliente
+ */
+public record EventoMercado(String producto, double bid, double ask, double mid, double spreadPromedio,
+        int inventario, double saldoDisponible, long llegadaNanos) {
+
+    public double spread() {
+        return ask - bid;
+    }
+}
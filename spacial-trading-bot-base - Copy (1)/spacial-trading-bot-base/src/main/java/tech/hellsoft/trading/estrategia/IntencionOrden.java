@@ -0,0 +1,11 @@
+package tech.hellsoft.trading.estrategia;
+
+import tech.hellsoft.trading.ordenes.Lado;
+
+/**
+ * Orden que una estrategia quiere enviar; el motor la pasa por el control de riesgo.
+ *
+ * @param origenNanos llegada del ticker que la originó, para medir tick-a-orden
+ */
+public record IntencionOrden(Lado lado, String producto, int cantidad, String motivo, long origenNanos) {
+}
@@ -0,0 +1,195 @@
+package tech.hellsoft.trading.estrategia;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecuta estrategias automáticas a partir de los tickers.
+ *
+ * Cada estrategia corre en su propio hilo (executor de un solo hilo), así que
+ * una estrategia lenta no retrasa a las demás ni al hilo de eventos. Se pueden
+ * habilitar, deshabilitar o reemplazar en caliente: el reemplazo conserva el
+ * hilo y la cola, y el siguiente evento ya lo procesa la versión nueva.
+ *
+ * Las intenciones de orden se entregan al {@link Destino} (el cliente, que
+ * pasa por el control de riesgo) desde el hilo de la estrategia.
+ *
+ * Los tickers se pueden perder: si la estrategia tiene {@link #MAX_PENDIENTES}
+ * eventos en cola se descartan, porque el siguiente ya trae el precio nuevo.
+ * Los fills no: una estrategia que se salta uno lleva mal su posición para
+ * siempre, así que se encolan siempre y llegan aunque esté deshabilitada.
+ */
+public final class MotorEstrategias {
+
+    /** Eventos en cola por estrategia antes de empezar a descartar tickers. */
+    public static final int MAX_PENDIENTES = 1024;
+
+    /**
+     * Quien envía de verdad la orden.
+     */
+    @FunctionalInterface
+    public interface Destino {
+        /**
+         * @return true si la orden se envió; false si la rechazó el riesgo
+         */
+        boolean ejecutar(IntencionOrden intencion);
+    }
+
+    private final Destino destino;
+    private final Map<String, Ranura> ranuras = new ConcurrentHashMap<>();
+
+    public MotorEstrategias(Destino destino) {
+        this.destino = destino;
+    }
+
+    // ========== GESTIÓN ==========
+
+    /**
+     * Registra la estrategia, o la reemplaza en caliente si ya hay una con ese nombre.
+     */
+    public void registrar(Estrategia estrategia) {
+        Ranura nueva = new Ranura(estrategia);
+        Ranura previa = ranuras.putIfAbsent(estrategia.nombre(), nueva);
+        if (previa == null) {
+            nueva.arrancar();
+        } else {
+            previa.actual.set(estrategia);
+        }
+    }
+
+    public boolean habilitar(String nombre, boolean habilitada) {
+        Ranura r = ranuras.get(nombre);
+        if (r == null) {
+            return false;
+        }
+        r.habilitada = habilitada;
+        return true;
+    }
+
+    public boolean quitar(String nombre) {
+        Ranura r = ranuras.remove(nombre);
+        if (r == null) {
+            return false;
+        }
+        r.hilo.shutdown();
+        return true;
+    }
+
+    public void detener() {
+        ranuras.values().forEach(r -> r.hilo.shutdownNow());
+        ranuras.clear();
+    }
+
+    public List<EstadoEstrategia> estados() {
+        return ranuras.values().stream().map(Ranura::estado).toList();
+    }
+
+    // ========== EVENTOS ==========
+
+    public void publicar(EventoMercado evento) {
+        for (Ranura r : ranuras.values()) {
+            r.encolar(() -> r.actual.get().onMercado(evento, r.emisor), true);
+        }
+    }
+
+    public void publicarFill(String producto, boolean compra, int cantidad, double precio) {
+        for (Ranura r : ranuras.values()) {
+            r.encolar(() -> r.actual.get().onFill(producto, compra, cantidad, precio), false);
+        }
+    }
+
+    /**
+     * Foto de los contadores de una estrategia.
+     *
+     * @param ultimaLatenciaNanos llegada del ticker → orden enviada, de la última orden
+     */
+    public record EstadoEstrategia(String nombre, boolean habilitada, long eventos, long ordenes,
+            long rechazadas, long descartados, long errores, long ultimaLatenciaNanos) {
+    }
+
+    private final class Ranura {
+        private final AtomicReference<Estrategia> actual;
+        private final ExecutorService hilo;
+        private final Estrategia.Emisor emisor = this::emitir;
+        private volatile boolean habilitada = true;
+
+        private final AtomicInteger pendientes = new AtomicInteger();
+        private final LongAdder eventos = new LongAdder();
+        private final LongAdder ordenes = new LongAdder();
+        private final LongAdder rechazadas = new LongAdder();
+        private final LongAdder descartados = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private volatile long ultimaLatenciaNanos;
+
+        Ranura(Estrategia estrategia) {
+            this.actual = new AtomicReference<>(estrategia);
+            String nombreHilo = "estrategia-" + estrategia.nombre();
+            this.hilo = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, nombreHilo);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        void arrancar() {
+            // Crea el hilo ahora para no pagarlo en el primer tick
+            hilo.execute(() -> { });
+        }
+
+        /**
+         * @param descartable si se puede perder con la cola llena (tickers);
+         *                    los fills se encolan siempre
+         */
+        void encolar(Runnable tarea, boolean descartable) {
+            if (descartable && !habilitada) {
+                return;
+            }
+            if (pendientes.incrementAndGet() > MAX_PENDIENTES && descartable) {
+                pendientes.decrementAndGet();
+                descartados.increment();
+                return;
+            }
+            try {
+                hilo.execute(() -> {
+                    try {
+                        if (habilitada || !descartable) {
+                            eventos.increment();
+                            tarea.run();
+                        }
+                    } catch (RuntimeException e) {
+                        errores.increment();
+                    } finally {
+                        pendientes.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // La estrategia se quitó mientras llegaba el evento
+                pendientes.decrementAndGet();
+            }
+        }
+
+        private void emitir(IntencionOrden intencion) {
+            if (!habilitada) {
+                return;
+            }
+            if (destino.ejecutar(intencion)) {
+                ordenes.increment();
+                ultimaLatenciaNanos = System.nanoTime() - intencion.origenNanos();
+            } else {
+                rechazadas.increment();
+            }
+        }
+
+        EstadoEstrategia estado() {
+            return new EstadoEstrategia(actual.get().nombre(), habilitada, eventos.sum(), ordenes.sum(),
+                    rechazadas.sum(), descartados.sum(), errores.sum(), ultimaLatenciaNanos);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package tech.hellsoft.trading.eventos;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Buffer circular de un productor y un consumidor, al estilo del LMAX Disruptor.
+ *
+ * Las ranuras se crean una sola vez y se reutilizan: publicar solo copia el
+ * tipo y la referencia del mensaje. El productor (hilo lector del SDK) y el
+ * consumidor se comunican únicamente a través de dos cursores con semántica
+ * release/acquire, sin locks.
+ *
+ * Si el anillo está lleno, los eventos descartables (tickers, ofertas) se
+ * pierden y se cuentan; los demás esperan a que haya hueco y se cuentan como
+ * desborde, porque perder un fill dejaría el estado mal.
+ */
+public final class AnilloEventos {
+
+    private static final VarHandle PRODUCTOR;
+    private static final VarHandle CONSUMIDOR;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCTOR = lookup.findVarHandle(AnilloEventos.class, "productor", long.class);
+            CONSUMIDOR = lookup.findVarHandle(AnilloEventos.class, "consumidor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Ranura[] ranuras;
+    private final int mascara;
+    private final EstrategiaEspera espera;
+
+    // Eventos publicados / consumidos desde el inicio; solo crecen
+    private long productor;
+    private long consumidor;
+    // Copia local del productor del último cursor consumidor leído
+    private long consumidorVisto;
+
+    private final LongAdder publicados = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder desbordes = new LongAdder();
+
+    /**
+     * @param capacidad se redondea a la siguiente potencia de dos
+     */
+    public AnilloEventos(int capacidad, EstrategiaEspera espera) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        int tam = Integer.highestOneBit(capacidad);
+        if (tam < capacidad) {
+            tam <<= 1;
+        }
+        this.ranuras = new Ranura[tam];
+        for (int i = 0; i < tam; i++) {
+            ranuras[i] = new Ranura();
+        }
+        this.mascara = tam - 1;
+        this.espera = espera;
+    }
+
+    /**
+     * Solo debe llamarse desde el hilo productor.
+     *
+     * @return false si el evento se descartó por falta de espacio
+     */
+    public boolean publicar(TipoEvento tipo, Object mensaje) {
+        return publicar(tipo, mensaje, tipo.esDescartable());
+    }
+
+    /**
+     * Igual que {@link #publicar(TipoEvento, Object)} pero decidiendo si el
+     * evento se puede descartar.
+     */
+    public boolean publicar(TipoEvento tipo, Object mensaje, boolean descartable) {
+        long p = productor;
+        long limite = p - ranuras.length;
+        if (limite >= consumidorVisto) {
+            consumidorVisto = (long) CONSUMIDOR.getAcquire(this);
+            if (limite >= consumidorVisto) {
+                if (descartable) {
+                    descartados.increment();
+                    return false;
+                }
+                desbordes.increment();
+                while (limite >= consumidorVisto) {
+                    Thread.onSpinWait();
+                    consumidorVisto = (long) CONSUMIDOR.getAcquire(this);
+                }
+            }
+        }
+        Ranura r = ranuras[(int) (p & mascara)];
+        r.tipo = tipo;
+        r.mensaje = mensaje;
+        PRODUCTOR.setRelease(this, p + 1);
+        publicados.increment();
+        espera.despertar();
+        return true;
+    }
+
+    /**
+     * Entrega al manejador todos los eventos disponibles. Solo debe llamarse
+     * desde el hilo consumidor.
+     *
+     * @return cuántos eventos se procesaron
+     */
+    public int consumir(BiConsumer<TipoEvento, Object> manejador) {
+        final long inicio = consumidor;
+        long c = inicio;
+        long disponible = (long) PRODUCTOR.getAcquire(this);
+        if (c == disponible) {
+            return 0;
+        }
+        try {
+            for (; c < disponible; c++) {
+                Ranura r = ranuras[(int) (c & mascara)];
+                Object mensaje = r.mensaje;
+                r.mensaje = null;
+                manejador.accept(r.tipo, mensaje);
+            }
+        } finally {
+            // Si el manejador falla, el evento que falló ya no se reintenta
+            CONSUMIDOR.setRelease(this, Math.min(c + 1, disponible));
+        }
+        return (int) (disponible - inicio);
+    }
+
+    public EstrategiaEspera getEspera() {
+        return espera;
+    }
+
+    public int capacidad() {
+        return ranuras.length;
+    }
+
+    /**
+     * Eventos publicados y aún no consumidos.
+     */
+    public long profundidad() {
+        return (long) PRODUCTOR.getAcquire(this) - (long) CONSUMIDOR.getAcquire(this);
+    }
+
+    public long publicados() {
+        return publicados.sum();
+    }
+
+    public long descartados() {
+        return descartados.sum();
+    }
+
+    public long desbordes() {
+        return desbordes.sum();
+    }
+
+    private static final class Ranura {
+        private TipoEvento tipo;
+        private Object mensaje;
+    }
+}
@@ -0,0 +1,140 @@
+package tech.hellsoft.trading.eventos;
+
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.BroadcastNotificationMessage;
+import tech.hellsoft.trading.dto.server.ErrorMessage;
+import tech.hellsoft.trading.dto.server.EventDeltaMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.GlobalPerformanceReportMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Un listener con su anillo y su hilo consumidor propios: un listener lento
+ * solo se atrasa a sí mismo.
+ */
+public final class CanalDespacho implements Runnable {
+
+    private static final Plantilla ERROR_LISTENER = Plantilla.error("⚠ Error en listener {} ({}): {}");
+
+    private final String nombre;
+    private final EventListener destino;
+    private final AnilloEventos anillo;
+    // null en modo TODOS
+    private final ConflacionTickers conflacion;
+    private final LongAdder errores = new LongAdder();
+    private volatile boolean activo = true;
+    private volatile Thread hilo;
+
+    CanalDespacho(String nombre, EventListener destino, AnilloEventos anillo, ModoTicker modo) {
+        this.nombre = nombre;
+        this.destino = destino;
+        this.anillo = anillo;
+        this.conflacion = modo == ModoTicker.CONFLADO ? new ConflacionTickers() : null;
+    }
+
+    void iniciar() {
+        hilo = new Thread(this, "despacho-" + nombre);
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    void detener() {
+        activo = false;
+        anillo.getEspera().despertar();
+    }
+
+    /**
+     * Hilo consumidor; null si el canal no se inició.
+     */
+    Thread hilo() {
+        return hilo;
+    }
+
+    void esperarFin(long millis) throws InterruptedException {
+        if (hilo != null) {
+            hilo.join(millis);
+        }
+    }
+
+    /**
+     * Eventos publicados que el listener todavía no terminó de procesar: el
+     * anillo avanza el consumidor recién después de entregar cada tanda.
+     */
+    long pendientes() {
+        return anillo.profundidad();
+    }
+
+    boolean publicar(TipoEvento tipo, Object mensaje) {
+        if (tipo == TipoEvento.TICKER && conflacion != null) {
+            ConflacionTickers.Casilla aviso = conflacion.ofrecer((TickerMessage) mensaje);
+            // El aviso no se puede perder: sin él la casilla quedaría llena para siempre
+            return aviso == null || anillo.publicar(TipoEvento.TICKER, aviso, false);
+        }
+        return anillo.publicar(tipo, mensaje);
+    }
+
+    @Override
+    public void run() {
+        EstrategiaEspera espera = anillo.getEspera();
+        int vacios = 0;
+        while (activo) {
+            if (anillo.consumir(this::entregar) > 0) {
+                vacios = 0;
+            } else {
+                espera.esperar(vacios++);
+            }
+        }
+        // Vaciar lo que quedó antes de salir
+        anillo.consumir(this::entregar);
+    }
+
+    private void entregar(TipoEvento tipo, Object mensaje) {
+        try {
+            switch (tipo) {
+                case LOGIN_OK -> destino.onLoginOk((LoginOKMessage) mensaje);
+                case ERROR -> destino.onError((ErrorMessage) mensaje);
+                case TICKER -> entregarTicker(mensaje);
+                case FILL -> destino.onFill((FillMessage) mensaje);
+                case BALANCE_UPDATE -> destino.onBalanceUpdate((BalanceUpdateMessage) mensaje);
+                case INVENTORY_UPDATE -> destino.onInventoryUpdate((InventoryUpdateMessage) mensaje);
+                case OFFER -> destino.onOffer((OfferMessage) mensaje);
+                case ORDER_ACK -> destino.onOrderAck((OrderAckMessage) mensaje);
+                case EVENT_DELTA -> destino.onEventDelta((EventDeltaMessage) mensaje);
+                case BROADCAST -> destino.onBroadcast((BroadcastNotificationMessage) mensaje);
+                case CONNECTION_LOST -> destino.onConnectionLost((Throwable) mensaje);
+                case GLOBAL_PERFORMANCE_REPORT ->
+                    destino.onGlobalPerformanceReport((GlobalPerformanceReportMessage) mensaje);
+                default -> throw new IllegalStateException("Tipo de evento no soportado: " + tipo);
+            }
+        } catch (RuntimeException e) {
+            // Un callback que falla no debe matar el hilo del canal
+            errores.increment();
+            Bitacora.global().registro(ERROR_LISTENER).texto(nombre).texto(tipo).texto(e.getMessage()).publicar();
+        }
+    }
+
+    private void entregarTicker(Object mensaje) {
+        if (mensaje instanceof ConflacionTickers.Casilla casilla) {
+            TickerMessage ultimo = casilla.tomar();
+            if (ultimo != null) {
+                destino.onTicker(ultimo);
+            }
+        } else {
+            destino.onTicker((TickerMessage) mensaje);
+        }
+    }
+
+    public EstadisticasCanal estadisticas() {
+        return new EstadisticasCanal(nombre, anillo.capacidad(), anillo.profundidad(), anillo.publicados(),
+                anillo.descartados(), anillo.desbordes(), conflacion == null ? 0 : conflacion.conflados(),
+                errores.sum());
+    }
+}
@@ -0,0 +1,46 @@
+package tech.hellsoft.trading.eventos;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Último ticker pendiente por producto para un canal en modo CONFLADO.
+ *
+ * El productor deja el ticker en la casilla del producto y solo publica un
+ * aviso en el anillo si la casilla estaba vacía; así el anillo nunca tiene
+ * más de un aviso por producto y el consumidor, al procesarlo, se lleva el
+ * valor más nuevo.
+ */
+final class ConflacionTickers {
+
+    // Solo lo toca el hilo productor
+    private final Map<String, Casilla> casillas = new HashMap<>();
+    private final LongAdder conflados = new LongAdder();
+
+    /**
+     * @return la casilla a publicar como aviso, o null si ya había uno pendiente
+     */
+    Casilla ofrecer(TickerMessage ticker) {
+        Casilla casilla = casillas.computeIfAbsent(ticker.getProduct(), p -> new Casilla());
+        if (casilla.ultimo.getAndSet(ticker) == null) {
+            return casilla;
+        }
+        conflados.increment();
+        return null;
+    }
+
+    long conflados() {
+        return conflados.sum();
+    }
+
+    static final class Casilla {
+        private final AtomicReference<TickerMessage> ultimo = new AtomicReference<>();
+
+        TickerMessage tomar() {
+            return ultimo.getAndSet(null);
+        }
+    }
+}
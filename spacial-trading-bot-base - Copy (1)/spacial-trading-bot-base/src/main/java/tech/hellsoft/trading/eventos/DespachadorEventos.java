@@ -0,0 +1,197 @@
+package tech.hellsoft.trading.eventos;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.BroadcastNotificationMessage;
+import tech.hellsoft.trading.dto.server.ErrorMessage;
+import tech.hellsoft.trading.dto.server.EventDeltaMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.GlobalPerformanceReportMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Etapa entre {@code ConectorBolsa.addListener} y los listeners reales.
+ *
+ * Se registra como único listener del conector; cada callback solo copia el
+ * mensaje al anillo de cada canal y retorna, de modo que el hilo lector del
+ * WebSocket nunca ejecuta lógica de la aplicación. El SDK entrega todos los
+ * callbacks desde ese único hilo, que es el productor que asume el anillo.
+ *
+ * Uso:
+ * <pre>
+ * DespachadorEventos despachador = new DespachadorEventos();
+ * despachador.agregar("bot", bot);
+ * connector.addListener(despachador);
+ * despachador.iniciar();
+ * </pre>
+ */
+public final class DespachadorEventos implements EventListener {
+
+    public static final int CAPACIDAD_POR_DEFECTO = 4096;
+
+    private final int capacidad;
+    private final Supplier<EstrategiaEspera> esperas;
+    private final List<CanalDespacho> canales = new CopyOnWriteArrayList<>();
+    private volatile boolean iniciado;
+
+    public DespachadorEventos() {
+        this(CAPACIDAD_POR_DEFECTO, () -> EstrategiaEspera.durmiendo(50_000));
+    }
+
+    /**
+     * @param esperas crea una estrategia de espera por canal
+     */
+    public DespachadorEventos(int capacidad, Supplier<EstrategiaEspera> esperas) {
+        this.capacidad = capacidad;
+        this.esperas = esperas;
+    }
+
+    /**
+     * Registra un listener con su propio hilo consumidor que recibe todos los tickers.
+     */
+    public CanalDespacho agregar(String nombre, EventListener listener) {
+        return agregar(nombre, listener, ModoTicker.TODOS);
+    }
+
+    /**
+     * Registra un listener con su propio hilo consumidor. En modo CONFLADO solo
+     * ve el ticker más reciente de cada producto; el resto de eventos llega
+     * siempre completo y en orden.
+     */
+    public CanalDespacho agregar(String nombre, EventListener listener, ModoTicker modo) {
+        CanalDespacho canal = new CanalDespacho(nombre, listener, new AnilloEventos(capacidad, esperas.get()), modo);
+        canales.add(canal);
+        if (iniciado) {
+            canal.iniciar();
+        }
+        return canal;
+    }
+
+    public void iniciar() {
+        if (iniciado) {
+            return;
+        }
+        iniciado = true;
+        canales.forEach(CanalDespacho::iniciar);
+    }
+
+    /**
+     * Detiene los consumidores; cada uno vacía su anillo antes de terminar.
+     */
+    public void detener() throws InterruptedException {
+        iniciado = false;
+        for (CanalDespacho canal : canales) {
+            canal.detener();
+        }
+        for (CanalDespacho canal : canales) {
+            canal.esperarFin(1000);
+        }
+    }
+
+    /**
+     * Espera a que cada canal haya entregado por completo lo publicado hasta
+     * ahora. Sirve cuando el productor ya se detuvo (conexión cerrada); no
+     * llamar desde un hilo consumidor.
+     *
+     * @return false si algún canal no se vació en {@code millis}
+     */
+    public boolean esperarVacio(long millis) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (CanalDespacho canal : canales) {
+            while (canal.pendientes() > 0) {
+                if (System.nanoTime() - limite > 0) {
+                    return false;
+                }
+                Thread.sleep(1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hilos consumidores vivos, para contabilizar CPU y memoria por dueño.
+     */
+    public List<Thread> hilos() {
+        return canales.stream().map(CanalDespacho::hilo).filter(h -> h != null && h.isAlive()).toList();
+    }
+
+    public List<EstadisticasCanal> estadisticas() {
+        return canales.stream().map(CanalDespacho::estadisticas).toList();
+    }
+
+    private void publicar(TipoEvento tipo, Object mensaje) {
+        for (CanalDespacho canal : canales) {
+            canal.publicar(tipo, mensaje);
+        }
+    }
+
+    // ========== CALLBACKS DEL SDK (hilo productor) ==========
+
+    @Override
+    public void onLoginOk(LoginOKMessage message) {
+        publicar(TipoEvento.LOGIN_OK, message);
+    }
+
+    @Override
+    public void onError(ErrorMessage message) {
+        publicar(TipoEvento.ERROR, message);
+    }
+
+    @Override
+    public void onTicker(TickerMessage message) {
+        publicar(TipoEvento.TICKER, message);
+    }
+
+    @Override
+    public void onFill(FillMessage message) {
+        publicar(TipoEvento.FILL, message);
+    }
+
+    @Override
+    public void onBalanceUpdate(BalanceUpdateMessage message) {
+        publicar(TipoEvento.BALANCE_UPDATE, message);
+    }
+
+    @Override
+    public void onInventoryUpdate(InventoryUpdateMessage message) {
+        publicar(TipoEvento.INVENTORY_UPDATE, message);
+    }
+
+    @Override
+    public void onOffer(OfferMessage message) {
+        publicar(TipoEvento.OFFER, message);
+    }
+
+    @Override
+    public void onOrderAck(OrderAckMessage message) {
+        publicar(TipoEvento.ORDER_ACK, message);
+    }
+
+    @Override
+    public void onEventDelta(EventDeltaMessage message) {
+        publicar(TipoEvento.EVENT_DELTA, message);
+    }
+
+    @Override
+    public void onBroadcast(BroadcastNotificationMessage message) {
+        publicar(TipoEvento.BROADCAST, message);
+    }
+
+    @Override
+    public void onConnectionLost(Throwable error) {
+        publicar(TipoEvento.CONNECTION_LOST, error);
+    }
+
+    @Override
+    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage message) {
+        publicar(TipoEvento.GLOBAL_PERFORMANCE_REPORT, message);
+    }
+}
@@ -0,0 +1,14 @@
+package tech.hellsoft.trading.eventos;
+
+/**
+ * Contadores de un canal de despacho en un instante dado.
+ *
+ * @param profundidad eventos en cola sin consumir
+ * @param descartados tickers/ofertas perdidos por anillo lleno
+ * @param desbordes veces que un evento no descartable tuvo que esperar hueco
+ * @param conflados tickers sustituidos por uno más nuevo antes de entregarse
+ * @param errores callbacks que lanzaron excepción
+ */
+public record EstadisticasCanal(String nombre, int capacidad, long profundidad, long publicados,
+        long descartados, long desbordes, long conflados, long errores) {
+}
@@ -0,0 +1,87 @@
+package tech.hellsoft.trading.eventos;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Qué hace el hilo consumidor cuando el anillo está vacío.
+ *
+ * Cada canal necesita su propia instancia (la bloqueante recuerda qué hilo
+ * está dormido), por eso el despachador recibe un proveedor.
+ */
+public interface EstrategiaEspera {
+
+    /**
+     * @param intentos veces seguidas que el consumidor encontró el anillo vacío
+     */
+    void esperar(int intentos);
+
+    /**
+     * Aviso del productor tras publicar; solo la estrategia bloqueante lo usa.
+     */
+    default void despertar() {
+    }
+
+    /**
+     * Gira sin soltar la CPU: menor latencia, un núcleo al 100%.
+     */
+    static EstrategiaEspera ocupada() {
+        return intentos -> Thread.onSpinWait();
+    }
+
+    /**
+     * Gira un poco y luego cede el procesador.
+     */
+    static EstrategiaEspera cediendo() {
+        return intentos -> {
+            if (intentos < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * Gira, cede y finalmente duerme {@code nanos}; buen equilibrio para la CLI.
+     */
+    static EstrategiaEspera durmiendo(long nanos) {
+        return intentos -> {
+            if (intentos < 100) {
+                Thread.onSpinWait();
+            } else if (intentos < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+    }
+
+    /**
+     * Duerme hasta que el productor avise. El park lleva un tope de 1 ms para
+     * cubrir el caso en que el aviso llega justo antes de dormirse.
+     */
+    static EstrategiaEspera bloqueante() {
+        return new Bloqueante();
+    }
+
+    final class Bloqueante implements EstrategiaEspera {
+        private static final long TOPE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+        private volatile Thread dormido;
+
+        @Override
+        public void esperar(int intentos) {
+            dormido = Thread.currentThread();
+            LockSupport.parkNanos(this, TOPE_NANOS);
+            dormido = null;
+        }
+
+        @Override
+        public void despertar() {
+            Thread t = dormido;
+            if (t != null) {
+                LockSupport.unpark(t);
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package tech.hellsoft.trading.eventos;
+
+/**
+ * Cómo recibe un canal los tickers.
+ */
+public enum ModoTicker {
+    /** Cada ticker en orden de llegada. */
+    TODOS,
+    /** Solo el más reciente de cada producto; los intermedios se sobrescriben. */
+    CONFLADO
+}
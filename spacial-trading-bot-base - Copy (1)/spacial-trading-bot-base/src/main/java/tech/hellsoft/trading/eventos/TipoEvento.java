@@ -0,0 +1,27 @@
+package tech.hellsoft.trading.eventos;
+
+/**
+ * Tipos de evento del SDK que viajan por el anillo de despacho.
+ */
+public enum TipoEvento {
+    LOGIN_OK,
+    ERROR,
+    TICKER,
+    FILL,
+    BALANCE_UPDATE,
+    INVENTORY_UPDATE,
+    OFFER,
+    ORDER_ACK,
+    EVENT_DELTA,
+    BROADCAST,
+    CONNECTION_LOST,
+    GLOBAL_PERFORMANCE_REPORT;
+
+    /**
+     * Datos de mercado que se pueden descartar si el consumidor va atrasado;
+     * el resto (fills, acks, inventario...) nunca se pierde.
+     */
+    public boolean esDescartable() {
+        return this == TICKER || this == OFFER;
+    }
+}
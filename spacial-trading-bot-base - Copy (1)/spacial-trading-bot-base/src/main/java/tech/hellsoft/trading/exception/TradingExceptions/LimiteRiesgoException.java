@@ -0,0 +1,13 @@
+package tech.hellsoft.trading.exception.TradingExceptions;
+
+public class LimiteRiesgoException extends TradingException {
+
+    private final String limite;
+
+    public LimiteRiesgoException(String limite, String message) {
+        super(message);
+        this.limite = limite;
+    }
+
+    public String getLimite() { return limite; }
+}
@@ -0,0 +1,71 @@
+package tech.hellsoft.trading.historico;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.estrategia.Estrategia;
+
+/**
+ * Reproduce grabaciones por los callbacks de {@link EventListener}.
+ *
+ * {@link #reproducir} sirve para cualquier listener (incluso ClienteBolsa);
+ * {@link #evaluar} corre una estrategia con {@link EjecucionBacktest} y
+ * {@link #evaluarTodas} corre muchas a la vez en un ForkJoinPool. La grabación
+ * se mapea una sola vez y todos los hilos leen las mismas páginas.
+ */
+public final class Backtester {
+
+    private Backtester() {
+    }
+
+    /**
+     * Entrega cada fila al listener en orden, sin pausas.
+     *
+     * @return filas entregadas
+     */
+    public static long reproducir(Grabacion g, EventListener listener) {
+        long filas = g.filas();
+        for (long i = 0; i < filas; i++) {
+            String producto = g.simbolo(g.producto(i));
+            if (g.tipo(i) == Grabacion.TICKER) {
+                listener.onTicker(new TickerHistorico(producto, g.bid(i), g.ask(i), g.ts(i)));
+            } else {
+                // Los ids originales de oferta no se graban
+                listener.onOffer(new OfferMessage("H-" + i, producto, g.cantidad(i), g.bid(i)));
+            }
+        }
+        return filas;
+    }
+
+    public static ResultadoBacktest evaluar(Grabacion g, Estrategia estrategia, ModeloFills modelo,
+            double saldoInicial, Map<String, Integer> inventarioInicial) {
+        EjecucionBacktest ejecucion = new EjecucionBacktest(estrategia, modelo, saldoInicial, inventarioInicial);
+        long inicio = System.nanoTime();
+        reproducir(g, ejecucion);
+        return ejecucion.resultado(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Evalúa cada candidata en paralelo; cada una recibe una estrategia nueva.
+     *
+     * @return resultados en el mismo orden que {@code candidatas}
+     */
+    public static List<ResultadoBacktest> evaluarTodas(Grabacion g,
+            List<? extends Supplier<? extends Estrategia>> candidatas, ModeloFills modelo, double saldoInicial,
+            Map<String, Integer> inventarioInicial, ForkJoinPool pool) {
+        List<ForkJoinTask<ResultadoBacktest>> tareas = new ArrayList<>(candidatas.size());
+        for (Supplier<? extends Estrategia> candidata : candidatas) {
+            tareas.add(pool.submit(() -> evaluar(g, candidata.get(), modelo, saldoInicial, inventarioInicial)));
+        }
+        List<ResultadoBacktest> resultados = new ArrayList<>(tareas.size());
+        for (ForkJoinTask<ResultadoBacktest> tarea : tareas) {
+            resultados.add(tarea.join());
+        }
+        return resultados;
+    }
+}
@@ -0,0 +1,170 @@
+package tech.hellsoft.trading.historico;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Un archivo por columna, de ancho fijo, mapeado en memoria por bloques de
+ * {@link #FILAS_POR_BLOQUE} filas (un solo MappedByteBuffer no pasa de 2 GB).
+ *
+ * Al escribir, el siguiente bloque se mapea cuando el actual se llena, lo que
+ * extiende el archivo. Al leer se mapean todos los bloques en modo solo
+ * lectura; los accesos son absolutos, así que varios hilos pueden leer la
+ * misma columna a la vez.
+ */
+final class Columna implements AutoCloseable {
+
+    static final int BITS_BLOQUE = 20;
+    static final int FILAS_POR_BLOQUE = 1 << BITS_BLOQUE;
+    private static final int MASCARA = FILAS_POR_BLOQUE - 1;
+
+    private final FileChannel canal;
+    private final int ancho;
+    private final boolean escritura;
+    private final List<MappedByteBuffer> bloques = new ArrayList<>();
+    // Bloque que se está escribiendo (solo en escritura)
+    private MappedByteBuffer actual;
+
+    private Columna(FileChannel canal, int ancho, boolean escritura) {
+        this.canal = canal;
+        this.ancho = ancho;
+        this.escritura = escritura;
+    }
+
+    static Columna crear(Path archivo, int ancho) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Columna(canal, ancho, true);
+    }
+
+    static Columna abrir(Path archivo, int ancho, long filas) throws IOException {
+        FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        Columna c = new Columna(canal, ancho, false);
+        long bytes = filas * ancho;
+        long tam = canal.size();
+        if (tam < bytes) {
+            canal.close();
+            throw new IOException("Columna truncada: " + archivo.getFileName() + " tiene " + tam
+                    + " bytes, se esperaban " + bytes);
+        }
+        long bytesBloque = (long) FILAS_POR_BLOQUE * ancho;
+        for (long pos = 0; pos < bytes; pos += bytesBloque) {
+            MappedByteBuffer b = canal.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(bytesBloque, bytes - pos));
+            b.order(ByteOrder.LITTLE_ENDIAN);
+            c.bloques.add(b);
+        }
+        return c;
+    }
+
+    // ========== ESCRITURA (secuencial) ==========
+
+    private int posicion(long fila) throws IOException {
+        int bloque = (int) (fila >>> BITS_BLOQUE);
+        if (bloque == bloques.size()) {
+            if (actual != null) {
+                // El bloque lleno ya no cambia: se baja a disco una sola vez
+                actual.force();
+            }
+            actual = canal.map(FileChannel.MapMode.READ_WRITE, (long) bloque * FILAS_POR_BLOQUE * ancho,
+                    (long) FILAS_POR_BLOQUE * ancho);
+            actual.order(ByteOrder.LITTLE_ENDIAN);
+            bloques.add(actual);
+        }
+        return (int) (fila & MASCARA) * ancho;
+    }
+
+    void ponerLong(long fila, long v) throws IOException {
+        int pos = posicion(fila);
+        actual.putLong(pos, v);
+    }
+
+    void ponerDouble(long fila, double v) throws IOException {
+        int pos = posicion(fila);
+        actual.putDouble(pos, v);
+    }
+
+    void ponerInt(long fila, int v) throws IOException {
+        int pos = posicion(fila);
+        actual.putInt(pos, v);
+    }
+
+    void ponerShort(long fila, short v) throws IOException {
+        int pos = posicion(fila);
+        actual.putShort(pos, v);
+    }
+
+    void ponerByte(long fila, byte v) throws IOException {
+        int pos = posicion(fila);
+        actual.put(pos, v);
+    }
+
+    /**
+     * Fuerza a disco lo escrito hasta ahora.
+     */
+    void forzar() {
+        if (actual != null) {
+            actual.force();
+        }
+    }
+
+    /**
+     * Deja el archivo con el tamaño justo de {@code filas}. En sistemas que no
+     * permiten truncar un archivo mapeado queda con relleno al final, que el
+     * lector ignora porque conoce el número de filas.
+     */
+    void cerrar(long filas) throws IOException {
+        forzar();
+        bloques.clear();
+        actual = null;
+        try {
+            canal.truncate(filas * ancho);
+        } catch (IOException e) {
+            // Ver comentario del método
+        }
+        canal.close();
+    }
+
+    // ========== LECTURA (acceso aleatorio) ==========
+
+    private MappedByteBuffer bloque(long fila) {
+        return bloques.get((int) (fila >>> BITS_BLOQUE));
+    }
+
+    private static int desplazamiento(long fila, int ancho) {
+        return (int) (fila & MASCARA) * ancho;
+    }
+
+    long leerLong(long fila) {
+        return bloque(fila).getLong(desplazamiento(fila, 8));
+    }
+
+    double leerDouble(long fila) {
+        return bloque(fila).getDouble(desplazamiento(fila, 8));
+    }
+
+    int leerInt(long fila) {
+        return bloque(fila).getInt(desplazamiento(fila, 4));
+    }
+
+    short leerShort(long fila) {
+        return bloque(fila).getShort(desplazamiento(fila, 2));
+    }
+
+    byte leerByte(long fila) {
+        return bloque(fila).get(desplazamiento(fila, 1));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!escritura) {
+            bloques.clear();
+            canal.close();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package tech.hellsoft.trading.historico;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.BroadcastNotificationMessage;
+import tech.hellsoft.trading.dto.server.ErrorMessage;
+import tech.hellsoft.trading.dto.server.EventDeltaMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.GlobalPerformanceReportMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.estrategia.Estrategia;
+import tech.hellsoft.trading.estrategia.EventoMercado;
+import tech.hellsoft.trading.estrategia.IntencionOrden;
+import tech.hellsoft.trading.mercado.LibroOrdenes;
+import tech.hellsoft.trading.ordenes.Lado;
+
+/**
+ * Listener que ejecuta una estrategia sobre tickers reproducidos, con una
+ * cuenta simulada (saldo e inventario) y el {@link ModeloFills} dado.
+ *
+ * Hace lo mismo que el motor en vivo (EventoMercado con inventario, saldo y
+ * spread medio de los últimos {@link LibroOrdenes#HISTORIA} tickers) pero en
+ * el hilo que reproduce, sin colas ni control de riesgo, para ir tan rápido
+ * como se lea la grabación. Una instancia por estrategia y por corrida.
+ */
+public final class EjecucionBacktest implements EventListener {
+
+    private final Estrategia estrategia;
+    private final ModeloFills modelo;
+    private final double saldoInicial;
+    private final Map<String, Integer> inventarioInicial;
+    private final Map<String, Producto> productos = new HashMap<>();
+    private final Estrategia.Emisor emisor = this::emitir;
+    private double saldo;
+    private Producto actual;
+    private long ahora;
+    private int fills;
+    private int rechazadas;
+    private double volumen;
+    private long eventos;
+
+    private static final class Producto {
+        final String nombre;
+        double bid;
+        double ask;
+        double primerMid;
+        int inventario;
+        final double[] spreads = new double[LibroOrdenes.HISTORIA];
+        int tickers;
+        double sumaSpreads;
+        final ArrayDeque<Pendiente> pendientes = new ArrayDeque<>();
+
+        Producto(String nombre, int inventario) {
+            this.nombre = nombre;
+            this.inventario = inventario;
+        }
+
+        double mid() {
+            return (bid + ask) / 2.0;
+        }
+    }
+
+    private record Pendiente(IntencionOrden intencion, long listaNanos) {
+    }
+
+    public EjecucionBacktest(Estrategia estrategia, ModeloFills modelo, double saldoInicial,
+            Map<String, Integer> inventarioInicial) {
+        this.estrategia = estrategia;
+        this.modelo = modelo;
+        this.saldoInicial = saldoInicial;
+        this.saldo = saldoInicial;
+        this.inventarioInicial = Map.copyOf(inventarioInicial);
+    }
+
+    @Override
+    public void onTicker(TickerMessage t) {
+        eventos++;
+        ahora = t instanceof TickerHistorico h ? h.getTsNanos() : System.nanoTime();
+        Producto p = productos.computeIfAbsent(t.getProduct(),
+                n -> new Producto(n, inventarioInicial.getOrDefault(n, 0)));
+        p.bid = t.getBestBid();
+        p.ask = t.getBestAsk();
+        if (p.primerMid == 0) {
+            p.primerMid = p.mid();
+        }
+        int i = p.tickers++ % LibroOrdenes.HISTORIA;
+        double spread = p.ask - p.bid;
+        p.sumaSpreads += spread - p.spreads[i];
+        p.spreads[i] = spread;
+        while (!p.pendientes.isEmpty() && p.pendientes.peekFirst().listaNanos() - ahora <= 0) {
+            llenar(p, p.pendientes.pollFirst().intencion());
+        }
+        actual = p;
+        estrategia.onMercado(new EventoMercado(p.nombre, p.bid, p.ask, p.mid(),
+                p.sumaSpreads / Math.min(p.tickers, LibroOrdenes.HISTORIA), p.inventario, saldo, ahora), emisor);
+    }
+
+    private void emitir(IntencionOrden intencion) {
+        Producto p = intencion.producto().equals(actual.nombre) ? actual : productos.get(intencion.producto());
+        if (p == null || intencion.cantidad() <= 0) {
+            rechazadas++;
+        } else if (modelo.latenciaNanos() == 0) {
+            llenar(p, intencion);
+        } else {
+            p.pendientes.addLast(new Pendiente(intencion, ahora + modelo.latenciaNanos()));
+        }
+    }
+
+    private void llenar(Producto p, IntencionOrden intencion) {
+        boolean compra = intencion.lado() == Lado.BUY;
+        int cantidad = intencion.cantidad();
+        double precio = modelo.precio(compra, p.bid, p.ask);
+        if (compra ? cantidad * precio > saldo : cantidad > p.inventario) {
+            rechazadas++;
+            return;
+        }
+        saldo += compra ? -cantidad * precio : cantidad * precio;
+        p.inventario += compra ? cantidad : -cantidad;
+        fills++;
+        volumen += cantidad * precio;
+        estrategia.onFill(p.nombre, compra, cantidad, precio);
+    }
+
+    public ResultadoBacktest resultado(long nanos) {
+        double inicial = saldoInicial;
+        double fin = saldo;
+        for (Producto p : productos.values()) {
+            inicial += inventarioInicial.getOrDefault(p.nombre, 0) * p.primerMid;
+            fin += p.inventario * p.mid();
+        }
+        return new ResultadoBacktest(estrategia.nombre(), inicial, fin, saldo, fills, rechazadas, volumen, eventos,
+                nanos);
+    }
+
+    // ========== RESTO DE CALLBACKS: el backtest solo usa tickers ==========
+
+    @Override
+    public void onOffer(OfferMessage message) {
+        eventos++;
+    }
+
+    @Override
+    public void onLoginOk(LoginOKMessage message) {
+    }
+
+    @Override
+    public void onError(ErrorMessage message) {
+    }
+
+    @Override
+    public void onFill(FillMessage message) {
+    }
+
+    @Override
+    public void onBalanceUpdate(BalanceUpdateMessage message) {
+    }
+
+    @Override
+    public void onInventoryUpdate(InventoryUpdateMessage message) {
+    }
+
+    @Override
+    public void onOrderAck(OrderAckMessage message) {
+    }
+
+    @Override
+    public void onEventDelta(EventDeltaMessage message) {
+    }
+
+    @Override
+    public void onBroadcast(BroadcastNotificationMessage message) {
+    }
+
+    @Override
+    public void onConnectionLost(Throwable error) {
+    }
+
+    @Override
+    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage message) {
+    }
+}
@@ -0,0 +1,135 @@
+package tech.hellsoft.trading.historico;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Grabación de tickers y ofertas abierta para lectura, una fila por evento.
+ *
+ * Columnas (un archivo cada una, little-endian):
+ * <ul>
+ * <li>{@code ts.col}: long, epoch en nanos</li>
+ * <li>{@code tipo.col}: byte, {@link #TICKER} u {@link #OFERTA}</li>
+ * <li>{@code producto.col}: short, índice en {@link #simbolos()}</li>
+ * <li>{@code bid.col}, {@code ask.col}: double; en una oferta bid es su precio y ask 0</li>
+ * <li>{@code cantidad.col}: int, 0 en tickers</li>
+ * </ul>
+ * El número de filas y los símbolos están en {@code grabacion.properties},
+ * que se reescribe de forma atómica; las filas más allá no se leen.
+ */
+public final class Grabacion implements AutoCloseable {
+
+    public static final byte TICKER = 0;
+    public static final byte OFERTA = 1;
+
+    static final String META = "grabacion.properties";
+    static final int VERSION = 1;
+
+    private final Path directorio;
+    private final long filas;
+    private final String[] simbolos;
+    private final Columna ts;
+    private final Columna tipo;
+    private final Columna producto;
+    private final Columna bid;
+    private final Columna ask;
+    private final Columna cantidad;
+
+    private Grabacion(Path directorio, long filas, String[] simbolos) throws IOException {
+        this.directorio = directorio;
+        this.filas = filas;
+        this.simbolos = simbolos;
+        this.ts = Columna.abrir(directorio.resolve("ts.col"), 8, filas);
+        this.tipo = Columna.abrir(directorio.resolve("tipo.col"), 1, filas);
+        this.producto = Columna.abrir(directorio.resolve("producto.col"), 2, filas);
+        this.bid = Columna.abrir(directorio.resolve("bid.col"), 8, filas);
+        this.ask = Columna.abrir(directorio.resolve("ask.col"), 8, filas);
+        this.cantidad = Columna.abrir(directorio.resolve("cantidad.col"), 4, filas);
+    }
+
+    public static Grabacion abrir(Path directorio) throws IOException {
+        Properties meta = new Properties();
+        try (Reader r = Files.newBufferedReader(directorio.resolve(META), StandardCharsets.UTF_8)) {
+            meta.load(r);
+        }
+        int version = Integer.parseInt(meta.getProperty("version", "0"));
+        if (version != VERSION) {
+            throw new IOException("Versión de grabación no soportada: " + version);
+        }
+        long filas = Long.parseLong(meta.getProperty("filas", "0"));
+        String lista = meta.getProperty("simbolos", "");
+        String[] simbolos = lista.isEmpty() ? new String[0] : lista.split(",");
+        return new Grabacion(directorio, filas, simbolos);
+    }
+
+    static void escribirMeta(Path directorio, long filas, List<String> simbolos) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("version", Integer.toString(VERSION));
+        meta.setProperty("filas", Long.toString(filas));
+        meta.setProperty("simbolos", String.join(",", simbolos));
+        Path tmp = directorio.resolve(META + ".tmp");
+        try (Writer w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            meta.store(w, null);
+        }
+        Files.move(tmp, directorio.resolve(META), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public long filas() {
+        return filas;
+    }
+
+    public List<String> simbolos() {
+        return Arrays.asList(simbolos.clone());
+    }
+
+    public String simbolo(int id) {
+        return simbolos[id];
+    }
+
+    public long ts(long fila) {
+        return ts.leerLong(fila);
+    }
+
+    public byte tipo(long fila) {
+        return tipo.leerByte(fila);
+    }
+
+    public int producto(long fila) {
+        return producto.leerShort(fila);
+    }
+
+    public double bid(long fila) {
+        return bid.leerDouble(fila);
+    }
+
+    public double ask(long fila) {
+        return ask.leerDouble(fila);
+    }
+
+    public int cantidad(long fila) {
+        return cantidad.leerInt(fila);
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ts.close();
+        tipo.close();
+        producto.close();
+        bid.close();
+        ask.close();
+        cantidad.close();
+    }
+}
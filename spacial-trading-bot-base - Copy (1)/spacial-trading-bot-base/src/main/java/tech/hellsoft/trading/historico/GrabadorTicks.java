@@ -0,0 +1,124 @@
+package tech.hellsoft.trading.historico;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Graba cada ticker y oferta recibidos en columnas mapeadas en memoria (ver
+ * {@link Grabacion} para el formato). Escribir una fila son seis stores en
+ * memoria; el sistema operativo baja las páginas a disco y el metadato con el
+ * número de filas se actualiza cada {@link #INTERVALO_META_NANOS}.
+ *
+ * Lo llama el hilo de eventos; el lock (sin contención salvo al cerrar) evita
+ * que {@link #close()} trunque un archivo mientras se escribe en él.
+ */
+public final class GrabadorTicks implements AutoCloseable {
+
+    static final long INTERVALO_META_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Path directorio;
+    private final Columna ts;
+    private final Columna tipo;
+    private final Columna producto;
+    private final Columna bid;
+    private final Columna ask;
+    private final Columna cantidad;
+    private final Map<String, Short> ids = new HashMap<>();
+    private final List<String> simbolos = new ArrayList<>();
+    // Reloj de pared con resolución de nanos: base en millis + avance de nanoTime
+    private final long baseEpochNanos;
+    private final long baseNanoTime;
+    private long filas;
+    private long ultimoMeta;
+    private boolean cerrado;
+
+    public GrabadorTicks(Path directorio) throws IOException {
+        this.directorio = Files.createDirectories(directorio);
+        this.ts = Columna.crear(directorio.resolve("ts.col"), 8);
+        this.tipo = Columna.crear(directorio.resolve("tipo.col"), 1);
+        this.producto = Columna.crear(directorio.resolve("producto.col"), 2);
+        this.bid = Columna.crear(directorio.resolve("bid.col"), 8);
+        this.ask = Columna.crear(directorio.resolve("ask.col"), 8);
+        this.cantidad = Columna.crear(directorio.resolve("cantidad.col"), 4);
+        this.baseEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.baseNanoTime = System.nanoTime();
+        this.ultimoMeta = baseNanoTime;
+        Grabacion.escribirMeta(directorio, 0, simbolos);
+    }
+
+    public void onTicker(TickerMessage t) {
+        escribir(Grabacion.TICKER, t.getProduct(), t.getBestBid(), t.getBestAsk(), 0);
+    }
+
+    public void onOffer(OfferMessage o) {
+        escribir(Grabacion.OFERTA, o.getProduct(), o.getPrice(), 0.0, o.getQuantity());
+    }
+
+    private synchronized void escribir(byte tipoFila, String simbolo, double b, double a, int qty) {
+        if (cerrado || simbolo == null) {
+            return;
+        }
+        long ahora = System.nanoTime();
+        long fila = filas;
+        try {
+            ts.ponerLong(fila, baseEpochNanos + (ahora - baseNanoTime));
+            tipo.ponerByte(fila, tipoFila);
+            producto.ponerShort(fila, id(simbolo));
+            bid.ponerDouble(fila, b);
+            ask.ponerDouble(fila, a);
+            cantidad.ponerInt(fila, qty);
+            filas = fila + 1;
+            if (ahora - ultimoMeta >= INTERVALO_META_NANOS) {
+                ultimoMeta = ahora;
+                Grabacion.escribirMeta(directorio, filas, simbolos);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo grabar en " + directorio, e);
+        }
+    }
+
+    private short id(String simbolo) {
+        Short id = ids.get(simbolo);
+        if (id == null) {
+            if (simbolos.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Demasiados productos para la grabación");
+            }
+            id = (short) simbolos.size();
+            ids.put(simbolo, id);
+            simbolos.add(simbolo);
+        }
+        return id;
+    }
+
+    public long filas() {
+        return filas;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        ts.cerrar(filas);
+        tipo.cerrar(filas);
+        producto.cerrar(filas);
+        bid.cerrar(filas);
+        ask.cerrar(filas);
+        cantidad.cerrar(filas);
+        Grabacion.escribirMeta(directorio, filas, simbolos);
+    }
+}
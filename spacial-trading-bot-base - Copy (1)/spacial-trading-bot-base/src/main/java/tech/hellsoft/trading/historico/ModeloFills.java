@@ -0,0 +1,31 @@
+package tech.hellsoft.trading.historico;
+
+/**
+ * Cómo se llenan las órdenes en un backtest. La orden se llena entera con el
+ * primer ticker de su producto que llega {@code latenciaNanos} después de
+ * emitirla (con latencia 0, al precio del mismo ticker que la originó), al ask
+ * si compra o al bid si vende, empeorado en {@code deslizamientoBps}.
+ *
+ * @param latenciaNanos tiempo de ida al servidor, medido con los timestamps grabados
+ * @param deslizamientoBps puntos básicos en contra sobre el precio de cotización
+ */
+public record ModeloFills(long latenciaNanos, double deslizamientoBps) {
+
+    public ModeloFills {
+        if (latenciaNanos < 0 || deslizamientoBps < 0) {
+            throw new IllegalArgumentException("Latencia y deslizamiento no pueden ser negativos");
+        }
+    }
+
+    /**
+     * Lleno inmediato al precio cotizado, sin costes: la cota optimista.
+     */
+    public static ModeloFills inmediato() {
+        return new ModeloFills(0, 0.0);
+    }
+
+    double precio(boolean compra, double bid, double ask) {
+        double factor = deslizamientoBps / 10_000.0;
+        return compra ? ask * (1.0 + factor) : bid * (1.0 - factor);
+    }
+}
@@ -0,0 +1,21 @@
+package tech.hellsoft.trading.historico;
+
+/**
+ * Resultado de pasar una estrategia por una grabación.
+ *
+ * @param patrimonioInicial saldo inicial más el inventario inicial al primer mid de cada producto
+ * @param patrimonioFinal saldo final más el inventario al último mid
+ * @param rechazadas órdenes sin saldo o inventario al momento del lleno
+ * @param eventos filas reproducidas
+ */
+public record ResultadoBacktest(String estrategia, double patrimonioInicial, double patrimonioFinal,
+        double saldoFinal, int fills, int rechazadas, double volumen, long eventos, long nanos) {
+
+    public double pl() {
+        return patrimonioInicial == 0 ? 0.0 : (patrimonioFinal - patrimonioInicial) / patrimonioInicial * 100.0;
+    }
+
+    public double eventosPorSegundo() {
+        return nanos == 0 ? 0.0 : eventos * 1e9 / nanos;
+    }
+}
@@ -0,0 +1,24 @@
+package tech.hellsoft.trading.historico;
+
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Ticker reproducido desde una grabación, con su timestamp original para que
+ * el backtest use el tiempo grabado y no el reloj de la máquina.
+ */
+public final class TickerHistorico extends TickerMessage {
+
+    private final long tsNanos;
+
+    public TickerHistorico(String product, double bestBid, double bestAsk, long tsNanos) {
+        super(product, bestBid, bestAsk);
+        this.tsNanos = tsNanos;
+    }
+
+    /**
+     * Epoch en nanos en que se grabó.
+     */
+    public long getTsNanos() {
+        return tsNanos;
+    }
+}
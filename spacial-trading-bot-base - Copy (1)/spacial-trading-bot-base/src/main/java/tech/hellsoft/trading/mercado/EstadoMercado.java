@@ -0,0 +1,297 @@
+package tech.hellsoft.trading.mercado;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Almacén concurrente de precios e inventario por producto.
+ *
+ * Cada símbolo se interna una sola vez a un id denso; bid/ask/mid e inventario
+ * viven en arreglos primitivos indexados por ese id, así que actualizar un
+ * precio no crea objetos. Cada producto tiene su propio seqlock: los escritores
+ * (hilos del SDK) lo toman con un CAS y los lectores (consola, P&L) nunca
+ * bloquean, solo reintentan si la lectura se cruzó con una escritura.
+ */
+public final class EstadoMercado implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int CAPACIDAD_POR_DEFECTO = 256;
+
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle DOUBLES = MethodHandles.arrayElementVarHandle(double[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final String[] simbolos;
+    private final AtomicInteger registrados = new AtomicInteger();
+
+    private final long[] secuencia;
+    private final double[] bid;
+    private final double[] ask;
+    private final double[] mid;
+    private final int[] inventario;
+
+    public EstadoMercado() {
+        this(CAPACIDAD_POR_DEFECTO);
+    }
+
+    public EstadoMercado(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        this.simbolos = new String[capacidad];
+        this.secuencia = new long[capacidad];
+        this.bid = new double[capacidad];
+        this.ask = new double[capacidad];
+        this.mid = new double[capacidad];
+        this.inventario = new int[capacidad];
+    }
+
+    // ========== INTERNADO DE SÍMBOLOS ==========
+
+    /**
+     * Devuelve el id denso del producto, registrándolo si es la primera vez.
+     */
+    public int idDe(String producto) {
+        Integer id = ids.get(producto);
+        if (id != null) {
+            return id;
+        }
+        return registrar(producto);
+    }
+
+    /**
+     * Devuelve el id del producto o -1 si nunca se ha visto.
+     */
+    public int buscarId(String producto) {
+        Integer id = ids.get(producto);
+        return id == null ? -1 : id;
+    }
+
+    public String simbolo(int id) {
+        return simbolos[id];
+    }
+
+    public int cantidadProductos() {
+        return registrados.get();
+    }
+
+    /**
+     * Máximo de productos distintos; los ids van de 0 a capacidad - 1. Los
+     * arreglos indexados por id en otras clases se dimensionan con esto.
+     */
+    public int capacidad() {
+        return simbolos.length;
+    }
+
+    private synchronized int registrar(String producto) {
+        Integer existente = ids.get(producto);
+        if (existente != null) {
+            return existente;
+        }
+        int id = registrados.get();
+        if (id >= simbolos.length) {
+            throw new IllegalStateException("Capacidad de productos agotada (" + simbolos.length + ")");
+        }
+        simbolos[id] = producto;
+        // El set volátil publica el símbolo antes de que los lectores vean el nuevo id
+        registrados.set(id + 1);
+        ids.put(producto, id);
+        return id;
+    }
+
+    // ========== ESCRITURAS ==========
+    // Cada escritura devuelve cuánto cambió cantidad * mid de ese producto,
+    // calculado dentro del seqlock, para poder mantener la valoración por deltas.
+
+    public double actualizarPrecio(String producto, double nuevoBid, double nuevoAsk) {
+        int id = idDe(producto);
+        long s = abrirEscritura(id);
+        double midAnterior = (double) DOUBLES.getOpaque(mid, id);
+        double nuevoMid = (nuevoBid + nuevoAsk) / 2.0;
+        DOUBLES.setOpaque(bid, id, nuevoBid);
+        DOUBLES.setOpaque(ask, id, nuevoAsk);
+        DOUBLES.setOpaque(mid, id, nuevoMid);
+        int c = (int) INTS.getOpaque(inventario, id);
+        cerrarEscritura(id, s);
+        return c * (nuevoMid - midAnterior);
+    }
+
+    public double ajustarInventario(String producto, int delta) {
+        int id = idDe(producto);
+        long s = abrirEscritura(id);
+        INTS.setOpaque(inventario, id, (int) INTS.getOpaque(inventario, id) + delta);
+        double m = (double) DOUBLES.getOpaque(mid, id);
+        cerrarEscritura(id, s);
+        return delta * m;
+    }
+
+    public double fijarInventario(String producto, int cantidad) {
+        int id = idDe(producto);
+        long s = abrirEscritura(id);
+        int anterior = (int) INTS.getOpaque(inventario, id);
+        INTS.setOpaque(inventario, id, cantidad);
+        double m = (double) DOUBLES.getOpaque(mid, id);
+        cerrarEscritura(id, s);
+        return (cantidad - anterior) * m;
+    }
+
+    /**
+     * Sustituye todo el inventario (p. ej. al cargar un snapshot).
+     */
+    public void reemplazarInventario(Map<String, Integer> nuevo) {
+        int n = registrados.get();
+        for (int id = 0; id < n; id++) {
+            fijarInventario(simbolos[id], 0);
+        }
+        if (nuevo != null) {
+            nuevo.forEach(this::fijarInventario);
+        }
+    }
+
+    /**
+     * Sustituye todos los precios; solo se conoce el mid, así que bid = ask = mid.
+     */
+    public void reemplazarPrecios(Map<String, Double> mids) {
+        int n = registrados.get();
+        for (int id = 0; id < n; id++) {
+            actualizarPrecio(simbolos[id], 0.0, 0.0);
+        }
+        if (mids != null) {
+            mids.forEach((producto, m) -> actualizarPrecio(producto, m, m));
+        }
+    }
+
+    private long abrirEscritura(int id) {
+        long s;
+        while (true) {
+            s = (long) LONGS.getVolatile(secuencia, id);
+            if ((s & 1L) == 0 && LONGS.compareAndSet(secuencia, id, s, s + 1)) {
+                break;
+            }
+            Thread.onSpinWait();
+        }
+        VarHandle.storeStoreFence();
+        return s;
+    }
+
+    private void cerrarEscritura(int id, long s) {
+        LONGS.setRelease(secuencia, id, s + 2);
+    }
+
+    // ========== LECTURAS ==========
+
+    /**
+     * Lectura de un solo campo: no necesita seqlock porque un int se lee atómico.
+     */
+    public int cantidad(String producto) {
+        int id = buscarId(producto);
+        return id < 0 ? 0 : (int) INTS.getOpaque(inventario, id);
+    }
+
+    /**
+     * Igual que {@link #cantidad(String)} pero por id, sin buscar el símbolo.
+     */
+    public int cantidad(int id) {
+        return (int) INTS.getOpaque(inventario, id);
+    }
+
+    public double mid(String producto) {
+        int id = buscarId(producto);
+        return id < 0 ? 0.0 : (double) DOUBLES.getOpaque(mid, id);
+    }
+
+    /**
+     * Devuelve bid/ask/mid/cantidad leídos juntos, o null si el producto no existe.
+     */
+    public Posicion posicion(String producto) {
+        int id = buscarId(producto);
+        return id < 0 ? null : leer(id);
+    }
+
+    /**
+     * Todas las posiciones conocidas, cada una leída de forma consistente.
+     */
+    public List<Posicion> posiciones() {
+        int n = registrados.get();
+        List<Posicion> lista = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) {
+            lista.add(leer(id));
+        }
+        return lista;
+    }
+
+    /**
+     * Suma cantidad * mid de todos los productos sin crear objetos.
+     */
+    public double valorInventario() {
+        int n = registrados.get();
+        double total = 0.0;
+        for (int id = 0; id < n; id++) {
+            while (true) {
+                long s1 = (long) LONGS.getAcquire(secuencia, id);
+                int c = (int) INTS.getOpaque(inventario, id);
+                double m = (double) DOUBLES.getOpaque(mid, id);
+                VarHandle.acquireFence();
+                if ((s1 & 1L) == 0 && s1 == (long) LONGS.getOpaque(secuencia, id)) {
+                    total += c * m;
+                    break;
+                }
+                Thread.onSpinWait();
+            }
+        }
+        return total;
+    }
+
+    private Posicion leer(int id) {
+        while (true) {
+            long s1 = (long) LONGS.getAcquire(secuencia, id);
+            double b = (double) DOUBLES.getOpaque(bid, id);
+            double a = (double) DOUBLES.getOpaque(ask, id);
+            double m = (double) DOUBLES.getOpaque(mid, id);
+            int c = (int) INTS.getOpaque(inventario, id);
+            VarHandle.acquireFence();
+            if ((s1 & 1L) == 0 && s1 == (long) LONGS.getOpaque(secuencia, id)) {
+                return new Posicion(simbolos[id], b, a, m, c);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // ========== VISTAS COMPATIBLES CON MAP ==========
+
+    /**
+     * Copia de solo lectura del inventario (productos con cantidad distinta de 0).
+     */
+    public Map<String, Integer> inventarioComoMapa() {
+        Map<String, Integer> copia = new HashMap<>();
+        for (Posicion p : posiciones()) {
+            if (p.cantidad() != 0) {
+                copia.put(p.producto(), p.cantidad());
+            }
+        }
+        return Collections.unmodifiableMap(copia);
+    }
+
+    /**
+     * Copia de solo lectura de los mids conocidos.
+     */
+    public Map<String, Double> preciosComoMapa() {
+        Map<String, Double> copia = new HashMap<>();
+        for (Posicion p : posiciones()) {
+            if (p.tienePrecio()) {
+                copia.put(p.producto(), p.mid());
+            }
+        }
+        return Collections.unmodifiableMap(copia);
+    }
+}
@@ -0,0 +1,398 @@
+package tech.hellsoft.trading.mercado;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+
+/**
+ * Ofertas pendientes de otros traders (quieren comprarnos un producto),
+ * indexadas por offerId y por producto/precio, que vencen solas.
+ *
+ * Cada producto tiene un conjunto ordenado del mejor precio al peor (a igual
+ * precio, la más antigua), así que la mejor oferta es la cabeza: constante. El
+ * mapa por id es la fuente de verdad: quien logra sacar una oferta de ahí
+ * (aceptarla, rechazarla o vencerla) es el único que la quita de los demás
+ * índices y avisa a {@code alRetirar}. {@code alRegistrar} se llama antes de
+ * que la oferta aparezca en el mapa por id, así que nadie puede retirarla
+ * antes de que se haya avisado su alta.
+ *
+ * El vencimiento usa una rueda de tiempo: {@value #RANURAS} ranuras de
+ * {@value #TICK_MS} ms, cada una una lista doblemente enlazada con su propio
+ * monitor. Registrar y quitar una oferta es enlazar o desenlazar un nodo, y en
+ * cada tick el hilo "ofertas" solo mira la ranura que toca; las ofertas que
+ * vencen más de una vuelta después se quedan en la ranura hasta su vuelta. No
+ * hay un temporizador por oferta ni recorridos del libro entero.
+ */
+public final class LibroOfertas implements AutoCloseable {
+
+    public static final long TICK_MS = 100;
+    // Potencia de dos; una vuelta de la rueda dura RANURAS * TICK_MS
+    public static final int RANURAS = 1024;
+    public static final long VIDA_POR_DEFECTO_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MS);
+    // Mejor precio primero; a igual precio, la que llegó antes
+    private static final Comparator<Oferta> ORDEN = Comparator.comparingDouble((Oferta o) -> -o.mensaje.getPrice())
+            .thenComparingLong(o -> o.secuencia);
+
+    private final EstadoMercado mercado;
+    private final Consumer<OfferMessage> alRegistrar;
+    private final Consumer<OfferMessage> alRetirar;
+    private final long vidaNanos;
+
+    private final Map<String, Oferta> porId = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<ConcurrentSkipListSet<Oferta>> porProducto;
+    private final Ranura[] rueda = new Ranura[RANURAS];
+    private final long origenNanos = System.nanoTime();
+    // Último tick procesado; solo lo avanza expirarHasta, bajo el monitor de la rueda
+    private long tickProcesado;
+
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicLong expiradas = new AtomicLong();
+    private final AtomicLong retiradas = new AtomicLong();
+
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ofertas");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public LibroOfertas(EstadoMercado mercado, Consumer<OfferMessage> alRegistrar, Consumer<OfferMessage> alRetirar) {
+        this(mercado, alRegistrar, alRetirar, VIDA_POR_DEFECTO_NANOS);
+    }
+
+    /**
+     * @param alRegistrar recibe cada oferta que entra al libro, antes de que se pueda tomar
+     * @param alRetirar   recibe cada oferta que sale del libro (aceptada,
+     *                    rechazada, vencida o limpiada), o que resultó repetida
+     *                    después de avisar su alta; una sola vez por cada alta
+     * @param vidaNanos   cuánto vive una oferta si nadie la toma
+     */
+    public LibroOfertas(EstadoMercado mercado, Consumer<OfferMessage> alRegistrar, Consumer<OfferMessage> alRetirar,
+            long vidaNanos) {
+        if (vidaNanos < 2 * TICK_NANOS) {
+            throw new IllegalArgumentException("La vida de una oferta debe ser de al menos " + 2 * TICK_MS + " ms");
+        }
+        this.mercado = mercado;
+        this.alRegistrar = alRegistrar;
+        this.alRetirar = alRetirar;
+        this.vidaNanos = vidaNanos;
+        this.porProducto = new AtomicReferenceArray<>(mercado.capacidad());
+        for (int i = 0; i < RANURAS; i++) {
+            rueda[i] = new Ranura();
+        }
+        hilo.scheduleAtFixedRate(() -> expirarHasta(System.nanoTime()), TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // ========== ALTAS Y BAJAS ==========
+
+    /**
+     * Registra una oferta con la vida por defecto del libro.
+     *
+     * @return false si es inválida o ya estaba registrada
+     */
+    public boolean registrar(OfferMessage mensaje) {
+        return registrar(mensaje, vidaNanos);
+    }
+
+    /**
+     * @param vidaNanos al menos dos ticks, para no caer en la ranura que se está procesando
+     */
+    public boolean registrar(OfferMessage mensaje, long vidaNanos) {
+        if (mensaje == null || mensaje.getOfferId() == null || mensaje.getProduct() == null
+                || mensaje.getQuantity() <= 0) {
+            return false;
+        }
+        long ticks = Math.max(2, (vidaNanos + TICK_NANOS - 1) / TICK_NANOS);
+        if (porId.containsKey(mensaje.getOfferId())) {
+            return false;
+        }
+        Oferta oferta = new Oferta(mensaje, secuencia.incrementAndGet(), mercado.idDe(mensaje.getProduct()),
+                tickDe(System.nanoTime()) + ticks);
+        // El alta se avisa antes de que la oferta sea visible: quien la retire ya encuentra su liquidez
+        alRegistrar.accept(mensaje);
+        if (porId.putIfAbsent(mensaje.getOfferId(), oferta) != null) {
+            // Otro hilo registró el mismo id entretanto
+            alRetirar.accept(mensaje);
+            return false;
+        }
+        conjunto(oferta.producto).add(oferta);
+        ranura(oferta).enlazar(oferta);
+        // Si alguien la tomó mientras se indexaba, quitar también lo recién agregado
+        if (porId.get(mensaje.getOfferId()) != oferta) {
+            desindexar(oferta);
+        }
+        return true;
+    }
+
+    /**
+     * Saca la oferta del libro (aceptada o rechazada).
+     *
+     * @return la oferta, o null si no estaba (ya tomada o vencida)
+     */
+    public OfferMessage tomar(String offerId) {
+        Oferta oferta = apartar(offerId);
+        return oferta == null ? null : oferta.mensaje;
+    }
+
+    /**
+     * Igual que {@link #tomar} pero conservando la oferta entera, para poder
+     * {@link #devolver} si la aceptación no sale.
+     */
+    public Oferta apartar(String offerId) {
+        Oferta oferta = porId.get(offerId);
+        return oferta != null && retirar(oferta) ? oferta : null;
+    }
+
+    /**
+     * Vuelve a poner una oferta apartada con su prioridad y su vencimiento
+     * originales: intentar aceptarla no la adelanta ni le alarga la vida.
+     *
+     * @return false si venció mientras estaba apartada o si entretanto llegó
+     *         otra con el mismo id
+     */
+    public boolean devolver(Oferta oferta) {
+        String id = oferta.mensaje.getOfferId();
+        // Con la rueda tomada ningún tick avanza entre comprobar el vencimiento y enlazarla
+        synchronized (rueda) {
+            if (oferta.venceTick <= tickProcesado) {
+                expiradas.incrementAndGet();
+                return false;
+            }
+            alRegistrar.accept(oferta.mensaje);
+            if (porId.putIfAbsent(id, oferta) != null) {
+                alRetirar.accept(oferta.mensaje);
+                return false;
+            }
+            conjunto(oferta.producto).add(oferta);
+            ranura(oferta).enlazar(oferta);
+        }
+        if (porId.get(id) != oferta) {
+            desindexar(oferta);
+        }
+        return true;
+    }
+
+    private boolean retirar(Oferta oferta) {
+        if (!porId.remove(oferta.mensaje.getOfferId(), oferta)) {
+            return false;
+        }
+        desindexar(oferta);
+        retiradas.incrementAndGet();
+        alRetirar.accept(oferta.mensaje);
+        return true;
+    }
+
+    private void desindexar(Oferta oferta) {
+        conjunto(oferta.producto).remove(oferta);
+        ranura(oferta).desenlazar(oferta);
+    }
+
+    /**
+     * Procesa los ticks vencidos hasta {@code ahoraNanos}; lo llama el hilo del
+     * libro en cada tick (o un backtest con su propio reloj).
+     *
+     * @return cuántas ofertas vencieron
+     */
+    public int expirarHasta(long ahoraNanos) {
+        List<Oferta> vencidas = new ArrayList<>();
+        synchronized (rueda) {
+            long hasta = tickDe(ahoraNanos);
+            while (tickProcesado < hasta) {
+                tickProcesado++;
+                rueda[(int) (tickProcesado & (RANURAS - 1))].vencidas(tickProcesado, vencidas);
+            }
+        }
+        int n = 0;
+        for (Oferta o : vencidas) {
+            if (retirar(o)) {
+                n++;
+            }
+        }
+        expiradas.addAndGet(n);
+        return n;
+    }
+
+    /**
+     * Retira todas las ofertas.
+     */
+    public void limpiar() {
+        for (Oferta o : porId.values()) {
+            retirar(o);
+        }
+    }
+
+    @Override
+    public void close() {
+        hilo.shutdownNow();
+    }
+
+    // ========== CONSULTA ==========
+
+    public OfferMessage buscar(String offerId) {
+        Oferta o = porId.get(offerId);
+        return o == null ? null : o.mensaje;
+    }
+
+    /**
+     * La oferta que más paga por el producto, o null si no hay.
+     */
+    public OfferMessage mejor(String producto) {
+        int id = mercado.buscarId(producto);
+        ConcurrentSkipListSet<Oferta> ofertas = id < 0 ? null : porProducto.get(id);
+        if (ofertas == null) {
+            return null;
+        }
+        Iterator<Oferta> it = ofertas.iterator();
+        return it.hasNext() ? it.next().mensaje : null;
+    }
+
+    /**
+     * Ofertas por un producto, de la que más paga a la que menos.
+     */
+    public List<OfferMessage> ofertas(String producto) {
+        int id = mercado.buscarId(producto);
+        ConcurrentSkipListSet<Oferta> ofertas = id < 0 ? null : porProducto.get(id);
+        List<OfferMessage> lista = new ArrayList<>();
+        if (ofertas != null) {
+            ofertas.forEach(o -> lista.add(o.mensaje));
+        }
+        return lista;
+    }
+
+    /**
+     * Todas las ofertas, agrupadas por producto y de mejor a peor precio.
+     */
+    public List<OfferMessage> todas() {
+        List<OfferMessage> lista = new ArrayList<>(porId.size());
+        for (int i = 0; i < porProducto.length(); i++) {
+            ConcurrentSkipListSet<Oferta> ofertas = porProducto.get(i);
+            if (ofertas != null) {
+                ofertas.forEach(o -> lista.add(o.mensaje));
+            }
+        }
+        return lista;
+    }
+
+    public int cantidad() {
+        return porId.size();
+    }
+
+    public boolean isEmpty() {
+        return porId.isEmpty();
+    }
+
+    /**
+     * Ofertas que vencieron sin que nadie las tomara.
+     */
+    public long expiradas() {
+        return expiradas.get();
+    }
+
+    /**
+     * Ofertas que salieron del libro por cualquier motivo.
+     */
+    public long retiradas() {
+        return retiradas.get();
+    }
+
+    private long tickDe(long nanos) {
+        return (nanos - origenNanos) / TICK_NANOS;
+    }
+
+    private Ranura ranura(Oferta oferta) {
+        return rueda[(int) (oferta.venceTick & (RANURAS - 1))];
+    }
+
+    private ConcurrentSkipListSet<Oferta> conjunto(int id) {
+        ConcurrentSkipListSet<Oferta> c = porProducto.get(id);
+        if (c == null) {
+            porProducto.compareAndSet(id, null, new ConcurrentSkipListSet<>(ORDEN));
+            c = porProducto.get(id);
+        }
+        return c;
+    }
+
+    /**
+     * Una oferta dentro del libro; fuera de él solo sirve para {@link #devolver}.
+     */
+    public static final class Oferta {
+        final OfferMessage mensaje;
+        final long secuencia;
+        final int producto;
+        final long venceTick;
+        // Lista de la ranura; solo se tocan con el monitor de la ranura
+        Ranura ranura;
+        Oferta anterior;
+        Oferta siguiente;
+
+        Oferta(OfferMessage mensaje, long secuencia, int producto, long venceTick) {
+            this.mensaje = mensaje;
+            this.secuencia = secuencia;
+            this.producto = producto;
+            this.venceTick = venceTick;
+        }
+
+        public OfferMessage mensaje() {
+            return mensaje;
+        }
+    }
+
+    /**
+     * Lista doblemente enlazada con centinela.
+     */
+    private static final class Ranura {
+        private final Oferta centinela = new Oferta(null, 0, 0, 0);
+
+        Ranura() {
+            centinela.anterior = centinela;
+            centinela.siguiente = centinela;
+        }
+
+        synchronized void enlazar(Oferta o) {
+            o.ranura = this;
+            o.anterior = centinela.anterior;
+            o.siguiente = centinela;
+            centinela.anterior.siguiente = o;
+            centinela.anterior = o;
+        }
+
+        synchronized void desenlazar(Oferta o) {
+            if (o.ranura != this) {
+                return;
+            }
+            o.anterior.siguiente = o.siguiente;
+            o.siguiente.anterior = o.anterior;
+            o.anterior = null;
+            o.siguiente = null;
+            o.ranura = null;
+        }
+
+        /**
+         * Desenlaza las que vencen en {@code tick} o antes; las de vueltas
+         * siguientes se quedan.
+         */
+        synchronized void vencidas(long tick, List<Oferta> destino) {
+            Oferta o = centinela.siguiente;
+            while (o != centinela) {
+                Oferta siguiente = o.siguiente;
+                if (o.venceTick <= tick) {
+                    desenlazar(o);
+                    destino.add(o);
+                }
+                o = siguiente;
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package tech.hellsoft.trading.mercado;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Libro local por producto construido a partir de los tickers y las ofertas.
+ *
+ * Guarda el top-of-book actual, un historial circular de bid/ask y los niveles
+ * de precio con la cantidad que otros traders ofrecen comprarnos (OfferMessage),
+ * ordenados del mejor al peor precio. Todo vive en arreglos primitivos por
+ * producto, así que procesar un evento no reserva memoria; los niveles empiezan
+ * con {@link #NIVELES} posiciones y solo se agrandan si hay más precios vivos a
+ * la vez, para no perder la liquidez de ningún nivel.
+ *
+ * Usa los mismos ids que {@link EstadoMercado}. Cada producto tiene su
+ * StampedLock: las lecturas son optimistas y solo toman el lock si coincidieron
+ * con una escritura.
+ */
+public final class LibroOrdenes implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int HISTORIA = 64;
+    // Capacidad inicial de niveles por producto
+    public static final int NIVELES = 16;
+
+    private final EstadoMercado mercado;
+    private final AtomicReferenceArray<Libro> libros;
+
+    public LibroOrdenes(EstadoMercado mercado) {
+        this.mercado = mercado;
+        this.libros = new AtomicReferenceArray<>(mercado.capacidad());
+    }
+
+    // ========== EVENTOS ==========
+
+    public void onTicker(TickerMessage ticker) {
+        libro(ticker.getProduct()).registrarTicker(ticker.getBestBid(), ticker.getBestAsk());
+    }
+
+    public void onOffer(OfferMessage oferta) {
+        libro(oferta.getProduct()).sumarLiquidez(oferta.getPrice(), oferta.getQuantity());
+    }
+
+    /**
+     * Quita liquidez de un nivel (oferta aceptada, rechazada o expirada).
+     */
+    public void retirarOferta(String producto, double precio, int cantidad) {
+        libro(producto).sumarLiquidez(precio, -cantidad);
+    }
+
+    // ========== LECTURAS ==========
+
+    public double mejorBid(String producto) {
+        Libro l = existente(producto);
+        return l == null ? 0.0 : l.leerCampo(Campo.BID);
+    }
+
+    public double mejorAsk(String producto) {
+        Libro l = existente(producto);
+        return l == null ? 0.0 : l.leerCampo(Campo.ASK);
+    }
+
+    /**
+     * ask - bid del último ticker, o 0 si no hay precio.
+     */
+    public double spread(String producto) {
+        Libro l = existente(producto);
+        return l == null ? 0.0 : l.leerCampo(Campo.SPREAD);
+    }
+
+    /**
+     * Promedio del spread en los últimos {@link #HISTORIA} tickers.
+     */
+    public double spreadPromedio(String producto) {
+        Libro l = existente(producto);
+        return l == null ? 0.0 : l.leerCampo(Campo.SPREAD_PROMEDIO);
+    }
+
+    /**
+     * Mejor precio que algún trader ofrece pagarnos, o 0 si no hay ofertas.
+     */
+    public double mejorPrecioOferta(String producto) {
+        Libro l = existente(producto);
+        return l == null ? 0.0 : l.leerCampo(Campo.MEJOR_OFERTA);
+    }
+
+    /**
+     * Unidades que otros ofrecen comprar a {@code precioMinimo} o más.
+     */
+    public int liquidezDesde(String producto, double precioMinimo) {
+        Libro l = existente(producto);
+        return l == null ? 0 : l.liquidezDesde(precioMinimo);
+    }
+
+    /**
+     * Copia consistente del libro de un producto (para la consola), o null.
+     */
+    public Profundidad profundidad(String producto) {
+        Libro l = existente(producto);
+        return l == null ? null : l.copiar(producto);
+    }
+
+    private Libro existente(String producto) {
+        int id = mercado.buscarId(producto);
+        return id < 0 ? null : libros.get(id);
+    }
+
+    private Libro libro(String producto) {
+        int id = mercado.idDe(producto);
+        Libro l = libros.get(id);
+        if (l == null) {
+            libros.compareAndSet(id, null, new Libro());
+            l = libros.get(id);
+        }
+        return l;
+    }
+
+    private enum Campo {
+        BID, ASK, SPREAD, SPREAD_PROMEDIO, MEJOR_OFERTA
+    }
+
+    /**
+     * Vista inmutable de un libro.
+     *
+     * @param historiaBid / historiaAsk del más antiguo al más reciente
+     * @param preciosNivel / cantidadesNivel del mejor al peor precio de oferta
+     */
+    public record Profundidad(String producto, double bid, double ask, double spread, double spreadPromedio,
+            double[] historiaBid, double[] historiaAsk, double[] preciosNivel, int[] cantidadesNivel) {
+    }
+
+    private static final class Libro implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final StampedLock lock = new StampedLock();
+
+        private double bid;
+        private double ask;
+        private final double[] historiaBid = new double[HISTORIA];
+        private final double[] historiaAsk = new double[HISTORIA];
+        private long tickers;
+        private double sumaSpreads;
+
+        // Niveles ordenados por precio descendente; solo los primeros 'niveles' son válidos
+        private double[] precios = new double[NIVELES];
+        private int[] cantidades = new int[NIVELES];
+        private int niveles;
+
+        void registrarTicker(double nuevoBid, double nuevoAsk) {
+            long stamp = lock.writeLock();
+            try {
+                int pos = (int) (tickers % HISTORIA);
+                if (tickers >= HISTORIA) {
+                    // Sale del promedio el spread que se sobrescribe
+                    sumaSpreads -= historiaAsk[pos] - historiaBid[pos];
+                }
+                historiaBid[pos] = nuevoBid;
+                historiaAsk[pos] = nuevoAsk;
+                sumaSpreads += nuevoAsk - nuevoBid;
+                tickers++;
+                bid = nuevoBid;
+                ask = nuevoAsk;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void sumarLiquidez(double precio, int delta) {
+            long stamp = lock.writeLock();
+            try {
+                int i = 0;
+                while (i < niveles && precios[i] > precio) {
+                    i++;
+                }
+                if (i < niveles && precios[i] == precio) {
+                    cantidades[i] += delta;
+                    if (cantidades[i] <= 0) {
+                        quitarNivel(i);
+                    }
+                } else if (delta > 0) {
+                    insertarNivel(i, precio, delta);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void insertarNivel(int i, double precio, int cantidad) {
+            if (niveles == precios.length) {
+                // Descartar el peor nivel perdería su liquidez y su retiro posterior
+                precios = Arrays.copyOf(precios, niveles * 2);
+                cantidades = Arrays.copyOf(cantidades, niveles * 2);
+            }
+            int mover = niveles - i;
+            if (mover > 0) {
+                System.arraycopy(precios, i, precios, i + 1, mover);
+                System.arraycopy(cantidades, i, cantidades, i + 1, mover);
+            }
+            precios[i] = precio;
+            cantidades[i] = cantidad;
+            niveles++;
+        }
+
+        private void quitarNivel(int i) {
+            int mover = niveles - i - 1;
+            if (mover > 0) {
+                System.arraycopy(precios, i + 1, precios, i, mover);
+                System.arraycopy(cantidades, i + 1, cantidades, i, mover);
+            }
+            niveles--;
+        }
+
+        double leerCampo(Campo campo) {
+            long stamp = lock.tryOptimisticRead();
+            double valor = calcular(campo);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    valor = calcular(campo);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return valor;
+        }
+
+        private double calcular(Campo campo) {
+            return switch (campo) {
+                case BID -> bid;
+                case ASK -> ask;
+                case SPREAD -> tickers == 0 ? 0.0 : ask - bid;
+                case SPREAD_PROMEDIO -> tickers == 0 ? 0.0 : sumaSpreads / Math.min(tickers, HISTORIA);
+                case MEJOR_OFERTA -> niveles == 0 ? 0.0 : precios[0];
+            };
+        }
+
+        int liquidezDesde(double precioMinimo) {
+            long stamp = lock.tryOptimisticRead();
+            int total = sumarDesde(precioMinimo);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    total = sumarDesde(precioMinimo);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return total;
+        }
+
+        private int sumarDesde(double precioMinimo) {
+            int total = 0;
+            // Una lectura optimista puede ver 'niveles' o los arreglos a medio
+            // cambiar; se acota a lo que miden los arreglos leídos
+            double[] p = precios;
+            int[] c = cantidades;
+            int n = Math.min(niveles, Math.min(p.length, c.length));
+            for (int i = 0; i < n && p[i] >= precioMinimo; i++) {
+                total += c[i];
+            }
+            return total;
+        }
+
+        Profundidad copiar(String producto) {
+            long stamp = lock.readLock();
+            try {
+                int n = (int) Math.min(tickers, HISTORIA);
+                double[] hb = new double[n];
+                double[] ha = new double[n];
+                long inicio = tickers - n;
+                for (int k = 0; k < n; k++) {
+                    int pos = (int) ((inicio + k) % HISTORIA);
+                    hb[k] = historiaBid[pos];
+                    ha[k] = historiaAsk[pos];
+                }
+                return new Profundidad(producto, bid, ask, calcular(Campo.SPREAD), calcular(Campo.SPREAD_PROMEDIO),
+                        hb, ha, Arrays.copyOf(precios, niveles), Arrays.copyOf(cantidades, niveles));
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
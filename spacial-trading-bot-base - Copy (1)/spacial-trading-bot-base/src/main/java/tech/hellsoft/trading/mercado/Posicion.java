@@ -0,0 +1,16 @@
+package tech.hellsoft.trading.mercado;
+
+/**
+ * Lectura consistente (sin mezclar escrituras) de un producto del
+ * {@link EstadoMercado}.
+ */
+public record Posicion(String producto, double bid, double ask, double mid, int cantidad) {
+
+    public double valor() {
+        return cantidad * mid;
+    }
+
+    public boolean tienePrecio() {
+        return mid > 0.0;
+    }
+}
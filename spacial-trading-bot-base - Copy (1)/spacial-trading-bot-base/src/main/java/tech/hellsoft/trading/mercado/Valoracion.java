@@ -0,0 +1,105 @@
+package tech.hellsoft.trading.mercado;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saldo, valor de inventario y patrimonio neto mantenidos por deltas.
+ *
+ * Cada evento (ticker, fill, actualización de inventario) aplica solo su
+ * diferencia, así que leer el P&L es una lectura volátil y no recorre el
+ * inventario. El patrimonio se guarda en su propio acumulador para que un fill
+ * (que mueve saldo e inventario a la vez) se vea como un único cambio.
+ */
+public final class Valoracion implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Los double se guardan como bits en AtomicLong para poder sumar con CAS
+    private final AtomicLong saldo = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong valorInventario = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private final AtomicLong patrimonio = new AtomicLong(Double.doubleToRawLongBits(0.0));
+    private volatile double saldoInicial;
+
+    public double saldo() {
+        return leer(saldo);
+    }
+
+    public double valorInventario() {
+        return leer(valorInventario);
+    }
+
+    public double patrimonioNeto() {
+        return leer(patrimonio);
+    }
+
+    public double saldoInicial() {
+        return saldoInicial;
+    }
+
+    /**
+     * P&L porcentual respecto al saldo inicial. O(1).
+     */
+    public double pl() {
+        double inicial = saldoInicial;
+        if (inicial == 0.0) {
+            return 0.0;
+        }
+        return ((leer(patrimonio) - inicial) / inicial) * 100.0;
+    }
+
+    public void setSaldoInicial(double saldoInicial) {
+        this.saldoInicial = saldoInicial;
+    }
+
+    /**
+     * Aplica un cambio de saldo y de valor de inventario como un solo evento.
+     */
+    public void aplicar(double deltaSaldo, double deltaInventario) {
+        if (deltaSaldo != 0.0) {
+            sumar(saldo, deltaSaldo);
+        }
+        if (deltaInventario != 0.0) {
+            sumar(valorInventario, deltaInventario);
+        }
+        double total = deltaSaldo + deltaInventario;
+        if (total != 0.0) {
+            sumar(patrimonio, total);
+        }
+    }
+
+    public void ajustarValorInventario(double delta) {
+        aplicar(0.0, delta);
+    }
+
+    /**
+     * Fija el saldo a un valor absoluto (p. ej. BalanceUpdate del servidor).
+     */
+    public void fijarSaldo(double nuevo) {
+        double anterior = Double.longBitsToDouble(saldo.getAndSet(Double.doubleToRawLongBits(nuevo)));
+        sumar(patrimonio, nuevo - anterior);
+    }
+
+    /**
+     * Sustituye el valor de inventario por uno recalculado desde cero. Se usa
+     * tras cargas masivas y para descartar el error de redondeo acumulado.
+     */
+    public void recalibrar(double valorInventarioReal) {
+        double anterior = Double.longBitsToDouble(
+                valorInventario.getAndSet(Double.doubleToRawLongBits(valorInventarioReal)));
+        sumar(patrimonio, valorInventarioReal - anterior);
+    }
+
+    private static double leer(AtomicLong bits) {
+        return Double.longBitsToDouble(bits.get());
+    }
+
+    private static void sumar(AtomicLong bits, double delta) {
+        long actual;
+        long nuevo;
+        do {
+            actual = bits.get();
+            nuevo = Double.doubleToRawLongBits(Double.longBitsToDouble(actual) + delta);
+        } while (!bits.compareAndSet(actual, nuevo));
+    }
+}
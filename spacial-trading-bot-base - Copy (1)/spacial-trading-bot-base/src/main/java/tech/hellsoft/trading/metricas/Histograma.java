@@ -0,0 +1,164 @@
+package tech.hellsoft.trading.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias al estilo HdrHistogram, en nanos.
+ *
+ * Cubetas log-lineales: cada potencia de dos se parte en {@link #SUB_CUBETAS}/2
+ * cubetas iguales, así que el error relativo de cualquier percentil es menor
+ * que 1/64 (~1.6 %) desde 1 ns hasta {@link #MAXIMO_NANOS}. Registrar es un
+ * cálculo de índice y un incremento atómico: no asigna memoria y admite varios
+ * hilos escribiendo a la vez. Los valores mayores al máximo se cuentan en la
+ * última cubeta.
+ *
+ * Para reportes por intervalo, {@link #instantanea()} copia los contadores y
+ * {@link Instantanea#menos} resta la anterior, sin detener a quien registra.
+ */
+public final class Histograma {
+
+    private static final int BITS_SUB = 7;
+    static final int SUB_CUBETAS = 1 << BITS_SUB;
+    private static final int MITAD = SUB_CUBETAS / 2;
+    // ~18 minutos
+    public static final long MAXIMO_NANOS = (1L << 40) - 1;
+    private static final int CUBETAS = indice(MAXIMO_NANOS) + 1;
+
+    private final String nombre;
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+    private final AtomicLong maximo = new AtomicLong();
+
+    public Histograma(String nombre) {
+        this.nombre = nombre;
+    }
+
+    static int indice(long valor) {
+        long v = Math.min(Math.max(valor, 0), MAXIMO_NANOS);
+        int exponente = 64 - Long.numberOfLeadingZeros(v | (SUB_CUBETAS - 1)) - BITS_SUB;
+        return exponente * MITAD + (int) (v >>> exponente);
+    }
+
+    /**
+     * Mayor valor que cae en la cubeta; es lo que se reporta como percentil.
+     */
+    static long limiteSuperior(int indice) {
+        int exponente = Math.max(0, indice / MITAD - 1);
+        long sub = indice - (long) exponente * MITAD;
+        return ((sub + 1) << exponente) - 1;
+    }
+
+    public void registrar(long nanos) {
+        cuentas.getAndIncrement(indice(nanos));
+        if (nanos > maximo.get()) {
+            maximo.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Registra el tiempo transcurrido desde {@code inicioNanos} ({@link System#nanoTime()}).
+     */
+    public void registrarDesde(long inicioNanos) {
+        registrar(System.nanoTime() - inicioNanos);
+    }
+
+    public String nombre() {
+        return nombre;
+    }
+
+    public Instantanea instantanea() {
+        long[] copia = new long[CUBETAS];
+        for (int i = 0; i < CUBETAS; i++) {
+            copia[i] = cuentas.get(i);
+        }
+        return new Instantanea(nombre, copia, maximo.get());
+    }
+
+    public void reiniciar() {
+        for (int i = 0; i < CUBETAS; i++) {
+            cuentas.set(i, 0);
+        }
+        maximo.set(0);
+    }
+
+    /**
+     * Copia inmutable de los contadores; aquí se hacen los cálculos de percentiles.
+     */
+    public static final class Instantanea {
+
+        private final String nombre;
+        private final long[] cuentas;
+        private final long total;
+        private final long maximo;
+
+        private Instantanea(String nombre, long[] cuentas, long maximo) {
+            this.nombre = nombre;
+            this.cuentas = cuentas;
+            long t = 0;
+            for (long c : cuentas) {
+                t += c;
+            }
+            this.total = t;
+            this.maximo = maximo;
+        }
+
+        /**
+         * Registros entre {@code anterior} y esta. El máximo es el acumulado,
+         * porque no se puede restar.
+         */
+        public Instantanea menos(Instantanea anterior) {
+            long[] diferencia = new long[cuentas.length];
+            for (int i = 0; i < cuentas.length; i++) {
+                diferencia[i] = cuentas[i] - anterior.cuentas[i];
+            }
+            return new Instantanea(nombre, diferencia, maximo);
+        }
+
+        public String nombre() {
+            return nombre;
+        }
+
+        public long total() {
+            return total;
+        }
+
+        /**
+         * @param percentil entre 0 y 100
+         * @return nanos, o 0 si no hay registros
+         */
+        public long percentil(double percentil) {
+            if (total == 0) {
+                return 0;
+            }
+            long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+            long acumulado = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                acumulado += cuentas[i];
+                if (acumulado >= objetivo) {
+                    return Math.min(limiteSuperior(i), Math.max(maximo, 1));
+                }
+            }
+            return maximo;
+        }
+
+        public long maximo() {
+            return maximo;
+        }
+
+        public double media() {
+            if (total == 0) {
+                return 0.0;
+            }
+            double suma = 0;
+            for (int i = 0; i < cuentas.length; i++) {
+                if (cuentas[i] != 0) {
+                    // Punto medio de la cubeta
+                    long alto = limiteSuperior(i);
+                    long bajo = i == 0 ? 0 : limiteSuperior(i - 1) + 1;
+                    suma += cuentas[i] * ((bajo + alto) / 2.0);
+                }
+            }
+            return suma / total;
+        }
+    }
+}
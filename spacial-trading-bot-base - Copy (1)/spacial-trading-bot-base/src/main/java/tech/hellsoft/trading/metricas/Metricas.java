@@ -0,0 +1,56 @@
+package tech.hellsoft.trading.metricas;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import tech.hellsoft.trading.eventos.TipoEvento;
+
+/**
+ * Histogramas del cliente: cuánto tarda cada callback por tipo de evento, el
+ * tiempo desde que llega un ticker hasta que sale la orden que provocó, y lo
+ * que tarda el envío en sí.
+ */
+public final class Metricas {
+
+    private final Map<TipoEvento, Histograma> porEvento = new EnumMap<>(TipoEvento.class);
+    private final Histograma tickAOrden = new Histograma("ticker→orden");
+    private final Histograma envioOrden = new Histograma("envío orden");
+
+    public Metricas() {
+        // Todos creados de antemano: registrar nunca asigna ni modifica el mapa
+        for (TipoEvento tipo : TipoEvento.values()) {
+            porEvento.put(tipo, new Histograma(tipo.name()));
+        }
+    }
+
+    /**
+     * Registra la duración de un callback que empezó en {@code inicioNanos}.
+     */
+    public void registrar(TipoEvento tipo, long inicioNanos) {
+        porEvento.get(tipo).registrarDesde(inicioNanos);
+    }
+
+    public Histograma evento(TipoEvento tipo) {
+        return porEvento.get(tipo);
+    }
+
+    public Histograma tickAOrden() {
+        return tickAOrden;
+    }
+
+    public Histograma envioOrden() {
+        return envioOrden;
+    }
+
+    public List<Histograma> todos() {
+        List<Histograma> lista = new ArrayList<>(porEvento.values());
+        lista.add(tickAOrden);
+        lista.add(envioOrden);
+        return lista;
+    }
+
+    public void reiniciar() {
+        todos().forEach(Histograma::reiniciar);
+    }
+}
@@ -0,0 +1,114 @@
+package tech.hellsoft.trading.metricas;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escribe cada cierto tiempo los percentiles del último intervalo en un CSV:
+ *
+ * <pre>
+ * instante,metrica,n,p50_us,p99_us,p999_us,max_us
+ * </pre>
+ *
+ * Solo aparecen las métricas que tuvieron registros en el intervalo. El máximo
+ * es el acumulado desde el arranque.
+ */
+public final class ReporteMetricas implements AutoCloseable {
+
+    private final Metricas metricas;
+    private final Path archivo;
+    private final long intervaloMs;
+    private final ScheduledExecutorService hilo;
+    // Instantánea del último reporte por métrica; solo se toca bajo el monitor del reporte
+    private final Map<String, Histograma.Instantanea> anteriores = new HashMap<>();
+
+    public ReporteMetricas(Metricas metricas, Path archivo, long intervaloMs) throws IOException {
+        this.metricas = metricas;
+        this.archivo = archivo;
+        this.intervaloMs = intervaloMs;
+        if (archivo.getParent() != null) {
+            Files.createDirectories(archivo.getParent());
+        }
+        if (!Files.exists(archivo)) {
+            Files.writeString(archivo, "instante,metrica,n,p50_us,p99_us,p999_us,max_us\n", StandardCharsets.UTF_8);
+        }
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reporte-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void iniciar() {
+        hilo.scheduleAtFixedRate(this::escribirSeguro, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void escribirSeguro() {
+        try {
+            escribir();
+        } catch (IOException e) {
+            // Un fallo de disco no debe cancelar los siguientes reportes
+            System.err.println("⚠ No se pudo escribir " + archivo + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Escribe el intervalo desde el último reporte.
+     */
+    public synchronized void escribir() throws IOException {
+        String instante = Instant.now().toString();
+        try (BufferedWriter w = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND)) {
+            for (Histograma h : metricas.todos()) {
+                Histograma.Instantanea actual = h.instantanea();
+                Histograma.Instantanea previa = anteriores.put(h.nombre(), actual);
+                Histograma.Instantanea intervalo = previa == null ? actual : actual.menos(previa);
+                if (intervalo.total() == 0) {
+                    continue;
+                }
+                w.write(String.format(Locale.ROOT, "%s,%s,%d,%.1f,%.1f,%.1f,%.1f%n", instante, h.nombre(),
+                        intervalo.total(), micros(intervalo.percentil(50)), micros(intervalo.percentil(99)),
+                        micros(intervalo.percentil(99.9)), micros(intervalo.maximo())));
+            }
+        }
+    }
+
+    /**
+     * Reinicia los histogramas y olvida las instantáneas del último reporte; si
+     * se reiniciaran solo los histogramas, el siguiente intervalo restaría
+     * contadores más altos que los actuales y saldría negativo.
+     */
+    public synchronized void reiniciar() {
+        metricas.reiniciar();
+        anteriores.clear();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    /**
+     * Escribe el último intervalo y detiene el hilo.
+     */
+    @Override
+    public void close() throws IOException {
+        hilo.shutdown();
+        try {
+            hilo.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        escribir();
+    }
+}
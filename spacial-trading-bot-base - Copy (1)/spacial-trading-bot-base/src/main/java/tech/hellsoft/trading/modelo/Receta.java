@@ -3,6 +3,7 @@ package tech.hellsoft.trading.modelo;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import tech.hellsoft.trading.util.RecetaValidator;
 
 public class Receta {
 
@@ -36,37 +37,20 @@ public class Receta {
     //────────────────────────────────────────
 
     /**
-     * Verifica si el inventario tiene suficientes ingredientes para esta receta.
+     * @deprecated usar {@link RecetaValidator#puedeProducir}, que además
+     *             rechaza las cantidades negativas
      */
+    @Deprecated
     public static boolean puedeProducir(Receta receta, Map<String, Integer> inventario) {
-        if (receta == null || receta.getIngredientes().isEmpty()) {
-            return true;
-        }
-
-        for (Map.Entry<String, Integer> entry : receta.getIngredientes().entrySet()) {
-            String ingrediente = entry.getKey();
-            int requerido = entry.getValue();
-
-            int disponible = inventario.getOrDefault(ingrediente, 0);
-            if (disponible < requerido) {
-                return false;
-            }
-        }
-        return true;
+        return RecetaValidator.puedeProducir(receta, inventario);
     }
 
     /**
-     * Descuenta del inventario los ingredientes utilizados en la receta.
+     * @deprecated usar {@link RecetaValidator#consumirIngredientes}, que no
+     *             deja el inventario negativo
      */
+    @Deprecated
     public static void consumirIngredientes(Receta receta, Map<String, Integer> inventario) {
-        if (receta == null) return;
-
-        for (Map.Entry<String, Integer> entry : receta.getIngredientes().entrySet()) {
-            String ingrediente = entry.getKey();
-            int requerido = entry.getValue();
-
-            int disponible = inventario.getOrDefault(ingrediente, 0);
-            inventario.put(ingrediente, disponible - requerido);
-        }
+        RecetaValidator.consumirIngredientes(receta, inventario);
     }
 }
@@ -1,5 +1,7 @@
 package tech.hellsoft.trading.modelo;
 
+import java.util.Objects;
+
 public class Rol {
 
   private final double baseEnergy;
@@ -7,6 +9,8 @@ public class Rol {
   private final double decay;
   private final double branches;
   private final int maxDepth;
+  // Se calcula al primer uso (Gson no pasa por el constructor)
+  private int hash;
 
   public Rol(double baseEnergy, int levelEnergy, double decay, double branches, int maxDepth) {
     this.baseEnergy = baseEnergy;
@@ -35,4 +39,32 @@ public class Rol {
   public int getMaxDepth() {
     return maxDepth;
   }
+
+  /**
+   * Igualdad por valor, para poder usar el rol como clave de caché.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Rol otro)) {
+      return false;
+    }
+    return Double.compare(baseEnergy, otro.baseEnergy) == 0
+        && levelEnergy == otro.levelEnergy
+        && Double.compare(decay, otro.decay) == 0
+        && Double.compare(branches, otro.branches) == 0
+        && maxDepth == otro.maxDepth;
+  }
+
+  @Override
+  public int hashCode() {
+    int h = hash;
+    if (h == 0) {
+      h = Objects.hash(baseEnergy, levelEnergy, decay, branches, maxDepth);
+      hash = h;
+    }
+    return h;
+  }
 }
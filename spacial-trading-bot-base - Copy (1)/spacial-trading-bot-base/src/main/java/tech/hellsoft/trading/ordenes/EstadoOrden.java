@@ -0,0 +1,18 @@
+package tech.hellsoft.trading.ordenes;
+
+/**
+ * Ciclo de vida de una orden: PENDIENTE → ACEPTADA → PARCIAL → LLENA, o
+ * RECHAZADA / CANCELADA en cualquier punto antes de llenarse.
+ */
+public enum EstadoOrden {
+    PENDIENTE,
+    ACEPTADA,
+    PARCIAL,
+    LLENA,
+    RECHAZADA,
+    CANCELADA;
+
+    public boolean esFinal() {
+        return this == LLENA || this == RECHAZADA || this == CANCELADA;
+    }
+}
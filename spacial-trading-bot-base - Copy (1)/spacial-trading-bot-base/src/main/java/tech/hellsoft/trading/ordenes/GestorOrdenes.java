@@ -0,0 +1,279 @@
+package tech.hellsoft.trading.ordenes;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+
+/**
+ * Asigna ids de cliente a las órdenes y las sigue hasta que terminan.
+ *
+ * Las órdenes vivas se indexan por clOrdId en un ConcurrentHashMap (lecturas
+ * sin lock, escrituras bloqueando solo su bin). Como FillMessage no trae id de
+ * orden, cada fill se asigna a la orden abierta más antigua del mismo producto
+ * y lado; esas colas FIFO están separadas por producto, así que dos productos
+ * nunca compiten por el mismo lock. Una orden sale de su cola en cuanto
+ * termina (llena, rechazada o cancelada), así que las colas solo contienen
+ * órdenes vivas y no crecen durante la sesión.
+ *
+ * Los acks sí se emparejan por id: se asume que el servidor devuelve en
+ * {@code OrderAckMessage.orderId} el clOrdId que le enviamos. Un ack sin id
+ * rompe esa suposición: se cuenta en {@link #acksSinId()} y se avisa en la
+ * bitácora, sin lanzar, porque llega en el hilo de eventos. Uno con un id que
+ * no conocemos (duplicado o de una orden ya terminada) solo se cuenta en
+ * {@link #acksSinOrden()}.
+ */
+public final class GestorOrdenes {
+
+    private static final Plantilla ACK_SIN_ID = Plantilla
+            .aviso("⚠ OrderAck sin clOrdId (status {}): el servidor debe devolver el id de cliente que se envió");
+
+    private final String prefijo;
+    private final AtomicLong secuencia = new AtomicLong();
+    private final Map<String, Orden> vivas = new ConcurrentHashMap<>();
+    private final Map<String, ColasProducto> colas = new ConcurrentHashMap<>();
+    private final AtomicInteger abiertas = new AtomicInteger();
+    private final List<OyenteOrdenes> oyentes = new CopyOnWriteArrayList<>();
+
+    private final LongAdder llenas = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+    private final LongAdder fillsSinOrden = new LongAdder();
+    private final LongAdder acksSinOrden = new LongAdder();
+    private final LongAdder acksSinId = new LongAdder();
+
+    public GestorOrdenes() {
+        // Los segundos de arranque evitan repetir ids tras reiniciar el cliente
+        this("ORD-" + Long.toString(System.currentTimeMillis() / 1000, 36));
+    }
+
+    public GestorOrdenes(String prefijo) {
+        this.prefijo = prefijo;
+    }
+
+    public void agregarOyente(OyenteOrdenes oyente) {
+        oyentes.add(oyente);
+    }
+
+    /**
+     * Crea y registra una orden PENDIENTE. {@code precioLimite <= 0} significa a mercado.
+     */
+    public Orden crear(Lado lado, String producto, int cantidad, double precioLimite, String mensaje) {
+        return crear(lado, producto, cantidad, precioLimite, mensaje, 0.0);
+    }
+
+    /**
+     * Igual que {@link #crear(Lado, String, int, double, String)} recordando el
+     * precio unitario con el que se reservó saldo para la orden.
+     */
+    public Orden crear(Lado lado, String producto, int cantidad, double precioLimite, String mensaje,
+            double precioReserva) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser positiva: " + cantidad);
+        }
+        String id = prefijo + "-" + secuencia.incrementAndGet();
+        Orden orden = new Orden(id, lado, producto, cantidad, precioLimite, mensaje, precioReserva);
+        vivas.put(id, orden);
+        colas(producto).de(lado).add(orden);
+        abiertas.incrementAndGet();
+        return orden;
+    }
+
+    /**
+     * Marca como rechazada una orden que no se pudo enviar.
+     */
+    public void descartar(Orden orden) {
+        terminar(orden, EstadoOrden.RECHAZADA);
+    }
+
+    /**
+     * Cancela localmente una orden de la que ya no se espera respuesta, p. ej.
+     * enviada justo antes de perder la conexión; libera sus reservas.
+     */
+    public void abandonar(Orden orden) {
+        terminar(orden, EstadoOrden.CANCELADA);
+    }
+
+    /**
+     * Da por llenadas unidades de una orden cuyos fills no llegaron (p. ej. se
+     * perdieron durante un corte) al precio con que se reservó. Solo ajusta la
+     * orden y sus reservas: el saldo y el inventario ya los trajo el servidor.
+     *
+     * @return unidades aplicadas
+     */
+    public int llenarSinFill(Orden orden, int cantidad) {
+        ColasProducto cp = colas.get(orden.getProducto());
+        if (cp == null || cantidad <= 0) {
+            return 0;
+        }
+        Queue<Orden> cola = cp.de(orden.getLado());
+        synchronized (cola) {
+            int aplicadas = orden.llenar(cantidad, orden.getPrecioReserva());
+            if (aplicadas > 0) {
+                for (OyenteOrdenes oyente : oyentes) {
+                    oyente.onLlenado(orden, aplicadas, orden.getPrecioReserva());
+                }
+            }
+            if (orden.getEstado() == EstadoOrden.LLENA && vivas.remove(orden.getClOrdId()) != null) {
+                cola.remove(orden);
+                abiertas.decrementAndGet();
+                llenas.increment();
+            }
+            return aplicadas;
+        }
+    }
+
+    /**
+     * @return la orden del ack, o null si no trae id o no es de una orden viva
+     */
+    public Orden onAck(OrderAckMessage ack) {
+        String id = ack.getOrderId();
+        if (id == null || id.isBlank()) {
+            acksSinId.increment();
+            Bitacora.global().registro(ACK_SIN_ID).texto(ack.getStatus()).publicar();
+            return null;
+        }
+        Orden orden = vivas.get(id);
+        if (orden == null) {
+            acksSinOrden.increment();
+            return null;
+        }
+        String status = ack.getStatus() == null ? "" : ack.getStatus().toUpperCase();
+        if (status.contains("REJECT")) {
+            terminar(orden, EstadoOrden.RECHAZADA);
+        } else if (status.contains("CANCEL")) {
+            terminar(orden, EstadoOrden.CANCELADA);
+        } else {
+            orden.aceptar();
+        }
+        return orden;
+    }
+
+    /**
+     * Reparte el fill entre las órdenes abiertas más antiguas del producto y lado.
+     *
+     * @return las órdenes afectadas (normalmente una)
+     */
+    public List<Orden> onFill(FillMessage fill) {
+        ColasProducto cp = colas.get(fill.getProduct());
+        if (cp == null) {
+            fillsSinOrden.increment();
+            return Collections.emptyList();
+        }
+        Queue<Orden> cola = cp.de(Lado.desde(fill.getSide()));
+        List<Orden> afectadas = new ArrayList<>(1);
+        int resto = fill.getFillQty();
+        synchronized (cola) {
+            while (resto > 0) {
+                Orden orden = cola.peek();
+                if (orden == null) {
+                    break;
+                }
+                int aplicadas = orden.llenar(resto, fill.getFillPrice());
+                if (aplicadas > 0) {
+                    afectadas.add(orden);
+                    resto -= aplicadas;
+                    for (OyenteOrdenes oyente : oyentes) {
+                        oyente.onLlenado(orden, aplicadas, fill.getFillPrice());
+                    }
+                }
+                if (orden.getEstado().esFinal()) {
+                    // Sale de la cola por la cabeza; una que terminó por otra vía ya la quitó terminar()
+                    cola.poll();
+                    if (orden.getEstado() == EstadoOrden.LLENA && vivas.remove(orden.getClOrdId()) != null) {
+                        abiertas.decrementAndGet();
+                        llenas.increment();
+                    }
+                }
+            }
+        }
+        if (resto > 0) {
+            fillsSinOrden.increment();
+        }
+        return afectadas;
+    }
+
+    private void terminar(Orden orden, EstadoOrden motivo) {
+        if (orden.terminar(motivo) && vivas.remove(orden.getClOrdId()) != null) {
+            ColasProducto cp = colas.get(orden.getProducto());
+            if (cp != null) {
+                Queue<Orden> cola = cp.de(orden.getLado());
+                synchronized (cola) {
+                    cola.remove(orden);
+                }
+            }
+            abiertas.decrementAndGet();
+            if (motivo == EstadoOrden.RECHAZADA) {
+                rechazadas.increment();
+            }
+            int pendiente = orden.getPendiente();
+            for (OyenteOrdenes oyente : oyentes) {
+                oyente.onTerminada(orden, pendiente);
+            }
+        }
+    }
+
+    private ColasProducto colas(String producto) {
+        return colas.computeIfAbsent(producto, p -> new ColasProducto());
+    }
+
+    public Orden buscar(String clOrdId) {
+        return vivas.get(clOrdId);
+    }
+
+    public Collection<Orden> abiertas() {
+        return Collections.unmodifiableCollection(vivas.values());
+    }
+
+    public int cantidadAbiertas() {
+        return abiertas.get();
+    }
+
+    public long llenas() {
+        return llenas.sum();
+    }
+
+    public long rechazadas() {
+        return rechazadas.sum();
+    }
+
+    public long fillsSinOrden() {
+        return fillsSinOrden.sum();
+    }
+
+    public long acksSinOrden() {
+        return acksSinOrden.sum();
+    }
+
+    public long acksSinId() {
+        return acksSinId.sum();
+    }
+
+    /**
+     * Órdenes en las colas de fills de un producto; solo las vivas.
+     */
+    public int enCola(String producto) {
+        ColasProducto cp = colas.get(producto);
+        return cp == null ? 0 : cp.compras.size() + cp.ventas.size();
+    }
+
+    private static final class ColasProducto {
+        private final Queue<Orden> compras = new ConcurrentLinkedQueue<>();
+        private final Queue<Orden> ventas = new ConcurrentLinkedQueue<>();
+
+        Queue<Orden> de(Lado lado) {
+            return lado == Lado.BUY ? compras : ventas;
+        }
+    }
+}
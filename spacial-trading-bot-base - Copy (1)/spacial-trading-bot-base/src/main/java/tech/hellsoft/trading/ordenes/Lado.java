@@ -0,0 +1,10 @@
+package tech.hellsoft.trading.ordenes;
+
+public enum Lado {
+    BUY,
+    SELL;
+
+    public static Lado desde(String side) {
+        return "BUY".equalsIgnoreCase(side) ? BUY : SELL;
+    }
+}
@@ -0,0 +1,130 @@
+package tech.hellsoft.trading.ordenes;
+
+import tech.hellsoft.trading.dto.client.OrderMessage;
+
+/**
+ * Una orden enviada por este cliente. Los datos de la solicitud son
+ * inmutables; el estado y lo llenado cambian con los acks y fills, siempre
+ * bajo el monitor de la propia orden.
+ */
+public final class Orden {
+
+    private final String clOrdId;
+    private final Lado lado;
+    private final String producto;
+    private final int cantidad;
+    private final double precioLimite;
+    private final String mensaje;
+    // Precio por unidad con el que el control de riesgo reservó saldo (solo BUY)
+    private final double precioReserva;
+    private final long creadaNanos;
+
+    private volatile EstadoOrden estado = EstadoOrden.PENDIENTE;
+    private int cantidadLlena;
+    private double importeLleno;
+
+    Orden(String clOrdId, Lado lado, String producto, int cantidad, double precioLimite, String mensaje,
+            double precioReserva) {
+        this.clOrdId = clOrdId;
+        this.lado = lado;
+        this.producto = producto;
+        this.cantidad = cantidad;
+        this.precioLimite = precioLimite;
+        this.mensaje = mensaje;
+        this.precioReserva = precioReserva;
+        this.creadaNanos = System.nanoTime();
+    }
+
+    /**
+     * @return true si cambió de estado (los acks duplicados se ignoran)
+     */
+    synchronized boolean aceptar() {
+        if (estado != EstadoOrden.PENDIENTE) {
+            return false;
+        }
+        estado = EstadoOrden.ACEPTADA;
+        return true;
+    }
+
+    synchronized boolean terminar(EstadoOrden motivo) {
+        if (estado.esFinal()) {
+            return false;
+        }
+        estado = motivo;
+        return true;
+    }
+
+    /**
+     * Aplica un fill (posiblemente parcial).
+     *
+     * @return unidades aplicadas a esta orden; el resto pertenece a otra
+     */
+    synchronized int llenar(int qty, double precio) {
+        if (estado.esFinal()) {
+            return 0;
+        }
+        int aplicadas = Math.min(qty, cantidad - cantidadLlena);
+        cantidadLlena += aplicadas;
+        importeLleno += aplicadas * precio;
+        estado = cantidadLlena >= cantidad ? EstadoOrden.LLENA : EstadoOrden.PARCIAL;
+        return aplicadas;
+    }
+
+    public OrderMessage aMensaje() {
+        return new OrderMessage(clOrdId, lado.name(), precioLimite > 0 ? "LIMIT" : "MARKET", producto, cantidad,
+                precioLimite > 0 ? precioLimite : null, mensaje);
+    }
+
+    public String getClOrdId() {
+        return clOrdId;
+    }
+
+    public Lado getLado() {
+        return lado;
+    }
+
+    public String getProducto() {
+        return producto;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public double getPrecioLimite() {
+        return precioLimite;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public double getPrecioReserva() {
+        return precioReserva;
+    }
+
+    public long getCreadaNanos() {
+        return creadaNanos;
+    }
+
+    public EstadoOrden getEstado() {
+        return estado;
+    }
+
+    public synchronized int getCantidadLlena() {
+        return cantidadLlena;
+    }
+
+    public synchronized int getPendiente() {
+        return cantidad - cantidadLlena;
+    }
+
+    public synchronized double getPrecioPromedio() {
+        return cantidadLlena == 0 ? 0.0 : importeLleno / cantidadLlena;
+    }
+
+    @Override
+    public String toString() {
+        return clOrdId + " " + lado + " " + getCantidadLlena() + "/" + cantidad + " " + producto + " [" + estado + "]";
+    }
+}
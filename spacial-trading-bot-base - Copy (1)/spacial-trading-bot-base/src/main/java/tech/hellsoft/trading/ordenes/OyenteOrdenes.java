@@ -0,0 +1,18 @@
+package tech.hellsoft.trading.ordenes;
+
+/**
+ * Recibe los cambios de las órdenes que afectan a reservas o a la estrategia.
+ * Se invoca en el hilo que procesa el fill o el ack; debe ser rápido.
+ */
+public interface OyenteOrdenes {
+
+    /**
+     * Se llenaron {@code cantidad} unidades de la orden a {@code precio}.
+     */
+    void onLlenado(Orden orden, int cantidad, double precio);
+
+    /**
+     * La orden se rechazó o canceló con {@code pendiente} unidades sin llenar.
+     */
+    void onTerminada(Orden orden, int pendiente);
+}
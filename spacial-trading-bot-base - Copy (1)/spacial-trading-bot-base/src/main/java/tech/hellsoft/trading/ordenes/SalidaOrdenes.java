@@ -0,0 +1,13 @@
+package tech.hellsoft.trading.ordenes;
+
+import tech.hellsoft.trading.dto.client.OrderMessage;
+
+/**
+ * Hacia dónde se envían las órdenes: el conector del SDK ({@code conector::enviarOrden})
+ * o el simulador local.
+ */
+@FunctionalInterface
+public interface SalidaOrdenes {
+
+    void enviarOrden(OrderMessage orden);
+}
@@ -0,0 +1,457 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+/**
+ * Formato binario de los snapshots de {@link EstadoCliente}.
+ *
+ * <pre>
+ * cabecera (32 bytes, little endian)
+ *   magic i32 | versión i32 | esquema i32 | largo del cuerpo i32 | CRC32C del cuerpo i32
+ *   | tipo i32 (0 completo, 1 delta) | timestamp ms i64
+ * cuerpo: secciones [tag u8][largo varint][datos] hasta el tag FIN
+ * </pre>
+ *
+ * Los nombres de producto se escriben una vez en la tabla de símbolos y el
+ * resto de secciones los referencian por índice varint. Un lector ignora las
+ * secciones que no conoce, así que añadir una sección no rompe los snapshots
+ * anteriores; cambiar el contenido de una existente exige subir la versión.
+ * Un delta usa las mismas secciones pero solo con lo que cambió respecto al
+ * snapshot anterior de su cadena.
+ *
+ * Una instancia reutiliza su buffer entre escrituras y no es thread-safe.
+ */
+public final class CodecSnapshot {
+
+    public static final int MAGIC = 0x4C4F4253; // "SBOL"
+    public static final int VERSION = 1;
+    public static final int ESQUEMA;
+    public static final int TAM_CABECERA = 32;
+
+    static final int FIN = 0;
+    static final int SIMBOLOS = 1;
+    static final int SALDOS = 2;
+    static final int ROL = 3;
+    static final int AUTORIZADOS = 4;
+    static final int POSICIONES = 5;
+    static final int RECETAS = 6;
+    static final int DIARIO = 7;
+
+    // Campo de la cabecera que antes estaba reservado (0 en los snapshots antiguos)
+    static final int TIPO_COMPLETO = 0;
+    static final int TIPO_DELTA = 1;
+
+    // Las secciones opcionales añadidas después (DIARIO) no cambian el esquema
+    static {
+        CRC32C crc = new CRC32C();
+        crc.update("simbolos,saldos,rol,autorizados,posiciones,recetas".getBytes(StandardCharsets.US_ASCII));
+        ESQUEMA = (int) crc.getValue();
+    }
+
+    private final SalidaBinaria salida = new SalidaBinaria(4096);
+    private final SalidaBinaria seccion = new SalidaBinaria(1024);
+    private final Map<String, Integer> simbolos = new LinkedHashMap<>();
+
+    // ========== ESCRITURA ==========
+
+    /**
+     * Codifica el estado completo (cabecera incluida) a partir de una vista
+     * tomada entre dos eventos.
+     *
+     * @return vista del buffer interno; válida hasta la siguiente llamada
+     */
+    public ByteBuffer codificar(EstadoCliente estado) {
+        return codificar(VistaEstado.capturar(estado));
+    }
+
+    public ByteBuffer codificar(VistaEstado vista) {
+        return codificar(null, vista);
+    }
+
+    /**
+     * Codifica solo lo que cambió desde {@code base}: saldos, posiciones
+     * distintas (las que desaparecieron van a cero) y rol, autorizados o
+     * recetas si se sustituyeron. Con {@code base} null es un snapshot completo.
+     */
+    public ByteBuffer codificar(VistaEstado base, VistaEstado vista) {
+        boolean delta = base != null;
+        List<Posicion> posiciones = new ArrayList<>();
+        for (Posicion p : vista.posiciones().values()) {
+            if (!delta || !p.equals(base.posiciones().get(p.producto()))) {
+                posiciones.add(p);
+            }
+        }
+        if (delta) {
+            for (String producto : base.posiciones().keySet()) {
+                if (!vista.posiciones().containsKey(producto)) {
+                    posiciones.add(new Posicion(producto, 0.0, 0.0, 0.0, 0));
+                }
+            }
+        }
+        boolean conRol = vista.rol() != null && (!delta || vista.rol() != base.rol());
+        boolean conAutorizados = !delta || vista.autorizados() != base.autorizados();
+        boolean conRecetas = !delta || vista.recetas() != base.recetas();
+        List<String> autorizados = conAutorizados ? vista.autorizados() : List.of();
+        Map<String, Receta> recetas = conRecetas ? vista.recetas() : Map.of();
+
+        simbolos.clear();
+        posiciones.forEach(p -> simbolo(p.producto()));
+        autorizados.forEach(this::simbolo);
+        recetas.forEach((producto, receta) -> {
+            simbolo(producto);
+            if (receta != null) {
+                receta.ingredientes().keySet().forEach(this::simbolo);
+            }
+        });
+
+        salida.limpiar();
+        salida.i32(MAGIC);
+        salida.i32(VERSION);
+        salida.i32(ESQUEMA);
+        salida.i32(0); // largo, se rellena al final
+        salida.i32(0); // CRC
+        salida.i32(delta ? TIPO_DELTA : TIPO_COMPLETO);
+        salida.i64(vista.timestamp());
+
+        seccion.limpiar();
+        seccion.varint(simbolos.size());
+        simbolos.keySet().forEach(seccion::texto);
+        cerrarSeccion(SIMBOLOS);
+
+        seccion.limpiar();
+        seccion.f64(vista.saldo());
+        seccion.f64(vista.saldoInicial());
+        cerrarSeccion(SALDOS);
+
+        Rol rol = vista.rol();
+        if (conRol) {
+            seccion.limpiar();
+            seccion.f64(rol.getBaseEnergy());
+            seccion.zigzag(rol.getLevelEnergy());
+            seccion.f64(rol.getDecay());
+            seccion.f64(rol.getBranches());
+            seccion.zigzag(rol.getMaxDepth());
+            cerrarSeccion(ROL);
+        }
+
+        if (conAutorizados) {
+            seccion.limpiar();
+            seccion.varint(autorizados.size());
+            autorizados.forEach(p -> seccion.varint(simbolos.get(p)));
+            cerrarSeccion(AUTORIZADOS);
+        }
+
+        seccion.limpiar();
+        seccion.varint(posiciones.size());
+        for (Posicion p : posiciones) {
+            seccion.varint(simbolos.get(p.producto()));
+            seccion.f64(p.bid());
+            seccion.f64(p.ask());
+            seccion.zigzag(p.cantidad());
+        }
+        cerrarSeccion(POSICIONES);
+
+        if (conRecetas) {
+            seccion.limpiar();
+            seccion.varint(recetas.size());
+            recetas.forEach((producto, receta) -> {
+                Map<String, Integer> ingredientes = receta == null ? Map.of() : receta.ingredientes();
+                seccion.varint(simbolos.get(producto));
+                seccion.varint(ingredientes.size());
+                ingredientes.forEach((ingrediente, cantidad) -> {
+                    seccion.varint(simbolos.get(ingrediente));
+                    seccion.zigzag(cantidad);
+                });
+            });
+            cerrarSeccion(RECETAS);
+        }
+
+        seccion.limpiar();
+        seccion.varint(vista.secuenciaDiario());
+        cerrarSeccion(DIARIO);
+
+        salida.u8(FIN);
+
+        ByteBuffer todo = salida.escrito();
+        int largo = todo.limit() - TAM_CABECERA;
+        CRC32C crc = new CRC32C();
+        crc.update(todo.duplicate().position(TAM_CABECERA));
+        salida.i32En(12, largo);
+        salida.i32En(16, (int) crc.getValue());
+        return salida.escrito();
+    }
+
+    /**
+     * Escribe el snapshot en un temporal y lo renombra, así nunca queda un archivo a medias.
+     */
+    public void escribir(EstadoCliente estado, Path archivo) throws IOException {
+        escribir(codificar(estado), archivo);
+    }
+
+    /**
+     * Escribe un snapshot completo ({@code base} null) o un delta contra {@code base}.
+     *
+     * @return bytes escritos
+     */
+    public int escribir(VistaEstado base, VistaEstado vista, Path archivo) throws IOException {
+        ByteBuffer datos = codificar(base, vista);
+        int tam = datos.remaining();
+        escribir(datos, archivo);
+        return tam;
+    }
+
+    private static void escribir(ByteBuffer datos, Path archivo) throws IOException {
+        Path tmp = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+        try (FileChannel canal = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (datos.hasRemaining()) {
+                canal.write(datos);
+            }
+            canal.force(false);
+        }
+        Files.move(tmp, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void simbolo(String producto) {
+        simbolos.putIfAbsent(producto, simbolos.size());
+    }
+
+    private void cerrarSeccion(int tag) {
+        ByteBuffer datos = seccion.escrito();
+        salida.u8(tag);
+        salida.varint(datos.remaining());
+        salida.bytes(datos);
+    }
+
+    // ========== LECTURA ==========
+
+    /**
+     * Mapea el archivo y lo decodifica en un estado nuevo.
+     */
+    public static EstadoCliente leer(Path archivo) throws SnapshotCorruptoException {
+        EstadoCliente estado = new EstadoCliente();
+        leerEn(archivo, estado);
+        return estado;
+    }
+
+    /**
+     * Mapea el archivo y sustituye con él el contenido de {@code destino}. Si el
+     * archivo no es válido, {@code destino} no se toca.
+     */
+    public static void leerEn(Path archivo, EstadoCliente destino) throws SnapshotCorruptoException {
+        Contenido c = decodificar(archivo);
+        if (c.esDelta()) {
+            throw new SnapshotCorruptoException("Es un delta; hay que cargarlo sobre su snapshot base: " + archivo);
+        }
+        c.aplicar(destino);
+    }
+
+    /**
+     * Carga un snapshot completo seguido de sus deltas, en orden. Se decodifican
+     * todos antes de aplicar nada.
+     */
+    public static void leerCadena(List<Path> cadena, EstadoCliente destino) throws SnapshotCorruptoException {
+        List<Contenido> contenidos = new ArrayList<>(cadena.size());
+        for (Path archivo : cadena) {
+            Contenido c = decodificar(archivo);
+            if (c.esDelta() == contenidos.isEmpty()) {
+                throw new SnapshotCorruptoException("La cadena debe empezar por un snapshot completo seguido de deltas: "
+                        + archivo.getFileName());
+            }
+            contenidos.add(c);
+        }
+        for (Contenido c : contenidos) {
+            c.aplicar(destino);
+        }
+    }
+
+    public static Contenido decodificar(Path archivo) throws SnapshotCorruptoException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tam = canal.size();
+            if (tam < TAM_CABECERA || tam > Integer.MAX_VALUE) {
+                throw new SnapshotCorruptoException("Tamaño de snapshot inválido (" + tam + " bytes): " + archivo);
+            }
+            MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, tam);
+            return decodificar(mapa);
+        } catch (IOException e) {
+            throw new SnapshotCorruptoException("Error al leer snapshot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Valida cabecera y CRC y decodifica el cuerpo sin aplicar nada todavía.
+     */
+    public static Contenido decodificar(ByteBuffer datos) throws SnapshotCorruptoException {
+        EntradaBinaria in = new EntradaBinaria(datos.duplicate());
+        if (in.i32() != MAGIC) {
+            throw new SnapshotCorruptoException("No es un snapshot (magic incorrecto)");
+        }
+        int version = in.i32();
+        if (version != VERSION) {
+            throw new SnapshotCorruptoException("Versión de snapshot no soportada: " + version);
+        }
+        int esquema = in.i32();
+        if (esquema != ESQUEMA) {
+            throw new SnapshotCorruptoException("Esquema de snapshot desconocido: " + Integer.toHexString(esquema));
+        }
+        int largo = in.i32();
+        int crcEsperado = in.i32();
+        int tipo = in.i32();
+        long timestamp = in.i64();
+        if (tipo != TIPO_COMPLETO && tipo != TIPO_DELTA) {
+            throw new SnapshotCorruptoException("Tipo de snapshot desconocido: " + tipo);
+        }
+        if (largo != in.restantes()) {
+            throw new SnapshotCorruptoException("Largo del cuerpo incorrecto: " + largo + " vs " + in.restantes());
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(datos.duplicate().position(datos.position() + TAM_CABECERA));
+        if ((int) crc.getValue() != crcEsperado) {
+            throw new SnapshotCorruptoException("CRC32C no coincide: snapshot dañado");
+        }
+
+        Contenido c = new Contenido(timestamp, tipo == TIPO_DELTA);
+        String[] tabla = new String[0];
+        while (true) {
+            int tag = in.u8();
+            if (tag == FIN) {
+                break;
+            }
+            EntradaBinaria s = in.seccion(in.tamano());
+            switch (tag) {
+                case SIMBOLOS -> {
+                    tabla = new String[s.tamano()];
+                    for (int i = 0; i < tabla.length; i++) {
+                        tabla[i] = s.texto();
+                    }
+                }
+                case SALDOS -> {
+                    c.saldo = s.f64();
+                    c.saldoInicial = s.f64();
+                }
+                case ROL -> c.rol = new Rol(s.f64(), (int) s.zigzag(), s.f64(), s.f64(), (int) s.zigzag());
+                case AUTORIZADOS -> {
+                    c.autorizados = new ArrayList<>();
+                    int n = s.tamano();
+                    for (int i = 0; i < n; i++) {
+                        c.autorizados.add(ref(tabla, s));
+                    }
+                }
+                case POSICIONES -> {
+                    int n = s.tamano();
+                    for (int i = 0; i < n; i++) {
+                        c.posiciones.add(new Posicion(ref(tabla, s), s.f64(), s.f64(), 0.0, (int) s.zigzag()));
+                    }
+                }
+                case RECETAS -> {
+                    c.recetas = new HashMap<>();
+                    int n = s.tamano();
+                    for (int i = 0; i < n; i++) {
+                        String producto = ref(tabla, s);
+                        int k = s.tamano();
+                        Map<String, Integer> ingredientes = new HashMap<>();
+                        for (int j = 0; j < k; j++) {
+                            ingredientes.put(ref(tabla, s), (int) s.zigzag());
+                        }
+                        c.recetas.put(producto, new Receta(ingredientes));
+                    }
+                }
+                case DIARIO -> c.secuenciaDiario = s.varint();
+                default -> {
+                    // Sección de una versión posterior: se ignora
+                }
+            }
+        }
+        return c;
+    }
+
+    private static String ref(String[] tabla, EntradaBinaria s) throws SnapshotCorruptoException {
+        int i = s.tamano();
+        if (i >= tabla.length) {
+            throw new SnapshotCorruptoException("Referencia a símbolo inexistente: " + i);
+        }
+        return tabla[i];
+    }
+
+    /**
+     * Snapshot decodificado, pendiente de aplicar a un estado. En un delta, lo
+     * que no vino (rol, autorizados, recetas) se queda como estaba.
+     */
+    public static final class Contenido {
+        private final long timestamp;
+        private final boolean delta;
+        private long secuenciaDiario;
+        private double saldo;
+        private double saldoInicial;
+        private Rol rol;
+        private List<String> autorizados;
+        private final List<Posicion> posiciones = new ArrayList<>();
+        private Map<String, Receta> recetas;
+
+        private Contenido(long timestamp, boolean delta) {
+            this.timestamp = timestamp;
+            this.delta = delta;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean esDelta() {
+            return delta;
+        }
+
+        /**
+         * Último evento del diario incluido en el snapshot; se reproduce desde el siguiente.
+         */
+        public long getSecuenciaDiario() {
+            return secuenciaDiario;
+        }
+
+        public void aplicar(EstadoCliente destino) {
+            EstadoMercado mercado = destino.getMercado();
+            if (!delta) {
+                mercado.reemplazarInventario(Map.of());
+                mercado.reemplazarPrecios(Map.of());
+            }
+            for (Posicion p : posiciones) {
+                mercado.actualizarPrecio(p.producto(), p.bid(), p.ask());
+                mercado.fijarInventario(p.producto(), p.cantidad());
+            }
+            destino.setSaldoInicial(saldoInicial);
+            destino.setSaldo(saldo);
+            if (!delta || rol != null) {
+                destino.setRol(rol);
+            }
+            if (!delta || autorizados != null) {
+                destino.setProductosAutorizados(autorizados == null ? new ArrayList<>() : autorizados);
+            }
+            if (!delta || recetas != null) {
+                destino.setRecetas(recetas == null ? new HashMap<>() : recetas);
+            }
+            destino.setSecuenciaDiario(secuenciaDiario);
+            destino.recalibrarValoracion();
+            destino.recalcularRecetas();
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.eventos.AnilloEventos;
+import tech.hellsoft.trading.eventos.EstrategiaEspera;
+import tech.hellsoft.trading.eventos.TipoEvento;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+
+/**
+ * Diario de escritura anticipada de los eventos que cambian el estado
+ * (fills, inventario, saldo y acks).
+ *
+ * El hilo de eventos solo numera el evento y lo deja en un {@link AnilloEventos};
+ * un hilo escritor lo codifica en un segmento mapeado en memoria y hace fsync
+ * por grupos: una sola sincronización cubre todo lo escrito desde la anterior,
+ * como mucho cada {@link #INTERVALO_FSYNC_NANOS}. {@link #durable()} dice hasta
+ * qué secuencia está en disco.
+ *
+ * <pre>
+ * segmento diario-&lt;primera secuencia&gt;.log, registros consecutivos:
+ *   largo i32 | CRC32C i32 | secuencia i64 | tipo u8 | datos
+ * </pre>
+ *
+ * Un largo 0, un CRC incorrecto o una secuencia no consecutiva marcan el
+ * final (la cola de un registro a medio escribir al caerse el proceso).
+ *
+ * Si una escritura falla el diario queda inutilizado: no escribe nada más
+ * (lo siguiente ya no sería consecutivo en disco) y {@link #registrar} pasa a
+ * devolver 0, como si el tipo no se registrara. {@link #falla()} dice por qué.
+ */
+public final class DiarioEventos implements AutoCloseable {
+
+    public static final int TAM_SEGMENTO_POR_DEFECTO = 64 << 20;
+    public static final long INTERVALO_FSYNC_NANOS = 2_000_000L;
+
+    private static final String PREFIJO = "diario-";
+    private static final String SUFIJO = ".log";
+    private static final int CABECERA_REGISTRO = 8; // largo + CRC
+    private static final Plantilla INUTILIZADO = Plantilla.error("❌ Diario inutilizado tras el evento #{}: {}");
+
+    private final Path directorio;
+    private final int tamSegmento;
+    private final AnilloEventos anillo;
+    private final Thread escritor;
+    private volatile boolean activo = true;
+
+    // Solo la modifica registrar(), bajo el lock del diario
+    private long secuencia;
+    private volatile long durable;
+    private volatile Exception falla;
+
+    // Estado del hilo escritor
+    private long escrita;
+    private FileChannel canal;
+    private MappedByteBuffer segmento;
+    private int inicioSinSync;
+    private long ultimoSync = System.nanoTime();
+    private final SalidaBinaria registro = new SalidaBinaria(256);
+    private final CRC32C crc = new CRC32C();
+
+    private final LongAdder escritos = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+
+    public DiarioEventos(Path directorio) throws IOException {
+        this(directorio, TAM_SEGMENTO_POR_DEFECTO, 1 << 16);
+    }
+
+    /**
+     * Abre el diario y continúa tras el último registro válido en disco.
+     */
+    public DiarioEventos(Path directorio, int tamSegmento, int capacidadAnillo) throws IOException {
+        this.directorio = directorio;
+        this.tamSegmento = tamSegmento;
+        Files.createDirectories(directorio);
+
+        List<Path> segmentos = segmentos(directorio);
+        if (segmentos.isEmpty()) {
+            abrirSegmento(1);
+        } else {
+            Path ultimo = segmentos.get(segmentos.size() - 1);
+            canal = FileChannel.open(ultimo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(canal.size(), tamSegmento));
+            segmento.order(ByteOrder.LITTLE_ENDIAN);
+            long primera = primeraSecuencia(ultimo);
+            Lector lector = new Lector(segmento.duplicate().order(ByteOrder.LITTLE_ENDIAN), primera - 1);
+            while (lector.siguiente()) {
+                // Solo se busca el final
+            }
+            escrita = lector.ultima;
+            segmento.position(lector.fin);
+            inicioSinSync = lector.fin;
+        }
+        secuencia = escrita;
+        durable = escrita;
+
+        this.anillo = new AnilloEventos(capacidadAnillo, EstrategiaEspera.durmiendo(100_000));
+        this.escritor = new Thread(this::escribir, "diario-eventos");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    // ========== HILO DE EVENTOS ==========
+
+    /**
+     * Numera el evento y lo encola para escribirlo; no espera al disco.
+     *
+     * @return la secuencia asignada, o 0 si el tipo no se registra
+     */
+    public synchronized long registrar(TipoEvento tipo, Object mensaje) {
+        if (!seRegistra(tipo) || !activo || falla != null) {
+            return 0;
+        }
+        anillo.publicar(tipo, mensaje, false);
+        return ++secuencia;
+    }
+
+    public static boolean seRegistra(TipoEvento tipo) {
+        return codigo(tipo) != 0;
+    }
+
+    // Códigos fijos en disco: no dependen del orden del enum
+    private static int codigo(TipoEvento tipo) {
+        return switch (tipo) {
+            case FILL -> 1;
+            case INVENTORY_UPDATE -> 2;
+            case BALANCE_UPDATE -> 3;
+            case ORDER_ACK -> 4;
+            default -> 0;
+        };
+    }
+
+    private static TipoEvento tipoDe(int codigo) {
+        return switch (codigo) {
+            case 1 -> TipoEvento.FILL;
+            case 2 -> TipoEvento.INVENTORY_UPDATE;
+            case 3 -> TipoEvento.BALANCE_UPDATE;
+            case 4 -> TipoEvento.ORDER_ACK;
+            default -> null;
+        };
+    }
+
+    // ========== HILO ESCRITOR ==========
+
+    private void escribir() {
+        EstrategiaEspera espera = anillo.getEspera();
+        int vacios = 0;
+        while (activo) {
+            int n = anillo.consumir(this::anotar);
+            if (n > 0) {
+                vacios = 0;
+                if (System.nanoTime() - ultimoSync >= INTERVALO_FSYNC_NANOS) {
+                    sincronizar();
+                }
+            } else {
+                // Sin eventos nuevos: lo pendiente se sincroniza ya (fin del grupo)
+                if (durable != escrita) {
+                    sincronizar();
+                }
+                espera.esperar(vacios++);
+            }
+        }
+        try {
+            anillo.consumir(this::anotar);
+            sincronizar();
+        } finally {
+            // El canal lo cierra este hilo: close() no puede hacerlo mientras se escribe
+            try {
+                canal.close();
+            } catch (IOException e) {
+                errores.increment();
+            }
+        }
+    }
+
+    private void anotar(TipoEvento tipo, Object mensaje) {
+        if (falla != null) {
+            errores.increment();
+            return;
+        }
+        registro.limpiar();
+        registro.i64(escrita + 1);
+        registro.u8(codigo(tipo));
+        switch (tipo) {
+            case FILL -> {
+                FillMessage f = (FillMessage) mensaje;
+                registro.u8("SELL".equalsIgnoreCase(f.getSide()) ? 1 : 0);
+                registro.zigzag(f.getFillQty());
+                registro.f64(f.getFillPrice());
+                registro.texto(f.getProduct());
+            }
+            case INVENTORY_UPDATE -> {
+                InventoryUpdateMessage m = (InventoryUpdateMessage) mensaje;
+                registro.texto(m.getProduct());
+                registro.zigzag(m.getQuantity());
+            }
+            case BALANCE_UPDATE -> registro.f64(((BalanceUpdateMessage) mensaje).getBalance());
+            case ORDER_ACK -> {
+                OrderAckMessage m = (OrderAckMessage) mensaje;
+                registro.texto(m.getOrderId() == null ? "" : m.getOrderId());
+                registro.texto(m.getStatus() == null ? "" : m.getStatus());
+            }
+            default -> {
+                return;
+            }
+        }
+        ByteBuffer datos = registro.escrito();
+        int largo = datos.remaining();
+        try {
+            // Siempre queda sitio para el largo 0 que marca el final
+            if (segmento.remaining() < CABECERA_REGISTRO + largo + 4) {
+                sincronizar();
+                abrirSegmento(escrita + 1);
+            }
+            crc.reset();
+            crc.update(datos.duplicate());
+            segmento.putInt(largo);
+            segmento.putInt((int) crc.getValue());
+            segmento.put(datos);
+            segmento.putInt(segmento.position(), 0);
+            escrita++;
+            escritos.increment();
+        } catch (IOException | RuntimeException e) {
+            // No se puede tirar el hilo escritor; a partir de aquí el diario ya no es consecutivo
+            errores.increment();
+            falla = e;
+            Bitacora.global().registro(INUTILIZADO).entero(escrita + 1).texto(e.getMessage()).publicar();
+        }
+    }
+
+    private void sincronizar() {
+        int fin = segmento.position();
+        if (fin > inicioSinSync) {
+            segmento.force(inicioSinSync, fin - inicioSinSync);
+            syncs.increment();
+        }
+        inicioSinSync = fin;
+        ultimoSync = System.nanoTime();
+        durable = escrita;
+    }
+
+    private void abrirSegmento(long primera) throws IOException {
+        if (canal != null) {
+            canal.close();
+        }
+        Path archivo = directorio.resolve(String.format("%s%020d%s", PREFIJO, primera, SUFIJO));
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamSegmento);
+        segmento.order(ByteOrder.LITTLE_ENDIAN);
+        inicioSinSync = 0;
+    }
+
+    // ========== CIERRE Y CONSULTAS ==========
+
+    /**
+     * Escribe lo pendiente, hace fsync y detiene el hilo escritor, que es quien
+     * cierra el archivo.
+     *
+     * @throws IOException si el escritor no terminó a tiempo o el diario estaba inutilizado
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            activo = false;
+        }
+        anillo.getEspera().despertar();
+        try {
+            escritor.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (escritor.isAlive()) {
+            throw new IOException("El escritor del diario no terminó; cerrará el archivo al acabar");
+        }
+        Exception f = falla;
+        if (f != null) {
+            throw new IOException("El diario quedó inutilizado en el evento #" + (escrita + 1) + ": " + f.getMessage(),
+                    f);
+        }
+    }
+
+    /**
+     * Última secuencia asignada (puede no estar aún en disco).
+     */
+    public synchronized long secuencia() {
+        return secuencia;
+    }
+
+    /**
+     * Última secuencia escrita y sincronizada con el disco.
+     */
+    public long durable() {
+        return durable;
+    }
+
+    public long pendientes() {
+        return anillo.profundidad();
+    }
+
+    public long escritos() {
+        return escritos.sum();
+    }
+
+    public long syncs() {
+        return syncs.sum();
+    }
+
+    public long errores() {
+        return errores.sum();
+    }
+
+    /**
+     * La excepción que inutilizó el diario, o null si escribe con normalidad.
+     */
+    public Exception falla() {
+        return falla;
+    }
+
+    public Path getDirectorio() {
+        return directorio;
+    }
+
+    /**
+     * Borra los segmentos cuyos eventos son todos anteriores o iguales a
+     * {@code secuencia} (ya cubiertos por un snapshot). El segmento activo nunca se borra.
+     *
+     * @return segmentos borrados
+     */
+    public int purgarHasta(long secuencia) throws IOException {
+        List<Path> lista = segmentos(directorio);
+        int borrados = 0;
+        for (int i = 0; i + 1 < lista.size(); i++) {
+            if (primeraSecuencia(lista.get(i + 1)) > secuencia + 1) {
+                break;
+            }
+            Files.deleteIfExists(lista.get(i));
+            borrados++;
+        }
+        return borrados;
+    }
+
+    // ========== REPRODUCCIÓN ==========
+
+    /**
+     * Recibe los eventos al reproducir el diario.
+     */
+    @FunctionalInterface
+    public interface Reproductor {
+        void aplicar(long secuencia, TipoEvento tipo, Object mensaje);
+    }
+
+    /**
+     * Entrega en orden los eventos con secuencia mayor que {@code despuesDe}.
+     * Los segmentos se leen mapeados, sin copiar el archivo.
+     *
+     * @return la última secuencia entregada ({@code despuesDe} si no había nada)
+     */
+    public static long reproducir(Path directorio, long despuesDe, Reproductor reproductor)
+            throws SnapshotCorruptoException {
+        List<Path> segmentos;
+        try {
+            segmentos = Files.isDirectory(directorio) ? segmentos(directorio) : List.of();
+        } catch (IOException e) {
+            throw new SnapshotCorruptoException("No se pudo listar el diario: " + e.getMessage(), e);
+        }
+        long ultima = despuesDe;
+        for (int i = 0; i < segmentos.size(); i++) {
+            // Un segmento entero anterior a la secuencia buscada se salta sin abrirlo
+            if (i + 1 < segmentos.size() && primeraSecuencia(segmentos.get(i + 1)) <= despuesDe + 1) {
+                continue;
+            }
+            Path archivo = segmentos.get(i);
+            long primera = primeraSecuencia(archivo);
+            // También antes del primer segmento leído: si se purgó lo que iba tras despuesDe
+            if (primera > ultima + 1) {
+                throw new SnapshotCorruptoException("Hueco en el diario antes de " + archivo.getFileName()
+                        + ": se esperaba el evento #" + (ultima + 1));
+            }
+            try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+                ByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+                Lector lector = new Lector(mapa.order(ByteOrder.LITTLE_ENDIAN), primera - 1);
+                while (lector.siguiente()) {
+                    if (lector.ultima > despuesDe) {
+                        reproductor.aplicar(lector.ultima, lector.tipo, lector.decodificar());
+                        ultima = lector.ultima;
+                    }
+                }
+            } catch (IOException e) {
+                throw new SnapshotCorruptoException("Error leyendo " + archivo.getFileName() + ": " + e.getMessage(), e);
+            }
+        }
+        return ultima;
+    }
+
+    /**
+     * Primera secuencia que conserva el diario en disco (mayor que 1 si se
+     * purgó), o 0 si no hay segmentos.
+     */
+    public static long primeraConservada(Path directorio) throws SnapshotCorruptoException {
+        try {
+            List<Path> lista = Files.isDirectory(directorio) ? segmentos(directorio) : List.of();
+            return lista.isEmpty() ? 0 : primeraSecuencia(lista.get(0));
+        } catch (IOException e) {
+            throw new SnapshotCorruptoException("No se pudo listar el diario: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<Path> segmentos(Path directorio) throws IOException {
+        try (Stream<Path> s = Files.list(directorio)) {
+            List<Path> lista = new ArrayList<>(s.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.startsWith(PREFIJO) && n.endsWith(SUFIJO);
+            }).toList());
+            // El nombre lleva la secuencia con ceros a la izquierda: orden lexicográfico = orden numérico
+            lista.sort(null);
+            return lista;
+        }
+    }
+
+    private static long primeraSecuencia(Path segmento) {
+        String n = segmento.getFileName().toString();
+        return Long.parseLong(n.substring(PREFIJO.length(), n.length() - SUFIJO.length()));
+    }
+
+    /**
+     * Recorre los registros válidos de un segmento.
+     */
+    private static final class Lector {
+        private final ByteBuffer buffer;
+        private final CRC32C crc = new CRC32C();
+        private long ultima;
+        private int fin;
+        private TipoEvento tipo;
+        private EntradaBinaria datos;
+
+        Lector(ByteBuffer buffer, long anterior) {
+            this.buffer = buffer;
+            this.ultima = anterior;
+        }
+
+        boolean siguiente() {
+            int pos = fin;
+            if (buffer.limit() - pos < CABECERA_REGISTRO) {
+                return false;
+            }
+            int largo = buffer.getInt(pos);
+            if (largo <= 9 || largo > buffer.limit() - pos - CABECERA_REGISTRO) {
+                return false;
+            }
+            ByteBuffer cuerpo = buffer.slice(pos + CABECERA_REGISTRO, largo).order(ByteOrder.LITTLE_ENDIAN);
+            crc.reset();
+            crc.update(cuerpo.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                return false;
+            }
+            long seq = cuerpo.getLong(0);
+            TipoEvento t = tipoDe(cuerpo.get(8) & 0xFF);
+            if (seq != ultima + 1 || t == null) {
+                return false;
+            }
+            ultima = seq;
+            tipo = t;
+            datos = new EntradaBinaria(cuerpo.position(9));
+            fin = pos + CABECERA_REGISTRO + largo;
+            return true;
+        }
+
+        Object decodificar() throws SnapshotCorruptoException {
+            return switch (tipo) {
+                case FILL -> {
+                    String lado = datos.u8() == 1 ? "SELL" : "BUY";
+                    int cantidad = (int) datos.zigzag();
+                    double precio = datos.f64();
+                    yield new FillMessage(lado, cantidad, datos.texto(), precio);
+                }
+                case INVENTORY_UPDATE -> new InventoryUpdateMessage(datos.texto(), (int) datos.zigzag());
+                case BALANCE_UPDATE -> new BalanceUpdateMessage(datos.f64());
+                case ORDER_ACK -> new OrderAckMessage(datos.texto(), datos.texto());
+                default -> throw new SnapshotCorruptoException("Tipo de evento no registrable en el diario: " + tipo);
+            };
+        }
+    }
+}
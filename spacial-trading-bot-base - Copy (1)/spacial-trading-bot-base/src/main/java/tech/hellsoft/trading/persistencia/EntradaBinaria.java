@@ -0,0 +1,123 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+
+/**
+ * Lectura de lo escrito por {@link SalidaBinaria} sobre un ByteBuffer (normalmente mapeado).
+ *
+ * Cualquier lectura fuera de rango o varint mal formado se convierte en
+ * {@link SnapshotCorruptoException}, nunca en un error de runtime.
+ */
+final class EntradaBinaria {
+
+    private final ByteBuffer buffer;
+
+    EntradaBinaria(ByteBuffer buffer) {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    boolean quedan() {
+        return buffer.hasRemaining();
+    }
+
+    int restantes() {
+        return buffer.remaining();
+    }
+
+    int u8() throws SnapshotCorruptoException {
+        try {
+            return buffer.get() & 0xFF;
+        } catch (BufferUnderflowException e) {
+            throw truncado();
+        }
+    }
+
+    int i32() throws SnapshotCorruptoException {
+        try {
+            return buffer.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncado();
+        }
+    }
+
+    long i64() throws SnapshotCorruptoException {
+        try {
+            return buffer.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncado();
+        }
+    }
+
+    double f64() throws SnapshotCorruptoException {
+        try {
+            return buffer.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw truncado();
+        }
+    }
+
+    long varint() throws SnapshotCorruptoException {
+        long valor = 0;
+        for (int desplazamiento = 0; desplazamiento < 64; desplazamiento += 7) {
+            int b = u8();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if ((b & 0x80) == 0) {
+                return valor;
+            }
+        }
+        throw new SnapshotCorruptoException("Varint demasiado largo");
+    }
+
+    /**
+     * Varint que debe caber en un int no negativo (tamaños, contadores, índices).
+     */
+    int tamano() throws SnapshotCorruptoException {
+        long v = varint();
+        if (v < 0 || v > Integer.MAX_VALUE) {
+            throw new SnapshotCorruptoException("Tamaño fuera de rango: " + v);
+        }
+        return (int) v;
+    }
+
+    long zigzag() throws SnapshotCorruptoException {
+        long v = varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    String texto() throws SnapshotCorruptoException {
+        int n = tamano();
+        if (n > buffer.remaining()) {
+            throw truncado();
+        }
+        byte[] bytes = new byte[n];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void saltar(int n) throws SnapshotCorruptoException {
+        if (n > buffer.remaining()) {
+            throw truncado();
+        }
+        buffer.position(buffer.position() + n);
+    }
+
+    /**
+     * Sub-buffer de los próximos n bytes, avanzando la posición.
+     */
+    EntradaBinaria seccion(int n) throws SnapshotCorruptoException {
+        if (n > buffer.remaining()) {
+            throw truncado();
+        }
+        ByteBuffer sub = buffer.slice(buffer.position(), n);
+        buffer.position(buffer.position() + n);
+        return new EntradaBinaria(sub);
+    }
+
+    private static SnapshotCorruptoException truncado() {
+        return new SnapshotCorruptoException("Datos truncados");
+    }
+}
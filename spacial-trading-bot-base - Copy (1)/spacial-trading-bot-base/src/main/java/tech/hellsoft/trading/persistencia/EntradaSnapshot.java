@@ -0,0 +1,23 @@
+package tech.hellsoft.trading.persistencia;
+
+/**
+ * Un archivo del índice de snapshots.
+ *
+ * @param completo false si es un delta sobre la entrada anterior
+ * @param secuenciaDiario último evento del diario incluido
+ */
+public record EntradaSnapshot(boolean completo, String archivo, long timestamp, long secuenciaDiario, long bytes) {
+
+    String aLinea() {
+        return (completo ? "C" : "D") + "\t" + archivo + "\t" + timestamp + "\t" + secuenciaDiario + "\t" + bytes;
+    }
+
+    static EntradaSnapshot desdeLinea(String linea) {
+        String[] c = linea.split("\t");
+        if (c.length != 5 || !(c[0].equals("C") || c[0].equals("D"))) {
+            throw new IllegalArgumentException("Línea de índice inválida: " + linea);
+        }
+        return new EntradaSnapshot(c[0].equals("C"), c[1], Long.parseLong(c[2]), Long.parseLong(c[3]),
+                Long.parseLong(c[4]));
+    }
+}
@@ -0,0 +1,134 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+
+/**
+ * Índice de los snapshots de un directorio, para no listar ni ordenar el
+ * directorio cada vez.
+ *
+ * Se guarda como texto (una línea por archivo, de más antiguo a más nuevo) y
+ * se reescribe entero con un temporal y un renombrado atómico. Un snapshot
+ * completo abre una cadena; los deltas que le siguen pertenecen a ella.
+ */
+final class IndiceSnapshots {
+
+    static final String ARCHIVO = "indice.txt";
+
+    private final Path directorio;
+    private final List<EntradaSnapshot> entradas = new ArrayList<>();
+
+    IndiceSnapshots(Path directorio) throws IOException {
+        this.directorio = directorio;
+        Path archivo = directorio.resolve(ARCHIVO);
+        if (Files.exists(archivo)) {
+            for (String linea : Files.readAllLines(archivo, StandardCharsets.UTF_8)) {
+                if (!linea.isBlank()) {
+                    entradas.add(EntradaSnapshot.desdeLinea(linea));
+                }
+            }
+        } else {
+            migrar();
+        }
+    }
+
+    /**
+     * Sin índice todavía: se indexan una única vez los snapshots sueltos de versiones anteriores.
+     */
+    private void migrar() throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return;
+        }
+        List<Path> sueltos;
+        try (Stream<Path> s = Files.list(directorio)) {
+            sueltos = s.filter(p -> {
+                String n = p.getFileName().toString();
+                return n.startsWith("snapshot_") && n.endsWith(".bin");
+            }).toList();
+        }
+        List<EntradaSnapshot> encontradas = new ArrayList<>();
+        for (Path p : sueltos) {
+            try {
+                CodecSnapshot.Contenido c = CodecSnapshot.decodificar(p);
+                if (!c.esDelta()) {
+                    encontradas.add(new EntradaSnapshot(true, p.getFileName().toString(), c.getTimestamp(),
+                            c.getSecuenciaDiario(), Files.size(p)));
+                }
+            } catch (SnapshotCorruptoException e) {
+                // Formato antiguo (ObjectOutputStream) o dañado: no se indexa
+            }
+        }
+        encontradas.sort(Comparator.comparingLong(EntradaSnapshot::timestamp));
+        entradas.addAll(encontradas);
+        guardar();
+    }
+
+    synchronized List<EntradaSnapshot> entradas() {
+        return Collections.unmodifiableList(new ArrayList<>(entradas));
+    }
+
+    synchronized EntradaSnapshot ultima() {
+        return entradas.isEmpty() ? null : entradas.get(entradas.size() - 1);
+    }
+
+    synchronized void agregar(EntradaSnapshot entrada) throws IOException {
+        entradas.add(entrada);
+        guardar();
+    }
+
+    /**
+     * Entradas necesarias para reconstruir {@code hasta}: su snapshot completo y los deltas intermedios.
+     */
+    synchronized List<EntradaSnapshot> cadenaHasta(EntradaSnapshot hasta) {
+        int fin = entradas.indexOf(hasta);
+        if (fin < 0) {
+            return List.of();
+        }
+        int inicio = fin;
+        while (inicio > 0 && !entradas.get(inicio).completo()) {
+            inicio--;
+        }
+        if (!entradas.get(inicio).completo()) {
+            return List.of();
+        }
+        return new ArrayList<>(entradas.subList(inicio, fin + 1));
+    }
+
+    /**
+     * Quita las entradas anteriores a la posición {@code desde} (que debe ser un completo).
+     *
+     * @return las entradas quitadas, para borrar sus archivos
+     */
+    synchronized List<EntradaSnapshot> recortarAntesDe(int desde) throws IOException {
+        if (desde <= 0) {
+            return List.of();
+        }
+        List<EntradaSnapshot> quitadas = new ArrayList<>(entradas.subList(0, desde));
+        entradas.subList(0, desde).clear();
+        guardar();
+        return quitadas;
+    }
+
+    private void guardar() throws IOException {
+        Files.createDirectories(directorio);
+        Path tmp = directorio.resolve(ARCHIVO + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (EntradaSnapshot e : entradas) {
+                w.write(e.aLinea());
+                w.newLine();
+            }
+        }
+        Files.move(tmp, directorio.resolve(ARCHIVO), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,249 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+
+/**
+ * Toma snapshots en segundo plano sin detener el procesamiento de eventos.
+ *
+ * Cada intervalo captura una {@link VistaEstado} y escribe solo lo que cambió
+ * respecto a la anterior (un delta). Cada {@code deltasPorCompleto} deltas
+ * escribe un snapshot completo, que compacta la cadena: para cargar basta con
+ * él y los deltas posteriores. Tras cada completo se aplica la retención: se
+ * conservan las últimas {@code cadenasRetenidas} cadenas y se borran las más
+ * viejas que {@code edadMaximaMs} (nunca la última), junto con los segmentos
+ * del diario que ya no hacen falta para recuperar desde la cadena más antigua.
+ *
+ * Todo el trabajo ocurre en un único hilo, así que no hay escrituras simultáneas.
+ */
+public final class ProgramadorSnapshots implements AutoCloseable {
+
+    /**
+     * @param intervaloMs cada cuánto se intenta un snapshot
+     * @param deltasPorCompleto deltas seguidos antes de compactar en un completo
+     * @param cadenasRetenidas snapshots completos (con sus deltas) que se conservan
+     * @param edadMaximaMs antigüedad a partir de la cual una cadena se borra aunque quepa
+     */
+    public record Politica(long intervaloMs, int deltasPorCompleto, int cadenasRetenidas, long edadMaximaMs) {
+
+        public static Politica porDefecto() {
+            return new Politica(30_000L, 10, 5, TimeUnit.DAYS.toMillis(1));
+        }
+
+        public Politica {
+            if (intervaloMs <= 0 || deltasPorCompleto < 0 || cadenasRetenidas <= 0 || edadMaximaMs <= 0) {
+                throw new IllegalArgumentException("Política de snapshots inválida");
+            }
+        }
+    }
+
+    private final EstadoCliente estado;
+    private final Path directorio;
+    private final Politica politica;
+    private final DiarioEventos diario;
+    private final IndiceSnapshots indice;
+    private final ScheduledExecutorService hilo;
+    private final CodecSnapshot codec = new CodecSnapshot();
+
+    // Solo se tocan desde el hilo de snapshots
+    private VistaEstado ultimaVista;
+    private int deltasEnCadena;
+    private long ultimoTimestamp;
+
+    private final LongAdder completos = new LongAdder();
+    private final LongAdder deltas = new LongAdder();
+    private final LongAdder sinCambios = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+
+    /**
+     * @param diario para purgar segmentos ya cubiertos; puede ser null
+     */
+    public ProgramadorSnapshots(EstadoCliente estado, Path directorio, Politica politica, DiarioEventos diario)
+            throws IOException {
+        this.estado = estado;
+        this.directorio = directorio;
+        this.politica = politica;
+        this.diario = diario;
+        Files.createDirectories(directorio);
+        this.indice = new IndiceSnapshots(directorio);
+        EntradaSnapshot ultima = indice.ultima();
+        this.ultimoTimestamp = ultima == null ? 0 : ultima.timestamp();
+        this.hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshots");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void iniciar() {
+        hilo.scheduleWithFixedDelay(this::tomarProgramado, politica.intervaloMs(), politica.intervaloMs(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Pide un snapshot fuera de calendario; no bloquea a quien lo pide.
+     *
+     * @param completo true para forzar un completo (compacta la cadena actual)
+     */
+    public CompletableFuture<EntradaSnapshot> solicitar(boolean completo) {
+        CompletableFuture<EntradaSnapshot> futuro = new CompletableFuture<>();
+        hilo.execute(() -> {
+            try {
+                futuro.complete(tomar(completo));
+            } catch (IOException | RuntimeException e) {
+                errores.increment();
+                futuro.completeExceptionally(e);
+            }
+        });
+        return futuro;
+    }
+
+    /**
+     * Detiene el calendario y escribe un snapshot completo final.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            solicitar(true).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new IOException("El snapshot final no terminó a tiempo", e);
+        } finally {
+            hilo.shutdown();
+        }
+    }
+
+    // ========== HILO DE SNAPSHOTS ==========
+
+    private void tomarProgramado() {
+        try {
+            tomar(false);
+        } catch (IOException | RuntimeException e) {
+            // Un fallo de disco no debe cancelar el calendario
+            errores.increment();
+        }
+    }
+
+    /**
+     * @return la entrada escrita, o null si no había cambios
+     */
+    private EntradaSnapshot tomar(boolean forzarCompleto) throws IOException {
+        VistaEstado vista = VistaEstado.capturar(estado);
+        if (!forzarCompleto && ultimaVista != null && sinCambios(ultimaVista, vista)) {
+            sinCambios.increment();
+            return null;
+        }
+        boolean completo = forzarCompleto || ultimaVista == null || deltasEnCadena >= politica.deltasPorCompleto();
+        long ts = Math.max(vista.timestamp(), ultimoTimestamp + 1);
+        String nombre = (completo ? "snapshot_" : "delta_") + ts + ".bin";
+        int bytes = codec.escribir(completo ? null : ultimaVista, vista, directorio.resolve(nombre));
+        EntradaSnapshot entrada = new EntradaSnapshot(completo, nombre, ts, vista.secuenciaDiario(), bytes);
+        indice.agregar(entrada);
+        ultimaVista = vista;
+        ultimoTimestamp = ts;
+        if (completo) {
+            deltasEnCadena = 0;
+            completos.increment();
+            aplicarRetencion();
+        } else {
+            deltasEnCadena++;
+            deltas.increment();
+        }
+        return entrada;
+    }
+
+    private static boolean sinCambios(VistaEstado a, VistaEstado b) {
+        return a.secuenciaDiario() == b.secuenciaDiario() && a.saldo() == b.saldo()
+                && a.saldoInicial() == b.saldoInicial() && a.rol() == b.rol()
+                && a.autorizados() == b.autorizados() && a.recetas() == b.recetas()
+                && a.posiciones().equals(b.posiciones());
+    }
+
+    private void aplicarRetencion() throws IOException {
+        List<EntradaSnapshot> entradas = indice.entradas();
+        List<Integer> inicios = new ArrayList<>();
+        for (int i = 0; i < entradas.size(); i++) {
+            if (entradas.get(i).completo()) {
+                inicios.add(i);
+            }
+        }
+        if (inicios.size() <= 1) {
+            return;
+        }
+        long limiteEdad = System.currentTimeMillis() - politica.edadMaximaMs();
+        // Primera cadena que se conserva: dentro del número máximo y no demasiado vieja
+        int primera = Math.max(0, inicios.size() - politica.cadenasRetenidas());
+        while (primera < inicios.size() - 1 && entradas.get(inicios.get(primera)).timestamp() < limiteEdad) {
+            primera++;
+        }
+        for (EntradaSnapshot quitada : indice.recortarAntesDe(inicios.get(primera))) {
+            Files.deleteIfExists(directorio.resolve(quitada.archivo()));
+        }
+        if (diario != null) {
+            diario.purgarHasta(entradas.get(inicios.get(primera)).secuenciaDiario());
+        }
+    }
+
+    // ========== CONSULTA Y CARGA ==========
+
+    /**
+     * Entradas del índice, de la más antigua a la más nueva (sin listar el directorio).
+     */
+    public List<EntradaSnapshot> entradas() {
+        return indice.entradas();
+    }
+
+    /**
+     * Reconstruye {@code destino} hasta la entrada indicada (su completo más los deltas intermedios).
+     */
+    public void restaurar(EntradaSnapshot hasta, EstadoCliente destino) throws SnapshotCorruptoException {
+        List<EntradaSnapshot> cadena = indice.cadenaHasta(hasta);
+        if (cadena.isEmpty()) {
+            throw new SnapshotCorruptoException("La entrada no tiene snapshot completo base: " + hasta.archivo());
+        }
+        List<Path> archivos = new ArrayList<>(cadena.size());
+        cadena.forEach(e -> archivos.add(directorio.resolve(e.archivo())));
+        CodecSnapshot.leerCadena(archivos, destino);
+    }
+
+    /**
+     * @return la entrada restaurada, o null si no hay snapshots
+     */
+    public EntradaSnapshot restaurarUltimo(EstadoCliente destino) throws SnapshotCorruptoException {
+        EntradaSnapshot ultima = indice.ultima();
+        if (ultima != null) {
+            restaurar(ultima, destino);
+        }
+        return ultima;
+    }
+
+    public long completos() {
+        return completos.sum();
+    }
+
+    public long deltas() {
+        return deltas.sum();
+    }
+
+    public long sinCambios() {
+        return sinCambios.sum();
+    }
+
+    public long errores() {
+        return errores.sum();
+    }
+}
@@ -0,0 +1,94 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ByteBuffer que crece según se escribe, con enteros en varint.
+ *
+ * Los enteros sin signo usan LEB128 (7 bits por byte); los que pueden ser
+ * negativos pasan antes por zigzag para que -1 ocupe un byte y no diez.
+ */
+final class SalidaBinaria {
+
+    private ByteBuffer buffer;
+
+    SalidaBinaria(int capacidadInicial) {
+        this.buffer = ByteBuffer.allocate(capacidadInicial).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    void limpiar() {
+        buffer.clear();
+    }
+
+    int posicion() {
+        return buffer.position();
+    }
+
+    /**
+     * Vista de lo escrito (de 0 a la posición actual), lista para escribir en un canal.
+     */
+    ByteBuffer escrito() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).flip();
+    }
+
+    void u8(int valor) {
+        asegurar(1);
+        buffer.put((byte) valor);
+    }
+
+    void i32(int valor) {
+        asegurar(4);
+        buffer.putInt(valor);
+    }
+
+    void i32En(int posicion, int valor) {
+        buffer.putInt(posicion, valor);
+    }
+
+    void i64(long valor) {
+        asegurar(8);
+        buffer.putLong(valor);
+    }
+
+    void f64(double valor) {
+        asegurar(8);
+        buffer.putDouble(valor);
+    }
+
+    void varint(long valor) {
+        asegurar(10);
+        while ((valor & ~0x7FL) != 0) {
+            buffer.put((byte) ((valor & 0x7F) | 0x80));
+            valor >>>= 7;
+        }
+        buffer.put((byte) valor);
+    }
+
+    void zigzag(long valor) {
+        varint((valor << 1) ^ (valor >> 63));
+    }
+
+    void texto(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        varint(bytes.length);
+        asegurar(bytes.length);
+        buffer.put(bytes);
+    }
+
+    void bytes(ByteBuffer origen) {
+        asegurar(origen.remaining());
+        buffer.put(origen);
+    }
+
+    private void asegurar(int n) {
+        if (buffer.remaining() < n) {
+            int nueva = Math.max(buffer.capacity() * 2, buffer.position() + n);
+            ByteBuffer mayor = ByteBuffer.allocate(nueva).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            mayor.put(buffer);
+            buffer = mayor;
+        }
+    }
+}
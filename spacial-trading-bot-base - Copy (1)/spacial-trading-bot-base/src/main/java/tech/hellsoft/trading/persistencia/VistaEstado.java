@@ -0,0 +1,65 @@
+package tech.hellsoft.trading.persistencia;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+/**
+ * Copia inmutable de {@link EstadoCliente} tomada entre dos eventos.
+ *
+ * Se captura sin bloquear a quien aplica eventos: se lee todo y, si la marca
+ * de eventos cambió mientras tanto, se vuelve a leer (como un seqlock). Las
+ * recetas, el rol y los autorizados se sustituyen enteros cuando cambian, así
+ * que se comparten por referencia y comparar referencias basta para saber si
+ * hay que incluirlos en un delta.
+ *
+ * @param posiciones por producto, en el orden de los ids del mercado
+ */
+public record VistaEstado(long timestamp, long secuenciaDiario, double saldo, double saldoInicial, Rol rol,
+        List<String> autorizados, Map<String, Receta> recetas, Map<String, Posicion> posiciones) {
+
+    // Un evento tarda microsegundos; si la marca no se asienta en este tiempo, el estado quedó a medias
+    static final long ESPERA_MAXIMA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * @throws IllegalStateException si no hubo un instante entre dos eventos en
+     *                               {@link #ESPERA_MAXIMA_NANOS} (un evento que
+     *                               no terminó, o uno detrás de otro sin pausa)
+     */
+    public static VistaEstado capturar(EstadoCliente estado) {
+        long limite = System.nanoTime() + ESPERA_MAXIMA_NANOS;
+        while (true) {
+            long marca = estado.marcaEventos();
+            if ((marca & 1L) == 0) {
+                VistaEstado v = leer(estado);
+                if (estado.marcaEventos() == marca) {
+                    return v;
+                }
+            }
+            if (System.nanoTime() - limite > 0) {
+                throw new IllegalStateException("No se pudo capturar el estado entre dos eventos (marca "
+                        + estado.marcaEventos() + ")");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static VistaEstado leer(EstadoCliente estado) {
+        Map<String, Posicion> posiciones = new LinkedHashMap<>();
+        for (Posicion p : estado.getMercado().posiciones()) {
+            posiciones.put(p.producto(), p);
+        }
+        List<String> autorizados = estado.getProductosAutorizados();
+        Map<String, Receta> recetas = estado.getRecetas();
+        return new VistaEstado(System.currentTimeMillis(), estado.getSecuenciaDiario(), estado.getSaldo(),
+                estado.getSaldoInicial(), estado.getRol(),
+                autorizados == null ? List.of() : autorizados,
+                recetas == null ? Map.of() : recetas,
+                posiciones);
+    }
+}
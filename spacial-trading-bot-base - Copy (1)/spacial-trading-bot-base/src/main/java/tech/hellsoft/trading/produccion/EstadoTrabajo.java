@@ -0,0 +1,18 @@
+package tech.hellsoft.trading.produccion;
+
+/**
+ * Ciclo de vida de un trabajo de producción: ESPERANDO (a sus dependencias)
+ * → LISTO (ingredientes reservados, en cola) → ENVIADO → COMPLETADO, o
+ * FALLIDO en cualquier punto.
+ */
+public enum EstadoTrabajo {
+    ESPERANDO,
+    LISTO,
+    ENVIADO,
+    COMPLETADO,
+    FALLIDO;
+
+    public boolean esFinal() {
+        return this == COMPLETADO || this == FALLIDO;
+    }
+}
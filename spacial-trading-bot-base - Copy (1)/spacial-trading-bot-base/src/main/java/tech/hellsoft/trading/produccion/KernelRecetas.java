@@ -0,0 +1,55 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.Arrays;
+
+/**
+ * Cálculo completo de {@link MatrizRecetas}: para cada receta {@code r},
+ * el mínimo de {@code inventario[k] / requerido[k * ancho + r]} sobre los
+ * ingredientes con requerido &gt; 0, nunca negativo;
+ * {@link MatrizRecetas#ILIMITADAS} si no usa ninguno.
+ */
+interface KernelRecetas {
+
+    KernelRecetas ESCALAR = (requerido, ancho, inventario, columnas, destino) -> {
+        Arrays.fill(destino, 0, ancho, MatrizRecetas.ILIMITADAS);
+        for (int k = 0; k < columnas; k++) {
+            int disponible = inventario[k];
+            int base = k * ancho;
+            for (int r = 0; r < ancho; r++) {
+                int req = requerido[base + r];
+                if (req > 0) {
+                    destino[r] = Math.min(destino[r], disponible / req);
+                }
+            }
+        }
+        for (int r = 0; r < ancho; r++) {
+            destino[r] = Math.max(0, destino[r]);
+        }
+    };
+
+    /**
+     * @param ancho    recetas por fila, múltiplo de 16
+     * @param columnas filas de la matriz (ingredientes)
+     * @param destino  al menos {@code ancho} posiciones
+     */
+    void maximas(int[] requerido, int ancho, int[] inventario, int columnas, int[] destino);
+
+    /**
+     * El vectorial solo si el módulo incubador se cargó
+     * ({@code --add-modules jdk.incubator.vector}); si no, ni se carga su clase.
+     * Vive en src/vector/java, que se compila aparte con el módulo, así que se
+     * busca por nombre.
+     */
+    static KernelRecetas elegir() {
+        if (!Boolean.parseBoolean(System.getProperty("trading.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return ESCALAR;
+        }
+        try {
+            return (KernelRecetas) Class.forName("tech.hellsoft.trading.produccion.KernelVectorRecetas")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ESCALAR;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.util.CalculadoraProduccion;
+
+/**
+ * Lista de materiales de varios niveles: las recetas como grafo
+ * ingrediente → producto, ordenado topológicamente, con el costo por unidad
+ * de cada producto a toda profundidad.
+ *
+ * El costo de un producto es lo más barato entre comprarlo (ask, o mid si no
+ * hay ask) y producirlo. Producir sigue el modelo de
+ * {@link PlanificadorProduccion}: sin ingredientes es básico y no cuesta nada;
+ * con ingredientes es premium y cuesta lo que cuestan sus ingredientes (cada
+ * uno a su vez comprado o producido) repartido entre las unidades premium del
+ * rol. Solo se producen los productos autorizados.
+ *
+ * Los costos se calculan recursivamente al pedirlos y quedan memorizados.
+ * Cuando cambia el precio de un producto solo se invalidan él y los productos
+ * que lo usan, directa o indirectamente; como un costo válido implica que sus
+ * ingredientes también lo son, la invalidación se corta en el primer nodo que
+ * ya estaba inválido. Así decidir entre fabricar o comprar es una consulta y no
+ * una búsqueda en cada tick.
+ *
+ * Si las recetas tienen un ciclo, los productos del ciclo y los que dependen
+ * de él solo se compran.
+ */
+public final class ListaMateriales {
+
+    /**
+     * Costo por unidad de un producto y cómo conseguirlo.
+     *
+     * @param costoCompra     infinito si no hay precio
+     * @param costoProduccion infinito si no se puede producir
+     */
+    public record Decision(String producto, double costo, boolean producir, double costoCompra,
+            double costoProduccion) {
+
+        public boolean disponible() {
+            return costo < Double.POSITIVE_INFINITY;
+        }
+    }
+
+    private final EstadoMercado mercado;
+
+    private final String[] productos;
+    private final Map<String, Integer> indice = new HashMap<>();
+    // Nodos ordenados de modo que cada ingrediente va antes de quien lo usa
+    private final int[] orden;
+    private final int[] profundidad;
+    private final List<String> enCiclo = new ArrayList<>();
+
+    // Por nodo: ingredientes de una corrida (vacío = básico) y quién lo usa
+    private final int[][] ingredientes;
+    private final int[][] cantidades;
+    private final int[][] consumidores;
+    // Unidades por corrida; 0 = no se produce
+    private final int[] unidades;
+
+    // Memoria de costos; solo se tocan con el monitor tomado
+    private final boolean[] valido;
+    private final double[] costo;
+    private final double[] compra;
+    private final double[] produccion;
+    private long evaluaciones;
+    private long invalidaciones;
+
+    /**
+     * @param autorizados productos que el rol puede producir; vacío o null = todos
+     */
+    public ListaMateriales(Map<String, Receta> recetas, Rol rol, Collection<String> autorizados,
+            EstadoMercado mercado) {
+        this.mercado = mercado;
+        Map<String, Receta> fuente = recetas == null ? Map.of() : recetas;
+
+        // Nodos: productos con receta e ingredientes sin ella
+        List<String> nombres = new ArrayList<>();
+        for (Map.Entry<String, Receta> e : fuente.entrySet()) {
+            agregar(nombres, e.getKey());
+            if (e.getValue() != null) {
+                e.getValue().ingredientes().keySet().forEach(i -> agregar(nombres, i));
+            }
+        }
+        int n = nombres.size();
+        this.productos = nombres.toArray(new String[0]);
+        this.ingredientes = new int[n][];
+        this.cantidades = new int[n][];
+        this.unidades = new int[n];
+
+        int base = rol == null ? 0 : CalculadoraProduccion.calcularUnidades(rol);
+        int premium = CalculadoraProduccion.aplicarBonusPremium(base, PlanificadorProduccion.BONUS_PREMIUM);
+        for (int i = 0; i < n; i++) {
+            Receta receta = fuente.get(productos[i]);
+            boolean propio = autorizados == null || autorizados.isEmpty() || autorizados.contains(productos[i]);
+            if (receta == null || !propio || base <= 0 || !valida(receta)) {
+                ingredientes[i] = new int[0];
+                cantidades[i] = new int[0];
+                continue;
+            }
+            Map<String, Integer> req = receta.ingredientes();
+            ingredientes[i] = new int[req.size()];
+            cantidades[i] = new int[req.size()];
+            int k = 0;
+            for (Map.Entry<String, Integer> e : req.entrySet()) {
+                ingredientes[i][k] = indice.get(e.getKey());
+                cantidades[i][k++] = e.getValue();
+            }
+            unidades[i] = req.isEmpty() ? base : premium;
+        }
+
+        this.orden = new int[n];
+        this.profundidad = new int[n];
+        ordenar();
+        this.consumidores = invertir();
+
+        this.valido = new boolean[n];
+        this.costo = new double[n];
+        this.compra = new double[n];
+        this.produccion = new double[n];
+    }
+
+    private void agregar(List<String> nombres, String producto) {
+        if (!indice.containsKey(producto)) {
+            indice.put(producto, nombres.size());
+            nombres.add(producto);
+        }
+    }
+
+    private static boolean valida(Receta receta) {
+        for (Integer q : receta.ingredientes().values()) {
+            if (q == null || q < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Kahn: primero los nodos sin ingredientes. Lo que queda sin ordenar está
+     * en un ciclo (o depende de uno) y pasa a ser solo de compra.
+     */
+    private void ordenar() {
+        int n = productos.length;
+        int[] pendientes = new int[n];
+        List<List<Integer>> usos = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            usos.add(new ArrayList<>());
+        }
+        for (int i = 0; i < n; i++) {
+            for (int ing : ingredientes[i]) {
+                pendientes[i]++;
+                usos.get(ing).add(i);
+            }
+        }
+        ArrayDeque<Integer> cola = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            if (pendientes[i] == 0) {
+                cola.add(i);
+            }
+        }
+        int k = 0;
+        boolean[] ordenado = new boolean[n];
+        while (!cola.isEmpty()) {
+            int i = cola.poll();
+            orden[k++] = i;
+            ordenado[i] = true;
+            for (int uso : usos.get(i)) {
+                profundidad[uso] = Math.max(profundidad[uso], profundidad[i] + 1);
+                if (--pendientes[uso] == 0) {
+                    cola.add(uso);
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            if (!ordenado[i]) {
+                enCiclo.add(productos[i]);
+                ingredientes[i] = new int[0];
+                cantidades[i] = new int[0];
+                unidades[i] = 0;
+                profundidad[i] = 0;
+                orden[k++] = i;
+            }
+        }
+    }
+
+    private int[][] invertir() {
+        int n = productos.length;
+        int[] grado = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int ing : ingredientes[i]) {
+                grado[ing]++;
+            }
+        }
+        int[][] inversa = new int[n][];
+        for (int i = 0; i < n; i++) {
+            inversa[i] = new int[grado[i]];
+        }
+        int[] lleno = new int[n];
+        for (int i = 0; i < n; i++) {
+            for (int ing : ingredientes[i]) {
+                inversa[ing][lleno[ing]++] = i;
+            }
+        }
+        return inversa;
+    }
+
+    // ========== INVALIDACIÓN ==========
+
+    /**
+     * Cambió el precio de {@code producto}: invalida su costo y el de todo lo
+     * que lo usa. Barato si ya estaba inválido.
+     */
+    public synchronized void precioCambio(String producto) {
+        Integer i = indice.get(producto);
+        if (i != null) {
+            invalidar(i);
+        }
+    }
+
+    private void invalidar(int i) {
+        if (!valido[i]) {
+            return;
+        }
+        valido[i] = false;
+        invalidaciones++;
+        for (int c : consumidores[i]) {
+            invalidar(c);
+        }
+    }
+
+    /**
+     * Olvida todos los costos (p. ej. al cargar precios de un snapshot).
+     */
+    public synchronized void invalidarTodo() {
+        Arrays.fill(valido, false);
+    }
+
+    // ========== CONSULTAS ==========
+
+    /**
+     * Costo por unidad a toda profundidad; infinito si no se puede conseguir,
+     * NaN si el producto no aparece en ninguna receta.
+     */
+    public synchronized double costo(String producto) {
+        Integer i = indice.get(producto);
+        return i == null ? Double.NaN : evaluar(i);
+    }
+
+    /**
+     * null si el producto no aparece en ninguna receta.
+     */
+    public synchronized Decision decision(String producto) {
+        Integer i = indice.get(producto);
+        if (i == null) {
+            return null;
+        }
+        evaluar(i);
+        return decision(i);
+    }
+
+    private Decision decision(int i) {
+        return new Decision(productos[i], costo[i], produccion[i] < compra[i], compra[i], produccion[i]);
+    }
+
+    /**
+     * Decisiones de todos los productos, ingredientes primero.
+     */
+    public synchronized List<Decision> decisiones() {
+        List<Decision> lista = new ArrayList<>(orden.length);
+        for (int i : orden) {
+            evaluar(i);
+            lista.add(decision(i));
+        }
+        return lista;
+    }
+
+    private double evaluar(int i) {
+        if (valido[i]) {
+            return costo[i];
+        }
+        double c = precioCompra(i);
+        double p = Double.POSITIVE_INFINITY;
+        if (unidades[i] > 0) {
+            double suma = 0.0;
+            for (int k = 0; k < ingredientes[i].length; k++) {
+                suma += cantidades[i][k] * evaluar(ingredientes[i][k]);
+            }
+            p = suma / unidades[i];
+        }
+        compra[i] = c;
+        produccion[i] = p;
+        costo[i] = Math.min(c, p);
+        valido[i] = true;
+        evaluaciones++;
+        return costo[i];
+    }
+
+    private double precioCompra(int i) {
+        Posicion p = mercado.posicion(productos[i]);
+        if (p == null || !p.tienePrecio()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return p.ask() > 0.0 ? p.ask() : p.mid();
+    }
+
+    /**
+     * Explosión completa: qué comprar y cuántas corridas hacer de cada
+     * producto para conseguir {@code cantidad} unidades, siguiendo en cada
+     * nivel la decisión más barata.
+     *
+     * @return producto → unidades a comprar (positivas) y, con clave
+     *         {@code "producir:<producto>"}, corridas a producir
+     */
+    public synchronized Map<String, Integer> explotar(String producto, int cantidad) {
+        Integer i = indice.get(producto);
+        if (i == null || cantidad <= 0) {
+            return Map.of();
+        }
+        Map<String, Integer> necesidad = new HashMap<>();
+        necesidad.put(productos[i], cantidad);
+        Map<String, Integer> resultado = new LinkedHashMap<>();
+        // Del producto final hacia los ingredientes: orden topológico al revés
+        for (int k = orden.length - 1; k >= 0; k--) {
+            int n = orden[k];
+            Integer falta = necesidad.get(productos[n]);
+            if (falta == null) {
+                continue;
+            }
+            evaluar(n);
+            if (produccion[n] < compra[n]) {
+                int corridas = (falta + unidades[n] - 1) / unidades[n];
+                resultado.merge("producir:" + productos[n], corridas, Integer::sum);
+                for (int j = 0; j < ingredientes[n].length; j++) {
+                    necesidad.merge(productos[ingredientes[n][j]], cantidades[n][j] * corridas, Integer::sum);
+                }
+            } else {
+                resultado.merge(productos[n], falta, Integer::sum);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Producto → niveles de recetas por debajo (0 = sin ingredientes), ordenado por nombre.
+     */
+    public Map<String, Integer> profundidades() {
+        Map<String, Integer> mapa = new TreeMap<>();
+        for (int i = 0; i < productos.length; i++) {
+            mapa.put(productos[i], profundidad[i]);
+        }
+        return mapa;
+    }
+
+    /**
+     * Productos que quedaron solo de compra por un ciclo en las recetas.
+     */
+    public List<String> enCiclo() {
+        return List.copyOf(enCiclo);
+    }
+
+    public int cantidadProductos() {
+        return productos.length;
+    }
+
+    /**
+     * Costos calculados desde que se creó; sirve para ver cuánto ahorra la memoria.
+     */
+    public synchronized long evaluaciones() {
+        return evaluaciones;
+    }
+
+    public synchronized long invalidaciones() {
+        return invalidaciones;
+    }
+}
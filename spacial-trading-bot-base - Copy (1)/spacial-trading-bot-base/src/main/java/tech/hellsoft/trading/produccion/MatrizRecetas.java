@@ -0,0 +1,268 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.modelo.Receta;
+
+/**
+ * Recetas compiladas a una matriz densa de enteros para saber, en todo
+ * momento, cuántas corridas de cada receta alcanzan con el inventario.
+ *
+ * Las columnas son los ingredientes que usa alguna receta (con su id de
+ * {@link EstadoMercado}) y las filas de la matriz van por ingrediente: la fila
+ * {@code k} tiene lo que pide cada receta de ese ingrediente, 0 si no lo usa.
+ * Así el cálculo completo es, ingrediente por ingrediente, un mínimo de
+ * {@code inventario / requerido} sobre un bloque contiguo de recetas, que se
+ * hace con la Vector API cuando el módulo {@code jdk.incubator.vector} está
+ * cargado y con un bucle escalar si no.
+ *
+ * Cuando cambia el inventario de un solo producto no se recalcula todo: un
+ * índice ingrediente → recetas dice qué recetas lo usan y solo esas se
+ * vuelven a evaluar.
+ *
+ * Las recetas sin ingredientes (básicas) dan {@link #ILIMITADAS}; las que
+ * piden una cantidad negativa se consideran corruptas y dan 0, igual que en
+ * {@code RecetaValidator}. Las escrituras se sincronizan; las lecturas no
+ * bloquean y pueden ver el valor anterior de una receta que se está
+ * actualizando.
+ */
+public final class MatrizRecetas {
+
+    /**
+     * Corridas de una receta sin ingredientes.
+     */
+    public static final int ILIMITADAS = Integer.MAX_VALUE;
+
+    // Múltiplo de cualquier cantidad de carriles int (4, 8 o 16) para que el
+    // kernel vectorial no necesite cola escalar
+    private static final int RELLENO = 16;
+
+    private static final KernelRecetas KERNEL = KernelRecetas.elegir();
+
+    private final KernelRecetas kernel;
+
+    // Recetas: producto → índice de fila
+    private final String[] productos;
+    private final Map<String, Integer> indice = new HashMap<>();
+    private final boolean[] corruptas;
+
+    // Ingredientes usados: columna → id de mercado, e id de mercado → columna (-1 si no se usa)
+    private final int[] idsColumna;
+    private final int[] columnaDeId;
+
+    // requerido[k * ancho + r]: unidades del ingrediente k por corrida de la receta r
+    private final int ancho;
+    private final int[] requerido;
+
+    // Por receta (CSR): sus columnas y cantidades, para recalcular una sola
+    private final int[] inicioReceta;
+    private final int[] columnasReceta;
+    private final int[] cantidadesReceta;
+
+    // Por ingrediente (CSR): recetas que lo usan
+    private final int[] inicioColumna;
+    private final int[] recetasColumna;
+
+    private final int[] inventario;
+    private final int[] calculo;
+    private volatile int[] maximas;
+
+    private MatrizRecetas(Map<String, Receta> recetas, EstadoMercado mercado, KernelRecetas kernel) {
+        this.kernel = kernel;
+        int n = recetas.size();
+        this.productos = new String[n];
+        this.corruptas = new boolean[n];
+        this.ancho = Math.max(RELLENO, (n + RELLENO - 1) / RELLENO * RELLENO);
+
+        // Primera pasada: filas, columnas y cuántas entradas tiene cada cosa
+        Map<Integer, Integer> columnas = new LinkedHashMap<>();
+        List<int[]> entradas = new ArrayList<>();
+        int r = 0;
+        for (Map.Entry<String, Receta> e : recetas.entrySet()) {
+            productos[r] = e.getKey();
+            indice.put(e.getKey(), r);
+            Map<String, Integer> ingredientes = e.getValue() == null ? Map.of() : e.getValue().ingredientes();
+            for (Map.Entry<String, Integer> ing : ingredientes.entrySet()) {
+                int cantidad = ing.getValue() == null ? 0 : ing.getValue();
+                if (cantidad < 0) {
+                    corruptas[r] = true;
+                    continue;
+                }
+                if (cantidad == 0) {
+                    continue;
+                }
+                // Se registra el ingrediente aunque aún no haya llegado nada de él,
+                // para que su primer inventario ya tenga columna
+                int id = mercado.idDe(ing.getKey());
+                Integer k = columnas.get(id);
+                if (k == null) {
+                    k = columnas.size();
+                    columnas.put(id, k);
+                }
+                entradas.add(new int[] {r, k, cantidad});
+            }
+            r++;
+        }
+
+        int m = columnas.size();
+        this.idsColumna = new int[m];
+        int maxId = -1;
+        for (Map.Entry<Integer, Integer> c : columnas.entrySet()) {
+            idsColumna[c.getValue()] = c.getKey();
+            maxId = Math.max(maxId, c.getKey());
+        }
+        this.columnaDeId = new int[maxId + 1];
+        Arrays.fill(columnaDeId, -1);
+        for (int k = 0; k < m; k++) {
+            columnaDeId[idsColumna[k]] = k;
+        }
+
+        this.requerido = new int[m * ancho];
+        this.inicioReceta = new int[n + 1];
+        this.inicioColumna = new int[m + 1];
+        for (int[] x : entradas) {
+            inicioReceta[x[0] + 1]++;
+            inicioColumna[x[1] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inicioReceta[i + 1] += inicioReceta[i];
+        }
+        for (int k = 0; k < m; k++) {
+            inicioColumna[k + 1] += inicioColumna[k];
+        }
+        this.columnasReceta = new int[entradas.size()];
+        this.cantidadesReceta = new int[entradas.size()];
+        this.recetasColumna = new int[entradas.size()];
+        int[] llenoReceta = Arrays.copyOf(inicioReceta, n);
+        int[] llenoColumna = Arrays.copyOf(inicioColumna, m);
+        for (int[] x : entradas) {
+            int receta = x[0];
+            int k = x[1];
+            // Las corruptas quedan con 0 en la matriz y se fuerzan a 0 después
+            if (!corruptas[receta]) {
+                requerido[k * ancho + receta] = x[2];
+            }
+            columnasReceta[llenoReceta[receta]] = k;
+            cantidadesReceta[llenoReceta[receta]++] = x[2];
+            recetasColumna[llenoColumna[k]++] = receta;
+        }
+
+        this.inventario = new int[m];
+        this.calculo = new int[ancho];
+        this.maximas = new int[n];
+    }
+
+    /**
+     * Compila las recetas contra los ids de {@code mercado} y calcula las
+     * corridas con su inventario actual. Usa el kernel vectorial si está disponible.
+     */
+    public static MatrizRecetas compilar(Map<String, Receta> recetas, EstadoMercado mercado) {
+        return compilar(recetas, mercado, true);
+    }
+
+    /**
+     * @param vectorizar false para forzar el kernel escalar (comparaciones, benchmarks)
+     */
+    public static MatrizRecetas compilar(Map<String, Receta> recetas, EstadoMercado mercado, boolean vectorizar) {
+        MatrizRecetas matriz = new MatrizRecetas(recetas == null ? Map.of() : recetas, mercado,
+                vectorizar ? KERNEL : KernelRecetas.ESCALAR);
+        matriz.recalcular(mercado);
+        return matriz;
+    }
+
+    /**
+     * Relee el inventario de todos los ingredientes y recalcula todas las recetas
+     * en una pasada.
+     */
+    public synchronized void recalcular(EstadoMercado mercado) {
+        for (int k = 0; k < idsColumna.length; k++) {
+            inventario[k] = mercado.cantidad(idsColumna[k]);
+        }
+        kernel.maximas(requerido, ancho, inventario, idsColumna.length, calculo);
+        int[] nuevas = Arrays.copyOf(calculo, productos.length);
+        for (int r = 0; r < nuevas.length; r++) {
+            if (corruptas[r]) {
+                nuevas[r] = 0;
+            }
+        }
+        maximas = nuevas;
+    }
+
+    /**
+     * Nuevo inventario de un producto (por id de mercado): recalcula solo las
+     * recetas que lo usan. No hace nada si ninguna lo usa o si no cambió.
+     */
+    public synchronized void actualizar(int idProducto, int cantidad) {
+        if (idProducto < 0 || idProducto >= columnaDeId.length) {
+            return;
+        }
+        int k = columnaDeId[idProducto];
+        if (k < 0 || inventario[k] == cantidad) {
+            return;
+        }
+        inventario[k] = cantidad;
+        int[] m = maximas;
+        for (int i = inicioColumna[k]; i < inicioColumna[k + 1]; i++) {
+            int r = recetasColumna[i];
+            if (!corruptas[r]) {
+                m[r] = corridas(r);
+            }
+        }
+    }
+
+    private int corridas(int r) {
+        int minimo = ILIMITADAS;
+        for (int i = inicioReceta[r]; i < inicioReceta[r + 1]; i++) {
+            minimo = Math.min(minimo, inventario[columnasReceta[i]] / cantidadesReceta[i]);
+        }
+        return Math.max(0, minimo);
+    }
+
+    /**
+     * Corridas de la receta de {@code producto} que alcanzan ahora; 0 si no hay
+     * receta, {@link #ILIMITADAS} si no lleva ingredientes.
+     */
+    public int maximo(String producto) {
+        Integer r = indice.get(producto);
+        return r == null ? 0 : maximas[r];
+    }
+
+    public boolean puedeProducir(String producto) {
+        return maximo(producto) > 0;
+    }
+
+    /**
+     * Recetas con al menos una corrida posible, ordenadas por producto.
+     */
+    public Map<String, Integer> producibles() {
+        int[] m = maximas;
+        Map<String, Integer> resultado = new TreeMap<>();
+        for (int r = 0; r < productos.length; r++) {
+            if (m[r] > 0) {
+                resultado.put(productos[r], m[r]);
+            }
+        }
+        return resultado;
+    }
+
+    public int cantidadRecetas() {
+        return productos.length;
+    }
+
+    public int cantidadIngredientes() {
+        return idsColumna.length;
+    }
+
+    /**
+     * true si el cálculo completo usa la Vector API.
+     */
+    public boolean vectorizada() {
+        return kernel != KernelRecetas.ESCALAR;
+    }
+}
@@ -0,0 +1,29 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resultado del planificador: qué producir, qué comprar y cuánto se espera ganar.
+ *
+ * @param ganancia cambio estimado del patrimonio, valorando a bid lo que queda y a ask lo que se compra
+ * @param optimo false si el presupuesto de tiempo cortó la búsqueda antes de probar el óptimo
+ * @param nodos nodos explorados por el branch-and-bound
+ */
+public record PlanProduccion(List<Accion> acciones, Map<String, Integer> compras, double costoCompras,
+        double ganancia, boolean optimo, int nodos, long nanos) {
+
+    public static PlanProduccion vacio() {
+        return new PlanProduccion(List.of(), Map.of(), 0.0, 0.0, true, 0, 0L);
+    }
+
+    public boolean estaVacio() {
+        return acciones.isEmpty();
+    }
+
+    /**
+     * @param unidades total producido por todas las corridas
+     */
+    public record Accion(String producto, boolean premium, int corridas, int unidades) {
+    }
+}
@@ -0,0 +1,563 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Posicion;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.util.CalculadoraProduccion;
+
+/**
+ * Elige cuántas corridas de cada receta hacer (y qué ingredientes comprar)
+ * para maximizar la ganancia con el inventario, los precios y el saldo actuales.
+ *
+ * Modelo: una corrida de un producto sin ingredientes es básica y da las
+ * unidades del rol; con ingredientes es premium, los consume y aplica el
+ * bonus. Lo producido puede servir de ingrediente a otra receta. Cada producto
+ * se valora por su cambio neto: lo que sobra vale su bid y lo que falta se
+ * compra a su ask (si no hay ask, no se puede comprar). Se limita el total de
+ * corridas por plan y el dinero gastado en compras.
+ *
+ * El problema es entero; se resuelve con una solución voraz como cota
+ * inicial y un branch-and-bound en profundidad que se corta al agotar el
+ * presupuesto de tiempo, devolviendo la mejor solución hallada.
+ *
+ * Para replanificar, los precios e inventario se actualizan entrada a entrada;
+ * si el cambio no toca ningún producto de las recetas se devuelve el plan
+ * anterior sin buscar, y si lo toca la búsqueda arranca con el plan anterior
+ * como cota. Las entradas llegan desde el hilo de eventos y los planes se
+ * piden desde la consola, así que los métodos públicos se sincronizan.
+ */
+public final class PlanificadorProduccion {
+
+    public static final double BONUS_PREMIUM = 1.3;
+    public static final long PRESUPUESTO_POR_DEFECTO_NANOS = 2_000_000L;
+    public static final int CORRIDAS_POR_DEFECTO = 10;
+
+    private static final int NODOS_ENTRE_RELOJ = 256;
+
+    private final long presupuestoNanos;
+    private int maxCorridas;
+
+    // Productos que aparecen en las recetas (salidas e ingredientes), con índice local
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final String[] productos;
+    private final double[] bid;
+    private final double[] ask;
+    private final int[] inventario;
+    private double saldo;
+
+    // Candidatos: una receta por producto autorizado
+    private final Candidato[] candidatos;
+
+    private PlanProduccion ultimo;
+    private int[] ultimaSolucion;
+    private boolean sucio = true;
+
+    /**
+     * @param autorizados productos que el rol puede producir; vacío = todas las recetas
+     * @param maxCorridas corridas totales que puede tener un plan
+     */
+    public PlanificadorProduccion(Rol rol, Map<String, Receta> recetas, Collection<String> autorizados,
+            int maxCorridas, long presupuestoNanos) {
+        if (maxCorridas <= 0 || presupuestoNanos <= 0) {
+            throw new IllegalArgumentException("maxCorridas y presupuesto deben ser positivos");
+        }
+        this.maxCorridas = maxCorridas;
+        this.presupuestoNanos = presupuestoNanos;
+
+        int unidadesBase = rol == null ? 0 : CalculadoraProduccion.calcularUnidades(rol);
+        List<Candidato> lista = new ArrayList<>();
+        for (Map.Entry<String, Receta> e : recetas.entrySet()) {
+            if (autorizados != null && !autorizados.isEmpty() && !autorizados.contains(e.getKey())) {
+                continue;
+            }
+            Map<String, Integer> ingredientes = e.getValue() == null ? Map.of() : e.getValue().ingredientes();
+            boolean premium = !ingredientes.isEmpty();
+            int unidades = premium
+                    ? CalculadoraProduccion.aplicarBonusPremium(unidadesBase, BONUS_PREMIUM)
+                    : unidadesBase;
+            if (unidades <= 0) {
+                continue;
+            }
+            int salida = indice(e.getKey());
+            int[] ing = new int[ingredientes.size()];
+            int[] cant = new int[ingredientes.size()];
+            int k = 0;
+            for (Map.Entry<String, Integer> i : ingredientes.entrySet()) {
+                ing[k] = indice(i.getKey());
+                cant[k] = Math.max(0, i.getValue());
+                k++;
+            }
+            lista.add(new Candidato(lista.size(), e.getKey(), premium, salida, unidades, ing, cant));
+        }
+        this.candidatos = lista.toArray(new Candidato[0]);
+        int n = indices.size();
+        this.productos = new String[n];
+        indices.forEach((p, i) -> productos[i] = p);
+        this.bid = new double[n];
+        this.ask = new double[n];
+        Arrays.fill(ask, Double.POSITIVE_INFINITY);
+        this.inventario = new int[n];
+    }
+
+    public PlanificadorProduccion(Rol rol, Map<String, Receta> recetas, Collection<String> autorizados,
+            int maxCorridas) {
+        this(rol, recetas, autorizados, maxCorridas, PRESUPUESTO_POR_DEFECTO_NANOS);
+    }
+
+    private int indice(String producto) {
+        return indices.computeIfAbsent(producto, p -> indices.size());
+    }
+
+    // ========== ENTRADAS ==========
+
+    /**
+     * Carga precios e inventario de todos los productos de las recetas.
+     */
+    public synchronized void cargar(EstadoMercado mercado, double saldoDisponible) {
+        cargar(mercado);
+        actualizarSaldo(saldoDisponible);
+    }
+
+    /**
+     * Carga precios e inventario sin tocar el saldo (p. ej. tras un snapshot).
+     */
+    public synchronized void cargar(EstadoMercado mercado) {
+        for (int j = 0; j < productos.length; j++) {
+            Posicion p = mercado.posicion(productos[j]);
+            if (p == null) {
+                fijar(j, 0.0, 0.0, 0);
+            } else {
+                fijar(j, p.bid(), p.ask(), p.cantidad());
+            }
+        }
+        sucio = true;
+    }
+
+    /**
+     * @return true si el producto afecta al plan y su precio cambió
+     */
+    public synchronized boolean actualizarPrecio(String producto, double nuevoBid, double nuevoAsk) {
+        Integer j = indices.get(producto);
+        if (j == null) {
+            return false;
+        }
+        double bidAntes = bid[j];
+        double askAntes = ask[j];
+        fijar(j, nuevoBid, nuevoAsk, inventario[j]);
+        if (bid[j] == bidAntes && ask[j] == askAntes) {
+            return false;
+        }
+        sucio = true;
+        return true;
+    }
+
+    public synchronized boolean actualizarInventario(String producto, int cantidad) {
+        Integer j = indices.get(producto);
+        if (j == null || inventario[j] == cantidad) {
+            return false;
+        }
+        inventario[j] = cantidad;
+        sucio = true;
+        return true;
+    }
+
+    public synchronized void actualizarSaldo(double saldoDisponible) {
+        if (saldoDisponible != saldo) {
+            saldo = Math.max(0.0, saldoDisponible);
+            sucio = true;
+        }
+    }
+
+    /**
+     * Cambia el tope de corridas por plan; el plan anterior deja de servir de
+     * cota porque puede pasarse del nuevo tope.
+     */
+    public synchronized void setMaxCorridas(int maxCorridas) {
+        if (maxCorridas <= 0) {
+            throw new IllegalArgumentException("maxCorridas debe ser positivo");
+        }
+        if (maxCorridas != this.maxCorridas) {
+            this.maxCorridas = maxCorridas;
+            ultimaSolucion = null;
+            sucio = true;
+        }
+    }
+
+    private void fijar(int j, double b, double a, int cantidad) {
+        // Sin bid no se valora la venta; sin ask no se puede comprar
+        double mid = (b > 0 && a > 0) ? (b + a) / 2.0 : Math.max(b, a);
+        bid[j] = b > 0 ? b : mid;
+        ask[j] = a > 0 ? a : (mid > 0 ? mid : Double.POSITIVE_INFINITY);
+        inventario[j] = cantidad;
+    }
+
+    // ========== PLANIFICACIÓN ==========
+
+    /**
+     * Devuelve el plan para los datos actuales; si nada cambió desde el último, el mismo plan.
+     */
+    public synchronized PlanProduccion planificar() {
+        if (!sucio && ultimo != null) {
+            return ultimo;
+        }
+        Busqueda b = new Busqueda();
+        b.resolver(ultimaSolucion);
+        ultimaSolucion = b.mejor;
+        ultimo = b.aPlan();
+        sucio = false;
+        return ultimo;
+    }
+
+    public synchronized PlanProduccion getUltimo() {
+        return ultimo;
+    }
+
+    /**
+     * Una búsqueda con su propio estado de trabajo; corre con el planificador bloqueado.
+     */
+    private final class Busqueda {
+        private final long inicio = System.nanoTime();
+        private final long limite = inicio + presupuestoNanos;
+        private final Candidato[] orden;
+        // Cota superior de la ganancia de una corrida de orden[k] y máximo desde k
+        private final double[] cotaDesde;
+        // Lo más que puede aportar una unidad de cada producto
+        private final double[] valorMaximo = new double[productos.length];
+
+        // Cambio neto por producto y corridas por candidato de la rama actual
+        private final int[] delta = new int[productos.length];
+        private final int[] corridas;
+        private double ganancia;
+        private double gasto;
+        private int usadas;
+
+        private int[] mejor;
+        private double mejorGanancia;
+        private int nodos;
+        private boolean cortada;
+
+        Busqueda() {
+            valorarProductos();
+            for (Candidato c : candidatos) {
+                c.cota = cotaCorrida(c);
+            }
+            orden = ordenTopologico();
+            cotaDesde = new double[orden.length + 1];
+            for (int k = orden.length - 1; k >= 0; k--) {
+                cotaDesde[k] = Math.max(cotaDesde[k + 1], Math.max(0.0, orden[k].cota));
+            }
+            corridas = new int[orden.length];
+            mejor = new int[candidatos.length];
+        }
+
+        void resolver(int[] previa) {
+            voraz();
+            if (previa != null && previa.length == candidatos.length) {
+                // El plan anterior sirve de cota si sigue siendo factible y mejor
+                probarSolucion(previa);
+            }
+            ramificar(0);
+        }
+
+        private void voraz() {
+            while (usadas < maxCorridas) {
+                int elegido = -1;
+                double mejorMargen = 0.0;
+                for (int k = 0; k < orden.length; k++) {
+                    double m = aplicar(orden[k], 1);
+                    if (!Double.isNaN(m)) {
+                        if (m > mejorMargen) {
+                            mejorMargen = m;
+                            elegido = k;
+                        }
+                        aplicar(orden[k], -1);
+                    }
+                }
+                if (elegido < 0) {
+                    break;
+                }
+                aplicar(orden[elegido], 1);
+                corridas[elegido]++;
+            }
+            registrarSiMejor();
+            for (int k = 0; k < orden.length; k++) {
+                if (corridas[k] > 0) {
+                    aplicar(orden[k], -corridas[k]);
+                    corridas[k] = 0;
+                }
+            }
+        }
+
+        private void probarSolucion(int[] solucion) {
+            boolean factible = true;
+            for (int k = 0; k < orden.length && factible; k++) {
+                int x = solucion[orden[k].posicion];
+                if (x > 0) {
+                    factible = !Double.isNaN(aplicar(orden[k], x));
+                    if (factible) {
+                        corridas[k] = x;
+                    }
+                }
+            }
+            if (factible) {
+                registrarSiMejor();
+            }
+            for (int k = 0; k < orden.length; k++) {
+                if (corridas[k] > 0) {
+                    aplicar(orden[k], -corridas[k]);
+                    corridas[k] = 0;
+                }
+            }
+        }
+
+        private void ramificar(int k) {
+            if (cortada) {
+                return;
+            }
+            if (++nodos % NODOS_ENTRE_RELOJ == 0 && System.nanoTime() - limite > 0) {
+                cortada = true;
+                return;
+            }
+            if (k == orden.length || usadas == maxCorridas) {
+                registrarSiMejor();
+                return;
+            }
+            if (ganancia + (maxCorridas - usadas) * cotaDesde[k] <= mejorGanancia + 1e-9) {
+                return;
+            }
+            Candidato c = orden[k];
+            // Sube hasta el máximo factible y luego prueba de más a menos corridas
+            int x = 0;
+            while (usadas < maxCorridas && c.cota > 0 && !Double.isNaN(aplicar(c, 1))) {
+                x++;
+            }
+            corridas[k] = x;
+            while (true) {
+                ramificar(k + 1);
+                if (x == 0 || cortada) {
+                    break;
+                }
+                aplicar(c, -1);
+                corridas[k] = --x;
+            }
+            if (x > 0) {
+                aplicar(c, -x);
+                corridas[k] = 0;
+            }
+        }
+
+        /**
+         * Suma (o resta) corridas del candidato a la rama actual.
+         *
+         * @return la ganancia marginal, o NaN si deja la rama infactible (sin aplicar nada)
+         */
+        private double aplicar(Candidato c, int veces) {
+            double antes = ganancia;
+            double gastoAntes = gasto;
+            double g = cambiar(c.salida, c.unidades * veces);
+            for (int i = 0; i < c.ingredientes.length; i++) {
+                g += cambiar(c.ingredientes[i], -c.cantidades[i] * veces);
+            }
+            usadas += veces;
+            ganancia += g;
+            if (veces > 0 && (Double.isInfinite(gasto) || gasto > saldo + 1e-9)) {
+                aplicar(c, -veces);
+                ganancia = antes;
+                gasto = gastoAntes;
+                return Double.NaN;
+            }
+            return ganancia - antes;
+        }
+
+        /**
+         * Mueve el neto de un producto y devuelve el cambio de valor; actualiza el gasto en compras.
+         */
+        private double cambiar(int j, int d) {
+            if (d == 0) {
+                return 0.0;
+            }
+            int antes = delta[j];
+            int despues = antes + d;
+            delta[j] = despues;
+            double compraAntes = faltante(j, antes);
+            double compraDespues = faltante(j, despues);
+            if (compraAntes != compraDespues) {
+                gasto += (compraDespues - compraAntes) * ask[j];
+            }
+            return valor(j, despues) - valor(j, antes);
+        }
+
+        private double faltante(int j, int d) {
+            return Math.max(0, -(inventario[j] + d));
+        }
+
+        /**
+         * Valor del cambio neto d: a bid mientras alcanza el inventario, a ask lo que hay que comprar.
+         */
+        private double valor(int j, int d) {
+            int falta = (int) faltante(j, d);
+            if (falta == 0) {
+                return d * bid[j];
+            }
+            return -inventario[j] * bid[j] - falta * ask[j];
+        }
+
+        /**
+         * Productores antes que consumidores (a igualdad, mayor cota primero).
+         *
+         * Así añadir corridas en un nivel solo consume lo producido en niveles
+         * anteriores, y el gasto de una rama parcial nunca baja al completarla:
+         * podar por saldo en profundidad no descarta soluciones factibles.
+         */
+        private Candidato[] ordenTopologico() {
+            int n = candidatos.length;
+            int[] pendientes = new int[n];
+            List<List<Integer>> consumidores = new ArrayList<>(n);
+            for (int a = 0; a < n; a++) {
+                consumidores.add(new ArrayList<>());
+            }
+            for (int a = 0; a < n; a++) {
+                for (int b = 0; b < n; b++) {
+                    if (a != b && usa(candidatos[b], candidatos[a].salida)) {
+                        consumidores.get(a).add(b);
+                        pendientes[b]++;
+                    }
+                }
+            }
+            Candidato[] resultado = new Candidato[n];
+            boolean[] puesto = new boolean[n];
+            for (int k = 0; k < n; k++) {
+                int elegido = -1;
+                for (int c = 0; c < n; c++) {
+                    if (!puesto[c] && (elegido < 0 || pendientes[c] < pendientes[elegido]
+                            || (pendientes[c] == pendientes[elegido] && candidatos[c].cota > candidatos[elegido].cota))) {
+                        elegido = c;
+                    }
+                }
+                // Con un ciclo en las recetas no hay ninguno libre; se toma el de menos dependencias
+                puesto[elegido] = true;
+                resultado[k] = candidatos[elegido];
+                for (int b : consumidores.get(elegido)) {
+                    pendientes[b]--;
+                }
+            }
+            return resultado;
+        }
+
+        private boolean usa(Candidato c, int producto) {
+            for (int i : c.ingredientes) {
+                if (i == producto) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Lo más que vale una unidad: venderla a bid, ahorrarse comprarla a ask
+         * o usarla de ingrediente en otra receta. Sin lo último un intermedio
+         * sin precio valdría 0, su receta tendría cota 0 y nunca se fabricaría
+         * aunque la receta que lo consume sea rentable.
+         */
+        private void valorarProductos() {
+            for (int j = 0; j < productos.length; j++) {
+                valorMaximo[j] = Double.isInfinite(ask[j]) ? bid[j] : Math.max(bid[j], ask[j]);
+            }
+            // Cada pasada sube un nivel de la cadena de recetas; con un ciclo se corta en n pasadas
+            for (int pasada = 0; pasada < candidatos.length; pasada++) {
+                boolean cambio = false;
+                for (Candidato c : candidatos) {
+                    double porCorrida = c.unidades * valorMaximo[c.salida];
+                    for (int i = 0; i < c.ingredientes.length; i++) {
+                        if (c.cantidades[i] > 0 && porCorrida / c.cantidades[i] > valorMaximo[c.ingredientes[i]]) {
+                            valorMaximo[c.ingredientes[i]] = porCorrida / c.cantidades[i];
+                            cambio = true;
+                        }
+                    }
+                }
+                if (!cambio) {
+                    break;
+                }
+            }
+        }
+
+        private double cotaCorrida(Candidato c) {
+            // Lo producido vale como mucho su mejor uso; lo consumido cuesta al menos el bid
+            double cota = c.unidades * valorMaximo[c.salida];
+            for (int i = 0; i < c.ingredientes.length; i++) {
+                cota -= c.cantidades[i] * Math.min(bid[c.ingredientes[i]], ask[c.ingredientes[i]]);
+            }
+            return cota;
+        }
+
+        private void registrarSiMejor() {
+            if (ganancia > mejorGanancia + 1e-9) {
+                mejorGanancia = ganancia;
+                Arrays.fill(mejor, 0);
+                for (int k = 0; k < orden.length; k++) {
+                    mejor[orden[k].posicion] = corridas[k];
+                }
+            }
+        }
+
+        PlanProduccion aPlan() {
+            List<PlanProduccion.Accion> acciones = new ArrayList<>();
+            int[] neto = new int[productos.length];
+            for (int i = 0; i < candidatos.length; i++) {
+                Candidato c = candidatos[i];
+                int x = mejor[i];
+                if (x == 0) {
+                    continue;
+                }
+                acciones.add(new PlanProduccion.Accion(c.producto, c.premium, x, x * c.unidades));
+                neto[c.salida] += x * c.unidades;
+                for (int k = 0; k < c.ingredientes.length; k++) {
+                    neto[c.ingredientes[k]] -= x * c.cantidades[k];
+                }
+            }
+            Map<String, Integer> compras = new LinkedHashMap<>();
+            double costo = 0.0;
+            for (int j = 0; j < productos.length; j++) {
+                int falta = (int) faltante(j, neto[j]);
+                if (falta > 0) {
+                    compras.put(productos[j], falta);
+                    costo += falta * ask[j];
+                }
+            }
+            return new PlanProduccion(Collections.unmodifiableList(acciones), Collections.unmodifiableMap(compras),
+                    costo, mejorGanancia, !cortada, nodos, System.nanoTime() - inicio);
+        }
+    }
+
+    private static final class Candidato {
+        final String producto;
+        final boolean premium;
+        final int salida;
+        final int unidades;
+        final int[] ingredientes;
+        final int[] cantidades;
+        // Posición en 'candidatos'; la búsqueda los reordena por cota
+        final int posicion;
+        double cota;
+
+        Candidato(int posicion, String producto, boolean premium, int salida, int unidades, int[] ingredientes,
+                int[] cantidades) {
+            this.producto = producto;
+            this.premium = premium;
+            this.salida = salida;
+            this.unidades = unidades;
+            this.ingredientes = ingredientes;
+            this.cantidades = cantidades;
+            this.posicion = posicion;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.bitacora.Bitacora;
+import tech.hellsoft.trading.bitacora.Plantilla;
+import tech.hellsoft.trading.dto.client.ProductionUpdateMessage;
+import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
+import tech.hellsoft.trading.exception.ProduccionException.RecetaNoEncontradaException;
+import tech.hellsoft.trading.exception.TradingExceptions.ProductoNoAutorizadoException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.riesgo.ReservasInventario;
+import tech.hellsoft.trading.util.CalculadoraProduccion;
+
+/**
+ * Cola de trabajos de producción que se envían en paralelo, sin esperar la
+ * respuesta de uno para mandar el siguiente.
+ *
+ * Al encolar se valida el producto y se reservan los ingredientes (si el
+ * trabajo no depende de otro; si depende, al completarse sus dependencias). Los
+ * trabajos listos se envían por {@link SalidaProduccion} hasta tener
+ * {@code ventana} en vuelo.
+ *
+ * El protocolo no responde a una producción más que con INVENTORY_UPDATE, así
+ * que la respuesta se reconoce por sus efectos. Se supone que el servidor
+ * informa primero el consumo de los ingredientes y después el producto: cada
+ * bajada de un ingrediente se reparte entre los trabajos en vuelo que lo
+ * reservaron, del más antiguo al más nuevo, y una subida del producto completa
+ * al trabajo más antiguo de ese producto solo si ya vio bajar todo lo que
+ * reservó. Así una subida por otra causa (un INVENTORY_UPDATE que se adelanta a
+ * su FILL, una oferta) no suelta una reserva; las producciones básicas no
+ * consumen nada y se completan con cualquier subida de su producto.
+ *
+ * Si no llega respuesta en el plazo, el trabajo falla y libera lo reservado,
+ * pero sigue un plazo más en la cola de su producto: si la respuesta llega
+ * tarde, la absorbe él y no completa por error al siguiente.
+ *
+ * Todo el estado de la cola vive en un solo hilo ("produccion"): los
+ * callbacks y la consola solo le pasan tareas, así que nunca bloquean.
+ */
+public final class ProgramadorProduccion implements AutoCloseable {
+
+    public static final int VENTANA_POR_DEFECTO = 4;
+    public static final long PLAZO_POR_DEFECTO_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    // Trabajos terminados que se conservan para la consola
+    private static final int HISTORIAL = 256;
+
+    private static final Plantilla COMPLETADO = Plantilla.info("🏭 Producción #{} completada: {} +{} u");
+    private static final Plantilla FALLIDO = Plantilla.aviso("🏭 Producción #{} de {} falló: {}");
+    private static final Plantilla TARDIA = Plantilla.aviso("🏭 Respuesta tardía de la producción #{} ({} +{} u)");
+
+    private final EstadoCliente estado;
+    private final ReservasInventario reservas;
+    private final SalidaProduccion salida;
+    private final int ventana;
+    private final long plazoNanos;
+    private final ScheduledExecutorService hilo = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "produccion");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final AtomicLong secuencia = new AtomicLong();
+    // Todos los trabajos vivos y los últimos terminados, por id
+    private final Map<Long, TrabajoProduccion> trabajos = new ConcurrentSkipListMap<>();
+
+    // Solo los toca el hilo del programador
+    private final ArrayDeque<TrabajoProduccion> listos = new ArrayDeque<>();
+    // Por producto, en orden de envío: los ENVIADO y los que vencieron hace menos de un plazo
+    private final Map<String, ArrayDeque<TrabajoProduccion>> enviados = new HashMap<>();
+    // Los mismos, en orden de envío global, mientras les falte ver bajar algún ingrediente
+    private final ArrayDeque<TrabajoProduccion> consumiendo = new ArrayDeque<>();
+    private final ArrayDeque<Long> terminados = new ArrayDeque<>();
+    private volatile int enVuelo;
+
+    private final LongAdder completados = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+
+    public ProgramadorProduccion(EstadoCliente estado, ReservasInventario reservas, SalidaProduccion salida) {
+        this(estado, reservas, salida, VENTANA_POR_DEFECTO, PLAZO_POR_DEFECTO_NANOS);
+    }
+
+    /**
+     * @param ventana    producciones enviadas sin respuesta a la vez
+     * @param plazoNanos espera máxima de la respuesta del servidor
+     */
+    public ProgramadorProduccion(EstadoCliente estado, ReservasInventario reservas, SalidaProduccion salida,
+            int ventana, long plazoNanos) {
+        if (ventana <= 0 || plazoNanos <= 0) {
+            throw new IllegalArgumentException("ventana y plazo deben ser positivos");
+        }
+        this.estado = estado;
+        this.reservas = reservas;
+        this.salida = salida;
+        this.ventana = ventana;
+        this.plazoNanos = plazoNanos;
+    }
+
+    // ========== ENCOLAR (cualquier hilo) ==========
+
+    /**
+     * Encola una producción sin dependencias; sus ingredientes quedan
+     * reservados antes de volver.
+     */
+    public TrabajoProduccion encolar(String producto, boolean premium) throws ProductoNoAutorizadoException,
+            RecetaNoEncontradaException, IngredientesInsuficientesException {
+        return encolar(producto, premium, List.of());
+    }
+
+    /**
+     * Encola una producción que espera a que {@code dependencias} se completen
+     * (p. ej. producir el intermedio antes que el premium que lo usa).
+     */
+    public TrabajoProduccion encolar(String producto, boolean premium, List<TrabajoProduccion> dependencias)
+            throws ProductoNoAutorizadoException, RecetaNoEncontradaException, IngredientesInsuficientesException {
+        Map<String, Integer> ingredientes = validar(producto, premium);
+        TrabajoProduccion t = new TrabajoProduccion(secuencia.incrementAndGet(), producto, premium,
+                unidades(premium), dependencias);
+        boolean inmediato = t.dependenciasCompletas();
+        if (inmediato) {
+            t.listo(reservar(t, ingredientes), ingredientes);
+        }
+        trabajos.put(t.getId(), t);
+        try {
+            hilo.execute(() -> admitir(t));
+        } catch (RejectedExecutionException e) {
+            // Programador cerrado: no se envía nada
+            if (t.reserva != null) {
+                reservas.liberar(t.reserva);
+            }
+            trabajos.remove(t.getId());
+            throw new IllegalStateException("El programador de producción está cerrado", e);
+        }
+        return t;
+    }
+
+    /**
+     * Encola una cadena: cada paso depende del anterior.
+     *
+     * @param pasos producto → premium, en orden
+     * @return los trabajos en el mismo orden
+     */
+    public List<TrabajoProduccion> encadenar(List<Map.Entry<String, Boolean>> pasos)
+            throws ProductoNoAutorizadoException, RecetaNoEncontradaException, IngredientesInsuficientesException {
+        // Se valida todo antes de encolar nada
+        for (Map.Entry<String, Boolean> paso : pasos) {
+            validar(paso.getKey(), paso.getValue());
+        }
+        List<TrabajoProduccion> cadena = new ArrayList<>(pasos.size());
+        TrabajoProduccion anterior = null;
+        for (Map.Entry<String, Boolean> paso : pasos) {
+            anterior = encolar(paso.getKey(), paso.getValue(), anterior == null ? List.of() : List.of(anterior));
+            cadena.add(anterior);
+        }
+        return cadena;
+    }
+
+    /**
+     * Ingredientes de una corrida (vacío si es básica).
+     */
+    private Map<String, Integer> validar(String producto, boolean premium)
+            throws ProductoNoAutorizadoException, RecetaNoEncontradaException {
+        List<String> autorizados = estado.getProductosAutorizados();
+        if (autorizados != null && !autorizados.isEmpty() && !autorizados.contains(producto)) {
+            throw new ProductoNoAutorizadoException(producto, new HashSet<>(autorizados));
+        }
+        if (estado.getRol() == null) {
+            throw new IllegalStateException("Sin rol todavía (haz login primero)");
+        }
+        if (!premium) {
+            return Map.of();
+        }
+        Map<String, Receta> recetas = estado.getRecetas();
+        Receta receta = recetas == null ? null : recetas.get(producto);
+        if (receta == null) {
+            throw new RecetaNoEncontradaException(producto);
+        }
+        return receta.ingredientes();
+    }
+
+    private int unidades(boolean premium) {
+        int base = CalculadoraProduccion.calcularUnidades(estado.getRol());
+        return premium ? CalculadoraProduccion.aplicarBonusPremium(base, PlanificadorProduccion.BONUS_PREMIUM) : base;
+    }
+
+    private ReservasInventario.Reserva reservar(TrabajoProduccion t, Map<String, Integer> ingredientes)
+            throws IngredientesInsuficientesException {
+        if (ingredientes.isEmpty()) {
+            return null;
+        }
+        // Sin vencimiento: un trabajo puede esperar en listos más que cualquier plazo, y si la reserva
+        // venciera mientras tanto sus ingredientes se comprometerían dos veces. La suelta el programador
+        return reservas.reservar(t.getProducto(), ingredientes, 1, ReservasInventario.SIN_PLAZO);
+    }
+
+    // ========== HILO DEL PROGRAMADOR ==========
+
+    private void admitir(TrabajoProduccion t) {
+        if (t.getEstado() == EstadoTrabajo.LISTO) {
+            listos.addLast(t);
+            despachar();
+            return;
+        }
+        TrabajoProduccion fallida = t.dependenciaFallida();
+        if (fallida != null) {
+            fallar(t, "falló #" + fallida.getId());
+            return;
+        }
+        if (t.dependenciasCompletas()) {
+            activar(t);
+            despachar();
+            return;
+        }
+        for (TrabajoProduccion d : t.getDependencias()) {
+            if (!d.getEstado().esFinal()) {
+                d.dependientes.add(t);
+            }
+        }
+    }
+
+    /**
+     * Reserva los ingredientes de un trabajo cuyas dependencias ya se completaron.
+     */
+    private void activar(TrabajoProduccion t) {
+        try {
+            Map<String, Integer> ingredientes = validar(t.getProducto(), t.isPremium());
+            t.listo(reservar(t, ingredientes), ingredientes);
+            listos.addLast(t);
+        } catch (IngredientesInsuficientesException | RecetaNoEncontradaException
+                | ProductoNoAutorizadoException | RuntimeException e) {
+            fallar(t, e.getMessage());
+        }
+    }
+
+    private void despachar() {
+        while (enVuelo < ventana && !listos.isEmpty()) {
+            enviar(listos.pollFirst());
+        }
+    }
+
+    private void enviar(TrabajoProduccion t) {
+        try {
+            salida.enviarProduccion(new ProductionUpdateMessage(t.getProducto(), t.getUnidadesEsperadas()));
+        } catch (RuntimeException e) {
+            fallar(t, "no se pudo enviar: " + e.getMessage());
+            return;
+        }
+        t.enviado();
+        enVuelo++;
+        enviados.computeIfAbsent(t.getProducto(), p -> new ArrayDeque<>()).addLast(t);
+        if (!t.ingredientesConsumidos()) {
+            consumiendo.addLast(t);
+        }
+        hilo.schedule(() -> vencer(t), plazoNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void consumido(String ingrediente, int unidades) {
+        for (Iterator<TrabajoProduccion> it = consumiendo.iterator(); it.hasNext() && unidades > 0;) {
+            TrabajoProduccion t = it.next();
+            unidades -= t.consumir(ingrediente, unidades);
+            if (t.ingredientesConsumidos()) {
+                it.remove();
+            }
+        }
+    }
+
+    private void recibir(String producto, int unidades) {
+        ArrayDeque<TrabajoProduccion> cola = enviados.get(producto);
+        TrabajoProduccion t = cola == null ? null : cola.peekFirst();
+        if (t == null || !t.ingredientesConsumidos()) {
+            // Subió por otra causa (compra, oferta, producción manual) o sin el consumo
+            // de sus ingredientes: no es la respuesta del trabajo más antiguo
+            return;
+        }
+        cola.pollFirst();
+        if (t.getEstado() != EstadoTrabajo.ENVIADO) {
+            // Ya había vencido y soltado su reserva
+            Bitacora.global().registro(TARDIA).entero(t.getId()).texto(producto).entero(unidades).publicar();
+            return;
+        }
+        enVuelo--;
+        if (t.reserva != null) {
+            reservas.confirmar(t.reserva);
+        }
+        // Los contadores antes que el trabajo: quien espera su terminado() ya los ve
+        completados.increment();
+        t.completar(unidades);
+        archivar(t);
+        Bitacora.global().registro(COMPLETADO).entero(t.getId()).texto(producto).entero(unidades).publicar();
+        for (TrabajoProduccion d : t.dependientes) {
+            if (d.getEstado() == EstadoTrabajo.ESPERANDO && d.dependenciasCompletas()) {
+                activar(d);
+            }
+        }
+        t.dependientes.clear();
+        despachar();
+    }
+
+    private void vencer(TrabajoProduccion t) {
+        if (t.getEstado() != EstadoTrabajo.ENVIADO) {
+            return;
+        }
+        enVuelo--;
+        fallar(t, "sin respuesta en " + TimeUnit.NANOSECONDS.toMillis(plazoNanos) + " ms");
+        // Se queda en la cola otro plazo por si su respuesta llega tarde
+        hilo.schedule(() -> olvidar(t), plazoNanos, TimeUnit.NANOSECONDS);
+        despachar();
+    }
+
+    private void olvidar(TrabajoProduccion t) {
+        ArrayDeque<TrabajoProduccion> cola = enviados.get(t.getProducto());
+        if (cola != null) {
+            cola.remove(t);
+        }
+        consumiendo.remove(t);
+    }
+
+    /**
+     * Termina el trabajo con error, libera su reserva y hace fallar a los que dependen de él.
+     */
+    private void fallar(TrabajoProduccion t, String motivo) {
+        if (t.getEstado().esFinal()) {
+            return;
+        }
+        if (t.reserva != null) {
+            reservas.liberar(t.reserva);
+        }
+        fallidos.increment();
+        t.fallar(motivo);
+        archivar(t);
+        Bitacora.global().registro(FALLIDO).entero(t.getId()).texto(t.getProducto()).texto(motivo).publicar();
+        List<TrabajoProduccion> dependientes = new ArrayList<>(t.dependientes);
+        t.dependientes.clear();
+        for (TrabajoProduccion d : dependientes) {
+            fallar(d, "falló #" + t.getId());
+        }
+    }
+
+    private void archivar(TrabajoProduccion t) {
+        terminados.addLast(t.getId());
+        while (terminados.size() > HISTORIAL) {
+            trabajos.remove(terminados.pollFirst());
+        }
+    }
+
+    // ========== EVENTOS Y CONSULTA (cualquier hilo) ==========
+
+    /**
+     * Llamar desde el callback de inventario cuando {@code producto} subió
+     * {@code unidades}; completa el trabajo más antiguo en vuelo de ese
+     * producto si ya se consumieron sus ingredientes.
+     */
+    public void inventarioSubio(String producto, int unidades) {
+        try {
+            hilo.execute(() -> recibir(producto, unidades));
+        } catch (RejectedExecutionException e) {
+            // Cerrado
+        }
+    }
+
+    /**
+     * Llamar desde el callback de inventario cuando {@code producto} bajó
+     * {@code unidades} sin una venta de por medio: es el consumo de una producción.
+     */
+    public void inventarioBajo(String producto, int unidades) {
+        try {
+            hilo.execute(() -> consumido(producto, unidades));
+        } catch (RejectedExecutionException e) {
+            // Cerrado
+        }
+    }
+
+    /**
+     * Trabajos vivos y los últimos terminados, del más antiguo al más nuevo.
+     */
+    public List<TrabajoProduccion> trabajos() {
+        return new ArrayList<>(trabajos.values());
+    }
+
+    public TrabajoProduccion trabajo(long id) {
+        return trabajos.get(id);
+    }
+
+    public int enVuelo() {
+        return enVuelo;
+    }
+
+    public int getVentana() {
+        return ventana;
+    }
+
+    public long completados() {
+        return completados.sum();
+    }
+
+    public long fallidos() {
+        return fallidos.sum();
+    }
+
+    /**
+     * Detiene el hilo y libera las reservas de lo que no terminó.
+     */
+    @Override
+    public void close() {
+        hilo.shutdownNow();
+        try {
+            hilo.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (TrabajoProduccion t : trabajos.values()) {
+            if (!t.getEstado().esFinal()) {
+                if (t.reserva != null) {
+                    reservas.liberar(t.reserva);
+                }
+                t.fallar("programador cerrado");
+            }
+        }
+    }
+}
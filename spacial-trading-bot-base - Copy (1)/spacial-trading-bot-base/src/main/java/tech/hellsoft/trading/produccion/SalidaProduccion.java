@@ -0,0 +1,13 @@
+package tech.hellsoft.trading.produccion;
+
+import tech.hellsoft.trading.dto.client.ProductionUpdateMessage;
+
+/**
+ * Hacia dónde se envían las producciones: el conector del SDK
+ * ({@code conector::enviarProduccion}) o el simulador local.
+ */
+@FunctionalInterface
+public interface SalidaProduccion {
+
+    void enviarProduccion(ProductionUpdateMessage produccion);
+}
@@ -0,0 +1,208 @@
+package tech.hellsoft.trading.produccion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import tech.hellsoft.trading.riesgo.ReservasInventario.Reserva;
+
+/**
+ * Una producción pedida a {@link ProgramadorProduccion}. Los datos del pedido
+ * son inmutables; el estado solo lo cambia el hilo del programador y se
+ * publica con campos volátiles para que la consola lo lea sin bloquear.
+ *
+ * Las dependencias forman un grafo: el trabajo no se envía hasta que todas
+ * estén COMPLETADO, y falla si alguna falla.
+ */
+public final class TrabajoProduccion {
+
+    private final long id;
+    private final String producto;
+    private final boolean premium;
+    private final int unidadesEsperadas;
+    private final List<TrabajoProduccion> dependencias;
+    private final long creadoNanos = System.nanoTime();
+    private final CompletableFuture<TrabajoProduccion> terminado = new CompletableFuture<>();
+
+    // Solo los toca el hilo del programador
+    final List<TrabajoProduccion> dependientes = new ArrayList<>();
+    Reserva reserva;
+    // Ingrediente → unidades reservadas cuyo consumo todavía no informó el servidor
+    private final Map<String, Integer> porConsumir = new HashMap<>();
+
+    private volatile EstadoTrabajo estado;
+    private volatile int unidadesRecibidas;
+    private volatile String motivo;
+    private volatile long enviadoNanos;
+    private volatile long terminadoNanos;
+
+    TrabajoProduccion(long id, String producto, boolean premium, int unidadesEsperadas,
+            List<TrabajoProduccion> dependencias) {
+        this.id = id;
+        this.producto = producto;
+        this.premium = premium;
+        this.unidadesEsperadas = unidadesEsperadas;
+        this.dependencias = List.copyOf(dependencias);
+        this.estado = EstadoTrabajo.ESPERANDO;
+    }
+
+    void listo(Reserva reserva, Map<String, Integer> ingredientes) {
+        this.reserva = reserva;
+        for (Map.Entry<String, Integer> e : ingredientes.entrySet()) {
+            if (e.getValue() != null && e.getValue() > 0) {
+                porConsumir.put(e.getKey(), e.getValue());
+            }
+        }
+        this.estado = EstadoTrabajo.LISTO;
+    }
+
+    /**
+     * Descuenta hasta {@code unidades} del consumo pendiente del ingrediente.
+     *
+     * @return cuántas le correspondían a este trabajo
+     */
+    int consumir(String ingrediente, int unidades) {
+        Integer falta = porConsumir.get(ingrediente);
+        if (falta == null) {
+            return 0;
+        }
+        int n = Math.min(falta, unidades);
+        if (n == falta) {
+            porConsumir.remove(ingrediente);
+        } else {
+            porConsumir.put(ingrediente, falta - n);
+        }
+        return n;
+    }
+
+    /**
+     * true si ya bajó todo lo que reservó (siempre, si es básica).
+     */
+    boolean ingredientesConsumidos() {
+        return porConsumir.isEmpty();
+    }
+
+    void enviado() {
+        enviadoNanos = System.nanoTime();
+        estado = EstadoTrabajo.ENVIADO;
+    }
+
+    void completar(int unidades) {
+        unidadesRecibidas = unidades;
+        terminar(EstadoTrabajo.COMPLETADO, null);
+    }
+
+    void fallar(String motivo) {
+        terminar(EstadoTrabajo.FALLIDO, motivo);
+    }
+
+    private void terminar(EstadoTrabajo fin, String motivo) {
+        this.motivo = motivo;
+        this.terminadoNanos = System.nanoTime();
+        this.estado = fin;
+        terminado.complete(this);
+    }
+
+    /**
+     * true si todas las dependencias terminaron bien.
+     */
+    boolean dependenciasCompletas() {
+        for (TrabajoProduccion d : dependencias) {
+            if (d.estado != EstadoTrabajo.COMPLETADO) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * La primera dependencia que falló, o null.
+     */
+    TrabajoProduccion dependenciaFallida() {
+        for (TrabajoProduccion d : dependencias) {
+            if (d.estado == EstadoTrabajo.FALLIDO) {
+                return d;
+            }
+        }
+        return null;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getProducto() {
+        return producto;
+    }
+
+    public boolean isPremium() {
+        return premium;
+    }
+
+    public int getUnidadesEsperadas() {
+        return unidadesEsperadas;
+    }
+
+    /**
+     * Unidades que informó el servidor; 0 hasta completarse.
+     */
+    public int getUnidadesRecibidas() {
+        return unidadesRecibidas;
+    }
+
+    public List<TrabajoProduccion> getDependencias() {
+        return dependencias;
+    }
+
+    public EstadoTrabajo getEstado() {
+        return estado;
+    }
+
+    /**
+     * Por qué falló; null si no falló.
+     */
+    public String getMotivo() {
+        return motivo;
+    }
+
+    /**
+     * Se completa (nunca excepcionalmente) cuando el trabajo termina, bien o mal.
+     */
+    public CompletableFuture<TrabajoProduccion> terminado() {
+        return terminado;
+    }
+
+    /**
+     * Desde el envío hasta la respuesta, o hasta ahora si sigue en vuelo; 0 si no se envió.
+     */
+    public long nanosEnVuelo() {
+        long enviado = enviadoNanos;
+        if (enviado == 0) {
+            return 0;
+        }
+        long fin = terminadoNanos;
+        return (fin == 0 ? System.nanoTime() : fin) - enviado;
+    }
+
+    public long getCreadoNanos() {
+        return creadoNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('#').append(id).append(' ').append(producto).append(premium ? " premium" : " basico")
+                .append(' ').append(estado);
+        if (!dependencias.isEmpty()) {
+            sb.append(" tras");
+            for (TrabajoProduccion d : dependencias) {
+                sb.append(" #").append(d.id);
+            }
+        }
+        if (motivo != null) {
+            sb.append(" (").append(motivo).append(')');
+        }
+        return sb.toString();
+    }
+}
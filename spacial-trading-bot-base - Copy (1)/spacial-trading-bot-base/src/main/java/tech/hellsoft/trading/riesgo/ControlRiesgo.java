@@ -0,0 +1,244 @@
+package tech.hellsoft.trading.riesgo;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.exception.TradingExceptions.LimiteRiesgoException;
+import tech.hellsoft.trading.exception.TradingExceptions.SaldoInsuficienteException;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Valoracion;
+import tech.hellsoft.trading.ordenes.Lado;
+import tech.hellsoft.trading.ordenes.Orden;
+import tech.hellsoft.trading.ordenes.OyenteOrdenes;
+
+/**
+ * Control pre-trade delante de comprar/vender.
+ *
+ * Reserva saldo e inventario para las órdenes en vuelo, de forma que dos
+ * órdenes enviadas en paralelo no puedan comprometer el mismo dinero o las
+ * mismas unidades. Todo el estado está precalculado en contadores atómicos
+ * indexados por el id de producto de {@link EstadoMercado}: cada comprobación
+ * es un puñado de CAS, sin mapas ni recorridos. Las unidades de las ventas se
+ * apartan en {@link ReservasInventario}, el mismo lugar donde las producciones
+ * apartan sus ingredientes, para que ninguna de las dos cuente con lo que la
+ * otra ya comprometió.
+ *
+ * Las reservas se liberan al llenarse o terminar la orden (ver {@link OyenteOrdenes}).
+ */
+public final class ControlRiesgo implements OyenteOrdenes {
+
+    private final EstadoMercado mercado;
+    private final Valoracion valoracion;
+    private final LimitesRiesgo limites;
+
+    // Saldo reservado en centavos para compras en vuelo
+    private final AtomicLong saldoReservado = new AtomicLong();
+    // Unidades comprometidas por ventas en vuelo y por producciones sin confirmar
+    private final ReservasInventario reservas;
+    // Unidades de compras en vuelo, por id de producto
+    private final AtomicIntegerArray comprasEnVuelo;
+    private final AtomicIntegerArray posicionMaxima;
+
+    // Limitador de ritmo GCRA: instante teórico de llegada de la próxima orden
+    private final AtomicLong proximaOrden = new AtomicLong(System.nanoTime());
+    private final long intervaloNanos;
+    private final long toleranciaNanos;
+
+    private volatile boolean pausado;
+    private final LongAdder rechazos = new LongAdder();
+
+    public ControlRiesgo(EstadoMercado mercado, Valoracion valoracion, LimitesRiesgo limites) {
+        this.mercado = mercado;
+        this.valoracion = valoracion;
+        this.limites = limites;
+        this.reservas = new ReservasInventario(mercado);
+        this.comprasEnVuelo = new AtomicIntegerArray(mercado.capacidad());
+        this.posicionMaxima = new AtomicIntegerArray(mercado.capacidad());
+        this.intervaloNanos = 1_000_000_000L / limites.ordenesPorSegundo();
+        this.toleranciaNanos = intervaloNanos * limites.rafaga();
+    }
+
+    /**
+     * Comprueba límites y reserva saldo para una compra.
+     *
+     * @param precio precio unitario esperado (ask o límite)
+     */
+    public void reservarCompra(String producto, int cantidad, double precio)
+            throws SaldoInsuficienteException, LimiteRiesgoException {
+        comprobarComun(cantidad, precio);
+        int id = mercado.idDe(producto);
+
+        int limite = limitePosicion(id);
+        int enVuelo;
+        do {
+            enVuelo = comprasEnVuelo.get(id);
+            if (mercado.cantidad(producto) + enVuelo + cantidad > limite) {
+                rechazos.increment();
+                throw new LimiteRiesgoException("posicion",
+                        "Posición máxima de " + producto + " superada (límite " + limite + ")");
+            }
+        } while (!comprasEnVuelo.compareAndSet(id, enVuelo, enVuelo + cantidad));
+
+        long costo = costo(cantidad, precio);
+        long disponible = centavos(valoracion.saldo());
+        long reservado;
+        do {
+            reservado = saldoReservado.get();
+            if (disponible - reservado < costo) {
+                comprasEnVuelo.addAndGet(id, -cantidad);
+                rechazos.increment();
+                throw new SaldoInsuficienteException((disponible - reservado) / 100.0, costo / 100.0);
+            }
+        } while (!saldoReservado.compareAndSet(reservado, reservado + costo));
+
+        if (!consumirRitmo()) {
+            saldoReservado.addAndGet(-costo);
+            comprasEnVuelo.addAndGet(id, -cantidad);
+            throw limiteRitmo();
+        }
+    }
+
+    /**
+     * Comprueba límites y reserva inventario para una venta.
+     */
+    public void reservarVenta(String producto, int cantidad, double precio)
+            throws InventarioInsuficienteException, LimiteRiesgoException {
+        comprobarComun(cantidad, precio);
+        try {
+            reservas.reservar(producto, cantidad);
+        } catch (InventarioInsuficienteException e) {
+            rechazos.increment();
+            throw e;
+        }
+
+        if (!consumirRitmo()) {
+            reservas.liberar(producto, cantidad);
+            throw limiteRitmo();
+        }
+    }
+
+    /**
+     * Deshace una reserva cuya orden nunca llegó a crearse o enviarse.
+     */
+    public void liberar(Lado lado, String producto, int cantidad, double precio) {
+        if (lado == Lado.BUY) {
+            comprasEnVuelo.addAndGet(mercado.idDe(producto), -cantidad);
+            saldoReservado.addAndGet(-costo(cantidad, precio));
+        } else {
+            reservas.liberar(producto, cantidad);
+        }
+    }
+
+    private void comprobarComun(int cantidad, double precio) throws LimiteRiesgoException {
+        if (pausado) {
+            rechazos.increment();
+            throw new LimiteRiesgoException("pausa", "Trading pausado");
+        }
+        if (cantidad <= 0) {
+            rechazos.increment();
+            throw new LimiteRiesgoException("cantidad", "La cantidad debe ser positiva: " + cantidad);
+        }
+        if (cantidad * precio > limites.nocionalMaximoOrden()) {
+            rechazos.increment();
+            throw new LimiteRiesgoException("nocional",
+                    "Nocional " + cantidad * precio + " supera el máximo por orden " + limites.nocionalMaximoOrden());
+        }
+    }
+
+    private boolean consumirRitmo() {
+        long ahora = System.nanoTime();
+        long previsto;
+        long siguiente;
+        do {
+            previsto = proximaOrden.get();
+            siguiente = Math.max(previsto, ahora) + intervaloNanos;
+            if (siguiente - ahora > toleranciaNanos + intervaloNanos) {
+                return false;
+            }
+        } while (!proximaOrden.compareAndSet(previsto, siguiente));
+        return true;
+    }
+
+    private LimiteRiesgoException limiteRitmo() {
+        rechazos.increment();
+        return new LimiteRiesgoException("ritmo",
+                "Más de " + limites.ordenesPorSegundo() + " órdenes/s (ráfaga " + limites.rafaga() + ")");
+    }
+
+    private int limitePosicion(int id) {
+        int propio = posicionMaxima.get(id);
+        return propio > 0 ? propio : limites.posicionMaxima();
+    }
+
+    // ========== LIBERACIÓN DE RESERVAS ==========
+
+    @Override
+    public void onLlenado(Orden orden, int cantidad, double precio) {
+        liberar(orden.getLado(), orden.getProducto(), cantidad, orden.getPrecioReserva());
+    }
+
+    @Override
+    public void onTerminada(Orden orden, int pendiente) {
+        if (pendiente > 0) {
+            liberar(orden.getLado(), orden.getProducto(), pendiente, orden.getPrecioReserva());
+        }
+    }
+
+    // ========== CONFIGURACIÓN Y CONSULTA ==========
+
+    /**
+     * Límite de posición propio de un producto; 0 vuelve al límite general.
+     */
+    public void fijarLimitePosicion(String producto, int limite) {
+        posicionMaxima.set(mercado.idDe(producto), limite);
+    }
+
+    public void setPausado(boolean pausado) {
+        this.pausado = pausado;
+    }
+
+    public boolean isPausado() {
+        return pausado;
+    }
+
+    public LimitesRiesgo getLimites() {
+        return limites;
+    }
+
+    public double saldoReservado() {
+        return saldoReservado.get() / 100.0;
+    }
+
+    public double saldoDisponible() {
+        return valoracion.saldo() - saldoReservado();
+    }
+
+    /**
+     * Unidades comprometidas por ventas en vuelo y producciones sin confirmar.
+     */
+    public int inventarioReservado(String producto) {
+        return reservas.reservado(producto);
+    }
+
+    public ReservasInventario getReservas() {
+        return reservas;
+    }
+
+    public long rechazos() {
+        return rechazos.sum();
+    }
+
+    private static long centavos(double monto) {
+        return Math.round(monto * 100.0);
+    }
+
+    /**
+     * Se redondea el precio unitario y no el total: una orden se libera fill a
+     * fill y la suma de los redondeos de las partes no es el redondeo del total
+     * (3 × 0,333 reserva 100 centavos y libera 3 × 33).
+     */
+    private static long costo(int cantidad, double precio) {
+        return centavos(precio) * cantidad;
+    }
+}
@@ -0,0 +1,22 @@
+package tech.hellsoft.trading.riesgo;
+
+/**
+ * Límites fijos del control pre-trade.
+ *
+ * @param posicionMaxima unidades máximas por producto (inventario + compras en vuelo)
+ * @param nocionalMaximoOrden valor máximo de una sola orden (cantidad * precio)
+ * @param ordenesPorSegundo ritmo sostenido de envío permitido
+ * @param rafaga órdenes que se pueden enviar de golpe por encima del ritmo
+ */
+public record LimitesRiesgo(int posicionMaxima, double nocionalMaximoOrden, int ordenesPorSegundo, int rafaga) {
+
+    public static LimitesRiesgo porDefecto() {
+        return new LimitesRiesgo(10_000, 1_000_000.0, 20, 40);
+    }
+
+    public LimitesRiesgo {
+        if (posicionMaxima <= 0 || nocionalMaximoOrden <= 0 || ordenesPorSegundo <= 0 || rafaga < 0) {
+            throw new IllegalArgumentException("Límites de riesgo inválidos");
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package tech.hellsoft.trading.riesgo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
+import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+
+/**
+ * Unidades de inventario comprometidas y todavía no consumidas: las de las
+ * ventas en vuelo y las de los ingredientes de producciones sin confirmar.
+ *
+ * Una receta reserva todos sus ingredientes o ninguno. Para eso cada producto
+ * cae en una de {@value #FRANJAS} franjas con su propio lock; una reserva toma
+ * las franjas de sus ingredientes siempre en orden ascendente (sin interbloqueos),
+ * comprueba todo, suma todo y suelta. Dos producciones o una producción y una
+ * venta solo se esperan si comparten franja; no hay un lock global.
+ *
+ * Lo reservado se lee sin lock; solo las escrituras toman la franja. El
+ * inventario del mercado lo cambian los eventos sin pasar por aquí, por eso al
+ * confirmar hay que aplicar primero el consumo y después soltar la reserva:
+ * así nunca queda un instante con las unidades disponibles dos veces.
+ */
+public final class ReservasInventario {
+
+    /**
+     * Cantidad de locks; potencia de dos.
+     */
+    public static final int FRANJAS = 16;
+
+    private static final long PLAZO_POR_DEFECTO_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Plazo de una reserva que solo termina con {@link #confirmar} o
+     * {@link #liberar}: {@link #liberarVencidas} nunca la suelta.
+     */
+    public static final long SIN_PLAZO = Long.MAX_VALUE;
+
+    private final EstadoMercado mercado;
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    // Por id de mercado, del mismo tamaño que el mercado
+    private final AtomicIntegerArray reservado;
+
+    // Reservas de recetas sin confirmar ni liberar, por id
+    private final Map<Long, Reserva> activas = new ConcurrentHashMap<>();
+    private final AtomicLong secuencia = new AtomicLong();
+    private final AtomicLong vencidas = new AtomicLong();
+
+    public ReservasInventario(EstadoMercado mercado) {
+        this.mercado = mercado;
+        this.reservado = new AtomicIntegerArray(mercado.capacidad());
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    // ========== UN SOLO PRODUCTO (VENTAS) ==========
+
+    /**
+     * Reserva unidades de un producto; lanza si no hay suficientes libres.
+     */
+    public void reservar(String producto, int cantidad) throws InventarioInsuficienteException {
+        int id = mercado.idDe(producto);
+        ReentrantLock lock = franjas[franja(id)];
+        lock.lock();
+        try {
+            int libres = disponible(id);
+            if (libres < cantidad) {
+                throw new InventarioInsuficienteException(producto, Math.max(libres, 0), cantidad);
+            }
+            reservado.addAndGet(id, cantidad);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve unidades reservadas con {@link #reservar(String, int)}.
+     */
+    public void liberar(String producto, int cantidad) {
+        int id = mercado.idDe(producto);
+        ReentrantLock lock = franjas[franja(id)];
+        lock.lock();
+        try {
+            reservado.addAndGet(id, -cantidad);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ========== RECETAS (TODO O NADA) ==========
+
+    /**
+     * Reserva los ingredientes de {@code corridas} corridas de una receta, con
+     * el plazo por defecto.
+     *
+     * @see #reservar(String, Map, int, long)
+     */
+    public Reserva reservar(String producto, Map<String, Integer> ingredientes, int corridas)
+            throws IngredientesInsuficientesException {
+        return reservar(producto, ingredientes, corridas, PLAZO_POR_DEFECTO_NANOS);
+    }
+
+    /**
+     * Reserva todos los ingredientes o ninguno.
+     *
+     * @param ingredientes unidades por corrida; las cantidades negativas hacen la receta inválida
+     * @param plazoNanos   si no se confirma antes, {@link #liberarVencidas} la
+     *                     suelta; {@link #SIN_PLAZO} = la suelta solo su dueño
+     */
+    public Reserva reservar(String producto, Map<String, Integer> ingredientes, int corridas, long plazoNanos)
+            throws IngredientesInsuficientesException {
+        if (corridas <= 0) {
+            throw new IllegalArgumentException("Las corridas deben ser positivas: " + corridas);
+        }
+        int n = 0;
+        int[] ids = new int[ingredientes.size()];
+        int[] cantidades = new int[ingredientes.size()];
+        for (Map.Entry<String, Integer> e : ingredientes.entrySet()) {
+            int porCorrida = e.getValue() == null ? 0 : e.getValue();
+            if (porCorrida < 0) {
+                throw new IngredientesInsuficientesException(
+                        "Receta de " + producto + " inválida: " + e.getKey() + " = " + porCorrida, Map.of());
+            }
+            if (porCorrida > 0) {
+                ids[n] = mercado.idDe(e.getKey());
+                cantidades[n++] = Math.multiplyExact(porCorrida, corridas);
+            }
+        }
+        Reserva reserva = new Reserva(secuencia.incrementAndGet(), producto, corridas, Arrays.copyOf(ids, n),
+                Arrays.copyOf(cantidades, n), plazoNanos == SIN_PLAZO ? SIN_PLAZO : System.nanoTime() + plazoNanos);
+        if (!intentar(reserva)) {
+            // Puede que lo que falta esté retenido por reservas ya vencidas
+            if (liberarVencidas(System.nanoTime()) == 0 || !intentar(reserva)) {
+                throw new IngredientesInsuficientesException(
+                        "Ingredientes insuficientes para " + corridas + " corrida(s) de " + producto,
+                        disponibles(reserva));
+            }
+        }
+        activas.put(reserva.id, reserva);
+        return reserva;
+    }
+
+    private boolean intentar(Reserva r) {
+        int[] orden = r.franjas;
+        for (int f : orden) {
+            franjas[f].lock();
+        }
+        try {
+            for (int i = 0; i < r.ids.length; i++) {
+                if (disponible(r.ids[i]) < r.cantidades[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < r.ids.length; i++) {
+                reservado.addAndGet(r.ids[i], r.cantidades[i]);
+            }
+            return true;
+        } finally {
+            for (int i = orden.length - 1; i >= 0; i--) {
+                franjas[orden[i]].unlock();
+            }
+        }
+    }
+
+    private void soltar(Reserva r) {
+        for (int f : r.franjas) {
+            franjas[f].lock();
+        }
+        try {
+            for (int i = 0; i < r.ids.length; i++) {
+                reservado.addAndGet(r.ids[i], -r.cantidades[i]);
+            }
+        } finally {
+            for (int i = r.franjas.length - 1; i >= 0; i--) {
+                franjas[r.franjas[i]].unlock();
+            }
+        }
+    }
+
+    /**
+     * El servidor aceptó la producción: llamar después de aplicar el consumo al
+     * inventario. Devuelve false si la reserva ya estaba confirmada o liberada.
+     */
+    public boolean confirmar(Reserva reserva) {
+        return terminar(reserva, Reserva.CONFIRMADA);
+    }
+
+    /**
+     * La producción falló o no se envió: los ingredientes vuelven a estar libres.
+     * Devuelve false si la reserva ya estaba confirmada o liberada.
+     */
+    public boolean liberar(Reserva reserva) {
+        return terminar(reserva, Reserva.LIBERADA);
+    }
+
+    private boolean terminar(Reserva reserva, int motivo) {
+        if (!reserva.estado.compareAndSet(Reserva.ACTIVA, motivo)) {
+            return false;
+        }
+        activas.remove(reserva.id);
+        soltar(reserva);
+        return true;
+    }
+
+    /**
+     * Libera las reservas cuyo plazo pasó sin confirmarse.
+     *
+     * @return cuántas se liberaron
+     */
+    public int liberarVencidas(long ahoraNanos) {
+        int n = 0;
+        for (Iterator<Reserva> it = activas.values().iterator(); it.hasNext();) {
+            Reserva r = it.next();
+            if (r.venceNanos != SIN_PLAZO && ahoraNanos - r.venceNanos >= 0 && terminar(r, Reserva.VENCIDA)) {
+                n++;
+            }
+        }
+        vencidas.addAndGet(n);
+        return n;
+    }
+
+    // ========== CONSULTA ==========
+
+    /**
+     * Unidades del producto que no están comprometidas.
+     */
+    public int disponible(String producto) {
+        int id = mercado.buscarId(producto);
+        return id < 0 ? 0 : disponible(id);
+    }
+
+    private int disponible(int id) {
+        return mercado.cantidad(id) - reservado.get(id);
+    }
+
+    public int reservado(String producto) {
+        int id = mercado.buscarId(producto);
+        return id < 0 ? 0 : reservado.get(id);
+    }
+
+    public int activas() {
+        return activas.size();
+    }
+
+    public long vencidas() {
+        return vencidas.get();
+    }
+
+    private Map<String, Integer> disponibles(Reserva r) {
+        Map<String, Integer> libres = new HashMap<>();
+        for (int id : r.ids) {
+            libres.put(mercado.simbolo(id), Math.max(0, disponible(id)));
+        }
+        return libres;
+    }
+
+    private static int franja(int id) {
+        return id & (FRANJAS - 1);
+    }
+
+    /**
+     * Ingredientes apartados para una producción; se termina una sola vez, con
+     * {@link #confirmar} o {@link #liberar} (o al vencer).
+     */
+    public static final class Reserva {
+
+        static final int ACTIVA = 0;
+        static final int CONFIRMADA = 1;
+        static final int LIBERADA = 2;
+        static final int VENCIDA = 3;
+
+        private final long id;
+        private final String producto;
+        private final int corridas;
+        private final int[] ids;
+        private final int[] cantidades;
+        // Franjas distintas de los ingredientes, ascendentes: orden de bloqueo
+        private final int[] franjas;
+        // SIN_PLAZO = no vence
+        private final long venceNanos;
+        private final AtomicInteger estado = new AtomicInteger(ACTIVA);
+
+        private Reserva(long id, String producto, int corridas, int[] ids, int[] cantidades, long venceNanos) {
+            this.id = id;
+            this.producto = producto;
+            this.corridas = corridas;
+            this.ids = ids;
+            this.cantidades = cantidades;
+            this.venceNanos = venceNanos;
+            this.franjas = Arrays.stream(ids).map(ReservasInventario::franja).distinct().sorted().toArray();
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public String producto() {
+            return producto;
+        }
+
+        public int corridas() {
+            return corridas;
+        }
+
+        public boolean activa() {
+            return estado.get() == ACTIVA;
+        }
+
+        public boolean vencida() {
+            return estado.get() == VENCIDA;
+        }
+
+        @Override
+        public String toString() {
+            String[] nombres = {"activa", "confirmada", "liberada", "vencida"};
+            return "Reserva#" + id + " " + producto + " x" + corridas + " (" + nombres[estado.get()] + ")";
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package tech.hellsoft.trading.simulador;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+
+/**
+ * Parámetros del simulador. Se escriben como host en {@code config.json}:
+ *
+ * <pre>
+ * sim://local?semilla=42&amp;ticks=100000&amp;latenciaUs=200&amp;jitterUs=50&amp;productos=PALTA-OIL,GUACA
+ * </pre>
+ *
+ * @param semilla misma semilla, mismos precios y ofertas
+ * @param ticksPorSegundo tickers emitidos por segundo entre todos los productos; 0 = sin pausa
+ * @param latenciaNanos retardo fijo de cada mensaje del servidor al cliente
+ * @param jitterNanos retardo extra aleatorio, uniforme en [0, jitter)
+ * @param ofertasPorTick probabilidad de emitir una oferta tras cada ticker
+ * @param probRechazo probabilidad de rechazar una orden válida (simula errores del servidor)
+ * @param volatilidad desviación del paso del precio, relativa al mid
+ * @param spread ancho bid/ask relativo al mid
+ */
+public record ConfigSimulador(long semilla, List<String> productos, double ticksPorSegundo, long latenciaNanos,
+        long jitterNanos, double ofertasPorTick, double probRechazo, double volatilidad, double spread,
+        double saldoInicial, int inventarioInicial, String equipo) {
+
+    public static final String ESQUEMA = "sim";
+
+    public static ConfigSimulador porDefecto() {
+        return new ConfigSimulador(42L, List.of("PALTA-OIL", "GUACA", "FOSFO", "SEBO", "NUCREM"), 10_000.0,
+                TimeUnit.MICROSECONDS.toNanos(200), TimeUnit.MICROSECONDS.toNanos(50), 0.01, 0.0, 0.001,
+                0.002, 10_000.0, 100, "simulado");
+    }
+
+    public ConfigSimulador {
+        if (productos == null || productos.isEmpty()) {
+            throw new IllegalArgumentException("El simulador necesita al menos un producto");
+        }
+        if (ticksPorSegundo < 0 || latenciaNanos < 0 || jitterNanos < 0) {
+            throw new IllegalArgumentException("Tasa y latencias no pueden ser negativas");
+        }
+        if (ofertasPorTick < 0 || ofertasPorTick > 1 || probRechazo < 0 || probRechazo > 1) {
+            throw new IllegalArgumentException("Las probabilidades deben estar en [0, 1]");
+        }
+        productos = List.copyOf(productos);
+    }
+
+    /**
+     * true si el host de la configuración apunta al simulador.
+     */
+    public static boolean esSimulado(String host) {
+        return host != null && host.startsWith(ESQUEMA + "://");
+    }
+
+    /**
+     * Lee los parámetros de la query; los que falten toman el valor por defecto.
+     */
+    public static ConfigSimulador desdeUri(String host) throws ConfiguracionInvalidaException {
+        if (!esSimulado(host)) {
+            throw new ConfiguracionInvalidaException("No es una URI del simulador: " + host);
+        }
+        Map<String, String> q = new HashMap<>();
+        String query;
+        try {
+            query = URI.create(host).getRawQuery();
+        } catch (IllegalArgumentException e) {
+            throw new ConfiguracionInvalidaException("URI del simulador inválida: " + host, e);
+        }
+        if (query != null) {
+            for (String par : query.split("&")) {
+                int igual = par.indexOf('=');
+                if (igual > 0) {
+                    q.put(par.substring(0, igual), URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        ConfigSimulador d = porDefecto();
+        try {
+            return new ConfigSimulador(
+                    largo(q, "semilla", d.semilla),
+                    q.containsKey("productos") ? Arrays.asList(q.get("productos").split(",")) : d.productos,
+                    decimal(q, "ticks", d.ticksPorSegundo),
+                    q.containsKey("latenciaUs") ? TimeUnit.MICROSECONDS.toNanos(largo(q, "latenciaUs", 0)) : d.latenciaNanos,
+                    q.containsKey("jitterUs") ? TimeUnit.MICROSECONDS.toNanos(largo(q, "jitterUs", 0)) : d.jitterNanos,
+                    decimal(q, "ofertas", d.ofertasPorTick),
+                    decimal(q, "rechazo", d.probRechazo),
+                    decimal(q, "volatilidad", d.volatilidad),
+                    decimal(q, "spread", d.spread),
+                    decimal(q, "saldo", d.saldoInicial),
+                    (int) largo(q, "inventario", d.inventarioInicial),
+                    q.getOrDefault("equipo", d.equipo));
+        } catch (IllegalArgumentException e) {
+            throw new ConfiguracionInvalidaException("Parámetro del simulador inválido: " + e.getMessage(), e);
+        }
+    }
+
+    private static long largo(Map<String, String> q, String clave, long defecto) {
+        String v = q.get(clave);
+        return v == null ? defecto : Long.parseLong(v.trim());
+    }
+
+    private static double decimal(Map<String, String> q, String clave, double defecto) {
+        String v = q.get(clave);
+        return v == null ? defecto : Double.parseDouble(v.trim());
+    }
+}
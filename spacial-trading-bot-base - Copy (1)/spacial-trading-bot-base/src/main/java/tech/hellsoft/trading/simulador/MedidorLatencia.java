@@ -0,0 +1,126 @@
+package tech.hellsoft.trading.simulador;
+
+import java.util.concurrent.atomic.LongAdder;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.BroadcastNotificationMessage;
+import tech.hellsoft.trading.dto.server.ErrorMessage;
+import tech.hellsoft.trading.dto.server.EventDeltaMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.GlobalPerformanceReportMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.metricas.Histograma;
+
+/**
+ * Envuelve un listener y mide, para cada {@link TickerSimulado}, el tiempo desde
+ * que el simulador lo generó hasta que el listener terminó de procesarlo: latencia
+ * simulada + colas del despachador + lógica del bot.
+ *
+ * Los tiempos van a un {@link Histograma}, sin asignar memoria por muestra.
+ */
+public final class MedidorLatencia implements EventListener {
+
+    private final EventListener delegado;
+    private final Histograma latencia = new Histograma("ticker de punta a punta");
+    private final LongAdder eventos = new LongAdder();
+
+    public MedidorLatencia(EventListener delegado) {
+        this.delegado = delegado;
+    }
+
+    @Override
+    public void onTicker(TickerMessage message) {
+        delegado.onTicker(message);
+        eventos.increment();
+        if (message instanceof TickerSimulado t) {
+            latencia.registrarDesde(t.getGeneradoNanos());
+        }
+    }
+
+    public Histograma.Instantanea instantanea() {
+        return latencia.instantanea();
+    }
+
+    /**
+     * Eventos de cualquier tipo que pasaron por el medidor.
+     */
+    public long eventos() {
+        return eventos.sum();
+    }
+
+    public void reiniciar() {
+        latencia.reiniciar();
+    }
+
+    // ========== RESTO DE CALLBACKS: se reenvían sin medir ==========
+
+    @Override
+    public void onLoginOk(LoginOKMessage message) {
+        eventos.increment();
+        delegado.onLoginOk(message);
+    }
+
+    @Override
+    public void onError(ErrorMessage message) {
+        eventos.increment();
+        delegado.onError(message);
+    }
+
+    @Override
+    public void onFill(FillMessage message) {
+        eventos.increment();
+        delegado.onFill(message);
+    }
+
+    @Override
+    public void onBalanceUpdate(BalanceUpdateMessage message) {
+        eventos.increment();
+        delegado.onBalanceUpdate(message);
+    }
+
+    @Override
+    public void onInventoryUpdate(InventoryUpdateMessage message) {
+        eventos.increment();
+        delegado.onInventoryUpdate(message);
+    }
+
+    @Override
+    public void onOffer(OfferMessage message) {
+        eventos.increment();
+        delegado.onOffer(message);
+    }
+
+    @Override
+    public void onOrderAck(OrderAckMessage message) {
+        eventos.increment();
+        delegado.onOrderAck(message);
+    }
+
+    @Override
+    public void onEventDelta(EventDeltaMessage message) {
+        eventos.increment();
+        delegado.onEventDelta(message);
+    }
+
+    @Override
+    public void onBroadcast(BroadcastNotificationMessage message) {
+        eventos.increment();
+        delegado.onBroadcast(message);
+    }
+
+    @Override
+    public void onConnectionLost(Throwable error) {
+        eventos.increment();
+        delegado.onConnectionLost(error);
+    }
+
+    @Override
+    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage message) {
+        eventos.increment();
+        delegado.onGlobalPerformanceReport(message);
+    }
+}
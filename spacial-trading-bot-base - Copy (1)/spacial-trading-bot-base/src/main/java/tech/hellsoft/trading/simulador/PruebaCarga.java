@@ -0,0 +1,80 @@
+package tech.hellsoft.trading.simulador;
+
+import java.util.concurrent.TimeUnit;
+import tech.hellsoft.trading.Cliente.ClienteBolsa;
+import tech.hellsoft.trading.estrategia.EstrategiaUmbral;
+import tech.hellsoft.trading.eventos.DespachadorEventos;
+import tech.hellsoft.trading.eventos.EstadisticasCanal;
+import tech.hellsoft.trading.eventos.ModoTicker;
+import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
+import tech.hellsoft.trading.metricas.Histograma;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
+
+/**
+ * Prueba de carga: ClienteBolsa completo (despachador, riesgo, estrategias)
+ * contra el simulador, imprimiendo cada segundo eventos/s y latencia.
+ *
+ * <pre>
+ * java ... tech.hellsoft.trading.simulador.PruebaCarga "sim://local?ticks=200000&amp;semilla=7" 30
+ * </pre>
+ */
+public final class PruebaCarga {
+
+    private PruebaCarga() {
+    }
+
+    public static void main(String[] args) throws ConfiguracionInvalidaException, InterruptedException {
+        ConfigSimulador config = ConfigSimulador.desdeUri(args.length > 0 ? args[0] : "sim://local?ticks=100000");
+        int segundos = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        SimuladorBolsa simulador = new SimuladorBolsa(config);
+        ClienteBolsa cliente = new ClienteBolsa(simulador, simulador, LimitesRiesgo.porDefecto());
+        MedidorLatencia medidor = new MedidorLatencia(cliente);
+        DespachadorEventos despachador = new DespachadorEventos();
+        // Todos los tickers, sin conflar: se mide la capacidad real del consumidor
+        despachador.agregar("cliente", medidor, ModoTicker.TODOS);
+        simulador.addListener(despachador);
+        despachador.iniciar();
+
+        simulador.conectar();
+        // Esperar el primer ticker de cada producto para fijar umbrales alrededor del precio
+        Thread.sleep(200);
+        for (String producto : config.productos()) {
+            double mid = cliente.getEstado().getMercado().mid(producto);
+            if (mid > 0) {
+                cliente.getEstrategias().registrar(new EstrategiaUmbral(producto, mid * 0.999, mid * 1.001, 1));
+            }
+        }
+
+        System.out.printf("Simulador: %s, %.0f ticks/s, latencia %d µs ± %d µs, semilla %d%n",
+                config.productos(), config.ticksPorSegundo(), TimeUnit.NANOSECONDS.toMicros(config.latenciaNanos()),
+                TimeUnit.NANOSECONDS.toMicros(config.jitterNanos()), config.semilla());
+        long eventosPrevios = medidor.eventos();
+        for (int s = 1; s <= segundos; s++) {
+            Thread.sleep(1000);
+            long eventos = medidor.eventos();
+            Histograma.Instantanea l = medidor.instantanea();
+            Histograma.Instantanea o = cliente.getMetricas().tickAOrden().instantanea();
+            SimuladorBolsa.Estadisticas e = simulador.estadisticas();
+            System.out.printf("%3ds %,10d ev/s | p50 %6d µs p99 %6d µs p99.9 %6d µs | órdenes %d fills %d rechazos %d"
+                    + " | ticker→orden p99 %d µs | ack medio %d µs%n",
+                    s, eventos - eventosPrevios, micros(l.percentil(50)), micros(l.percentil(99)),
+                    micros(l.percentil(99.9)), e.ordenes(), e.fills(), e.rechazos(), micros(o.percentil(99)),
+                    TimeUnit.NANOSECONDS.toMicros(e.latenciaAckMediaNanos()));
+            eventosPrevios = eventos;
+            medidor.reiniciar();
+        }
+
+        simulador.desconectar();
+        cliente.getEstrategias().detener();
+        despachador.detener();
+        for (EstadisticasCanal c : despachador.estadisticas()) {
+            System.out.printf("Canal %s: publicados %d, descartados %d, desbordes %d%n", c.nombre(), c.publicados(),
+                    c.descartados(), c.desbordes());
+        }
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,471 @@
+package tech.hellsoft.trading.simulador;
+
+import java.net.ConnectException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.conexion.Conexion;
+import tech.hellsoft.trading.dto.client.OrderMessage;
+import tech.hellsoft.trading.dto.client.ProductionUpdateMessage;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.eventos.TipoEvento;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.ordenes.SalidaOrdenes;
+import tech.hellsoft.trading.produccion.SalidaProduccion;
+
+/**
+ * Bolsa local que reemplaza al servidor para pruebas de carga sin red.
+ *
+ * Entrega a sus listeners los mismos mensajes que el SDK (login, tickers,
+ * ofertas, acks, fills, saldo e inventario) desde un único hilo, igual que el
+ * hilo lector del WebSocket, así que el bot no distingue uno de otro.
+ *
+ * Precios: paseo aleatorio por producto a {@code ticksPorSegundo}. Órdenes:
+ * MARKET se llena entera al ask/bid; LIMIT se llena si cruza y si no queda en
+ * reposo hasta que un ticker la cruce. Cada mensaje sale con latencia fija más
+ * jitter, sin reordenarse (como un socket TCP). Producciones: suma las unidades
+ * informadas; si tiene la receta del producto y alcanzan sus ingredientes, los
+ * consume e informa ese inventario antes que el del producto.
+ *
+ * Determinismo: los precios y las ofertas salen de un generador con la semilla
+ * de la configuración y no dependen de lo que haga el bot; los rechazos y el
+ * jitter usan un segundo generador. Con la misma semilla la secuencia de
+ * tickers es idéntica entre corridas.
+ */
+public final class SimuladorBolsa implements SalidaOrdenes, SalidaProduccion, Conexion, AutoCloseable {
+
+    // Por debajo de esto se espera girando; por encima se duerme el hilo
+    private static final long ESPERA_ACTIVA_NANOS = 100_000;
+    // Atraso máximo que se intenta recuperar emitiendo tickers seguidos
+    private static final long ATRASO_MAXIMO_NANOS = 1_000_000_000L;
+
+    private final ConfigSimulador config;
+    private final List<EventListener> oyentes = new CopyOnWriteArrayList<>();
+    private final Queue<Entrante> entrantes = new ConcurrentLinkedQueue<>();
+    private final Queue<ProductionUpdateMessage> producciones = new ConcurrentLinkedQueue<>();
+    private volatile Map<String, Receta> recetas = Map.of();
+    private volatile boolean activo;
+    // Lo pide cortar() y lo ejecuta el hilo del simulador
+    private volatile boolean cortePendiente;
+    private Thread hilo;
+
+    // Estado del mercado y de la cuenta; solo los toca el hilo del simulador
+    private final String[] productos;
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final double[] mids;
+    private final int[] inventario;
+    private final List<List<Entrante>> reposo;
+    private double saldo;
+    private final SplittableRandom azarMercado;
+    private final SplittableRandom azarOrdenes;
+    private final ArrayDeque<Envio> envios = new ArrayDeque<>();
+    private long ultimaEntrega;
+    private long siguienteOferta;
+
+    private final LongAdder tickers = new LongAdder();
+    private final LongAdder ofertas = new LongAdder();
+    private final LongAdder ordenes = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LongAdder rechazos = new LongAdder();
+    private final LongAdder generados = new LongAdder();
+    private final LongAdder entregados = new LongAdder();
+    private final LongAdder erroresOyentes = new LongAdder();
+    private final AtomicLong latenciaAckTotal = new AtomicLong();
+    private final AtomicLong latenciaAckMaxima = new AtomicLong();
+    private final LongAdder acks = new LongAdder();
+
+    /**
+     * @param entregados mensajes de todo tipo entregados a los listeners
+     * @param enVuelo mensajes generados que aún esperan su latencia
+     * @param latenciaAckMediaNanos desde {@link #enviarOrden} hasta entregar su ack
+     */
+    public record Estadisticas(long tickers, long ofertas, long ordenes, long fills, long rechazos,
+            long entregados, long enVuelo, long erroresOyentes, long latenciaAckMediaNanos,
+            long latenciaAckMaximaNanos) {
+    }
+
+    private record Entrante(OrderMessage orden, long recibidoNanos) {
+    }
+
+    /**
+     * @param origenNanos cuándo llegó la orden que lo provocó; 0 si no aplica
+     */
+    private record Envio(long entregaNanos, TipoEvento tipo, Object mensaje, long origenNanos) {
+    }
+
+    public SimuladorBolsa(ConfigSimulador config) {
+        this.config = config;
+        int n = config.productos().size();
+        this.productos = config.productos().toArray(new String[0]);
+        this.mids = new double[n];
+        this.inventario = new int[n];
+        this.reposo = new ArrayList<>(n);
+        this.azarMercado = new SplittableRandom(config.semilla());
+        this.azarOrdenes = new SplittableRandom(config.semilla() ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < n; i++) {
+            indices.put(productos[i], i);
+            mids[i] = 10.0 + azarMercado.nextDouble(90.0);
+            inventario[i] = config.inventarioInicial();
+            reposo.add(new ArrayList<>());
+        }
+        this.saldo = config.saldoInicial();
+    }
+
+    public void addListener(EventListener listener) {
+        oyentes.add(listener);
+    }
+
+    /**
+     * Recetas con las que se consumen ingredientes al producir; sin recetas
+     * toda producción es básica.
+     */
+    public void setRecetas(Map<String, Receta> recetas) {
+        this.recetas = recetas == null ? Map.of() : recetas;
+    }
+
+    /**
+     * Arranca el hilo del simulador; lo primero que reciben los listeners es el login.
+     */
+    @Override
+    public synchronized void conectar() {
+        if (activo) {
+            return;
+        }
+        activo = true;
+        cortePendiente = false;
+        hilo = new Thread(this::correr, "simulador");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    @Override
+    public void desconectar() {
+        Thread h;
+        synchronized (this) {
+            activo = false;
+            h = hilo;
+            hilo = null;
+        }
+        esperarFin(h);
+    }
+
+    /**
+     * Simula una caída de red: se detiene, pierde los mensajes que iban en
+     * camino (fills incluidos) y avisa {@code onConnectionLost}. Las órdenes
+     * recibidas siguen en la cola y se procesan al volver a conectar.
+     *
+     * El corte y el aviso los hace el propio hilo del simulador, como el hilo
+     * lector del SDK: los listeners nunca reciben mensajes de dos hilos a la vez.
+     * Espera a que el hilo termine salvo si lo llama un listener desde ese hilo.
+     */
+    public void cortar() {
+        Thread h;
+        synchronized (this) {
+            h = hilo;
+            if (h == null) {
+                return;
+            }
+            cortePendiente = true;
+        }
+        LockSupport.unpark(h);
+        esperarFin(h);
+    }
+
+    private static void esperarFin(Thread h) {
+        if (h == null || h == Thread.currentThread()) {
+            return;
+        }
+        try {
+            h.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        desconectar();
+    }
+
+    /**
+     * Se llama desde cualquier hilo; la orden se procesa en el hilo del simulador.
+     */
+    @Override
+    public void enviarOrden(OrderMessage orden) {
+        entrantes.add(new Entrante(orden, System.nanoTime()));
+    }
+
+    /**
+     * Se llama desde cualquier hilo; la producción se aplica en el hilo del simulador.
+     */
+    @Override
+    public void enviarProduccion(ProductionUpdateMessage produccion) {
+        producciones.add(produccion);
+    }
+
+    public Estadisticas estadisticas() {
+        long n = acks.sum();
+        return new Estadisticas(tickers.sum(), ofertas.sum(), ordenes.sum(), fills.sum(), rechazos.sum(),
+                entregados.sum(), Math.max(0, generados.sum() - entregados.sum()),
+                erroresOyentes.sum(), n == 0 ? 0 : latenciaAckTotal.get() / n, latenciaAckMaxima.get());
+    }
+
+    public ConfigSimulador getConfig() {
+        return config;
+    }
+
+    // ========== HILO DEL SIMULADOR ==========
+
+    private void correr() {
+        long ahora = System.nanoTime();
+        iniciarSesion(ahora);
+        long intervalo = config.ticksPorSegundo() > 0 ? (long) (1e9 / config.ticksPorSegundo()) : 0;
+        long siguienteTick = ahora;
+        while (activo) {
+            if (cortePendiente) {
+                ejecutarCorte();
+                return;
+            }
+            ahora = System.nanoTime();
+            procesarOrdenes(ahora);
+            procesarProducciones(ahora);
+            if (ahora >= siguienteTick) {
+                emitirTicker(ahora);
+                siguienteTick = intervalo == 0 ? ahora : Math.max(siguienteTick + intervalo, ahora - ATRASO_MAXIMO_NANOS);
+            }
+            entregarVencidos(System.nanoTime());
+            esperarHasta(Math.min(siguienteTick, envios.isEmpty() ? Long.MAX_VALUE : envios.peekFirst().entregaNanos()));
+        }
+    }
+
+    private void ejecutarCorte() {
+        envios.clear();
+        ConnectException causa = new ConnectException("Corte simulado");
+        for (EventListener oyente : oyentes) {
+            try {
+                oyente.onConnectionLost(causa);
+            } catch (RuntimeException ex) {
+                erroresOyentes.increment();
+            }
+        }
+        // Después del aviso, para que ningún hilo nuevo entregue mientras se avisa; el
+        // supervisor reconecta desde otro hilo y antes llama a desconectar(), que espera a este
+        synchronized (this) {
+            if (hilo == Thread.currentThread()) {
+                activo = false;
+                hilo = null;
+            }
+        }
+    }
+
+    private void esperarHasta(long objetivo) {
+        long falta = objetivo - System.nanoTime();
+        if (falta <= 0 || cortePendiente || !entrantes.isEmpty() || !producciones.isEmpty()) {
+            return;
+        }
+        if (falta > ESPERA_ACTIVA_NANOS) {
+            // Se despierta antes para no pasarse; el resto lo cubre la espera activa
+            LockSupport.parkNanos(Math.min(falta - ESPERA_ACTIVA_NANOS / 2, 1_000_000L));
+        } else {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void iniciarSesion(long ahora) {
+        enviar(ahora, TipoEvento.LOGIN_OK, new LoginOKMessage(config.equipo(), "simulada", saldo), 0);
+        for (int i = 0; i < productos.length; i++) {
+            enviar(ahora, TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage(productos[i], inventario[i]), 0);
+        }
+    }
+
+    private void emitirTicker(long ahora) {
+        int i = azarMercado.nextInt(productos.length);
+        mids[i] = Math.max(0.01, mids[i] * Math.exp(config.volatilidad() * azarMercado.nextGaussian()));
+        double bid = mids[i] * (1.0 - config.spread() / 2);
+        double ask = mids[i] * (1.0 + config.spread() / 2);
+        enviar(ahora, TipoEvento.TICKER, new TickerSimulado(productos[i], bid, ask, ahora), 0);
+        tickers.increment();
+        cruzarReposo(i, bid, ask, ahora);
+        // Se sortea siempre para que la secuencia no dependa de la probabilidad configurada
+        double sorteo = azarMercado.nextDouble();
+        int cantidad = 1 + azarMercado.nextInt(10);
+        double recargo = 1.02 + azarMercado.nextDouble(0.08);
+        if (sorteo < config.ofertasPorTick()) {
+            String id = "SIM-OF-" + (++siguienteOferta);
+            enviar(ahora, TipoEvento.OFFER, new OfferMessage(id, productos[i], cantidad, bid * recargo), 0);
+            ofertas.increment();
+        }
+    }
+
+    private void procesarOrdenes(long ahora) {
+        Entrante e;
+        while ((e = entrantes.poll()) != null) {
+            ordenes.increment();
+            procesar(e, ahora);
+        }
+    }
+
+    private void procesarProducciones(long ahora) {
+        ProductionUpdateMessage p;
+        while ((p = producciones.poll()) != null) {
+            Integer id = p.getProduct() == null ? null : indices.get(p.getProduct());
+            if (id == null || p.getQuantity() <= 0) {
+                rechazos.increment();
+                continue;
+            }
+            consumirIngredientes(recetas.get(p.getProduct()), ahora);
+            inventario[id] += p.getQuantity();
+            enviar(ahora, TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage(productos[id], inventario[id]), 0);
+        }
+    }
+
+    private void consumirIngredientes(Receta receta, long ahora) {
+        if (receta == null || receta.ingredientes().isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> e : receta.ingredientes().entrySet()) {
+            Integer i = indices.get(e.getKey());
+            if (i == null || inventario[i] < e.getValue()) {
+                return;
+            }
+        }
+        for (Map.Entry<String, Integer> e : receta.ingredientes().entrySet()) {
+            int i = indices.get(e.getKey());
+            inventario[i] -= e.getValue();
+            enviar(ahora, TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage(productos[i], inventario[i]), 0);
+        }
+    }
+
+    private void procesar(Entrante e, long ahora) {
+        OrderMessage o = e.orden();
+        Integer id = o.getProduct() == null ? null : indices.get(o.getProduct());
+        boolean compra = "BUY".equalsIgnoreCase(o.getSide());
+        if (id == null || o.getQty() <= 0 || (!compra && !"SELL".equalsIgnoreCase(o.getSide()))
+                || azarOrdenes.nextDouble() < config.probRechazo()) {
+            rechazar(e, ahora);
+            return;
+        }
+        int i = id;
+        double bid = mids[i] * (1.0 - config.spread() / 2);
+        double ask = mids[i] * (1.0 + config.spread() / 2);
+        double limite = o.getLimitPrice() == null ? 0.0 : o.getLimitPrice();
+        boolean cruza = limite <= 0 || (compra ? limite >= ask : limite <= bid);
+        double precio = compra ? ask : bid;
+        if (cruza && !alcanza(i, compra, o.getQty(), precio)) {
+            rechazar(e, ahora);
+            return;
+        }
+        enviar(ahora, TipoEvento.ORDER_ACK, new OrderAckMessage(o.getClOrdID(), "ACCEPTED"), e.recibidoNanos());
+        if (cruza) {
+            ejecutar(i, compra, o.getQty(), precio, ahora);
+        } else {
+            reposo.get(i).add(e);
+        }
+    }
+
+    private void cruzarReposo(int i, double bid, double ask, long ahora) {
+        List<Entrante> lista = reposo.get(i);
+        if (lista.isEmpty()) {
+            return;
+        }
+        for (Iterator<Entrante> it = lista.iterator(); it.hasNext();) {
+            OrderMessage o = it.next().orden();
+            boolean compra = "BUY".equalsIgnoreCase(o.getSide());
+            double limite = o.getLimitPrice();
+            if (compra ? limite < ask : limite > bid) {
+                continue;
+            }
+            it.remove();
+            double precio = compra ? ask : bid;
+            if (alcanza(i, compra, o.getQty(), precio)) {
+                ejecutar(i, compra, o.getQty(), precio, ahora);
+            } else {
+                enviar(ahora, TipoEvento.ORDER_ACK, new OrderAckMessage(o.getClOrdID(), "CANCELLED"), 0);
+            }
+        }
+    }
+
+    private boolean alcanza(int i, boolean compra, int cantidad, double precio) {
+        return compra ? cantidad * precio <= saldo : cantidad <= inventario[i];
+    }
+
+    private void ejecutar(int i, boolean compra, int cantidad, double precio, long ahora) {
+        saldo += compra ? -cantidad * precio : cantidad * precio;
+        inventario[i] += compra ? cantidad : -cantidad;
+        enviar(ahora, TipoEvento.FILL, new FillMessage(compra ? "BUY" : "SELL", cantidad, productos[i], precio), 0);
+        enviar(ahora, TipoEvento.BALANCE_UPDATE, new BalanceUpdateMessage(saldo), 0);
+        enviar(ahora, TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage(productos[i], inventario[i]), 0);
+        fills.increment();
+    }
+
+    private void rechazar(Entrante e, long ahora) {
+        rechazos.increment();
+        enviar(ahora, TipoEvento.ORDER_ACK, new OrderAckMessage(e.orden().getClOrdID(), "REJECTED"), e.recibidoNanos());
+    }
+
+    // ========== LATENCIA Y ENTREGA ==========
+
+    private void enviar(long ahora, TipoEvento tipo, Object mensaje, long origenNanos) {
+        long retraso = config.latenciaNanos()
+                + (config.jitterNanos() > 0 ? azarOrdenes.nextLong(config.jitterNanos()) : 0);
+        // Nunca antes que el anterior: el canal conserva el orden
+        long entrega = Math.max(ahora + retraso, ultimaEntrega);
+        ultimaEntrega = entrega;
+        envios.addLast(new Envio(entrega, tipo, mensaje, origenNanos));
+        generados.increment();
+    }
+
+    private void entregarVencidos(long ahora) {
+        Envio envio;
+        while ((envio = envios.peekFirst()) != null && envio.entregaNanos() <= ahora) {
+            envios.pollFirst();
+            for (EventListener oyente : oyentes) {
+                try {
+                    entregar(oyente, envio.tipo(), envio.mensaje());
+                } catch (RuntimeException ex) {
+                    erroresOyentes.increment();
+                }
+            }
+            entregados.increment();
+            if (envio.origenNanos() > 0) {
+                registrarAck(System.nanoTime() - envio.origenNanos());
+            }
+        }
+    }
+
+    private void registrarAck(long nanos) {
+        acks.increment();
+        latenciaAckTotal.addAndGet(nanos);
+        latenciaAckMaxima.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static void entregar(EventListener l, TipoEvento tipo, Object m) {
+        switch (tipo) {
+            case LOGIN_OK -> l.onLoginOk((LoginOKMessage) m);
+            case TICKER -> l.onTicker((TickerMessage) m);
+            case FILL -> l.onFill((FillMessage) m);
+            case BALANCE_UPDATE -> l.onBalanceUpdate((BalanceUpdateMessage) m);
+            case INVENTORY_UPDATE -> l.onInventoryUpdate((InventoryUpdateMessage) m);
+            case OFFER -> l.onOffer((OfferMessage) m);
+            case ORDER_ACK -> l.onOrderAck((OrderAckMessage) m);
+            default -> throw new IllegalStateException("El simulador no emite " + tipo);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package tech.hellsoft.trading.simulador;
+
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Ticker del simulador que recuerda cuándo se generó, para medir la latencia
+ * de punta a punta sin cambiar el mensaje que ve el bot.
+ */
+public final class TickerSimulado extends TickerMessage {
+
+    private final long generadoNanos;
+
+    public TickerSimulado(String product, double bestBid, double bestAsk, long generadoNanos) {
+        super(product, bestBid, bestAsk);
+        this.generadoNanos = generadoNanos;
+    }
+
+    /**
+     * Instante ({@link System#nanoTime()}) en que el simulador generó el ticker.
+     */
+    public long getGeneradoNanos() {
+        return generadoNanos;
+    }
+}
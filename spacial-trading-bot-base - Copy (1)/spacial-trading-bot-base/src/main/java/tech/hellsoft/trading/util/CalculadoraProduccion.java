@@ -1,32 +1,63 @@
 package tech.hellsoft.trading.util;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import tech.hellsoft.trading.modelo.Rol;
 public class CalculadoraProduccion {
+
+    // Rol es inmutable: las unidades de un rol se calculan una sola vez
+    private static final Map<Rol, Integer> CACHE = new ConcurrentHashMap<>();
+
     /**
-     * Calcula las unidades producidas usando recursión.
+     * Unidades producidas por el rol, memorizadas por valor del rol.
      */
     public static int calcularUnidades(Rol rol) {
-        return calcularRecursivo(0, rol);
+        Integer unidades = CACHE.get(rol);
+        if (unidades == null) {
+            unidades = calcular(rol.getBaseEnergy(), rol.getLevelEnergy(), rol.getDecay(), rol.getBranches(),
+                    rol.getMaxDepth());
+            CACHE.putIfAbsent(rol, unidades);
+        }
+        return unidades;
+    }
+
+    /**
+     * Unidades de varios roles a la vez; {@code destino[i]} corresponde a {@code roles[i]}.
+     */
+    public static void calcularUnidades(Rol[] roles, int[] destino) {
+        for (int i = 0; i < roles.length; i++) {
+            destino[i] = calcularUnidades(roles[i]);
+        }
+    }
+
+    /**
+     * Evalúa muchos juegos de parámetros sin crear objetos Rol (para explorar
+     * variantes de un rol en el planificador). Los arreglos van en paralelo.
+     */
+    public static void calcularUnidades(double[] baseEnergy, int[] levelEnergy, double[] decay,
+            double[] branches, int[] maxDepth, int[] destino) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] = calcular(baseEnergy[i], levelEnergy[i], decay[i], branches[i], maxDepth[i]);
+        }
     }
 
     /**
-     * Función recursiva que suma contribuciones de cada nivel.
+     * Suma de (base + levelEnergy * n) * (decay * branches)^n para n = 0..maxDepth.
+     *
+     * No se usa la fórmula cerrada de la serie geométrica porque cada nivel se
+     * redondea a unidades enteras por separado. Las potencias van con Math.pow
+     * en cada nivel, como en la versión recursiva original: acumularlas
+     * multiplicando arrastra error de redondeo y cambia el resultado en
+     * algunos roles (p. ej. 7418 en vez de 7417). Solo se paga al fallar la caché.
      */
-    private static int calcularRecursivo(int nivel, Rol rol) {
-        // ⚠ CASO BASE: Profundidad máxima alcanzada
-        if (nivel > rol.getMaxDepth()) {
-            return 0;
+    private static int calcular(double baseEnergy, int levelEnergy, double decay, double branches, int maxDepth) {
+        int total = 0;
+        for (int nivel = 0; nivel <= maxDepth; nivel++) {
+            double energia = baseEnergy + levelEnergy * nivel;
+            double factor = Math.pow(decay, nivel) * Math.pow(branches, nivel);
+            total += (int) Math.round(energia * factor);
         }
-        // Calcular energía en este nivel
-        double energia = rol.getBaseEnergy() + rol.getLevelEnergy() * nivel;
-        // Calcular factor multiplicador
-        double decay = Math.pow(rol.getDecay(), nivel);
-        double branches = Math.pow(rol.getBranches(), nivel);
-        double factor = decay * branches;
-        // Contribución de este nivel
-        int contribucion = (int) Math.round(energia * factor);
-        // 🔄 CASO RECURSIVO: Sumar contribuciones de niveles inferiores
-        return contribucion + calcularRecursivo(nivel + 1, rol);
+        return total;
     }
 
     /**
@@ -35,4 +66,4 @@ public class CalculadoraProduccion {
     public static int aplicarBonusPremium(int unidadesBase, double bonus) {
         return (int) Math.round(unidadesBase * bonus);
     }
-}
\ No newline at end of file
+}
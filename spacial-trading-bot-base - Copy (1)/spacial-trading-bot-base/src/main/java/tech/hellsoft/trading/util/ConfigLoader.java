@@ -2,6 +2,7 @@ package tech.hellsoft.trading.util;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import tech.hellsoft.trading.config.ConfigCuentas;
 import tech.hellsoft.trading.config.Configuration;
 import tech.hellsoft.trading.exception.ConfiguracionInvalidaException;
 import tech.hellsoft.trading.modelo.Receta;
@@ -12,7 +13,9 @@ import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public final class ConfigLoader {
 
@@ -55,6 +58,36 @@ public final class ConfigLoader {
 
         return cfg;
     }
+    // CARGAR VARIAS CUENTAS
+    public static ConfigCuentas cargarCuentas(String archivo)
+            throws ConfiguracionInvalidaException {
+
+        String json = leerArchivo(archivo);
+
+        ConfigCuentas cfg;
+        try {
+            cfg = GSON.fromJson(json, ConfigCuentas.class);
+        } catch (Exception e) {
+            throw new ConfiguracionInvalidaException("JSON de cuentas inválido", e);
+        }
+
+        if (cfg == null || cfg.cuentas().isEmpty()) {
+            throw new ConfiguracionInvalidaException(archivo + " no define ninguna cuenta");
+        }
+
+        // Cada equipo es una cuenta: sus snapshots y diario van en una carpeta con su nombre
+        Set<String> equipos = new HashSet<>();
+        for (Configuration c : cfg.cuentas()) {
+            if (c == null) {
+                throw new ConfiguracionInvalidaException("Cuenta vacía en " + archivo);
+            }
+            if (!equipos.add(c.getTeam())) {
+                throw new ConfiguracionInvalidaException("Equipo repetido en " + archivo + ": " + c.getTeam());
+            }
+        }
+
+        return cfg;
+    }
     // CARGAR RECETAS JSON
     public static Map<String, Receta> cargarRecetas(String archivo)
             throws ConfiguracionInvalidaException {
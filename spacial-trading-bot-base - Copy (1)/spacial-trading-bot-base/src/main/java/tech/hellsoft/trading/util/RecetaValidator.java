@@ -3,6 +3,12 @@ package tech.hellsoft.trading.util;
 import java.util.Map;
 import tech.hellsoft.trading.modelo.Receta;
 
+/**
+ * Comprobación y consumo de una receta contra un inventario en un mapa, para
+ * código de un solo hilo (planes, pruebas). El inventario compartido del
+ * cliente se compromete con {@code ReservasInventario}, que reserva todos los
+ * ingredientes o ninguno, y sus corridas posibles están en {@code MatrizRecetas}.
+ */
 public final class RecetaValidator {
 
     private RecetaValidator() {}
@@ -44,26 +50,17 @@ public final class RecetaValidator {
     }
 
     /**
-     * Consume los ingredientes requeridos por la receta.
-     * Debe llamarse SOLO si puedeProducir(receta, inventario) es true.
+     * Consume los ingredientes requeridos por la receta, todos o ninguno.
+     *
+     * @return false (sin tocar el inventario) si falta algo o la receta es inválida
      */
-    public static void consumirIngredientes(Receta receta, Map<String, Integer> inventario) {
-        if (receta == null || inventario == null) {
-            return;
-        }
-
-        Map<String, Integer> req = receta.ingredientes();
-
-        if (req == null || req.isEmpty()) {
-            return; // nada que consumir
+    public static boolean consumirIngredientes(Receta receta, Map<String, Integer> inventario) {
+        if (!puedeProducir(receta, inventario)) {
+            return false;
         }
 
-        req.forEach((ingrediente, requerido) -> {
-            int disponible = inventario.getOrDefault(ingrediente, 0);
-            int nuevo = disponible - requerido;
-
-            // Seguridad: nunca permitir números negativos
-            inventario.put(ingrediente, Math.max(nuevo, 0));
-        });
+        receta.ingredientes().forEach((ingrediente, requerido) ->
+                inventario.merge(ingrediente, -requerido, Integer::sum));
+        return true;
     }
 }
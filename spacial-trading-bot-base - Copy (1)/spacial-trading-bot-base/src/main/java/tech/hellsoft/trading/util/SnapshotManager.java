@@ -2,15 +2,17 @@ package tech.hellsoft.trading.util;
 
 import tech.hellsoft.trading.Cliente.EstadoCliente;
 import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+import tech.hellsoft.trading.persistencia.CodecSnapshot;
 
 import java.io.*;
+import java.nio.file.Path;
 
 public final class SnapshotManager {
 
     private SnapshotManager() {
     }
 
-    //Guarda el estado completo del cliente en un archivo binario//
+    //Guarda el estado completo del cliente en un archivo binario (ver CodecSnapshot)//
     public static void guardar(EstadoCliente estado, String archivo)
             throws SnapshotCorruptoException {
 
@@ -22,11 +24,8 @@ public final class SnapshotManager {
             throw new SnapshotCorruptoException("Ruta inválida al guardar snapshot.");
         }
 
-        try (ObjectOutputStream out =
-                     new ObjectOutputStream(new FileOutputStream(archivo))) {
-
-            out.writeObject(estado);
-
+        try {
+            new CodecSnapshot().escribir(estado, Path.of(archivo));
         } catch (IOException e) {
             throw new SnapshotCorruptoException(
                     "Error al guardar snapshot: " + e.getMessage(), e
@@ -37,6 +36,14 @@ public final class SnapshotManager {
     // Carga un snapshot desde un archivo binario//
     public static EstadoCliente cargar(String archivo)
             throws SnapshotCorruptoException {
+        EstadoCliente estado = new EstadoCliente();
+        cargarEn(archivo, estado);
+        return estado;
+    }
+
+    // Carga un snapshot sobre un estado existente; si el archivo es inválido no lo modifica//
+    public static void cargarEn(String archivo, EstadoCliente destino)
+            throws SnapshotCorruptoException {
 
         if (archivo == null || archivo.isBlank()) {
             throw new SnapshotCorruptoException("Ruta inválida al cargar snapshot.");
@@ -47,20 +54,6 @@ public final class SnapshotManager {
             throw new SnapshotCorruptoException("Archivo de snapshot no válido: " + archivo);
         }
 
-        try (ObjectInputStream in =
-                     new ObjectInputStream(new FileInputStream(file))) {
-
-            Object obj = in.readObject();
-            if (!(obj instanceof EstadoCliente estado)) {
-                throw new SnapshotCorruptoException("Formato de snapshot inválido.");
-            }
-
-            return estado;
-
-        } catch (IOException | ClassNotFoundException e) {
-            throw new SnapshotCorruptoException(
-                    "Error al cargar snapshot: " + e.getMessage(), e
-            );
-        }
+        CodecSnapshot.leerEn(file.toPath(), destino);
     }
 }
@@ -0,0 +1,138 @@
+package tech.hellsoft.trading.Cliente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.ordenes.Lado;
+import tech.hellsoft.trading.persistencia.DiarioEventos;
+import tech.hellsoft.trading.persistencia.VistaEstado;
+import tech.hellsoft.trading.produccion.EstadoTrabajo;
+import tech.hellsoft.trading.produccion.TrabajoProduccion;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
+
+class ClienteBolsaTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void sinSnapshotSeReconstruyeDesdeElLoginConElDiarioEntero() throws Exception {
+        ClienteBolsa cliente = nuevoCliente();
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        try (DiarioEventos diario = new DiarioEventos(dir)) {
+            cliente.setDiario(diario);
+            cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", 10));
+            cliente.onFill(new FillMessage("BUY", 2, "PALTA", 5.0));
+        }
+        EstadoCliente estado = cliente.getEstado();
+        estado.aplicarInventario("SAL", 99);
+        estado.setSaldo(5.0);
+
+        assertEquals(2, cliente.recuperarDesdeCero(dir));
+
+        assertEquals(Map.of("SAL", 10, "PALTA", 2), estado.getMercado().inventarioComoMapa());
+        assertEquals(990.0, estado.getSaldo());
+        assertEquals(2, estado.getSecuenciaDiario());
+    }
+
+    @Test
+    void conElDiarioPurgadoNoTocaElEstado() throws Exception {
+        ClienteBolsa cliente = nuevoCliente();
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        try (DiarioEventos diario = new DiarioEventos(dir, 128, 64)) {
+            cliente.setDiario(diario);
+            for (int i = 1; i <= 20; i++) {
+                cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", i));
+            }
+        }
+        try (DiarioEventos diario = new DiarioEventos(dir, 128, 64)) {
+            assertTrue(diario.purgarHasta(10) > 0);
+        }
+
+        assertThrows(SnapshotCorruptoException.class, () -> cliente.recuperarDesdeCero(dir));
+        assertEquals(20, cliente.getEstado().getMercado().cantidad("SAL"));
+        assertEquals(20, cliente.getEstado().getSecuenciaDiario());
+    }
+
+    @Test
+    void soloCompletaLaProduccionTrasBajarSusIngredientes() throws Exception {
+        ClienteBolsa cliente = nuevoCliente();
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        cliente.getEstado().setRol(new Rol(10.0, 0, 0.0, 1.0, 0));
+        cliente.getEstado().setRecetas(Map.of("GUACA", new Receta(Map.of("SAL", 2))));
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", 5));
+
+        TrabajoProduccion t = cliente.producir("GUACA", true);
+        // Sube por otra causa antes de la respuesta
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("GUACA", 4));
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", 3));
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("GUACA", 17));
+
+        t.terminado().get(5, TimeUnit.SECONDS);
+        assertEquals(EstadoTrabajo.COMPLETADO, t.getEstado());
+        assertEquals(13, t.getUnidadesRecibidas());
+        assertEquals(0, cliente.getRiesgo().getReservas().reservado("SAL"));
+        cliente.getProduccion().close();
+    }
+
+    @Test
+    void siLaVentaFallaLaOfertaVuelveAlLibro() throws Exception {
+        ClienteBolsa cliente = nuevoCliente();
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        cliente.onTicker(new TickerMessage("PALTA", 9.0, 10.0));
+        cliente.onOffer(new OfferMessage("o1", "PALTA", 3, 11.0));
+        assertEquals(3, cliente.getEstado().getLibro().liquidezDesde("PALTA", 11.0));
+
+        // Sin inventario no se puede vender
+        assertThrows(InventarioInsuficienteException.class, () -> cliente.aceptarOferta("o1"));
+        assertEquals("o1", cliente.getOfertas().buscar("o1").getOfferId());
+        assertEquals(3, cliente.getEstado().getLibro().liquidezDesde("PALTA", 11.0));
+
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("PALTA", 3));
+        assertEquals(Lado.SELL, cliente.aceptarOferta("o1").getLado());
+        assertNull(cliente.aceptarOferta("o1"));
+        assertNull(cliente.getOfertas().buscar("o1"));
+        assertEquals(0, cliente.getEstado().getLibro().liquidezDesde("PALTA", 11.0));
+        cliente.getOfertas().close();
+    }
+
+    @Test
+    void unEventoQueFallaNoDejaElEstadoAMedias() {
+        ClienteBolsa cliente = nuevoCliente();
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        EstadoCliente estado = cliente.getEstado();
+        for (int i = 0; i < estado.getMercado().capacidad(); i++) {
+            cliente.onInventoryUpdate(new InventoryUpdateMessage("P" + i, 1));
+        }
+        long antes = estado.getMercado().capacidad() * 2L;
+        assertEquals(antes, estado.marcaEventos());
+
+        // Un producto más ya no cabe en el mercado: el evento lanza a mitad de aplicarse
+        assertThrows(IllegalStateException.class, () -> cliente.onFill(new FillMessage("BUY", 2, "NUEVO", 5.0)));
+        assertThrows(IllegalStateException.class,
+                () -> cliente.onInventoryUpdate(new InventoryUpdateMessage("NUEVO", 4)));
+
+        assertEquals(antes + 4, estado.marcaEventos());
+        assertEquals(1_000.0, VistaEstado.capturar(estado).saldo());
+    }
+
+    private static ClienteBolsa nuevoCliente() {
+        return new ClienteBolsa(orden -> { }, produccion -> { }, LimitesRiesgo.porDefecto());
+    }
+}
@@ -0,0 +1,75 @@
+package tech.hellsoft.trading.Cliente;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.produccion.PlanProduccion;
+import tech.hellsoft.trading.produccion.PlanificadorProduccion;
+
+class EstadoClienteTest {
+
+    private static final String[] PRODUCTOS = {"PALTA", "SAL", "ACEITE", "SEBO"};
+
+    @Test
+    void elPlIncrementalCoincideConElRecalculado() {
+        EstadoCliente estado = new EstadoCliente();
+        estado.setSaldoInicial(10_000.0);
+        estado.setSaldo(10_000.0);
+        Random r = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            String p = PRODUCTOS[r.nextInt(PRODUCTOS.length)];
+            switch (r.nextInt(3)) {
+                case 0 -> {
+                    double bid = 1 + r.nextInt(100);
+                    estado.aplicarTicker(p, bid, bid + r.nextInt(5));
+                }
+                case 1 -> estado.aplicarFill(r.nextBoolean() ? "BUY" : "SELL", p, 1 + r.nextInt(10),
+                        1 + r.nextInt(100));
+                default -> estado.aplicarInventario(p, r.nextInt(50));
+            }
+        }
+
+        double valor = estado.getMercado().valorInventario();
+        double patrimonio = estado.getSaldo() + valor;
+        assertEquals(valor, estado.getValoracion().valorInventario(), 1e-6);
+        assertEquals((patrimonio - 10_000.0) / 10_000.0 * 100.0, estado.calcularPL(), 1e-6);
+    }
+
+    @Test
+    void losEventosAlimentanAlPlanificadorDelCliente() {
+        EstadoCliente estado = new EstadoCliente();
+        Map<String, Receta> recetas = new LinkedHashMap<>();
+        recetas.put("A", new Receta());
+        recetas.put("B", new Receta(Map.of("A", 5)));
+        estado.setRecetas(recetas);
+        estado.setRol(new Rol(10.0, 0, 0.0, 1.0, 0));
+        estado.aplicarTicker("B", 100.0, 101.0);
+        PlanificadorProduccion planificador = estado.getPlanificador();
+        planificador.actualizarSaldo(1_000.0);
+        PlanProduccion primero = planificador.planificar();
+
+        estado.aplicarTicker("SAL", 1.0, 2.0);
+        estado.aplicarTicker("B", 100.0, 101.0);
+        assertSame(primero, planificador.planificar());
+
+        estado.aplicarTicker("A", 1.0, 2.0);
+        estado.aplicarInventario("A", 20);
+        PlanProduccion segundo = planificador.planificar();
+
+        assertSame(planificador, estado.getPlanificador());
+        assertNotSame(primero, segundo);
+        PlanificadorProduccion desdeCero = new PlanificadorProduccion(estado.getRol(), recetas, List.of(),
+                PlanificadorProduccion.CORRIDAS_POR_DEFECTO);
+        desdeCero.cargar(estado.getMercado(), 1_000.0);
+        assertEquals(desdeCero.planificar().acciones(), segundo.acciones());
+        assertEquals(desdeCero.planificar().compras(), segundo.compras());
+    }
+}
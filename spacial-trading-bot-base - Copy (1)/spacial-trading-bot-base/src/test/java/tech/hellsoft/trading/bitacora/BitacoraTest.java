@@ -0,0 +1,106 @@
+package tech.hellsoft.trading.bitacora;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class BitacoraTest {
+
+    private static final Plantilla FILL = Plantilla.info("FILL: {} {} @ ${}");
+    private static final Plantilla AVISO = Plantilla.aviso("aviso {}");
+    private static final Plantilla FALLO = Plantilla.error("fallo {}");
+
+    private final ByteArrayOutputStream salida = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream errores = new ByteArrayOutputStream();
+
+    @Test
+    void formateaLosArgumentosEnLosHuecos() {
+        Bitacora b = nueva(8);
+        b.registro(FILL).texto("BUY").entero(5).real(12.5, 2).texto("extra").publicar();
+        b.registro(FILL).texto("SELL").publicar();
+        b.registro(FALLO).texto(null).publicar();
+        b.close();
+
+        String[] lineas = texto(salida).split(System.lineSeparator());
+        assertEquals(2, lineas.length);
+        assertTrue(lineas[0].endsWith("FILL: BUY 5 @ $12.50 extra"), lineas[0]);
+        assertTrue(lineas[1].endsWith("FILL: SELL {} @ ${}"), lineas[1]);
+        assertTrue(texto(errores).contains("fallo null"));
+        assertEquals(3, b.publicados());
+    }
+
+    @Test
+    void unRegistroAbandonadoNoTrabaAlEscritor() throws InterruptedException {
+        Bitacora b = nueva(4);
+        b.iniciar();
+        for (int i = 0; i < 10; i++) {
+            assertThrows(NullPointerException.class, () -> b.registro(AVISO).texto(mensajeDe(null)).publicar());
+        }
+        for (int i = 0; i < 10; i++) {
+            b.registro(AVISO).entero(i).publicar();
+            esperarVacia(b);
+        }
+        b.close();
+
+        assertEquals(10, b.publicados());
+        assertEquals(0, b.descartados());
+        assertTrue(texto(errores).contains("aviso 9"));
+    }
+
+    @Test
+    void unArgumentoQueEscribeNoPisaElRegistroEnCurso() {
+        Bitacora b = nueva(8);
+        b.registro(FILL).texto("BUY").texto(anidado(b)).entero(3).publicar();
+        b.close();
+
+        String todo = texto(salida) + texto(errores);
+        assertTrue(todo.contains("FILL: BUY interno @ $3"), todo);
+        assertTrue(todo.contains("aviso adentro"), todo);
+    }
+
+    @Test
+    void conElAnilloLlenoDescartaSinBloquear() {
+        Bitacora b = nueva(2);
+        for (int i = 0; i < 5; i++) {
+            b.registro(AVISO).entero(i).publicar();
+        }
+        assertEquals(2, b.profundidad());
+        assertEquals(3, b.descartados());
+        b.close();
+
+        assertTrue(texto(errores).contains("aviso 1"));
+        assertFalse(texto(errores).contains("aviso 2"));
+    }
+
+    private Bitacora nueva(int capacidad) {
+        return new Bitacora(capacidad, new PrintStream(salida, true, StandardCharsets.UTF_8),
+                new PrintStream(errores, true, StandardCharsets.UTF_8));
+    }
+
+    private static String mensajeDe(Throwable t) {
+        return t.getMessage();
+    }
+
+    private static String anidado(Bitacora b) {
+        b.registro(AVISO).texto("adentro").publicar();
+        return "interno";
+    }
+
+    private static void esperarVacia(Bitacora b) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (b.profundidad() > 0 && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, b.profundidad());
+    }
+
+    private static String texto(ByteArrayOutputStream flujo) {
+        return flujo.toString(StandardCharsets.UTF_8);
+    }
+}
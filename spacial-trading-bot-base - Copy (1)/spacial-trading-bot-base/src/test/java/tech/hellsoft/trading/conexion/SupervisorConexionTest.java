@@ -0,0 +1,226 @@
+package tech.hellsoft.trading.conexion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.Cliente.ClienteBolsa;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.eventos.DespachadorEventos;
+import tech.hellsoft.trading.eventos.OyenteGrabador;
+import tech.hellsoft.trading.ordenes.EstadoOrden;
+import tech.hellsoft.trading.ordenes.Orden;
+import tech.hellsoft.trading.riesgo.LimitesRiesgo;
+
+class SupervisorConexionTest {
+
+    @Test
+    void laEsperaCreceHastaElTechoConLaMitadAlAzar() {
+        PoliticaReconexion politica = new PoliticaReconexion(100, 1_000, 0, 1_000, 0);
+        SplittableRandom azar = new SplittableRandom(7);
+        for (int i = 0; i < 1_000; i++) {
+            long primera = politica.esperaMs(0, azar);
+            long tercera = politica.esperaMs(2, azar);
+            long tope = politica.esperaMs(40, azar);
+            assertTrue(primera >= 50 && primera <= 100, () -> "primera = " + primera);
+            assertTrue(tercera >= 200 && tercera <= 400, () -> "tercera = " + tercera);
+            assertTrue(tope >= 500 && tope <= 1_000, () -> "tope = " + tope);
+        }
+    }
+
+    @Test
+    void reconectaYReconciliaTrasElLogin() throws Exception {
+        ConexionFalsa conexion = new ConexionFalsa(0);
+        try (SupervisorConexion supervisor = new SupervisorConexion(conexion, null, rapida(0))) {
+            supervisor.conexionPerdida(new IllegalStateException("socket cerrado"));
+            assertEquals(EstadoConexion.RECONECTANDO, supervisor.estado());
+            esperar(() -> conexion.conexiones.get() == 1);
+
+            assertTrue(supervisor.sesionIniciada(new LoginOKMessage("equipo", "especie", 100.0)));
+            esperar(() -> supervisor.estado() == EstadoConexion.CONECTADO);
+
+            assertEquals(1, supervisor.cortes());
+            assertEquals(1, supervisor.reconexiones());
+            assertFalse(supervisor.ultimaReconciliacion().hayBrecha());
+            // Un login fuera de una reconexión es el inicial
+            assertFalse(supervisor.sesionIniciada(new LoginOKMessage("equipo", "especie", 100.0)));
+        }
+    }
+
+    @Test
+    void seDetieneAlAgotarLosIntentosYReconectarRetoma() throws Exception {
+        ConexionFalsa conexion = new ConexionFalsa(2);
+        try (SupervisorConexion supervisor = new SupervisorConexion(conexion, null, rapida(2))) {
+            supervisor.conexionPerdida(null);
+            esperar(() -> supervisor.estado() == EstadoConexion.DETENIDO);
+            assertEquals(2, supervisor.intentos());
+            assertEquals(0, conexion.conexiones.get());
+
+            supervisor.reconectar();
+            esperar(() -> conexion.conexiones.get() == 1);
+            assertEquals(EstadoConexion.RECONECTANDO, supervisor.estado());
+            assertEquals(1, supervisor.cortes());
+        }
+    }
+
+    @Test
+    void pausaDuranteElCorteYReportaLaBrecha() throws Exception {
+        ClienteBolsa cliente = new ClienteBolsa(orden -> { }, produccion -> { }, LimitesRiesgo.porDefecto());
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        cliente.onTicker(new TickerMessage("PALTA", 9.0, 10.0));
+        Orden sinAck = cliente.comprar("PALTA", 1, "antes del corte");
+
+        ConexionFalsa conexion = new ConexionFalsa(0);
+        try (SupervisorConexion supervisor = new SupervisorConexion(conexion, cliente, rapida(0))) {
+            cliente.setSupervisor(supervisor);
+            cliente.onConnectionLost(new IllegalStateException("socket cerrado"));
+            assertTrue(cliente.getRiesgo().isPausado());
+            esperar(() -> conexion.conexiones.get() == 1);
+
+            cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 950.0));
+            cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", 4));
+            esperar(() -> supervisor.estado() == EstadoConexion.CONECTADO);
+
+            Reconciliacion r = supervisor.ultimaReconciliacion();
+            assertTrue(r.hayBrecha());
+            assertEquals(-50.0, r.diferenciaSaldo(), 1e-9);
+            assertEquals(Map.of("SAL", 4), r.diferenciasInventario());
+            assertEquals(1, r.ordenesSinRespuesta());
+            assertEquals(EstadoOrden.CANCELADA, sinAck.getEstado());
+            assertEquals(1_000.0, cliente.getEstado().getSaldoInicial());
+            assertFalse(cliente.getRiesgo().isPausado());
+            assertEquals(1, supervisor.brechas());
+        }
+    }
+
+    @Test
+    void lasOrdenesAceptadasSeCierranTrasReconciliarYSueltanSusReservas() throws Exception {
+        ClienteBolsa cliente = new ClienteBolsa(orden -> { }, produccion -> { }, LimitesRiesgo.porDefecto());
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        cliente.onTicker(new TickerMessage("PALTA", 9.0, 10.0));
+        cliente.onTicker(new TickerMessage("SAL", 1.0, 2.0));
+        cliente.onInventoryUpdate(new InventoryUpdateMessage("SAL", 10));
+        Orden parcial = cliente.comprar("PALTA", 5, "se llena en el corte");
+        Orden sinFills = cliente.vender("SAL", 4, "no se llena");
+        cliente.onOrderAck(new OrderAckMessage(parcial.getClOrdId(), "ACCEPTED"));
+        cliente.onOrderAck(new OrderAckMessage(sinFills.getClOrdId(), "ACCEPTED"));
+        cliente.onFill(new FillMessage("BUY", 2, "PALTA", 10.0));
+        assertEquals(EstadoOrden.PARCIAL, parcial.getEstado());
+
+        ConexionFalsa conexion = new ConexionFalsa(0);
+        try (SupervisorConexion supervisor = new SupervisorConexion(conexion, cliente, rapida(0))) {
+            cliente.setSupervisor(supervisor);
+            cliente.onConnectionLost(new IllegalStateException("socket cerrado"));
+            esperar(() -> conexion.conexiones.get() == 1);
+
+            // Los 3 que faltaban se llenaron durante el corte; el servidor lo informa al volver
+            cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 950.0));
+            cliente.onInventoryUpdate(new InventoryUpdateMessage("PALTA", 5));
+            esperar(() -> supervisor.estado() == EstadoConexion.CONECTADO);
+
+            assertEquals(EstadoOrden.LLENA, parcial.getEstado());
+            assertEquals(EstadoOrden.CANCELADA, sinFills.getEstado());
+            assertEquals(1, supervisor.ultimaReconciliacion().ordenesCerradas());
+            assertEquals(0, cliente.getOrdenes().cantidadAbiertas());
+            assertEquals(0.0, cliente.getRiesgo().saldoReservado(), 1e-9);
+            assertEquals(0, cliente.getRiesgo().inventarioReservado("SAL"));
+        }
+    }
+
+    @Test
+    void suspenderCortaYEsperaLoPendienteAntesDeDejarReconstruir() throws Exception {
+        ClienteBolsa cliente = new ClienteBolsa(orden -> { }, produccion -> { }, LimitesRiesgo.porDefecto());
+        cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+        OyenteGrabador lento = new OyenteGrabador() {
+            @Override
+            protected void grabar(Object mensaje) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.grabar(mensaje);
+            }
+        };
+        DespachadorEventos despachador = new DespachadorEventos();
+        despachador.agregar("cliente", cliente);
+        despachador.agregar("lento", lento);
+        despachador.iniciar();
+
+        ConexionFalsa conexion = new ConexionFalsa(0);
+        try (SupervisorConexion supervisor = new SupervisorConexion(conexion, cliente, rapida(0))) {
+            cliente.setSupervisor(supervisor);
+            supervisor.setDespachador(despachador);
+            for (int i = 1; i <= 200; i++) {
+                despachador.onInventoryUpdate(new InventoryUpdateMessage("SAL", i));
+            }
+
+            assertTrue(supervisor.suspender());
+            assertEquals(1, conexion.desconexiones.get());
+            assertEquals(200, lento.recibidos.size());
+            assertEquals(200, cliente.getEstado().getMercado().cantidad("SAL"));
+            assertEquals(EstadoConexion.DETENIDO, supervisor.estado());
+            assertTrue(cliente.getRiesgo().isPausado());
+            // Suspendido no se reintenta solo
+            Thread.sleep(20);
+            assertEquals(0, conexion.conexiones.get());
+
+            supervisor.reconectar();
+            esperar(() -> conexion.conexiones.get() == 1);
+            cliente.onLoginOk(new LoginOKMessage("equipo", "especie", 1_000.0));
+            esperar(() -> supervisor.estado() == EstadoConexion.CONECTADO);
+            assertFalse(cliente.getRiesgo().isPausado());
+            assertEquals(1, supervisor.cortes());
+        } finally {
+            despachador.detener();
+        }
+    }
+
+    private static PoliticaReconexion rapida(int intentosMaximos) {
+        return new PoliticaReconexion(1, 2, intentosMaximos, 5_000, 50);
+    }
+
+    private static void esperar(BooleanSupplier condicion) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (!condicion.getAsBoolean() && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertTrue(condicion.getAsBoolean(), "La condición no se cumplió a tiempo");
+    }
+
+    /**
+     * Falla los primeros {@code fallos} intentos y después conecta.
+     */
+    private static final class ConexionFalsa implements Conexion {
+        private final AtomicInteger fallos;
+        final AtomicInteger conexiones = new AtomicInteger();
+        final AtomicInteger desconexiones = new AtomicInteger();
+
+        ConexionFalsa(int fallos) {
+            this.fallos = new AtomicInteger(fallos);
+        }
+
+        @Override
+        public void conectar() throws Exception {
+            if (fallos.getAndDecrement() > 0) {
+                throw new ConnectException("servidor caído");
+            }
+            conexiones.incrementAndGet();
+        }
+
+        @Override
+        public void desconectar() {
+            desconexiones.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package tech.hellsoft.trading.cuentas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+class CatalogoCompartidoTest {
+
+    @Test
+    void lasRecetasIgualesSonLaMismaInstancia() {
+        CatalogoCompartido catalogo = new CatalogoCompartido();
+        Map<String, Receta> a = catalogo.compartir(Map.of("PALTA", new Receta(Map.of("SAL", 2)),
+                "GUACA", new Receta(Map.of("PALTA", 3))));
+        Map<String, Receta> b = catalogo.compartir(Map.of("PALTA", new Receta(Map.of("SAL", 2))));
+
+        assertSame(a.get("PALTA"), b.get("PALTA"));
+        assertEquals(Map.of("SAL", 2), b.get("PALTA").ingredientes());
+        assertEquals(2, catalogo.recetasUnicas());
+        assertThrows(UnsupportedOperationException.class, () -> a.put("SAL", new Receta()));
+    }
+
+    @Test
+    void losRolesIgualesPorValorSeComparten() {
+        CatalogoCompartido catalogo = new CatalogoCompartido();
+        Rol primero = catalogo.compartir(new Rol(3.0, 2, 0.7, 2.0, 4));
+        assertSame(primero, catalogo.compartir(new Rol(3.0, 2, 0.7, 2.0, 4)));
+        assertNull(catalogo.compartir((Rol) null));
+    }
+}
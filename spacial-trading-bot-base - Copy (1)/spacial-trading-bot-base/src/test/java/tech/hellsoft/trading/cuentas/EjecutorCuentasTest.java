@@ -0,0 +1,48 @@
+package tech.hellsoft.trading.cuentas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.config.ConfigCuentas;
+import tech.hellsoft.trading.config.Configuration;
+import tech.hellsoft.trading.conexion.EstadoConexion;
+
+class EjecutorCuentasTest {
+
+    @Test
+    void cadaCuentaSimuladaConectaConSuPropioEstado() throws Exception {
+        ConfigCuentas config = new ConfigCuentas(null, List.of(
+                new Configuration("local", "Sapos", "sim://local?semilla=1&saldo=1000"),
+                new Configuration("local", "Ranas", "sim://local?semilla=2&saldo=2000")));
+        try (EjecutorCuentas ejecutor = new EjecutorCuentas(config)) {
+            ejecutor.iniciar();
+            Cuenta sapos = ejecutor.cuenta("Sapos");
+            Cuenta ranas = ejecutor.cuenta("Ranas");
+            esperarLogin(sapos);
+            esperarLogin(ranas);
+
+            assertEquals(1_000.0, sapos.getCliente().getEstado().getSaldoInicial());
+            assertEquals(2_000.0, ranas.getCliente().getEstado().getSaldoInicial());
+            assertNotSame(sapos.getCliente().getEstado(), ranas.getCliente().getEstado());
+            assertEquals(EstadoConexion.CONECTADO, sapos.getSupervisor().estado());
+            assertNull(ejecutor.cuenta("Lagartos"));
+
+            List<ConsumoCuenta> consumo = ejecutor.consumo();
+            assertEquals(2, consumo.size());
+            assertEquals("Sapos", consumo.get(0).equipo());
+            assertTrue(consumo.get(0).hilos() > 0);
+        }
+    }
+
+    private static void esperarLogin(Cuenta cuenta) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (cuenta.getCliente().getEstado().getSaldoInicial() == 0 && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertTrue(cuenta.getCliente().getEstado().getSaldoInicial() > 0, cuenta.equipo() + " sin login");
+    }
+}
@@ -0,0 +1,124 @@
+package tech.hellsoft.trading.estrategia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.ordenes.Lado;
+
+class MotorEstrategiasTest {
+
+    private final List<IntencionOrden> enviadas = new CopyOnWriteArrayList<>();
+    private final MotorEstrategias motor = new MotorEstrategias(i -> enviadas.add(i));
+
+    @AfterEach
+    void detener() {
+        motor.detener();
+    }
+
+    @Test
+    void conLaColaLlenaSeDescartanTickersPeroNuncaFills() throws InterruptedException {
+        Trabada estrategia = new Trabada("lenta");
+        motor.registrar(estrategia);
+
+        motor.publicar(evento("PALTA", 10.0));
+        assertTrue(estrategia.dentro.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < MotorEstrategias.MAX_PENDIENTES + 500; i++) {
+            motor.publicar(evento("PALTA", 10.0));
+        }
+        for (int i = 0; i < 20; i++) {
+            motor.publicarFill("PALTA", true, 1, 10.0);
+        }
+        estrategia.soltar.countDown();
+
+        assertTrue(estrategia.todosLosFills.await(5, TimeUnit.SECONDS));
+        assertEquals(20, estrategia.fills.size());
+        assertTrue(motor.estados().get(0).descartados() >= 500);
+    }
+
+    @Test
+    void losFillsLleganAunqueLaEstrategiaEsteDeshabilitada() throws InterruptedException {
+        Trabada estrategia = new Trabada("pausada");
+        estrategia.soltar.countDown();
+        motor.registrar(estrategia);
+        motor.habilitar("pausada", false);
+
+        motor.publicar(evento("PALTA", 10.0));
+        for (int i = 0; i < 20; i++) {
+            motor.publicarFill("PALTA", false, 2, 11.0);
+        }
+
+        assertTrue(estrategia.todosLosFills.await(5, TimeUnit.SECONDS));
+        assertEquals(0, estrategia.tickers);
+    }
+
+    @Test
+    void elEmisorEntregaAlDestinoYCuentaLaOrden() throws InterruptedException {
+        CountDownLatch emitida = new CountDownLatch(1);
+        motor.registrar(new Estrategia() {
+            @Override
+            public String nombre() {
+                return "eco";
+            }
+
+            @Override
+            public void onMercado(EventoMercado e, Emisor emisor) {
+                emisor.emitir(new IntencionOrden(Lado.BUY, e.producto(), 3, "prueba", e.llegadaNanos()));
+                emitida.countDown();
+            }
+        });
+
+        motor.publicar(evento("SAL", 4.0));
+
+        assertTrue(emitida.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(new IntencionOrden(Lado.BUY, "SAL", 3, "prueba", 0)), enviadas);
+        assertEquals(1, motor.estados().get(0).ordenes());
+    }
+
+    private static EventoMercado evento(String producto, double precio) {
+        return new EventoMercado(producto, precio, precio, precio, 0.0, 0, 1_000.0, 0);
+    }
+
+    /**
+     * Se queda en el primer ticker hasta que la suelten, para llenar su cola.
+     */
+    private static final class Trabada implements Estrategia {
+        final String nombre;
+        final CountDownLatch dentro = new CountDownLatch(1);
+        final CountDownLatch soltar = new CountDownLatch(1);
+        final CountDownLatch todosLosFills = new CountDownLatch(20);
+        final List<Integer> fills = new CopyOnWriteArrayList<>();
+        volatile int tickers;
+
+        Trabada(String nombre) {
+            this.nombre = nombre;
+        }
+
+        @Override
+        public String nombre() {
+            return nombre;
+        }
+
+        @Override
+        public void onMercado(EventoMercado evento, Emisor emisor) {
+            tickers++;
+            dentro.countDown();
+            try {
+                soltar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void onFill(String producto, boolean compra, int cantidad, double precio) {
+            fills.add(cantidad);
+            todosLosFills.countDown();
+        }
+    }
+}
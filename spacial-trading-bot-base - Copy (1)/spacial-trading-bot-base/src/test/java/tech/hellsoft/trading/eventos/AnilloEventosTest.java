@@ -0,0 +1,107 @@
+package tech.hellsoft.trading.eventos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class AnilloEventosTest {
+
+    @Test
+    void redondeaLaCapacidadAPotenciaDeDos() {
+        assertEquals(8, new AnilloEventos(5, EstrategiaEspera.ocupada()).capacidad());
+        assertEquals(8, new AnilloEventos(8, EstrategiaEspera.ocupada()).capacidad());
+        assertThrows(IllegalArgumentException.class, () -> new AnilloEventos(0, EstrategiaEspera.ocupada()));
+    }
+
+    @Test
+    void llenoDescartaTickersYCuentaLosDescartes() {
+        AnilloEventos anillo = new AnilloEventos(4, EstrategiaEspera.ocupada());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(anillo.publicar(TipoEvento.TICKER, i));
+        }
+        assertFalse(anillo.publicar(TipoEvento.TICKER, 4));
+        assertFalse(anillo.publicar(TipoEvento.OFFER, 5));
+        assertEquals(2, anillo.descartados());
+        assertEquals(4, anillo.profundidad());
+
+        List<Object> vistos = new ArrayList<>();
+        assertEquals(4, anillo.consumir((tipo, m) -> vistos.add(m)));
+        assertEquals(List.of(0, 1, 2, 3), vistos);
+        assertEquals(0, anillo.profundidad());
+    }
+
+    @Test
+    void llenoUnFillEsperaHuecoEnVezDePerderse() throws InterruptedException {
+        AnilloEventos anillo = new AnilloEventos(2, EstrategiaEspera.ocupada());
+        anillo.publicar(TipoEvento.FILL, 0);
+        anillo.publicar(TipoEvento.FILL, 1);
+        Thread productor = new Thread(() -> anillo.publicar(TipoEvento.FILL, 2));
+        productor.start();
+        while (anillo.desbordes() == 0) {
+            Thread.onSpinWait();
+        }
+        List<Object> vistos = new ArrayList<>();
+        anillo.consumir((tipo, m) -> vistos.add(m));
+        productor.join(5000);
+        anillo.consumir((tipo, m) -> vistos.add(m));
+
+        assertEquals(List.of(0, 1, 2), vistos);
+        assertEquals(0, anillo.descartados());
+    }
+
+    @Test
+    void unProductorYUnConsumidorVenTodoEnOrden() throws InterruptedException {
+        int total = 1_000_000;
+        AnilloEventos anillo = new AnilloEventos(1024, EstrategiaEspera.cediendo());
+        AtomicLong esperado = new AtomicLong();
+        AtomicLong desordenados = new AtomicLong();
+        Thread consumidor = new Thread(() -> {
+            int vacios = 0;
+            while (esperado.get() < total) {
+                int n = anillo.consumir((tipo, m) -> {
+                    if ((Integer) m != esperado.getAndIncrement()) {
+                        desordenados.incrementAndGet();
+                    }
+                });
+                if (n == 0) {
+                    anillo.getEspera().esperar(vacios++);
+                } else {
+                    vacios = 0;
+                }
+            }
+        });
+        consumidor.start();
+        for (int i = 0; i < total; i++) {
+            anillo.publicar(TipoEvento.FILL, i);
+        }
+        consumidor.join(30_000);
+
+        assertEquals(total, esperado.get());
+        assertEquals(0, desordenados.get());
+        assertEquals(total, anillo.publicados());
+    }
+
+    @Test
+    void unManejadorQueFallaNoRepiteNiPierdeLosDemas() {
+        AnilloEventos anillo = new AnilloEventos(8, EstrategiaEspera.ocupada());
+        for (int i = 0; i < 3; i++) {
+            anillo.publicar(TipoEvento.FILL, i);
+        }
+        List<Object> vistos = new ArrayList<>();
+        assertThrows(IllegalStateException.class, () -> anillo.consumir((tipo, m) -> {
+            if ((Integer) m == 1) {
+                throw new IllegalStateException("falla");
+            }
+            vistos.add(m);
+        }));
+        anillo.consumir((tipo, m) -> vistos.add(m));
+
+        assertEquals(List.of(0, 2), vistos);
+    }
+}
@@ -0,0 +1,50 @@
+package tech.hellsoft.trading.eventos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+class ConflacionTickersTest {
+
+    @Test
+    void soloLlegaElUltimoTickerDeCadaProductoYElRestoEnOrden() throws InterruptedException {
+        OyenteGrabador oyente = new OyenteGrabador();
+        CanalDespacho canal = new CanalDespacho("conflado", oyente,
+                new AnilloEventos(64, EstrategiaEspera.cediendo()), ModoTicker.CONFLADO);
+
+        // Sin consumidor todavía: todo se acumula
+        for (int i = 1; i <= 100; i++) {
+            canal.publicar(TipoEvento.TICKER, new TickerMessage("PALTA", i, i + 1));
+            canal.publicar(TipoEvento.TICKER, new TickerMessage("SAL", i, i + 1));
+        }
+        FillMessage fill = new FillMessage("BUY", 1, "PALTA", 1.0);
+        canal.publicar(TipoEvento.FILL, fill);
+        TickerMessage ultimoPalta = new TickerMessage("PALTA", 500, 501);
+        canal.publicar(TipoEvento.TICKER, ultimoPalta);
+
+        canal.iniciar();
+        canal.detener();
+        canal.esperarFin(5000);
+
+        List<Object> recibidos = oyente.recibidos;
+        assertEquals(3, recibidos.size(), () -> recibidos.toString());
+        assertEquals(ultimoPalta, recibidos.get(0));
+        assertEquals(100.0, ((TickerMessage) recibidos.get(1)).getBestBid());
+        assertEquals(fill, recibidos.get(2));
+        assertEquals(199, canal.estadisticas().conflados());
+    }
+
+    @Test
+    void trasEntregarseLaCasillaVuelveAAvisar() {
+        ConflacionTickers conflacion = new ConflacionTickers();
+        ConflacionTickers.Casilla casilla = conflacion.ofrecer(new TickerMessage("PALTA", 1, 2));
+        assertNull(conflacion.ofrecer(new TickerMessage("PALTA", 2, 3)));
+        assertEquals(2.0, casilla.tomar().getBestBid());
+        assertEquals(casilla, conflacion.ofrecer(new TickerMessage("PALTA", 3, 4)));
+        assertEquals(1, conflacion.conflados());
+    }
+}
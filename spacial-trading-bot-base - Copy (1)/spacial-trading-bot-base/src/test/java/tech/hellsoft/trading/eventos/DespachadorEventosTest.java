@@ -0,0 +1,42 @@
+package tech.hellsoft.trading.eventos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+class DespachadorEventosTest {
+
+    @Test
+    void cadaCanalRecibeTodoEnOrdenAunqueOtroFalle() throws InterruptedException {
+        DespachadorEventos despachador = new DespachadorEventos(64, EstrategiaEspera::cediendo);
+        OyenteGrabador bueno = new OyenteGrabador();
+        OyenteGrabador malo = new OyenteGrabador() {
+            @Override
+            protected void grabar(Object mensaje) {
+                if (mensaje instanceof FillMessage) {
+                    throw new IllegalStateException("listener roto");
+                }
+                super.grabar(mensaje);
+            }
+        };
+        despachador.agregar("bueno", bueno);
+        CanalDespacho canalMalo = despachador.agregar("malo", malo);
+        despachador.iniciar();
+
+        TickerMessage ticker = new TickerMessage("PALTA", 9.0, 10.0);
+        FillMessage fill = new FillMessage("BUY", 3, "PALTA", 10.0);
+        InventoryUpdateMessage inventario = new InventoryUpdateMessage("PALTA", 3);
+        despachador.onTicker(ticker);
+        despachador.onFill(fill);
+        despachador.onInventoryUpdate(inventario);
+        despachador.detener();
+
+        assertEquals(List.of(ticker, fill, inventario), bueno.recibidos);
+        assertEquals(List.of(ticker, inventario), malo.recibidos);
+        assertEquals(1, canalMalo.estadisticas().errores());
+    }
+}
@@ -0,0 +1,88 @@
+package tech.hellsoft.trading.eventos;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import tech.hellsoft.trading.EventListener;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.BroadcastNotificationMessage;
+import tech.hellsoft.trading.dto.server.ErrorMessage;
+import tech.hellsoft.trading.dto.server.EventDeltaMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.GlobalPerformanceReportMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+/**
+ * Listener de prueba que guarda cada mensaje recibido, en orden.
+ */
+public class OyenteGrabador implements EventListener {
+
+    public final List<Object> recibidos = new CopyOnWriteArrayList<>();
+
+    protected void grabar(Object mensaje) {
+        recibidos.add(mensaje);
+    }
+
+    @Override
+    public void onLoginOk(LoginOKMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onError(ErrorMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onTicker(TickerMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onFill(FillMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onBalanceUpdate(BalanceUpdateMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onInventoryUpdate(InventoryUpdateMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onOffer(OfferMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onOrderAck(OrderAckMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onEventDelta(EventDeltaMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onBroadcast(BroadcastNotificationMessage m) {
+        grabar(m);
+    }
+
+    @Override
+    public void onConnectionLost(Throwable t) {
+        grabar(t);
+    }
+
+    @Override
+    public void onGlobalPerformanceReport(GlobalPerformanceReportMessage m) {
+        grabar(m);
+    }
+}
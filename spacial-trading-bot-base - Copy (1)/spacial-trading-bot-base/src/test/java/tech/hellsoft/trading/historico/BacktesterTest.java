@@ -0,0 +1,99 @@
+package tech.hellsoft.trading.historico;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.estrategia.EstrategiaUmbral;
+import tech.hellsoft.trading.eventos.OyenteGrabador;
+
+class BacktesterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reproduceTickersYOfertasEnOrden() throws IOException {
+        try (GrabadorTicks grabador = new GrabadorTicks(dir)) {
+            grabador.onTicker(new TickerMessage("PALTA", 9.0, 9.5));
+            grabador.onOffer(new OfferMessage("of-1", "PALTA", 3, 11.0));
+        }
+        OyenteGrabador oyente = new OyenteGrabador();
+
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            assertEquals(2, Backtester.reproducir(g, oyente));
+        }
+
+        TickerHistorico t = (TickerHistorico) oyente.recibidos.get(0);
+        OfferMessage o = (OfferMessage) oyente.recibidos.get(1);
+        assertEquals(List.of("PALTA", 9.0, 9.5), List.of(t.getProduct(), t.getBestBid(), t.getBestAsk()));
+        assertEquals(List.of("H-1", "PALTA", 3, 11.0), List.of(o.getOfferId(), o.getProduct(), o.getQuantity(),
+                o.getPrice()));
+    }
+
+    @Test
+    void conLlenoInmediatoLaEstrategiaCompraBajoYVendeAlto() throws IOException {
+        grabarCiclo();
+
+        ResultadoBacktest r;
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            r = Backtester.evaluar(g, new EstrategiaUmbral("PALTA", 10.0, 12.0, 5), ModeloFills.inmediato(),
+                    1_000.0, Map.of());
+        }
+
+        assertEquals(2, r.fills());
+        assertEquals(0, r.rechazadas());
+        assertEquals(1_000.0 - 5 * 9.5 + 5 * 12.5, r.saldoFinal(), 1e-9);
+        assertEquals(5 * 9.5 + 5 * 12.5, r.volumen(), 1e-9);
+        assertEquals(3, r.eventos());
+    }
+
+    @Test
+    void conLatenciaMayorQueLaGrabacionNoSeLlenaNada() throws IOException {
+        grabarCiclo();
+
+        ResultadoBacktest r;
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            r = Backtester.evaluar(g, new EstrategiaUmbral("PALTA", 10.0, 12.0, 5),
+                    new ModeloFills(TimeUnit.HOURS.toNanos(1), 0.0), 1_000.0, Map.of());
+        }
+
+        assertEquals(0, r.fills());
+        assertEquals(1_000.0, r.saldoFinal());
+    }
+
+    @Test
+    void evaluarTodasDevuelveLosResultadosEnElOrdenDeLasCandidatas() throws IOException {
+        grabarCiclo();
+        List<Supplier<EstrategiaUmbral>> candidatas = List.of(
+                () -> new EstrategiaUmbral("PALTA", 10.0, 12.0, 5),
+                () -> new EstrategiaUmbral("PALTA", 8.0, 20.0, 5),
+                () -> new EstrategiaUmbral("PALTA", 10.0, 12.0, 1));
+
+        List<ResultadoBacktest> resultados;
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            resultados = Backtester.evaluarTodas(g, candidatas, ModeloFills.inmediato(), 1_000.0, Map.of(),
+                    ForkJoinPool.commonPool());
+        }
+
+        assertEquals(List.of(2, 0, 2), resultados.stream().map(ResultadoBacktest::fills).toList());
+        assertEquals(1_000.0 + 3.0, resultados.get(2).saldoFinal(), 1e-9);
+    }
+
+    private void grabarCiclo() throws IOException {
+        try (GrabadorTicks grabador = new GrabadorTicks(dir)) {
+            grabador.onTicker(new TickerMessage("PALTA", 9.0, 9.5));
+            grabador.onTicker(new TickerMessage("PALTA", 11.0, 11.5));
+            grabador.onTicker(new TickerMessage("PALTA", 12.5, 13.0));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package tech.hellsoft.trading.historico;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+class GrabacionTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void loGrabadoSeLeeFilaAFila() throws IOException {
+        try (GrabadorTicks grabador = new GrabadorTicks(dir)) {
+            grabador.onTicker(new TickerMessage("PALTA", 9.0, 9.5));
+            grabador.onOffer(new OfferMessage("of-1", "SAL", 4, 2.25));
+            grabador.onTicker(new TickerMessage("PALTA", 9.25, 9.75));
+            assertEquals(3, grabador.filas());
+        }
+
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            assertEquals(3, g.filas());
+            assertEquals(List.of("PALTA", "SAL"), g.simbolos());
+            assertEquals(Grabacion.TICKER, g.tipo(0));
+            assertEquals("PALTA", g.simbolo(g.producto(0)));
+            assertEquals(9.0, g.bid(0));
+            assertEquals(9.5, g.ask(0));
+            assertEquals(Grabacion.OFERTA, g.tipo(1));
+            assertEquals("SAL", g.simbolo(g.producto(1)));
+            assertEquals(2.25, g.bid(1));
+            assertEquals(4, g.cantidad(1));
+            assertTrue(g.ts(0) <= g.ts(1) && g.ts(1) <= g.ts(2));
+        }
+    }
+
+    @Test
+    void unaColumnaTruncadaSeRechazaConSuTamano() throws IOException {
+        try (GrabadorTicks grabador = new GrabadorTicks(dir)) {
+            for (int i = 0; i < 3; i++) {
+                grabador.onTicker(new TickerMessage("PALTA", i, i + 1));
+            }
+        }
+        try (FileChannel canal = FileChannel.open(dir.resolve("bid.col"), StandardOpenOption.WRITE)) {
+            canal.truncate(8);
+        }
+
+        IOException e = assertThrows(IOException.class, () -> Grabacion.abrir(dir));
+        assertEquals("Columna truncada: bid.col tiene 8 bytes, se esperaban 24", e.getMessage());
+    }
+
+    @Test
+    void despuesDeCerrarNoSeGrabaNada() throws IOException {
+        GrabadorTicks grabador = new GrabadorTicks(dir);
+        grabador.onTicker(new TickerMessage("PALTA", 1.0, 2.0));
+        grabador.close();
+        grabador.onTicker(new TickerMessage("PALTA", 1.0, 2.0));
+
+        try (Grabacion g = Grabacion.abrir(dir)) {
+            assertEquals(1, g.filas());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package tech.hellsoft.trading.mercado;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class EstadoMercadoTest {
+
+    @Test
+    void internaCadaSimboloUnaSolaVez() {
+        EstadoMercado mercado = new EstadoMercado(4);
+        int palta = mercado.idDe("PALTA");
+        assertEquals(palta, mercado.idDe("PALTA"));
+        assertEquals(palta, mercado.buscarId("PALTA"));
+        assertEquals(-1, mercado.buscarId("SAL"));
+        assertEquals("PALTA", mercado.simbolo(palta));
+        assertEquals(1, mercado.cantidadProductos());
+    }
+
+    @Test
+    void fallaAlAgotarLaCapacidad() {
+        EstadoMercado mercado = new EstadoMercado(2);
+        mercado.idDe("A");
+        mercado.idDe("B");
+        assertThrows(IllegalStateException.class, () -> mercado.idDe("C"));
+    }
+
+    @Test
+    void lasEscriturasDevuelvenElCambioDeValor() {
+        EstadoMercado mercado = new EstadoMercado();
+        assertEquals(0.0, mercado.actualizarPrecio("PALTA", 9.0, 11.0));
+        assertEquals(50.0, mercado.ajustarInventario("PALTA", 5));
+        assertEquals(10.0, mercado.actualizarPrecio("PALTA", 11.0, 13.0));
+        assertEquals(-36.0, mercado.fijarInventario("PALTA", 2));
+        assertEquals(24.0, mercado.valorInventario());
+
+        Posicion p = mercado.posicion("PALTA");
+        assertEquals(new Posicion("PALTA", 11.0, 13.0, 12.0, 2), p);
+        assertNull(mercado.posicion("SAL"));
+    }
+
+    @Test
+    void reemplazarDejaEnCeroLoQueNoViene() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.fijarInventario("PALTA", 3);
+        mercado.actualizarPrecio("PALTA", 1.0, 1.0);
+        mercado.reemplazarInventario(Map.of("SAL", 7));
+        mercado.reemplazarPrecios(Map.of("SAL", 2.0));
+
+        assertEquals(Map.of("SAL", 7), mercado.inventarioComoMapa());
+        assertEquals(Map.of("SAL", 2.0), mercado.preciosComoMapa());
+    }
+
+    @Test
+    void losLectoresNuncaVenUnaEscrituraAMedias() throws InterruptedException {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.actualizarPrecio("PALTA", 0.0, 1.0);
+        AtomicBoolean corriendo = new AtomicBoolean(true);
+        AtomicReference<Posicion> mezclada = new AtomicReference<>();
+
+        // Cada escritura deja ask = bid + 1 y cantidad = bid
+        Thread escritor = new Thread(() -> {
+            for (int i = 1; i <= 200_000; i++) {
+                mercado.actualizarPrecio("PALTA", i, i + 1);
+                mercado.fijarInventario("PALTA", i);
+            }
+            corriendo.set(false);
+        });
+        Thread lector = new Thread(() -> {
+            while (corriendo.get()) {
+                Posicion p = mercado.posicion("PALTA");
+                if (p.ask() - p.bid() != 1.0 || p.mid() != p.bid() + 0.5) {
+                    mezclada.set(p);
+                }
+            }
+        });
+        escritor.start();
+        lector.start();
+        escritor.join();
+        lector.join();
+
+        assertNull(mezclada.get(), () -> "Lectura inconsistente: " + mezclada.get());
+        assertEquals(200_000, mercado.cantidad("PALTA"));
+    }
+}
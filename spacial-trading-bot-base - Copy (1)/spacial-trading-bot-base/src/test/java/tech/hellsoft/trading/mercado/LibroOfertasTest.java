@@ -0,0 +1,144 @@
+package tech.hellsoft.trading.mercado;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+
+class LibroOfertasTest {
+
+    private final AtomicInteger liquidez = new AtomicInteger();
+    // offerId → veces que está dada de alta; nunca debe bajar de 0
+    private final Map<String, AtomicInteger> altas = new ConcurrentHashMap<>();
+    private final AtomicReference<String> retiradaSinAlta = new AtomicReference<>();
+
+    @Test
+    void laMejorOfertaEsLaQueMasPagaYLaMasAntiguaAIgualPrecio() {
+        try (LibroOfertas libro = nuevo(new EstadoMercado())) {
+            assertTrue(libro.registrar(new OfferMessage("o1", "PALTA", 5, 10.0)));
+            assertTrue(libro.registrar(new OfferMessage("o2", "PALTA", 3, 12.0)));
+            assertTrue(libro.registrar(new OfferMessage("o3", "PALTA", 2, 12.0)));
+            assertFalse(libro.registrar(new OfferMessage("o1", "PALTA", 9, 99.0)));
+            assertFalse(libro.registrar(new OfferMessage("o4", "PALTA", 0, 99.0)));
+
+            assertEquals("o2", libro.mejor("PALTA").getOfferId());
+            assertEquals(List.of("o2", "o3", "o1"), ids(libro.ofertas("PALTA")));
+            assertEquals(10, liquidez.get());
+
+            assertEquals("o2", libro.tomar("o2").getOfferId());
+            assertNull(libro.tomar("o2"));
+            assertEquals("o3", libro.mejor("PALTA").getOfferId());
+            assertEquals(7, liquidez.get());
+            assertNull(libro.mejor("SAL"));
+        }
+    }
+
+    @Test
+    void unaOfertaDevueltaConservaSuPrioridadYSuVencimiento() {
+        try (LibroOfertas libro = nuevo(new EstadoMercado())) {
+            libro.registrar(new OfferMessage("o1", "PALTA", 5, 12.0), TimeUnit.MILLISECONDS.toNanos(500));
+            libro.registrar(new OfferMessage("o2", "PALTA", 3, 12.0));
+
+            LibroOfertas.Oferta apartada = libro.apartar("o1");
+            assertEquals("o2", libro.mejor("PALTA").getOfferId());
+            assertEquals(3, liquidez.get());
+
+            assertTrue(libro.devolver(apartada));
+            assertEquals(List.of("o1", "o2"), ids(libro.ofertas("PALTA")));
+            assertEquals(8, liquidez.get());
+
+            // Vence cuando vencía, no medio segundo después de devolverla
+            assertSame(apartada, libro.apartar("o1"));
+            assertEquals(0, libro.expirarHasta(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)));
+            assertFalse(libro.devolver(apartada));
+            assertNull(libro.buscar("o1"));
+            assertEquals(1, libro.expiradas());
+            assertEquals(3, liquidez.get());
+            assertNull(retiradaSinAlta.get());
+        }
+    }
+
+    @Test
+    void lasOfertasVencenAlPasarSuVida() {
+        try (LibroOfertas libro = nuevo(new EstadoMercado())) {
+            libro.registrar(new OfferMessage("corta", "PALTA", 1, 1.0), TimeUnit.MILLISECONDS.toNanos(200));
+            libro.registrar(new OfferMessage("larga", "PALTA", 1, 1.0));
+
+            assertEquals(0, libro.expirarHasta(System.nanoTime()));
+            assertEquals(1, libro.expirarHasta(System.nanoTime() + TimeUnit.SECONDS.toNanos(1)));
+            assertNull(libro.buscar("corta"));
+            assertEquals(1, libro.expiradas());
+            assertEquals(1, liquidez.get());
+
+            libro.limpiar();
+            assertTrue(libro.isEmpty());
+            assertEquals(0, liquidez.get());
+            assertEquals(2, libro.retiradas());
+        }
+    }
+
+    @Test
+    void nuncaSeRetiraLaLiquidezDeUnaOfertaAntesDeSumarla() throws InterruptedException {
+        int n = 20_000;
+        try (LibroOfertas libro = nuevo(new EstadoMercado())) {
+            Thread tomador = new Thread(() -> {
+                int tomadas = 0;
+                while (tomadas < n) {
+                    for (int i = 0; i < n; i++) {
+                        if (libro.tomar("o" + i) != null) {
+                            tomadas++;
+                        }
+                    }
+                }
+            });
+            tomador.start();
+            for (int i = 0; i < n; i++) {
+                libro.registrar(new OfferMessage("o" + i, "P" + (i % 8), 1, i % 100));
+            }
+            tomador.join(30_000);
+
+            assertNull(retiradaSinAlta.get(), () -> "Retirada sin alta: " + retiradaSinAlta.get());
+            assertEquals(0, liquidez.get());
+            assertTrue(libro.isEmpty());
+        }
+    }
+
+    @Test
+    void admiteProductosMasAllaDeLaCapacidadPorDefecto() {
+        EstadoMercado mercado = new EstadoMercado(512);
+        for (int i = 0; i < 300; i++) {
+            mercado.idDe("P" + i);
+        }
+        try (LibroOfertas libro = nuevo(mercado)) {
+            assertTrue(libro.registrar(new OfferMessage("o1", "P299", 4, 3.0)));
+            assertEquals("o1", libro.mejor("P299").getOfferId());
+            assertEquals(1, libro.todas().size());
+        }
+    }
+
+    private LibroOfertas nuevo(EstadoMercado mercado) {
+        return new LibroOfertas(mercado, o -> {
+            altas.computeIfAbsent(o.getOfferId(), id -> new AtomicInteger()).incrementAndGet();
+            liquidez.addAndGet(o.getQuantity());
+        }, o -> {
+            if (altas.get(o.getOfferId()).decrementAndGet() < 0) {
+                retiradaSinAlta.set(o.getOfferId());
+            }
+            liquidez.addAndGet(-o.getQuantity());
+        });
+    }
+
+    private static List<String> ids(List<OfferMessage> ofertas) {
+        return ofertas.stream().map(OfferMessage::getOfferId).toList();
+    }
+}
@@ -0,0 +1,81 @@
+package tech.hellsoft.trading.mercado;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.OfferMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+
+class LibroOrdenesTest {
+
+    @Test
+    void elSpreadPromedioSoloCuentaLaHistoriaReciente() {
+        LibroOrdenes libro = new LibroOrdenes(new EstadoMercado());
+        // Primero spreads de 10 que deben salir del promedio
+        for (int i = 0; i < LibroOrdenes.HISTORIA; i++) {
+            libro.onTicker(new TickerMessage("PALTA", 100, 110));
+        }
+        for (int i = 0; i < LibroOrdenes.HISTORIA; i++) {
+            libro.onTicker(new TickerMessage("PALTA", 100, 102));
+        }
+        assertEquals(2.0, libro.spread("PALTA"));
+        assertEquals(2.0, libro.spreadPromedio("PALTA"), 1e-9);
+        assertEquals(100.0, libro.mejorBid("PALTA"));
+        assertEquals(102.0, libro.mejorAsk("PALTA"));
+        assertEquals(0.0, libro.spread("SAL"));
+    }
+
+    @Test
+    void lasOfertasSeAgrupanPorNivelDelMejorAlPeor() {
+        LibroOrdenes libro = new LibroOrdenes(new EstadoMercado());
+        libro.onOffer(new OfferMessage("a", "PALTA", 5, 10.0));
+        libro.onOffer(new OfferMessage("b", "PALTA", 3, 12.0));
+        libro.onOffer(new OfferMessage("c", "PALTA", 2, 12.0));
+        libro.onOffer(new OfferMessage("d", "PALTA", 1, 8.0));
+
+        assertEquals(12.0, libro.mejorPrecioOferta("PALTA"));
+        assertEquals(10, libro.liquidezDesde("PALTA", 10.0));
+        LibroOrdenes.Profundidad p = libro.profundidad("PALTA");
+        assertArrayEquals(new double[] {12.0, 10.0, 8.0}, p.preciosNivel());
+        assertArrayEquals(new int[] {5, 5, 1}, p.cantidadesNivel());
+
+        libro.retirarOferta("PALTA", 12.0, 5);
+        assertEquals(10.0, libro.mejorPrecioOferta("PALTA"));
+        // Retirar de un nivel que no existe no crea nada
+        libro.retirarOferta("PALTA", 50.0, 1);
+        assertEquals(6, libro.liquidezDesde("PALTA", 0.0));
+    }
+
+    @Test
+    void conMasNivelesQueLaCapacidadInicialNoSePierdeLiquidez() {
+        LibroOrdenes libro = new LibroOrdenes(new EstadoMercado());
+        int total = LibroOrdenes.NIVELES + 4;
+        // Del peor al mejor: cada oferta nueva empuja a las demás hacia el final
+        for (int i = 1; i <= total; i++) {
+            libro.onOffer(new OfferMessage("o" + i, "PALTA", 1, i));
+        }
+        LibroOrdenes.Profundidad p = libro.profundidad("PALTA");
+        assertEquals(total, p.preciosNivel().length);
+        assertEquals(total, p.preciosNivel()[0]);
+        assertEquals(1.0, p.preciosNivel()[total - 1]);
+        assertEquals(total, libro.liquidezDesde("PALTA", 0.0));
+
+        // El retiro del peor nivel encuentra su nivel
+        libro.retirarOferta("PALTA", 1.0, 1);
+        assertEquals(total - 1, libro.liquidezDesde("PALTA", 0.0));
+        assertEquals(2.0, libro.profundidad("PALTA").preciosNivel()[total - 2]);
+    }
+
+    @Test
+    void usaLaCapacidadDelMercado() {
+        EstadoMercado mercado = new EstadoMercado(300);
+        LibroOrdenes libro = new LibroOrdenes(mercado);
+        for (int i = 0; i < 300; i++) {
+            libro.onTicker(new TickerMessage("P" + i, i, i + 1));
+        }
+        assertEquals(299.0, libro.mejorBid("P299"));
+        assertNull(libro.profundidad("NADA"));
+    }
+}
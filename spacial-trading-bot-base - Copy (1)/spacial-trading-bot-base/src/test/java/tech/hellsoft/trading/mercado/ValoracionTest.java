@@ -0,0 +1,62 @@
+package tech.hellsoft.trading.mercado;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class ValoracionTest {
+
+    @Test
+    void elPatrimonioSigueASaldoMasInventario() {
+        Valoracion v = new Valoracion();
+        v.setSaldoInicial(1000.0);
+        v.fijarSaldo(1000.0);
+        v.aplicar(-100.0, 100.0);
+        v.ajustarValorInventario(20.0);
+
+        assertEquals(900.0, v.saldo());
+        assertEquals(120.0, v.valorInventario());
+        assertEquals(1020.0, v.patrimonioNeto());
+        assertEquals(2.0, v.pl(), 1e-9);
+    }
+
+    @Test
+    void recalibrarCorrigeElInventarioYElPatrimonio() {
+        Valoracion v = new Valoracion();
+        v.fijarSaldo(50.0);
+        v.ajustarValorInventario(10.0);
+        v.recalibrar(12.5);
+
+        assertEquals(12.5, v.valorInventario());
+        assertEquals(62.5, v.patrimonioNeto());
+    }
+
+    @Test
+    void sinSaldoInicialElPlEsCero() {
+        Valoracion v = new Valoracion();
+        v.ajustarValorInventario(10.0);
+        assertEquals(0.0, v.pl());
+    }
+
+    @Test
+    void losDeltasConcurrentesNoSePierden() throws InterruptedException {
+        Valoracion v = new Valoracion();
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            hilos.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    v.aplicar(-1.0, 2.0);
+                }
+            });
+        }
+        hilos.shutdown();
+        hilos.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(-400_000.0, v.saldo());
+        assertEquals(800_000.0, v.valorInventario());
+        assertEquals(400_000.0, v.patrimonioNeto());
+    }
+}
@@ -0,0 +1,49 @@
+package tech.hellsoft.trading.metricas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class HistogramaTest {
+
+    @Test
+    void losPercentilesQuedanDentroDelErrorDeLaCubeta() {
+        Histograma h = new Histograma("prueba");
+        for (long v = 1; v <= 100_000; v++) {
+            h.registrar(v);
+        }
+        Histograma.Instantanea i = h.instantanea();
+        assertEquals(100_000, i.total());
+        assertEquals(100_000, i.maximo());
+        long p50 = i.percentil(50);
+        long p99 = i.percentil(99);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 1.02, () -> "p50 = " + p50);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 1.02, () -> "p99 = " + p99);
+        assertEquals(100_000, i.percentil(100));
+    }
+
+    @Test
+    void menosDejaSoloLoRegistradoEnElIntervalo() {
+        Histograma h = new Histograma("prueba");
+        h.registrar(10);
+        h.registrar(20);
+        Histograma.Instantanea antes = h.instantanea();
+        h.registrar(1_000);
+
+        Histograma.Instantanea intervalo = h.instantanea().menos(antes);
+        assertEquals(1, intervalo.total());
+        assertEquals(1_000, intervalo.percentil(50), 1_000 / 64.0);
+    }
+
+    @Test
+    void reiniciarVaciaContadoresYMaximo() {
+        Histograma h = new Histograma("prueba");
+        h.registrar(5_000);
+        h.reiniciar();
+        Histograma.Instantanea i = h.instantanea();
+        assertEquals(0, i.total());
+        assertEquals(0, i.maximo());
+        assertEquals(0, i.percentil(99));
+    }
+}
@@ -0,0 +1,65 @@
+package tech.hellsoft.trading.metricas;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReporteMetricasTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void cadaFilaCuentaSoloSuIntervalo() throws IOException {
+        Metricas metricas = new Metricas();
+        Path archivo = dir.resolve("metricas.csv");
+        ReporteMetricas reporte = new ReporteMetricas(metricas, archivo, 60_000);
+
+        registrar(metricas, 3);
+        reporte.escribir();
+        registrar(metricas, 2);
+        reporte.escribir();
+        reporte.escribir();
+
+        List<String> filas = filasDeEnvio(archivo);
+        assertEquals(2, filas.size());
+        assertEquals("3", columnaN(filas.get(0)));
+        assertEquals("2", columnaN(filas.get(1)));
+    }
+
+    @Test
+    void reiniciarOlvidaElIntervaloAnterior() throws IOException {
+        Metricas metricas = new Metricas();
+        Path archivo = dir.resolve("metricas.csv");
+        ReporteMetricas reporte = new ReporteMetricas(metricas, archivo, 60_000);
+
+        registrar(metricas, 5);
+        reporte.escribir();
+        reporte.reiniciar();
+        registrar(metricas, 2);
+        reporte.escribir();
+
+        List<String> filas = filasDeEnvio(archivo);
+        assertEquals(2, filas.size());
+        assertEquals("2", columnaN(filas.get(1)));
+    }
+
+    private static void registrar(Metricas metricas, int n) {
+        for (int i = 0; i < n; i++) {
+            metricas.envioOrden().registrar(1_000);
+        }
+    }
+
+    private static List<String> filasDeEnvio(Path archivo) throws IOException {
+        return Files.readAllLines(archivo).stream().filter(l -> l.contains(",envío orden,")).toList();
+    }
+
+    private static String columnaN(String fila) {
+        return fila.split(",")[2];
+    }
+}
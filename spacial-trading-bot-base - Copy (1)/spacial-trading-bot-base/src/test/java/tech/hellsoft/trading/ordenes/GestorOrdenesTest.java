@@ -0,0 +1,95 @@
+package tech.hellsoft.trading.ordenes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+
+class GestorOrdenesTest {
+
+    @Test
+    void losFillsVanALaOrdenMasAntiguaDelProductoYLado() {
+        GestorOrdenes gestor = new GestorOrdenes("T");
+        Orden primera = gestor.crear(Lado.BUY, "PALTA", 5, 0, "a");
+        Orden segunda = gestor.crear(Lado.BUY, "PALTA", 5, 0, "b");
+        Orden venta = gestor.crear(Lado.SELL, "PALTA", 5, 0, "c");
+        assertEquals("T-1", primera.getClOrdId());
+
+        List<Orden> afectadas = gestor.onFill(new FillMessage("BUY", 7, "PALTA", 10.0));
+
+        assertEquals(List.of(primera, segunda), afectadas);
+        assertEquals(EstadoOrden.LLENA, primera.getEstado());
+        assertEquals(EstadoOrden.PARCIAL, segunda.getEstado());
+        assertEquals(2, segunda.getCantidadLlena());
+        assertEquals(EstadoOrden.PENDIENTE, venta.getEstado());
+        assertEquals(2, gestor.cantidadAbiertas());
+        assertEquals(1, gestor.llenas());
+        assertNull(gestor.buscar(primera.getClOrdId()));
+    }
+
+    @Test
+    void lasOrdenesTerminadasSalenDeLaColaEnseguida() {
+        GestorOrdenes gestor = new GestorOrdenes("T");
+        List<Integer> pendientes = new ArrayList<>();
+        gestor.agregarOyente(new OyenteOrdenes() {
+            @Override
+            public void onLlenado(Orden orden, int cantidad, double precio) {
+            }
+
+            @Override
+            public void onTerminada(Orden orden, int pendiente) {
+                pendientes.add(pendiente);
+            }
+        });
+        for (int i = 0; i < 1000; i++) {
+            Orden o = gestor.crear(Lado.BUY, "PALTA", 3, 0, "x");
+            switch (i % 3) {
+                case 0 -> gestor.onAck(new OrderAckMessage(o.getClOrdId(), "REJECTED"));
+                case 1 -> gestor.abandonar(o);
+                default -> gestor.descartar(o);
+            }
+        }
+
+        assertEquals(0, gestor.enCola("PALTA"));
+        assertEquals(0, gestor.cantidadAbiertas());
+        assertEquals(1000, pendientes.size());
+        // Un fill que llega después ya no encuentra órdenes
+        assertEquals(List.of(), gestor.onFill(new FillMessage("BUY", 1, "PALTA", 1.0)));
+        assertEquals(1, gestor.fillsSinOrden());
+    }
+
+    @Test
+    void losAcksSeEmparejanPorClOrdId() {
+        GestorOrdenes gestor = new GestorOrdenes("T");
+        Orden orden = gestor.crear(Lado.SELL, "SAL", 2, 5.0, "x");
+
+        assertEquals(orden, gestor.onAck(new OrderAckMessage(orden.getClOrdId(), "ACCEPTED")));
+        assertEquals(EstadoOrden.ACEPTADA, orden.getEstado());
+        assertNull(gestor.onAck(new OrderAckMessage("OTRO-9", "ACCEPTED")));
+        assertEquals(1, gestor.acksSinOrden());
+    }
+
+    @Test
+    void unAckSinIdSeCuentaSinTocarLasOrdenes() {
+        GestorOrdenes gestor = new GestorOrdenes("T");
+        Orden orden = gestor.crear(Lado.SELL, "SAL", 2, 5.0, "x");
+
+        assertNull(gestor.onAck(new OrderAckMessage(null, "ACCEPTED")));
+        assertNull(gestor.onAck(new OrderAckMessage(" ", "REJECTED")));
+        assertEquals(2, gestor.acksSinId());
+        assertEquals(0, gestor.acksSinOrden());
+        assertEquals(EstadoOrden.PENDIENTE, orden.getEstado());
+        assertEquals(1, gestor.cantidadAbiertas());
+    }
+
+    @Test
+    void rechazaCantidadesNoPositivas() {
+        GestorOrdenes gestor = new GestorOrdenes("T");
+        assertThrows(IllegalArgumentException.class, () -> gestor.crear(Lado.BUY, "SAL", 0, 0, "x"));
+    }
+}
@@ -0,0 +1,157 @@
+package tech.hellsoft.trading.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+class CodecSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unSnapshotCompletoDevuelveElMismoEstado() throws Exception {
+        EstadoCliente original = estado();
+        Path archivo = dir.resolve("estado.snap");
+        new CodecSnapshot().escribir(original, archivo);
+
+        EstadoCliente leido = CodecSnapshot.leer(archivo);
+
+        assertIgual(original, leido);
+        assertEquals(List.of(), Files.list(dir).filter(p -> p.toString().endsWith(".tmp")).toList());
+    }
+
+    @Test
+    void unDeltaSobreSuBaseReconstruyeElEstado() throws Exception {
+        EstadoCliente estado = estado();
+        CodecSnapshot codec = new CodecSnapshot();
+        VistaEstado base = VistaEstado.capturar(estado);
+        codec.escribir(null, base, dir.resolve("0.snap"));
+
+        estado.aplicarTicker("PALTA", 12.0, 13.0);
+        estado.aplicarInventario("SAL", 0);
+        estado.aplicarInventario("SEBO", 4);
+        estado.setSaldo(777.0);
+        estado.setSecuenciaDiario(99);
+        int completo = codec.codificar(VistaEstado.capturar(estado)).remaining();
+        int delta = codec.escribir(base, VistaEstado.capturar(estado), dir.resolve("1.snap"));
+
+        EstadoCliente leido = new EstadoCliente();
+        CodecSnapshot.leerCadena(List.of(dir.resolve("0.snap"), dir.resolve("1.snap")), leido);
+
+        assertIgual(estado, leido);
+        assertTrue(delta < completo, () -> delta + " vs " + completo);
+    }
+
+    @Test
+    void unEventoSinTerminarHaceFallarLaCapturaEnVezDeColgarla() {
+        EstadoCliente estado = estado();
+        estado.iniciarEvento();
+
+        assertThrows(IllegalStateException.class, () -> VistaEstado.capturar(estado));
+        estado.terminarEvento(0);
+        assertEquals(estado.getSaldo(), VistaEstado.capturar(estado).saldo());
+    }
+
+    @Test
+    void unDeltaSueltoNoSeCarga() throws Exception {
+        EstadoCliente estado = estado();
+        VistaEstado base = VistaEstado.capturar(estado);
+        Path archivo = dir.resolve("1.snap");
+        new CodecSnapshot().escribir(base, VistaEstado.capturar(estado), archivo);
+
+        assertThrows(SnapshotCorruptoException.class, () -> CodecSnapshot.leer(archivo));
+        assertThrows(SnapshotCorruptoException.class,
+                () -> CodecSnapshot.leerCadena(List.of(archivo), new EstadoCliente()));
+    }
+
+    @Test
+    void unByteCambiadoEnElCuerpoFallaElCrc() {
+        ByteBuffer datos = copia(new CodecSnapshot().codificar(estado()));
+        int i = CodecSnapshot.TAM_CABECERA + 5;
+        datos.put(i, (byte) (datos.get(i) ^ 1));
+
+        SnapshotCorruptoException e = assertThrows(SnapshotCorruptoException.class,
+                () -> CodecSnapshot.decodificar(datos));
+        assertTrue(e.getMessage().contains("CRC32C"));
+    }
+
+    @Test
+    void rechazaMagicVersionYLargoIncorrectos() {
+        ByteBuffer magic = copia(new CodecSnapshot().codificar(estado()));
+        magic.putInt(0, 0);
+        assertThrows(SnapshotCorruptoException.class, () -> CodecSnapshot.decodificar(magic));
+
+        ByteBuffer version = copia(new CodecSnapshot().codificar(estado()));
+        version.putInt(4, CodecSnapshot.VERSION + 1);
+        assertThrows(SnapshotCorruptoException.class, () -> CodecSnapshot.decodificar(version));
+
+        ByteBuffer cortado = copia(new CodecSnapshot().codificar(estado()));
+        cortado.limit(cortado.limit() - 1);
+        assertThrows(SnapshotCorruptoException.class, () -> CodecSnapshot.decodificar(cortado));
+    }
+
+    @Test
+    void unArchivoDemasiadoCortoNoEsUnSnapshot() throws IOException {
+        Path archivo = Files.write(dir.resolve("corto.snap"), new byte[10]);
+
+        assertThrows(SnapshotCorruptoException.class, () -> CodecSnapshot.leer(archivo));
+    }
+
+    private static EstadoCliente estado() {
+        EstadoCliente estado = new EstadoCliente();
+        estado.setSaldoInicial(10_000.0);
+        estado.setSaldo(8_500.5);
+        estado.setRol(new Rol(19.0, 3, 0.6, 2.5, 10));
+        estado.setProductosAutorizados(new ArrayList<>(List.of("PALTA", "GUACAMOLE")));
+        Map<String, Receta> recetas = new HashMap<>();
+        recetas.put("PALTA", new Receta());
+        recetas.put("GUACAMOLE", new Receta(Map.of("PALTA", 5, "SAL", 1)));
+        estado.setRecetas(recetas);
+        estado.aplicarTicker("PALTA", 10.0, 11.0);
+        estado.aplicarTicker("SAL", 2.0, 2.5);
+        estado.aplicarInventario("PALTA", 30);
+        estado.aplicarInventario("SAL", 7);
+        estado.setSecuenciaDiario(42);
+        return estado;
+    }
+
+    private static void assertIgual(EstadoCliente esperado, EstadoCliente real) {
+        assertEquals(esperado.getSaldo(), real.getSaldo());
+        assertEquals(esperado.getSaldoInicial(), real.getSaldoInicial());
+        assertEquals(esperado.getRol(), real.getRol());
+        assertEquals(esperado.getProductosAutorizados(), real.getProductosAutorizados());
+        assertEquals(ingredientes(esperado.getRecetas()), ingredientes(real.getRecetas()));
+        assertEquals(esperado.getMercado().inventarioComoMapa(), real.getMercado().inventarioComoMapa());
+        assertEquals(esperado.getMercado().preciosComoMapa(), real.getMercado().preciosComoMapa());
+        assertEquals(esperado.getSecuenciaDiario(), real.getSecuenciaDiario());
+        assertEquals(esperado.calcularPL(), real.calcularPL(), 1e-9);
+    }
+
+    private static Map<String, Map<String, Integer>> ingredientes(Map<String, Receta> recetas) {
+        Map<String, Map<String, Integer>> mapa = new HashMap<>();
+        recetas.forEach((producto, receta) -> mapa.put(producto, receta.ingredientes()));
+        return mapa;
+    }
+
+    private static ByteBuffer copia(ByteBuffer datos) {
+        ByteBuffer copia = ByteBuffer.allocate(datos.remaining()).order(datos.order());
+        copia.put(datos.duplicate()).flip();
+        return copia;
+    }
+}
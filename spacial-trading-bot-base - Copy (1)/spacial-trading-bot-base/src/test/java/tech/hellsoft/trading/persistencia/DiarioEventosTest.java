@@ -0,0 +1,160 @@
+package tech.hellsoft.trading.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.eventos.TipoEvento;
+import tech.hellsoft.trading.exception.ConfiguracionException.SnapshotCorruptoException;
+
+class DiarioEventosTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reproduceEnOrdenLoQueSeRegistro() throws Exception {
+        try (DiarioEventos diario = new DiarioEventos(dir)) {
+            assertEquals(1, diario.registrar(TipoEvento.FILL, new FillMessage("SELL", 3, "PALTA", 10.5)));
+            assertEquals(2, diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 7)));
+            assertEquals(0, diario.registrar(TipoEvento.TICKER, new TickerMessage("SAL", 1.0, 2.0)));
+            assertEquals(3, diario.registrar(TipoEvento.BALANCE_UPDATE, new BalanceUpdateMessage(99.5)));
+            assertEquals(4, diario.registrar(TipoEvento.ORDER_ACK, new OrderAckMessage("c-1", "FILLED")));
+        }
+
+        assertEquals(List.of("1 SELL 3 PALTA 10.5", "2 SAL 7", "3 99.5", "4 c-1 FILLED"), reproducir(0));
+        assertEquals(List.of("3 99.5", "4 c-1 FILLED"), reproducir(2));
+        assertEquals(List.of(), reproducir(4));
+    }
+
+    @Test
+    void alReabrirSigueTrasElUltimoRegistro() throws Exception {
+        try (DiarioEventos diario = new DiarioEventos(dir)) {
+            diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 1));
+            diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 2));
+        }
+        try (DiarioEventos diario = new DiarioEventos(dir)) {
+            assertEquals(2, diario.secuencia());
+            assertEquals(3, diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 3)));
+        }
+
+        assertEquals(List.of("1 SAL 1", "2 SAL 2", "3 SAL 3"), reproducir(0));
+    }
+
+    @Test
+    void unRegistroDanadoMarcaElFinal() throws Exception {
+        try (DiarioEventos diario = new DiarioEventos(dir)) {
+            diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 1));
+            diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 2));
+        }
+        assertEquals(List.of("1 SAL 1", "2 SAL 2"), reproducir(0));
+        Path segmento = segmentos().get(0);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Último byte del segundo registro: su CRC deja de coincidir
+            int largo = leerInt(canal, 0);
+            int segundo = 8 + largo;
+            int fin = segundo + 8 + leerInt(canal, segundo) - 1;
+            ByteBuffer b = ByteBuffer.allocate(1);
+            canal.read(b, fin);
+            b.put(0, (byte) (b.get(0) ^ 0x5A)).rewind();
+            canal.write(b, fin);
+        }
+
+        assertEquals(List.of("1 SAL 1"), reproducir(0));
+    }
+
+    @Test
+    void unHuecoAntesDelPrimerSegmentoNoSeSalta() throws Exception {
+        try (DiarioEventos diario = new DiarioEventos(dir, 128, 64)) {
+            for (int i = 1; i <= 20; i++) {
+                diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", i));
+            }
+            esperarDurable(diario, 20);
+            assertTrue(diario.purgarHasta(10) > 0);
+        }
+        long primera = DiarioEventos.primeraConservada(dir);
+        assertTrue(primera > 1 && primera <= 11, () -> "primera " + primera);
+
+        assertThrows(SnapshotCorruptoException.class, () -> reproducir(0));
+        assertThrows(SnapshotCorruptoException.class, () -> reproducir(primera - 2));
+        List<String> desde = reproducir(10);
+        assertEquals("11 SAL 11", desde.get(0));
+        assertEquals(10, desde.size());
+    }
+
+    @Test
+    void unaEscrituraFallidaInutilizaElDiario() throws Exception {
+        DiarioEventos diario = new DiarioEventos(dir, 64, 64);
+        assertEquals(1, diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 1)));
+        // No cabe ni en un segmento nuevo
+        diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("S".repeat(100), 2));
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (diario.falla() == null && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+
+        assertNotNull(diario.falla());
+        assertEquals(0, diario.registrar(TipoEvento.INVENTORY_UPDATE, new InventoryUpdateMessage("SAL", 3)));
+        assertThrows(IOException.class, diario::close);
+        assertEquals(List.of("1 SAL 1"), reproducir(0));
+    }
+
+    @Test
+    void sinDirectorioNoHayNadaQueReproducir() throws Exception {
+        assertEquals(0, DiarioEventos.primeraConservada(dir.resolve("no-existe")));
+        assertEquals(5, DiarioEventos.reproducir(dir.resolve("no-existe"), 5, (seq, tipo, m) -> { }));
+    }
+
+    private List<String> reproducir(long despuesDe) throws SnapshotCorruptoException {
+        List<String> eventos = new ArrayList<>();
+        DiarioEventos.reproducir(dir, despuesDe, (seq, tipo, m) -> eventos.add(seq + " " + switch (tipo) {
+            case FILL -> {
+                FillMessage f = (FillMessage) m;
+                yield f.getSide() + " " + f.getFillQty() + " " + f.getProduct() + " " + f.getFillPrice();
+            }
+            case INVENTORY_UPDATE -> m.toString().replace(" x", " ");
+            case BALANCE_UPDATE -> String.valueOf(((BalanceUpdateMessage) m).getBalance());
+            case ORDER_ACK -> ((OrderAckMessage) m).getOrderId() + " " + ((OrderAckMessage) m).getStatus();
+            default -> tipo.name();
+        }));
+        return eventos;
+    }
+
+    private List<Path> segmentos() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.sorted().toList();
+        }
+    }
+
+    private static int leerInt(FileChannel canal, long posicion) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        canal.read(b, posicion);
+        return b.getInt(0);
+    }
+
+    private static void esperarDurable(DiarioEventos diario, long secuencia) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (diario.durable() < secuencia && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertEquals(secuencia, diario.durable());
+    }
+}
@@ -0,0 +1,154 @@
+package tech.hellsoft.trading.persistencia;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.eventos.TipoEvento;
+
+class ProgramadorSnapshotsTest {
+
+    private static final long UN_DIA = TimeUnit.DAYS.toMillis(1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void escribeDeltasYCompactaCadaNDeltas() throws Exception {
+        EstadoCliente estado = estado();
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(estado, dir,
+                new ProgramadorSnapshots.Politica(60_000, 2, 10, UN_DIA), null)) {
+            assertTrue(tomar(p, false).completo());
+            assertNull(tomar(p, false));
+
+            estado.aplicarInventario("SAL", 1);
+            assertFalse(tomar(p, false).completo());
+            estado.aplicarInventario("SAL", 2);
+            assertFalse(tomar(p, false).completo());
+            estado.aplicarInventario("SAL", 3);
+            assertTrue(tomar(p, false).completo());
+
+            assertEquals(2, p.completos());
+            assertEquals(2, p.deltas());
+            assertEquals(1, p.sinCambios());
+            assertEquals(List.of(true, false, false, true),
+                    p.entradas().stream().map(EntradaSnapshot::completo).toList());
+        }
+    }
+
+    @Test
+    void restauraElUltimoConSusDeltas() throws Exception {
+        EstadoCliente estado = estado();
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(estado, dir,
+                new ProgramadorSnapshots.Politica(60_000, 10, 10, UN_DIA), null)) {
+            tomar(p, true);
+            estado.aplicarInventario("SAL", 8);
+            estado.setSaldo(321.0);
+            estado.setSecuenciaDiario(17);
+            EntradaSnapshot delta = tomar(p, false);
+
+            EstadoCliente restaurado = new EstadoCliente();
+            assertEquals(delta, p.restaurarUltimo(restaurado));
+            assertEquals(Map.of("PALTA", 4, "SAL", 8), restaurado.getMercado().inventarioComoMapa());
+            assertEquals(321.0, restaurado.getSaldo());
+            assertEquals(17, restaurado.getSecuenciaDiario());
+        }
+    }
+
+    @Test
+    void laRetencionBorraLasCadenasViejasYSusArchivos() throws Exception {
+        EstadoCliente estado = estado();
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(estado, dir,
+                new ProgramadorSnapshots.Politica(60_000, 10, 2, UN_DIA), null)) {
+            EntradaSnapshot primera = tomar(p, true);
+            estado.aplicarInventario("SAL", 1);
+            EntradaSnapshot deltaViejo = tomar(p, false);
+            tomar(p, true);
+            estado.aplicarInventario("SAL", 2);
+            tomar(p, false);
+            EntradaSnapshot ultima = tomar(p, true);
+
+            List<EntradaSnapshot> entradas = p.entradas();
+            assertEquals(3, entradas.size());
+            assertEquals(ultima, entradas.get(2));
+            assertFalse(Files.exists(dir.resolve(primera.archivo())));
+            assertFalse(Files.exists(dir.resolve(deltaViejo.archivo())));
+            entradas.forEach(e -> assertTrue(Files.exists(dir.resolve(e.archivo())), e::archivo));
+        }
+    }
+
+    @Test
+    void laRetencionPurgaElDiarioHastaLaCadenaMasAntigua() throws Exception {
+        EstadoCliente estado = estado();
+        Path dirDiario = dir.resolve("diario");
+        try (DiarioEventos diario = new DiarioEventos(dirDiario, 128, 64);
+                ProgramadorSnapshots p = new ProgramadorSnapshots(estado, dir.resolve("snap"),
+                        new ProgramadorSnapshots.Politica(60_000, 10, 1, UN_DIA), diario)) {
+            for (int i = 1; i <= 20; i++) {
+                diario.registrar(TipoEvento.BALANCE_UPDATE, new BalanceUpdateMessage(i));
+            }
+            tomar(p, true);
+            estado.setSecuenciaDiario(15);
+            tomar(p, true);
+
+            long primera = DiarioEventos.primeraConservada(dirDiario);
+            assertTrue(primera > 1 && primera <= 16, () -> "primera " + primera);
+        }
+    }
+
+    @Test
+    void elIndiceSobreviveAUnReinicio() throws Exception {
+        EstadoCliente estado = estado();
+        ProgramadorSnapshots.Politica politica = new ProgramadorSnapshots.Politica(60_000, 10, 10, UN_DIA);
+        List<EntradaSnapshot> antes;
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(estado, dir, politica, null)) {
+            tomar(p, true);
+            estado.aplicarInventario("SAL", 5);
+            tomar(p, false);
+            antes = p.entradas();
+        }
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(new EstadoCliente(), dir, politica, null)) {
+            // close() añadió un completo final
+            assertEquals(antes, p.entradas().subList(0, 2));
+            assertEquals(3, p.entradas().size());
+        }
+    }
+
+    @Test
+    void sinIndiceIndexaLosSnapshotsSueltos() throws Exception {
+        EstadoCliente estado = estado();
+        new CodecSnapshot().escribir(estado, dir.resolve("snapshot_1.bin"));
+        Files.write(dir.resolve("snapshot_2.bin"), new byte[] {1, 2, 3});
+
+        try (ProgramadorSnapshots p = new ProgramadorSnapshots(new EstadoCliente(), dir,
+                ProgramadorSnapshots.Politica.porDefecto(), null)) {
+            assertEquals(List.of("snapshot_1.bin"), p.entradas().stream().map(EntradaSnapshot::archivo).toList());
+            EstadoCliente restaurado = new EstadoCliente();
+            p.restaurarUltimo(restaurado);
+            assertEquals(estado.getMercado().inventarioComoMapa(), restaurado.getMercado().inventarioComoMapa());
+        }
+    }
+
+    private static EntradaSnapshot tomar(ProgramadorSnapshots p, boolean completo) throws Exception {
+        return p.solicitar(completo).get(10, TimeUnit.SECONDS);
+    }
+
+    private static EstadoCliente estado() {
+        EstadoCliente estado = new EstadoCliente();
+        estado.setSaldoInicial(1_000.0);
+        estado.setSaldo(1_000.0);
+        estado.aplicarTicker("PALTA", 10.0, 11.0);
+        estado.aplicarInventario("PALTA", 4);
+        return estado;
+    }
+}
@@ -0,0 +1,108 @@
+package tech.hellsoft.trading.produccion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+class ListaMaterialesTest {
+
+    // 10 unidades por corrida básica, 13 por premium
+    private static final Rol ROL = new Rol(10.0, 0, 0.0, 1.0, 0);
+
+    // A básico, C solo de compra, B = 5 A + 2 C, D = 1 B
+    private static final Map<String, Receta> RECETAS = Map.of(
+            "A", new Receta(),
+            "B", new Receta(Map.of("A", 5, "C", 2)),
+            "D", new Receta(Map.of("B", 1)));
+
+    private final EstadoMercado mercado = new EstadoMercado();
+
+    ListaMaterialesTest() {
+        mercado.actualizarPrecio("B", 9.0, 10.0);
+        mercado.actualizarPrecio("C", 6.0, 6.5);
+        mercado.actualizarPrecio("D", 99.0, 100.0);
+    }
+
+    @Test
+    void elCostoEsElMasBaratoEntreComprarYProducirATodaProfundidad() {
+        ListaMateriales lista = new ListaMateriales(RECETAS, ROL, null, mercado);
+
+        assertEquals(0.0, lista.costo("A"));
+        assertEquals(6.5, lista.costo("C"));
+        ListaMateriales.Decision b = lista.decision("B");
+        assertTrue(b.producir());
+        assertEquals(1.0, b.costo(), 1e-12);
+        assertEquals(10.0, b.costoCompra());
+        assertEquals(1.0 / 13, lista.costo("D"), 1e-12);
+        assertTrue(Double.isNaN(lista.costo("Z")));
+        assertNull(lista.decision("Z"));
+
+        assertEquals(Map.of("A", 0, "B", 1, "C", 0, "D", 2), lista.profundidades());
+        List<String> orden = lista.decisiones().stream().map(ListaMateriales.Decision::producto).toList();
+        assertTrue(orden.indexOf("A") < orden.indexOf("B") && orden.indexOf("B") < orden.indexOf("D"), orden::toString);
+    }
+
+    @Test
+    void unCambioDePrecioSoloInvalidaASusConsumidores() {
+        ListaMateriales lista = new ListaMateriales(RECETAS, ROL, null, mercado);
+        lista.decisiones();
+        assertEquals(4, lista.evaluaciones());
+
+        mercado.actualizarPrecio("C", 25.0, 26.0);
+        lista.precioCambio("C");
+        lista.precioCambio("C");
+        assertEquals(3, lista.invalidaciones());
+
+        assertEquals(4.0, lista.costo("B"), 1e-12);
+        assertEquals(4.0 / 13, lista.costo("D"), 1e-12);
+        // A seguía válido: solo se recalculan C, B y D
+        assertEquals(7, lista.evaluaciones());
+        // Sin cambios no se recalcula nada
+        lista.costo("D");
+        assertEquals(7, lista.evaluaciones());
+    }
+
+    @Test
+    void explotarSigueLaDecisionMasBarataEnCadaNivel() {
+        ListaMateriales lista = new ListaMateriales(RECETAS, ROL, null, mercado);
+
+        // 20 D = 2 corridas de D → 2 B = 1 corrida de B → 5 A (1 corrida) y 2 C comprados
+        assertEquals(Map.of("producir:D", 2, "producir:B", 1, "producir:A", 1, "C", 2), lista.explotar("D", 20));
+        assertEquals(Map.of(), lista.explotar("D", 0));
+
+        mercado.actualizarPrecio("B", 0.5, 0.6);
+        lista.precioCambio("B");
+        assertEquals(Map.of("producir:D", 2, "B", 2), lista.explotar("D", 20));
+    }
+
+    @Test
+    void losCiclosYLoNoAutorizadoSoloSeCompran() {
+        Map<String, Receta> recetas = Map.of(
+                "X", new Receta(Map.of("Y", 1)),
+                "Y", new Receta(Map.of("X", 1)),
+                "Z", new Receta(Map.of("X", 1)),
+                "A", new Receta(),
+                "B", new Receta(Map.of("A", 1)),
+                "ROTA", new Receta(Map.of("A", -1)));
+        mercado.actualizarPrecio("X", 1.0, 2.0);
+        ListaMateriales lista = new ListaMateriales(recetas, ROL, List.of("A", "X", "Y", "Z", "ROTA"), mercado);
+
+        assertEquals(Set.of("X", "Y", "Z"), Set.copyOf(lista.enCiclo()));
+        assertEquals(2.0, lista.costo("X"));
+        assertEquals(Double.POSITIVE_INFINITY, lista.costo("Z"));
+        assertFalse(lista.decision("Z").disponible());
+        // B no está autorizado y ROTA tiene una cantidad negativa
+        assertEquals(Double.POSITIVE_INFINITY, lista.decision("B").costoProduccion());
+        assertEquals(Double.POSITIVE_INFINITY, lista.decision("ROTA").costoProduccion());
+        assertEquals(0.0, lista.costo("A"));
+    }
+}
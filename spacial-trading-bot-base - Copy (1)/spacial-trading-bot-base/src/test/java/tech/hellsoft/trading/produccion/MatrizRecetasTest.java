@@ -0,0 +1,107 @@
+package tech.hellsoft.trading.produccion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.modelo.Receta;
+
+class MatrizRecetasTest {
+
+    @Test
+    void cuentaLasCorridasPorElIngredienteQueMenosAlcanza() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.fijarInventario("SAL", 7);
+        mercado.fijarInventario("PALTA", 9);
+        Map<String, Receta> recetas = Map.of(
+                "GUACA", new Receta(Map.of("SAL", 2, "PALTA", 3)),
+                "SAL", new Receta(),
+                "ROTA", new Receta(Map.of("SAL", -1)),
+                "TACO", new Receta(Map.of("MAIZ", 1)));
+
+        MatrizRecetas matriz = MatrizRecetas.compilar(recetas, mercado);
+
+        assertEquals(3, matriz.maximo("GUACA"));
+        assertEquals(MatrizRecetas.ILIMITADAS, matriz.maximo("SAL"));
+        assertEquals(0, matriz.maximo("ROTA"));
+        assertEquals(0, matriz.maximo("TACO"));
+        assertEquals(0, matriz.maximo("NADA"));
+        assertFalse(matriz.puedeProducir("TACO"));
+        assertEquals(Map.of("GUACA", 3, "SAL", MatrizRecetas.ILIMITADAS), matriz.producibles());
+    }
+
+    @Test
+    void actualizarSoloTocaLasRecetasDelIngrediente() {
+        EstadoMercado mercado = new EstadoMercado();
+        Map<String, Receta> recetas = Map.of(
+                "GUACA", new Receta(Map.of("SAL", 2, "PALTA", 3)),
+                "TACO", new Receta(Map.of("MAIZ", 1)));
+        MatrizRecetas matriz = MatrizRecetas.compilar(recetas, mercado);
+        assertEquals(0, matriz.maximo("GUACA"));
+
+        // Los ingredientes ya tienen id aunque no haya llegado inventario
+        matriz.actualizar(mercado.buscarId("SAL"), 10);
+        matriz.actualizar(mercado.buscarId("PALTA"), 6);
+        matriz.actualizar(mercado.buscarId("MAIZ"), 4);
+        assertEquals(2, matriz.maximo("GUACA"));
+        assertEquals(4, matriz.maximo("TACO"));
+
+        matriz.actualizar(mercado.buscarId("SAL"), 1);
+        assertEquals(0, matriz.maximo("GUACA"));
+        assertEquals(4, matriz.maximo("TACO"));
+    }
+
+    @Test
+    void elKernelVectorialDaLoMismoQueElEscalar() {
+        SplittableRandom azar = new SplittableRandom(42);
+        for (int caso = 0; caso < 50; caso++) {
+            EstadoMercado mercado = new EstadoMercado();
+            int ingredientes = 1 + azar.nextInt(30);
+            for (int i = 0; i < ingredientes; i++) {
+                mercado.fijarInventario("I" + i, azar.nextInt(1_000));
+            }
+            // Cantidades que no son múltiplo del ancho de los vectores, para probar el relleno
+            int n = 1 + azar.nextInt(70);
+            Map<String, Receta> recetas = new HashMap<>();
+            for (int r = 0; r < n; r++) {
+                Map<String, Integer> ing = new HashMap<>();
+                int usados = azar.nextInt(5);
+                for (int j = 0; j < usados; j++) {
+                    ing.put("I" + azar.nextInt(ingredientes), 1 + azar.nextInt(50));
+                }
+                recetas.put("R" + r, new Receta(ing));
+            }
+
+            MatrizRecetas vectorial = MatrizRecetas.compilar(recetas, mercado, true);
+            MatrizRecetas escalar = MatrizRecetas.compilar(recetas, mercado, false);
+            assertFalse(escalar.vectorizada());
+            assertEquals(escalar.producibles(), vectorial.producibles());
+            for (String producto : recetas.keySet()) {
+                assertEquals(esperado(recetas.get(producto), mercado), vectorial.maximo(producto), producto);
+            }
+        }
+    }
+
+    @Test
+    void usaLaVectorApiSiElModuloEstaCargado() {
+        boolean cargado = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && Boolean.parseBoolean(System.getProperty("trading.vector", "true"));
+        MatrizRecetas matriz = MatrizRecetas.compilar(Map.of("GUACA", new Receta(Map.of("SAL", 1))),
+                new EstadoMercado());
+        assertEquals(cargado, matriz.vectorizada());
+        assertEquals(1, matriz.cantidadIngredientes());
+        assertEquals(1, matriz.cantidadRecetas());
+    }
+
+    private static int esperado(Receta receta, EstadoMercado mercado) {
+        int minimo = MatrizRecetas.ILIMITADAS;
+        for (Map.Entry<String, Integer> e : receta.ingredientes().entrySet()) {
+            minimo = Math.min(minimo, mercado.cantidad(e.getKey()) / e.getValue());
+        }
+        return minimo;
+    }
+}
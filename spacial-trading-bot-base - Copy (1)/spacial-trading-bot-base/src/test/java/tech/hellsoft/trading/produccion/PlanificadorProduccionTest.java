@@ -0,0 +1,83 @@
+package tech.hellsoft.trading.produccion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+
+class PlanificadorProduccionTest {
+
+    // 10 unidades por corrida básica, 13 por premium
+    private static final Rol ROL = new Rol(10.0, 0, 0.0, 1.0, 0);
+    private static final long PRESUPUESTO = 1_000_000_000L;
+
+    @Test
+    void fabricaUnIntermedioSinPrecioSiLaRecetaQueLoUsaEsRentable() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.actualizarPrecio("B", 100.0, 101.0);
+
+        PlanProduccion plan = planificar(mercado, 1_000.0);
+
+        // 5 A por corrida de B y sin inventario: 4 corridas de A alcanzan para 6 de B
+        assertEquals(List.of(new PlanProduccion.Accion("A", false, 4, 40), new PlanProduccion.Accion("B", true, 6, 78)),
+                plan.acciones());
+        assertEquals(Map.of(), plan.compras());
+        assertEquals(7_800.0, plan.ganancia(), 1e-9);
+        assertTrue(plan.optimo());
+    }
+
+    @Test
+    void conPrecioParaElIntermedioLoCompraEnVezDeFabricarlo() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.actualizarPrecio("A", 1.0, 2.0);
+        mercado.actualizarPrecio("B", 100.0, 101.0);
+
+        PlanProduccion plan = planificar(mercado, 1_000.0);
+
+        assertEquals(List.of(new PlanProduccion.Accion("B", true, 10, 130)), plan.acciones());
+        assertEquals(Map.of("A", 50), plan.compras());
+        assertEquals(100.0, plan.costoCompras(), 1e-9);
+        assertTrue(plan.optimo());
+    }
+
+    @Test
+    void sinNadaRentableElPlanQuedaVacio() {
+        EstadoMercado mercado = new EstadoMercado();
+
+        PlanProduccion plan = planificar(mercado, 1_000.0);
+
+        assertTrue(plan.estaVacio());
+        assertTrue(plan.optimo());
+    }
+
+    @Test
+    void sinCambiosDevuelveElMismoPlan() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.actualizarPrecio("B", 100.0, 101.0);
+        PlanificadorProduccion planificador = planificador();
+        planificador.cargar(mercado, 1_000.0);
+        PlanProduccion primero = planificador.planificar();
+
+        assertEquals(false, planificador.actualizarPrecio("SAL", 1.0, 2.0));
+        assertEquals(primero, planificador.planificar());
+    }
+
+    private static PlanProduccion planificar(EstadoMercado mercado, double saldo) {
+        PlanificadorProduccion planificador = planificador();
+        planificador.cargar(mercado, saldo);
+        return planificador.planificar();
+    }
+
+    private static PlanificadorProduccion planificador() {
+        Map<String, Receta> recetas = new LinkedHashMap<>();
+        recetas.put("A", new Receta());
+        recetas.put("B", new Receta(Map.of("A", 5)));
+        return new PlanificadorProduccion(ROL, recetas, List.of(), 10, PRESUPUESTO);
+    }
+}
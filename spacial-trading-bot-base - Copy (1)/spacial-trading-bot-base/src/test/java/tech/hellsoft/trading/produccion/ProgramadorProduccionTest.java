@@ -0,0 +1,136 @@
+package tech.hellsoft.trading.produccion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.Cliente.EstadoCliente;
+import tech.hellsoft.trading.dto.client.ProductionUpdateMessage;
+import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
+import tech.hellsoft.trading.modelo.Receta;
+import tech.hellsoft.trading.modelo.Rol;
+import tech.hellsoft.trading.riesgo.ReservasInventario;
+
+class ProgramadorProduccionTest {
+
+    // 10 unidades por corrida básica, 13 por premium
+    private static final Rol ROL = new Rol(10.0, 0, 0.0, 1.0, 0);
+
+    private final EstadoCliente estado = new EstadoCliente();
+    private final ReservasInventario reservas = new ReservasInventario(estado.getMercado());
+    private final List<ProductionUpdateMessage> enviadas = new CopyOnWriteArrayList<>();
+
+    ProgramadorProduccionTest() {
+        estado.setRol(ROL);
+        estado.setRecetas(Map.of("GUACA", new Receta(Map.of("SAL", 2))));
+        estado.aplicarInventario("SAL", 5);
+    }
+
+    @Test
+    void unaSubidaSinConsumoDeIngredientesNoCompletaLaPremium() throws Exception {
+        try (ProgramadorProduccion programador = nuevo(TimeUnit.SECONDS.toNanos(30))) {
+            TrabajoProduccion t = programador.encolar("GUACA", true);
+            assertEquals(2, reservas.reservado("SAL"));
+
+            // Un INVENTORY_UPDATE que se adelantó a su FILL
+            programador.inventarioSubio("GUACA", 99);
+            programador.inventarioBajo("SAL", 2);
+            programador.inventarioSubio("GUACA", 13);
+
+            assertEquals(t, t.terminado().get(5, TimeUnit.SECONDS));
+            assertEquals(EstadoTrabajo.COMPLETADO, t.getEstado());
+            assertEquals(13, t.getUnidadesRecibidas());
+            assertEquals(0, reservas.reservado("SAL"));
+            assertEquals(List.of("PRODUCTION GUACA x13"), enviadas.stream().map(Object::toString).toList());
+        }
+    }
+
+    @Test
+    void elConsumoSeRepartePorOrdenDeEnvio() throws Exception {
+        estado.aplicarInventario("SAL", 4);
+        try (ProgramadorProduccion programador = nuevo(TimeUnit.SECONDS.toNanos(30))) {
+            TrabajoProduccion primero = programador.encolar("GUACA", true);
+            TrabajoProduccion segundo = programador.encolar("GUACA", true);
+
+            programador.inventarioBajo("SAL", 3);
+            programador.inventarioSubio("GUACA", 13);
+            programador.inventarioBajo("SAL", 1);
+            programador.inventarioSubio("GUACA", 14);
+
+            primero.terminado().get(5, TimeUnit.SECONDS);
+            segundo.terminado().get(5, TimeUnit.SECONDS);
+            assertEquals(13, primero.getUnidadesRecibidas());
+            assertEquals(14, segundo.getUnidadesRecibidas());
+            assertEquals(2, programador.completados());
+        }
+    }
+
+    @Test
+    void laRespuestaTardiaDeUnoVencidoNoCompletaAlSiguiente() throws Exception {
+        try (ProgramadorProduccion programador = nuevo(TimeUnit.MILLISECONDS.toNanos(300))) {
+            TrabajoProduccion vencido = programador.encolar("GUACA", true);
+            vencido.terminado().get(5, TimeUnit.SECONDS);
+            assertEquals(EstadoTrabajo.FALLIDO, vencido.getEstado());
+            assertEquals(0, reservas.reservado("SAL"));
+
+            TrabajoProduccion siguiente = programador.encolar("GUACA", true);
+            programador.inventarioBajo("SAL", 2);
+            programador.inventarioSubio("GUACA", 7);
+            programador.inventarioBajo("SAL", 2);
+            programador.inventarioSubio("GUACA", 13);
+
+            siguiente.terminado().get(5, TimeUnit.SECONDS);
+            assertEquals(EstadoTrabajo.COMPLETADO, siguiente.getEstado());
+            assertEquals(13, siguiente.getUnidadesRecibidas());
+            assertEquals(0, reservas.reservado("SAL"));
+        }
+    }
+
+    @Test
+    void laReservaDeUnTrabajoEnEsperaNoVence() throws Exception {
+        estado.aplicarInventario("SAL", 8);
+        long plazo = TimeUnit.MILLISECONDS.toNanos(200);
+        try (ProgramadorProduccion programador = new ProgramadorProduccion(estado, reservas, enviadas::add, 1, plazo)) {
+            TrabajoProduccion primero = programador.encolar("GUACA", true);
+            TrabajoProduccion segundo = programador.encolar("GUACA", true);
+            programador.encolar("GUACA", true);
+            TrabajoProduccion cuarto = programador.encolar("GUACA", true);
+
+            // Con ventana 1 el cuarto sigue en espera mucho después de dos plazos
+            primero.terminado().get(5, TimeUnit.SECONDS);
+            segundo.terminado().get(5, TimeUnit.SECONDS);
+            Thread.sleep(TimeUnit.NANOSECONDS.toMillis(plazo) / 4);
+            assertEquals(EstadoTrabajo.LISTO, cuarto.getEstado());
+
+            // Otra receta no puede llevarse lo que el cuarto tiene apartado
+            assertThrows(IngredientesInsuficientesException.class,
+                    () -> reservas.reservar("PAN", Map.of("SAL", 5), 1, 0));
+            assertTrue(cuarto.reserva.activa());
+            assertEquals(4, reservas.reservado("SAL"));
+            assertEquals(0, reservas.vencidas());
+        }
+    }
+
+    @Test
+    void lasBasicasSeCompletanConCualquierSubida() throws Exception {
+        try (ProgramadorProduccion programador = nuevo(TimeUnit.SECONDS.toNanos(30))) {
+            TrabajoProduccion t = programador.encolar("SAL", false);
+            programador.inventarioSubio("PALTA", 10);
+            programador.inventarioSubio("SAL", 10);
+
+            t.terminado().get(5, TimeUnit.SECONDS);
+            assertEquals(EstadoTrabajo.COMPLETADO, t.getEstado());
+            assertEquals(List.of("PRODUCTION SAL x10"), enviadas.stream().map(Object::toString).toList());
+        }
+    }
+
+    private ProgramadorProduccion nuevo(long plazoNanos) {
+        return new ProgramadorProduccion(estado, reservas, enviadas::add, ProgramadorProduccion.VENTANA_POR_DEFECTO,
+                plazoNanos);
+    }
+}
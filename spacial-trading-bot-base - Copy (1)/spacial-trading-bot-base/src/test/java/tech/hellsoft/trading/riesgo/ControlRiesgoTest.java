@@ -0,0 +1,156 @@
+package tech.hellsoft.trading.riesgo;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.exception.TradingExceptions.LimiteRiesgoException;
+import tech.hellsoft.trading.exception.TradingExceptions.SaldoInsuficienteException;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Valoracion;
+import tech.hellsoft.trading.ordenes.GestorOrdenes;
+import tech.hellsoft.trading.ordenes.Lado;
+import tech.hellsoft.trading.ordenes.Orden;
+
+class ControlRiesgoTest {
+
+    private static final LimitesRiesgo HOLGADOS = new LimitesRiesgo(100, 10_000.0, 1_000_000, 1_000_000);
+
+    private final EstadoMercado mercado = new EstadoMercado();
+    private final Valoracion valoracion = new Valoracion();
+
+    @Test
+    void lasComprasEnVueloNoComprometenDosVecesElMismoSaldo() throws Exception {
+        valoracion.fijarSaldo(100.0);
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+
+        riesgo.reservarCompra("PALTA", 6, 10.0);
+        assertEquals(60.0, riesgo.saldoReservado());
+        assertThrows(SaldoInsuficienteException.class, () -> riesgo.reservarCompra("PALTA", 5, 10.0));
+
+        riesgo.liberar(Lado.BUY, "PALTA", 6, 10.0);
+        assertEquals(0.0, riesgo.saldoReservado());
+        assertEquals(1, riesgo.rechazos());
+    }
+
+    @Test
+    void laPosicionCuentaInventarioYComprasEnVuelo() throws Exception {
+        valoracion.fijarSaldo(1_000_000.0);
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+        mercado.fijarInventario("PALTA", 90);
+
+        riesgo.reservarCompra("PALTA", 10, 1.0);
+        LimiteRiesgoException e = assertThrows(LimiteRiesgoException.class,
+                () -> riesgo.reservarCompra("PALTA", 1, 1.0));
+        assertEquals("posicion", e.getLimite());
+
+        riesgo.fijarLimitePosicion("PALTA", 200);
+        assertDoesNotThrow(() -> riesgo.reservarCompra("PALTA", 50, 1.0));
+    }
+
+    @Test
+    void lasVentasParalelasNoVendenMasQueElInventario() throws InterruptedException {
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+        mercado.fijarInventario("SAL", 100);
+        AtomicInteger aceptadas = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            hilos.execute(() -> {
+                try {
+                    riesgo.reservarVenta("SAL", 1, 1.0);
+                    aceptadas.incrementAndGet();
+                } catch (InventarioInsuficienteException | LimiteRiesgoException e) {
+                    // esperado cuando se agota
+                }
+            });
+        }
+        hilos.shutdown();
+        hilos.awaitTermination(30, TimeUnit.SECONDS);
+
+        assertEquals(100, aceptadas.get());
+        assertEquals(100, riesgo.inventarioReservado("SAL"));
+    }
+
+    @Test
+    void losFillsYLosRechazosLiberanLasReservas() throws Exception {
+        valoracion.fijarSaldo(1000.0);
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+        GestorOrdenes ordenes = new GestorOrdenes("T");
+        ordenes.agregarOyente(riesgo);
+
+        riesgo.reservarCompra("PALTA", 10, 10.0);
+        ordenes.crear(Lado.BUY, "PALTA", 10, 0, "x", 10.0);
+        ordenes.onFill(new FillMessage("BUY", 4, "PALTA", 9.0));
+        assertEquals(60.0, riesgo.saldoReservado(), 1e-9);
+
+        mercado.fijarInventario("SAL", 5);
+        riesgo.reservarVenta("SAL", 5, 1.0);
+        Orden venta = ordenes.crear(Lado.SELL, "SAL", 5, 0, "y");
+        ordenes.onAck(new OrderAckMessage(venta.getClOrdId(), "REJECTED"));
+        assertEquals(0, riesgo.inventarioReservado("SAL"));
+    }
+
+    @Test
+    void losFillsSueltosLiberanExactamenteLoReservado() throws Exception {
+        valoracion.fijarSaldo(1000.0);
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+        GestorOrdenes ordenes = new GestorOrdenes("T");
+        ordenes.agregarOyente(riesgo);
+
+        for (int i = 0; i < 100; i++) {
+            riesgo.reservarCompra("PALTA", 3, 0.333);
+            ordenes.crear(Lado.BUY, "PALTA", 3, 0, "x", 0.333);
+            for (int fill = 0; fill < 3; fill++) {
+                ordenes.onFill(new FillMessage("BUY", 1, "PALTA", 0.333));
+            }
+        }
+        assertEquals(0.0, riesgo.saldoReservado());
+    }
+
+    @Test
+    void elRitmoPermiteLaRafagaYLuegoRechaza() throws Exception {
+        valoracion.fijarSaldo(1000.0);
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, new LimitesRiesgo(100, 10_000.0, 1, 2));
+        for (int i = 0; i < 3; i++) {
+            riesgo.reservarCompra("PALTA", 1, 1.0);
+        }
+        LimiteRiesgoException e = assertThrows(LimiteRiesgoException.class,
+                () -> riesgo.reservarCompra("PALTA", 1, 1.0));
+        assertEquals("ritmo", e.getLimite());
+        // La orden rechazada por ritmo no deja saldo reservado
+        assertEquals(3.0, riesgo.saldoReservado());
+    }
+
+    @Test
+    void enPausaYConNocionalExcesivoRechaza() {
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, valoracion, HOLGADOS);
+        mercado.fijarInventario("SAL", 10);
+        assertEquals("nocional", assertThrows(LimiteRiesgoException.class,
+                () -> riesgo.reservarVenta("SAL", 10, 5_000.0)).getLimite());
+        riesgo.setPausado(true);
+        assertEquals("pausa", assertThrows(LimiteRiesgoException.class,
+                () -> riesgo.reservarVenta("SAL", 1, 1.0)).getLimite());
+    }
+
+    @Test
+    void funcionaConMercadosDeMasDe256Productos() throws Exception {
+        EstadoMercado grande = new EstadoMercado(400);
+        for (int i = 0; i < 300; i++) {
+            grande.idDe("P" + i);
+        }
+        valoracion.fijarSaldo(100.0);
+        ControlRiesgo riesgo = new ControlRiesgo(grande, valoracion, HOLGADOS);
+        riesgo.fijarLimitePosicion("P299", 5);
+        riesgo.reservarCompra("P299", 5, 1.0);
+        assertEquals("posicion", assertThrows(LimiteRiesgoException.class,
+                () -> riesgo.reservarCompra("P299", 1, 1.0)).getLimite());
+    }
+}
@@ -0,0 +1,92 @@
+package tech.hellsoft.trading.riesgo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.exception.ProduccionException.IngredientesInsuficientesException;
+import tech.hellsoft.trading.exception.TradingExceptions.InventarioInsuficienteException;
+import tech.hellsoft.trading.mercado.EstadoMercado;
+import tech.hellsoft.trading.mercado.Valoracion;
+
+class ReservasInventarioTest {
+
+    @Test
+    void unaRecetaReservaTodoONada() throws Exception {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.fijarInventario("SAL", 5);
+        mercado.fijarInventario("PALTA", 2);
+        ReservasInventario reservas = new ReservasInventario(mercado);
+
+        IngredientesInsuficientesException e = assertThrows(IngredientesInsuficientesException.class,
+                () -> reservas.reservar("GUACA", Map.of("SAL", 2, "PALTA", 1), 3));
+        assertEquals(Map.of("SAL", 5, "PALTA", 2), e.getInventarioActual());
+        assertEquals(0, reservas.reservado("SAL"));
+
+        ReservasInventario.Reserva r = reservas.reservar("GUACA", Map.of("SAL", 2, "PALTA", 1), 2);
+        assertEquals(1, reservas.disponible("SAL"));
+        assertEquals(0, reservas.disponible("PALTA"));
+        assertThrows(InventarioInsuficienteException.class, () -> reservas.reservar("PALTA", 1));
+
+        // Primero se aplica el consumo, después se suelta
+        mercado.fijarInventario("SAL", 1);
+        mercado.fijarInventario("PALTA", 0);
+        assertTrue(reservas.confirmar(r));
+        assertFalse(reservas.liberar(r));
+        assertEquals(1, reservas.disponible("SAL"));
+        assertEquals(0, reservas.activas());
+    }
+
+    @Test
+    void lasReservasVencidasSeSueltanParaLaSiguiente() throws Exception {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.fijarInventario("SAL", 4);
+        ReservasInventario reservas = new ReservasInventario(mercado);
+
+        ReservasInventario.Reserva vieja = reservas.reservar("PAN", Map.of("SAL", 4), 1, 0);
+        ReservasInventario.Reserva nueva = reservas.reservar("PAN", Map.of("SAL", 4), 1);
+
+        assertTrue(vieja.vencida());
+        assertTrue(nueva.activa());
+        assertEquals(1, reservas.vencidas());
+        assertEquals(4, reservas.reservado("SAL"));
+    }
+
+    @Test
+    void unaCantidadNegativaInvalidaLaReceta() {
+        EstadoMercado mercado = new EstadoMercado();
+        mercado.fijarInventario("SAL", 10);
+        ReservasInventario reservas = new ReservasInventario(mercado);
+
+        assertThrows(IngredientesInsuficientesException.class,
+                () -> reservas.reservar("ROTA", Map.of("SAL", -1), 1));
+        assertThrows(IllegalArgumentException.class, () -> reservas.reservar("PAN", Map.of("SAL", 1), 0));
+        assertEquals(0, reservas.activas());
+    }
+
+    @Test
+    void reservaProductosMasAllaDeLaCapacidadPorDefecto() throws Exception {
+        int productos = EstadoMercado.CAPACIDAD_POR_DEFECTO + 44;
+        EstadoMercado mercado = new EstadoMercado(512);
+        for (int i = 0; i < productos; i++) {
+            mercado.fijarInventario("P" + i, 3);
+        }
+        String ultimo = "P" + (productos - 1);
+        assertTrue(mercado.buscarId(ultimo) >= EstadoMercado.CAPACIDAD_POR_DEFECTO);
+
+        ReservasInventario reservas = new ReservasInventario(mercado);
+        reservas.reservar(ultimo, 2);
+        assertEquals(1, reservas.disponible(ultimo));
+        reservas.reservar("RARO", Map.of(ultimo, 1), 1);
+        assertEquals(0, reservas.disponible(ultimo));
+
+        ControlRiesgo riesgo = new ControlRiesgo(mercado, new Valoracion(),
+                new LimitesRiesgo(100, 10_000.0, 1_000_000, 1_000_000));
+        riesgo.reservarVenta("P280", 3, 1.0);
+        assertEquals(3, riesgo.inventarioReservado("P280"));
+        assertThrows(InventarioInsuficienteException.class, () -> riesgo.reservarVenta("P280", 1, 1.0));
+    }
+}
@@ -0,0 +1,174 @@
+package tech.hellsoft.trading.simulador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.dto.client.OrderMessage;
+import tech.hellsoft.trading.dto.server.BalanceUpdateMessage;
+import tech.hellsoft.trading.dto.server.FillMessage;
+import tech.hellsoft.trading.dto.server.InventoryUpdateMessage;
+import tech.hellsoft.trading.dto.server.LoginOKMessage;
+import tech.hellsoft.trading.dto.server.OrderAckMessage;
+import tech.hellsoft.trading.dto.server.TickerMessage;
+import tech.hellsoft.trading.eventos.OyenteGrabador;
+
+class SimuladorBolsaTest {
+
+    private final List<SimuladorBolsa> abiertos = new ArrayList<>();
+
+    @AfterEach
+    void cerrar() {
+        abiertos.forEach(SimuladorBolsa::close);
+    }
+
+    @Test
+    void empiezaConElLoginYElInventarioDeCadaProducto() throws InterruptedException {
+        Oyente oyente = new Oyente();
+        SimuladorBolsa sim = simulador(config(1.0, 0.0), oyente);
+        sim.conectar();
+
+        esperar(oyente, r -> r.size() >= 3);
+        assertInstanceOf(LoginOKMessage.class, oyente.recibidos.get(0));
+        InventoryUpdateMessage a = (InventoryUpdateMessage) oyente.recibidos.get(1);
+        InventoryUpdateMessage b = (InventoryUpdateMessage) oyente.recibidos.get(2);
+        assertEquals(List.of("A", "B"), List.of(a.getProduct(), b.getProduct()));
+        assertEquals(List.of(100, 100), List.of(a.getQuantity(), b.getQuantity()));
+    }
+
+    @Test
+    void conLaMismaSemillaLosTickersSonIdenticos() throws InterruptedException {
+        assertEquals(tickers(20), tickers(20));
+    }
+
+    @Test
+    void unaOrdenMarketSeLlenaYActualizaSaldoEInventario() throws InterruptedException {
+        Oyente oyente = new Oyente();
+        SimuladorBolsa sim = simulador(config(1.0, 0.0), oyente);
+        sim.conectar();
+        esperar(oyente, r -> r.size() >= 3);
+
+        sim.enviarOrden(new OrderMessage("c-1", "BUY", "MARKET", "A", 2, null, "prueba"));
+
+        esperar(oyente, r -> r.stream().filter(m -> !(m instanceof TickerMessage)).count() >= 7);
+        List<Object> tras = oyente.recibidos.stream().filter(m -> !(m instanceof TickerMessage)).skip(3).toList();
+        OrderAckMessage ack = (OrderAckMessage) tras.get(0);
+        FillMessage fill = (FillMessage) tras.get(1);
+        BalanceUpdateMessage saldo = (BalanceUpdateMessage) tras.get(2);
+        InventoryUpdateMessage inventario = (InventoryUpdateMessage) tras.get(3);
+        assertEquals(List.of("c-1", "ACCEPTED"), List.of(ack.getOrderId(), ack.getStatus()));
+        assertEquals(List.of("BUY", "A", 2), List.of(fill.getSide(), fill.getProduct(), fill.getFillQty()));
+        assertEquals(10_000.0 - 2 * fill.getFillPrice(), saldo.getBalance(), 1e-9);
+        assertEquals(102, inventario.getQuantity());
+    }
+
+    @Test
+    void unaOrdenSinInventarioSeRechaza() throws InterruptedException {
+        Oyente oyente = new Oyente();
+        SimuladorBolsa sim = simulador(config(1.0, 0.0), oyente);
+        sim.conectar();
+
+        sim.enviarOrden(new OrderMessage("c-9", "SELL", "MARKET", "A", 1_000, null, "prueba"));
+
+        esperar(oyente, r -> r.stream().anyMatch(m -> m instanceof OrderAckMessage));
+        OrderAckMessage ack = (OrderAckMessage) oyente.recibidos.stream()
+                .filter(m -> m instanceof OrderAckMessage).findFirst().orElseThrow();
+        assertEquals("REJECTED", ack.getStatus());
+        assertEquals(1, sim.estadisticas().rechazos());
+    }
+
+    @Test
+    void elCorteSeAvisaDesdeElHiloDelSimuladorYNoEntregaNadaDespues() throws InterruptedException {
+        Oyente oyente = new Oyente();
+        SimuladorBolsa sim = simulador(config(2_000.0, 0.0), oyente);
+        sim.conectar();
+        esperar(oyente, r -> r.size() >= 50);
+
+        sim.cortar();
+
+        int tras = oyente.recibidos.size();
+        assertInstanceOf(ConnectException.class, oyente.recibidos.get(tras - 1));
+        Thread.sleep(20);
+        assertEquals(tras, oyente.recibidos.size());
+        assertEquals(Set.of("simulador"), oyente.hilos.keySet());
+
+        // Se puede volver a conectar: empieza otra vez por el login
+        sim.conectar();
+        esperar(oyente, r -> r.size() > tras && r.get(tras) instanceof LoginOKMessage);
+    }
+
+    @Test
+    void unListenerPuedeCortarDesdeElPropioHilo() throws InterruptedException {
+        SimuladorBolsa[] sim = new SimuladorBolsa[1];
+        Oyente oyente = new Oyente() {
+            @Override
+            public void onLoginOk(LoginOKMessage m) {
+                super.onLoginOk(m);
+                sim[0].cortar();
+            }
+        };
+        sim[0] = simulador(config(2_000.0, 0.0), oyente);
+        sim[0].conectar();
+
+        esperar(oyente, r -> r.stream().anyMatch(m -> m instanceof ConnectException));
+        // Lo que ya había vencido con el login se entrega; después del aviso, nada
+        int recibidos = oyente.recibidos.size();
+        Thread.sleep(20);
+        assertEquals(recibidos, oyente.recibidos.size());
+        assertInstanceOf(ConnectException.class, oyente.recibidos.get(recibidos - 1));
+    }
+
+    private List<String> tickers(int n) throws InterruptedException {
+        Oyente oyente = new Oyente();
+        SimuladorBolsa sim = simulador(config(5_000.0, 0.0), oyente);
+        sim.conectar();
+        esperar(oyente, r -> r.stream().filter(m -> m instanceof TickerMessage).count() >= n);
+        sim.desconectar();
+        return oyente.recibidos.stream().filter(m -> m instanceof TickerMessage).limit(n)
+                .map(m -> {
+                    TickerMessage t = (TickerMessage) m;
+                    return t.getProduct() + " " + t.getBestBid() + " " + t.getBestAsk();
+                }).toList();
+    }
+
+    private SimuladorBolsa simulador(ConfigSimulador config, Oyente oyente) {
+        SimuladorBolsa sim = new SimuladorBolsa(config);
+        sim.addListener(oyente);
+        abiertos.add(sim);
+        return sim;
+    }
+
+    private static ConfigSimulador config(double ticksPorSegundo, double ofertasPorTick) {
+        return new ConfigSimulador(7L, List.of("A", "B"), ticksPorSegundo, 0L, 0L, ofertasPorTick, 0.0, 0.001,
+                0.002, 10_000.0, 100, "prueba");
+    }
+
+    private static void esperar(Oyente oyente, Predicate<List<Object>> condicion) throws InterruptedException {
+        long limite = System.nanoTime() + 5_000_000_000L;
+        while (!condicion.test(oyente.recibidos) && System.nanoTime() < limite) {
+            Thread.sleep(1);
+        }
+        assertTrue(condicion.test(oyente.recibidos), () -> "Recibidos: " + oyente.recibidos.size());
+    }
+
+    /**
+     * Además de los mensajes, los hilos desde los que llegaron.
+     */
+    private static class Oyente extends OyenteGrabador {
+        final ConcurrentHashMap<String, Boolean> hilos = new ConcurrentHashMap<>();
+
+        @Override
+        protected void grabar(Object mensaje) {
+            hilos.put(Thread.currentThread().getName(), true);
+            super.grabar(mensaje);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package tech.hellsoft.trading.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import tech.hellsoft.trading.modelo.Rol;
+
+class CalculadoraProduccionTest {
+
+    @Test
+    void coincideConLaFormulaRecursivaOriginal() {
+        assertEquals(7417, CalculadoraProduccion.calcularUnidades(new Rol(19.0, 3, 0.6, 2.5, 10)));
+
+        Random azar = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            Rol rol = new Rol(1 + azar.nextInt(400) / 10.0, azar.nextInt(10), azar.nextInt(100) / 100.0,
+                    1 + azar.nextInt(30) / 10.0, azar.nextInt(13));
+            assertEquals(recursivo(0, rol), CalculadoraProduccion.calcularUnidades(rol), rol::toString);
+        }
+    }
+
+    @Test
+    void lasVariantesEnArreglosDanLoMismoQueUnRol() {
+        Rol[] roles = {new Rol(19.0, 3, 0.6, 2.5, 10), new Rol(5.0, 1, 0.9, 1.1, 4), new Rol(2.0, 0, 0.0, 3.0, 0)};
+        int[] porRol = new int[roles.length];
+        CalculadoraProduccion.calcularUnidades(roles, porRol);
+
+        int[] porArreglo = new int[roles.length];
+        CalculadoraProduccion.calcularUnidades(new double[] {19.0, 5.0, 2.0}, new int[] {3, 1, 0},
+                new double[] {0.6, 0.9, 0.0}, new double[] {2.5, 1.1, 3.0}, new int[] {10, 4, 0}, porArreglo);
+
+        assertArrayEquals(porRol, porArreglo);
+        assertEquals(recursivo(0, roles[1]), porRol[1]);
+    }
+
+    @Test
+    void elBonusPremiumRedondea() {
+        assertEquals(13, CalculadoraProduccion.aplicarBonusPremium(10, 1.3));
+        assertEquals(0, CalculadoraProduccion.aplicarBonusPremium(0, 1.3));
+    }
+
+    // La versión recursiva anterior, tal cual
+    private static int recursivo(int nivel, Rol rol) {
+        if (nivel > rol.getMaxDepth()) {
+            return 0;
+        }
+        double energia = rol.getBaseEnergy() + rol.getLevelEnergy() * nivel;
+        double factor = Math.pow(rol.getDecay(), nivel) * Math.pow(rol.getBranches(), nivel);
+        return (int) Math.round(energia * factor) + recursivo(nivel + 1, rol);
+    }
+}
@@ -0,0 +1,36 @@
+package tech.hellsoft.trading.produccion;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link KernelRecetas} con la Vector API: un bloque de recetas por vector,
+ * acumulando el mínimo en registros mientras recorre los ingredientes.
+ *
+ * Los carriles con requerido 0 dividen entre 1 y no entran al mínimo (máscara),
+ * así que la receta que no usa el ingrediente no se ve afectada.
+ */
+final class KernelVectorRecetas implements KernelRecetas {
+
+    private static final VectorSpecies<Integer> ESPECIE = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void maximas(int[] requerido, int ancho, int[] inventario, int columnas, int[] destino) {
+        int carriles = ESPECIE.length();
+        for (int r = 0; r < ancho; r += carriles) {
+            IntVector minimo = IntVector.broadcast(ESPECIE, MatrizRecetas.ILIMITADAS);
+            for (int k = 0; k < columnas; k++) {
+                IntVector req = IntVector.fromArray(ESPECIE, requerido, k * ancho + r);
+                VectorMask<Integer> usa = req.compare(VectorOperators.GT, 0);
+                if (!usa.anyTrue()) {
+                    continue;
+                }
+                IntVector corridas = IntVector.broadcast(ESPECIE, inventario[k]).div(req.max(1));
+                minimo = minimo.lanewise(VectorOperators.MIN, corridas, usa);
+            }
+            minimo.max(0).intoArray(destino, r);
+        }
+    }
+}